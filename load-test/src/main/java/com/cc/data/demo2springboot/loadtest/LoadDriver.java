@@ -0,0 +1,133 @@
+package com.cc.data.demo2springboot.loadtest;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends the scenario mix for the warm-up and the measured duration, recording only requests
+ * sent after the warm-up.
+ * <ul>
+ *   <li>Open model: one thread schedules arrivals at the configured rate and sends them
+ *       asynchronously. Latency is measured from the scheduled send time, so a server that
+ *       falls behind is charged for the queueing it causes (no coordinated omission). Arrivals
+ *       beyond the limit on outstanding requests are dropped and counted.</li>
+ *   <li>Closed model: each client sends its next request when the previous one completes.
+ *       Latency is measured from the actual send, so it reflects service time rather than
+ *       what users arriving at a fixed rate would see.</li>
+ * </ul>
+ * Scenario choices come from random generators seeded from {@code seed}. In the open model, runs
+ * with the same options therefore send the same sequence of requests.
+ */
+public final class LoadDriver {
+
+    private final HttpClient client;
+    private final Session session;
+    private final LoadTestOptions options;
+    private final Results results;
+
+    public LoadDriver(HttpClient client, Session session, LoadTestOptions options, Results results) {
+        this.client = client;
+        this.session = session;
+        this.options = options;
+        this.results = results;
+    }
+
+    /**
+     * Runs the warm-up and then the measured part of the test.
+     *
+     * @return the length of the measured part in nanoseconds, up to the last response
+     */
+    public long run() throws InterruptedException {
+        long start = System.nanoTime();
+        long measureFrom = start + options.warmup().toNanos();
+        long end = measureFrom + options.duration().toNanos();
+        if (options.openModel()) {
+            runOpen(start, measureFrom, end);
+        } else {
+            runClosed(measureFrom, end);
+        }
+        return System.nanoTime() - measureFrom;
+    }
+
+    private void runOpen(long start, long measureFrom, long end) throws InterruptedException {
+        Random random = new Random(options.seed());
+        Semaphore outstanding = new Semaphore(options.maxOutstanding());
+        double meanInterval = TimeUnit.SECONDS.toNanos(1) / options.rate();
+        double next = start;
+        while (next < end) {
+            long scheduled = (long) next;
+            LockSupport.parkNanos(scheduled - System.nanoTime());
+            boolean measured = scheduled >= measureFrom;
+            Scenario scenario = options.mix().pick(random);
+            HttpRequest request = scenario.request(session, random);
+            if (outstanding.tryAcquire()) {
+                client.sendAsync(request, HttpResponse.BodyHandlers.ofString()).whenComplete((response, failure) -> {
+                    outstanding.release();
+                    completed(scenario, scheduled, measured, response, failure);
+                });
+            } else if (measured) {
+                results.recordFailure(scenario, Results.Outcome.DROPPED);
+            }
+            next += options.arrivals() == LoadTestOptions.Arrivals.POISSON
+                    ? -Math.log(1 - random.nextDouble()) * meanInterval
+                    : meanInterval;
+        }
+        // Let the outstanding requests complete or time out
+        long drain = options.timeout().toNanos() + TimeUnit.SECONDS.toNanos(1);
+        if (outstanding.tryAcquire(options.maxOutstanding(), drain, TimeUnit.NANOSECONDS)) {
+            outstanding.release(options.maxOutstanding());
+        }
+    }
+
+    private void runClosed(long measureFrom, long end) throws InterruptedException {
+        List<Thread> clients = new ArrayList<>(options.concurrency());
+        for (int i = 0; i < options.concurrency(); i++) {
+            Random random = new Random(options.seed() + i);
+            clients.add(Thread.ofPlatform().name("load-client-" + i).start(() -> {
+                while (System.nanoTime() < end && !Thread.currentThread().isInterrupted()) {
+                    Scenario scenario = options.mix().pick(random);
+                    HttpRequest request = scenario.request(session, random);
+                    long sent = System.nanoTime();
+                    HttpResponse<String> response = null;
+                    Throwable failure = null;
+                    try {
+                        response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                    } catch (IOException e) {
+                        failure = e;
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    completed(scenario, sent, sent >= measureFrom, response, failure);
+                }
+            }));
+        }
+        for (Thread client : clients) {
+            client.join();
+        }
+    }
+
+    private void completed(Scenario scenario, long sent, boolean measured, HttpResponse<String> response,
+                           Throwable failure) {
+        long latency = System.nanoTime() - sent;
+        if (response != null) {
+            scenario.completed(session, response.statusCode(), response.body());
+        }
+        if (!measured) {
+            return;
+        }
+        if (failure != null) {
+            results.recordFailure(scenario, Results.Outcome.FAILED);
+        } else {
+            results.record(scenario, latency, response.statusCode());
+        }
+    }
+}
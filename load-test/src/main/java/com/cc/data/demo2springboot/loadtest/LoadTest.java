@@ -0,0 +1,50 @@
+package com.cc.data.demo2springboot.loadtest;
+
+import java.net.http.HttpClient;
+
+/**
+ * Drives the documented API flows against a running application and writes an HdrHistogram
+ * latency and throughput report.
+ * <pre>
+ * java -jar target/demo2-springboot-load-test-0.0.1-SNAPSHOT.jar --rate=200 --duration=PT2M \
+ *      --mix=get=60,list=30,create=10 --report=target/report.txt
+ * </pre>
+ * See {@link LoadTestOptions} for the options and their defaults. The application's per-client
+ * rate limits apply to the harness too; start it with {@code RATE_LIMIT_ENABLED=false} to measure
+ * capacity, as {@code scripts/load-test.sh} does.
+ */
+public final class LoadTest {
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options;
+        try {
+            options = LoadTestOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+            return;
+        }
+
+        try (HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(options.timeout())
+                .build()) {
+            Report report = run(client, options);
+            report.writeSummary(System.out);
+            report.write(options.report());
+            System.out.println();
+            System.out.println("Report written to " + options.report().toAbsolutePath());
+        }
+    }
+
+    static Report run(HttpClient client, LoadTestOptions options) throws Exception {
+        Session session = new Session(options);
+        session.start(client, options.seedUsers());
+        Results results = new Results();
+        long measuredNanos = new LoadDriver(client, session, options, results).run();
+        return new Report(options, results, measuredNanos);
+    }
+}
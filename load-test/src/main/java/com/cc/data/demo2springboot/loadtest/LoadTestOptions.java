@@ -0,0 +1,117 @@
+package com.cc.data.demo2springboot.loadtest;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Settings of one load test run, read from {@code --name=value} arguments.
+ * A positive {@code rate} selects the open model: requests arrive at that rate whether or not
+ * earlier ones have completed, and at most {@code maxOutstanding} may be outstanding. Otherwise
+ * {@code concurrency} clients each send their next request as soon as the previous one completes.
+ *
+ * @param baseUrl        where the application listens
+ * @param rate           requests per second in the open model, or 0 for the closed model
+ * @param arrivals       spacing of open-model arrivals
+ * @param concurrency    clients in the closed model
+ * @param maxOutstanding requests the open model may have outstanding; further arrivals are dropped
+ * @param warmup         how long to run before measuring
+ * @param duration       how long to measure
+ * @param timeout        how long to wait for one response
+ * @param mix            relative frequency of each scenario
+ * @param seedUsers      users created before the run, for the reads, updates and deletes to work on
+ * @param seed           seed of the scenario and id choices, so runs replay the same sequence
+ * @param report         file the report is written to
+ * @param adminUsername  account for the writes
+ * @param adminPassword  password of the admin account
+ * @param username       account for the reads and the login scenario
+ * @param password       password of that account
+ */
+public record LoadTestOptions(URI baseUrl, double rate, Arrivals arrivals, int concurrency, int maxOutstanding,
+                              Duration warmup, Duration duration, Duration timeout, ScenarioMix mix, int seedUsers,
+                              long seed, Path report, String adminUsername, String adminPassword, String username,
+                              String password) {
+
+    /**
+     * Spacing of open-model arrivals: evenly, or as a Poisson process with the same mean rate.
+     */
+    public enum Arrivals { CONSTANT, POISSON }
+
+    static final String DEFAULT_MIX = "get=50,list=25,create=8,update=8,delete=5,batch=2,login=2";
+
+    private static final Map<String, String> DEFAULTS = Map.ofEntries(
+            Map.entry("baseUrl", "http://localhost:8080"),
+            Map.entry("rate", "0"),
+            Map.entry("arrivals", "constant"),
+            Map.entry("concurrency", "16"),
+            Map.entry("maxOutstanding", "1000"),
+            Map.entry("warmup", "PT10S"),
+            Map.entry("duration", "PT60S"),
+            Map.entry("timeout", "PT10S"),
+            Map.entry("mix", DEFAULT_MIX),
+            Map.entry("seedUsers", "100"),
+            Map.entry("seed", "42"),
+            Map.entry("report", "load-test-report.txt"),
+            Map.entry("adminUsername", "admin"),
+            Map.entry("adminPassword", "admin"),
+            Map.entry("username", "user"),
+            Map.entry("password", "password"));
+
+    public LoadTestOptions {
+        if (rate < 0) {
+            throw new IllegalArgumentException("rate must not be negative, was " + rate);
+        }
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("concurrency must be at least 1, was " + concurrency);
+        }
+        if (maxOutstanding < 1) {
+            throw new IllegalArgumentException("maxOutstanding must be at least 1, was " + maxOutstanding);
+        }
+        if (duration.isNegative() || duration.isZero()) {
+            throw new IllegalArgumentException("duration must be positive, was " + duration);
+        }
+    }
+
+    /**
+     * Parses {@code --name=value} arguments; options that are not given keep their defaults.
+     *
+     * @throws IllegalArgumentException for an unknown option or a malformed value
+     */
+    public static LoadTestOptions parse(String... args) {
+        Map<String, String> values = new LinkedHashMap<>(DEFAULTS);
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            String name = arg.substring(2, equals);
+            if (!DEFAULTS.containsKey(name)) {
+                throw new IllegalArgumentException("Unknown option --" + name + ", expected one of " + DEFAULTS.keySet());
+            }
+            values.put(name, arg.substring(equals + 1));
+        }
+        return new LoadTestOptions(
+                URI.create(values.get("baseUrl").replaceAll("/+$", "")),
+                Double.parseDouble(values.get("rate")),
+                Arrivals.valueOf(values.get("arrivals").toUpperCase()),
+                Integer.parseInt(values.get("concurrency")),
+                Integer.parseInt(values.get("maxOutstanding")),
+                Duration.parse(values.get("warmup")),
+                Duration.parse(values.get("duration")),
+                Duration.parse(values.get("timeout")),
+                ScenarioMix.parse(values.get("mix")),
+                Integer.parseInt(values.get("seedUsers")),
+                Long.parseLong(values.get("seed")),
+                Path.of(values.get("report")),
+                values.get("adminUsername"),
+                values.get("adminPassword"),
+                values.get("username"),
+                values.get("password"));
+    }
+
+    public boolean openModel() {
+        return rate > 0;
+    }
+}
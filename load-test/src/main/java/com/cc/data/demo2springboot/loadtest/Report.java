@@ -0,0 +1,118 @@
+package com.cc.data.demo2springboot.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes the outcome of a run: the options it ran with, one line of throughput, latency
+ * percentiles and outcome counts per scenario and for all requests, and then the full
+ * HdrHistogram percentile distributions. Latencies are shown in milliseconds.
+ */
+public final class Report {
+
+    private static final double MICROS_PER_MILLI = 1000.0;
+    private static final String HEADER = String.format("%-8s %9s %8s %8s %8s %8s %8s %9s %8s %6s %6s %7s %8s",
+            "scenario", "requests", "req/s", "p50", "p90", "p99", "p99.9", "max", "2xx", "4xx", "5xx", "failed",
+            "dropped");
+
+    private final LoadTestOptions options;
+    private final Results results;
+    private final Map<Scenario, Histogram> latencies;
+    private final Histogram all;
+    private final double measuredSeconds;
+
+    public Report(LoadTestOptions options, Results results, long measuredNanos) {
+        this.options = options;
+        this.results = results;
+        this.latencies = results.latencies();
+        this.all = new Histogram(3);
+        latencies.values().forEach(all::add);
+        this.measuredSeconds = measuredNanos / (double) TimeUnit.SECONDS.toNanos(1);
+    }
+
+    public void write(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file), false, StandardCharsets.UTF_8)) {
+            writeSummary(out);
+            out.println();
+            if (all.getTotalCount() > 0) {
+                out.println("Latency distribution of all requests (ms)");
+                all.outputPercentileDistribution(out, MICROS_PER_MILLI);
+            }
+            latencies.forEach((scenario, histogram) -> {
+                if (histogram.getTotalCount() > 0) {
+                    out.println();
+                    out.println("Latency distribution of " + name(scenario) + " (ms)");
+                    histogram.outputPercentileDistribution(out, MICROS_PER_MILLI);
+                }
+            });
+        }
+    }
+
+    public void writeSummary(PrintStream out) {
+        out.println("demo2-springboot load test, " + OffsetDateTime.now());
+        out.printf("Target     %s%n", options.baseUrl());
+        out.printf("Model      %s%n", options.openModel()
+                ? String.format("open, %.1f requests/s with %s arrivals, at most %d outstanding", options.rate(),
+                        options.arrivals().name().toLowerCase(), options.maxOutstanding())
+                : String.format("closed, %d clients", options.concurrency()));
+        out.printf("Duration   %s warm-up, %s measured (%.1f s to the last response)%n", options.warmup(),
+                options.duration(), measuredSeconds);
+        out.printf("Mix        %s%n", options.mix());
+        out.printf("Seed       %d, %d seed users%n", options.seed(), options.seedUsers());
+        out.printf("JVM        %s %s, %d CPUs%n", System.getProperty("java.vm.name"),
+                System.getProperty("java.version"), Runtime.getRuntime().availableProcessors());
+        out.println();
+        out.println(HEADER);
+        long[] totals = new long[Results.Outcome.values().length];
+        latencies.forEach((scenario, histogram) -> {
+            long[] counts = counts(scenario);
+            for (int i = 0; i < totals.length; i++) {
+                totals[i] += counts[i];
+            }
+            if (options.mix().share(scenario) > 0) {
+                out.println(line(name(scenario), histogram, counts));
+            }
+        });
+        out.println(line("all", all, totals));
+    }
+
+    private long[] counts(Scenario scenario) {
+        Results.Outcome[] outcomes = Results.Outcome.values();
+        long[] counts = new long[outcomes.length];
+        for (int i = 0; i < outcomes.length; i++) {
+            counts[i] = results.count(scenario, outcomes[i]);
+        }
+        return counts;
+    }
+
+    private String line(String label, Histogram histogram, long[] counts) {
+        long requests = histogram.getTotalCount();
+        return String.format("%-8s %9d %8.1f %8.2f %8.2f %8.2f %8.2f %9.2f %8d %6d %6d %7d %8d",
+                label, requests, requests / measuredSeconds,
+                millis(histogram, 50), millis(histogram, 90), millis(histogram, 99), millis(histogram, 99.9),
+                histogram.getMaxValue() / MICROS_PER_MILLI,
+                counts[Results.Outcome.SUCCESS.ordinal()], counts[Results.Outcome.CLIENT_ERROR.ordinal()],
+                counts[Results.Outcome.SERVER_ERROR.ordinal()], counts[Results.Outcome.FAILED.ordinal()],
+                counts[Results.Outcome.DROPPED.ordinal()]);
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / MICROS_PER_MILLI;
+    }
+
+    private static String name(Scenario scenario) {
+        return scenario.name().toLowerCase();
+    }
+}
@@ -0,0 +1,76 @@
+package com.cc.data.demo2springboot.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies and outcomes per scenario, recorded wait-free from any thread.
+ * Latencies are kept in microseconds with three significant digits.
+ */
+public final class Results {
+
+    /**
+     * What happened to one request, besides its latency.
+     */
+    public enum Outcome {
+        /** a 2xx response */
+        SUCCESS,
+        /** a 4xx response, e.g. 404 for a user deleted meanwhile, or 429 from the rate limiter */
+        CLIENT_ERROR,
+        /** a 5xx response, e.g. 503 from a full bulkhead */
+        SERVER_ERROR,
+        /** no response: connection failure or timeout */
+        FAILED,
+        /** not sent, because the open model's limit on outstanding requests was reached */
+        DROPPED
+    }
+
+    private final Map<Scenario, ScenarioResults> byScenario = new EnumMap<>(Scenario.class);
+
+    public Results() {
+        for (Scenario scenario : Scenario.values()) {
+            byScenario.put(scenario, new ScenarioResults());
+        }
+    }
+
+    public void record(Scenario scenario, long latencyNanos, int status) {
+        ScenarioResults results = byScenario.get(scenario);
+        results.latencies.recordValue(Math.max(1, TimeUnit.NANOSECONDS.toMicros(latencyNanos)));
+        Outcome outcome = status >= 500 ? Outcome.SERVER_ERROR : status >= 400 ? Outcome.CLIENT_ERROR : Outcome.SUCCESS;
+        results.outcomes.get(outcome).increment();
+    }
+
+    public void recordFailure(Scenario scenario, Outcome outcome) {
+        byScenario.get(scenario).outcomes.get(outcome).increment();
+    }
+
+    /**
+     * The latencies recorded since the last call, per scenario.
+     */
+    public Map<Scenario, Histogram> latencies() {
+        Map<Scenario, Histogram> latencies = new EnumMap<>(Scenario.class);
+        byScenario.forEach((scenario, results) -> latencies.put(scenario, results.latencies.getIntervalHistogram()));
+        return latencies;
+    }
+
+    public long count(Scenario scenario, Outcome outcome) {
+        return byScenario.get(scenario).outcomes.get(outcome).sum();
+    }
+
+    private static final class ScenarioResults {
+
+        private final Recorder latencies = new Recorder(3);
+        private final Map<Outcome, LongAdder> outcomes = new EnumMap<>(Outcome.class);
+
+        private ScenarioResults() {
+            for (Outcome outcome : Outcome.values()) {
+                outcomes.put(outcome, new LongAdder());
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.cc.data.demo2springboot.loadtest;
+
+import java.net.http.HttpRequest;
+import java.util.Random;
+
+/**
+ * The flows from {@code src/main/resources/user-requests.http} and {@code http-requests.md}.
+ * Reads run as the regular user and writes as the admin, as in those files. Reads and updates
+ * pick any known user; a delete removes its user from the known ones first.
+ */
+public enum Scenario {
+
+    /** POST /api/auth/login as the regular user */
+    LOGIN {
+        @Override
+        HttpRequest request(Session session, Random random) {
+            return session.login();
+        }
+    },
+    /** GET /api/users?page=0..4&amp;size=20 */
+    LIST {
+        @Override
+        HttpRequest request(Session session, Random random) {
+            return session.listPage(random);
+        }
+    },
+    /** GET /api/users/{id} */
+    GET {
+        @Override
+        HttpRequest request(Session session, Random random) {
+            return session.get(random);
+        }
+    },
+    /** POST /api/users */
+    CREATE {
+        @Override
+        HttpRequest request(Session session, Random random) {
+            return session.create();
+        }
+
+        @Override
+        void completed(Session session, int status, String body) {
+            if (status == 201) {
+                session.addIds(body);
+            }
+        }
+    },
+    /** POST /api/users/batch with ten users */
+    BATCH {
+        @Override
+        HttpRequest request(Session session, Random random) {
+            return session.createBatch(Session.BATCH_SIZE);
+        }
+
+        @Override
+        void completed(Session session, int status, String body) {
+            if (status == 201) {
+                session.addIds(body);
+            }
+        }
+    },
+    /** PUT /api/users/{id}, renaming the user */
+    UPDATE {
+        @Override
+        HttpRequest request(Session session, Random random) {
+            return session.update(random);
+        }
+    },
+    /** DELETE /api/users/{id} */
+    DELETE {
+        @Override
+        HttpRequest request(Session session, Random random) {
+            return session.delete(random);
+        }
+    };
+
+    abstract HttpRequest request(Session session, Random random);
+
+    /**
+     * Called with every response, before it is recorded.
+     */
+    void completed(Session session, int status, String body) {
+    }
+}
@@ -0,0 +1,76 @@
+package com.cc.data.demo2springboot.loadtest;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+/**
+ * Relative frequencies of the scenarios, written as {@code get=50,list=25,create=8}.
+ * Scenarios that are not listed are never picked.
+ */
+public final class ScenarioMix {
+
+    private final Map<Scenario, Integer> weights;
+    private final Scenario[] scenarios;
+    private final int[] cumulative;
+    private final int total;
+
+    private ScenarioMix(Map<Scenario, Integer> weights) {
+        this.weights = weights;
+        this.scenarios = weights.keySet().toArray(Scenario[]::new);
+        this.cumulative = new int[scenarios.length];
+        int sum = 0;
+        for (int i = 0; i < scenarios.length; i++) {
+            sum += weights.get(scenarios[i]);
+            cumulative[i] = sum;
+        }
+        this.total = sum;
+    }
+
+    /**
+     * @throws IllegalArgumentException for an unknown scenario, a negative weight, or no positive weight at all
+     */
+    public static ScenarioMix parse(String mix) {
+        Map<Scenario, Integer> weights = new EnumMap<>(Scenario.class);
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split("=");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Expected scenario=weight, got '" + entry + "'");
+            }
+            Scenario scenario = Scenario.valueOf(parts[0].trim().toUpperCase());
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Weight of " + scenario + " must not be negative");
+            }
+            if (weight > 0) {
+                weights.put(scenario, weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("The mix '" + mix + "' gives no scenario a positive weight");
+        }
+        return new ScenarioMix(weights);
+    }
+
+    public Scenario pick(Random random) {
+        int ticket = random.nextInt(total);
+        for (int i = 0; i < cumulative.length; i++) {
+            if (ticket < cumulative[i]) {
+                return scenarios[i];
+            }
+        }
+        throw new IllegalStateException("Ticket " + ticket + " is outside the mix");
+    }
+
+    public double share(Scenario scenario) {
+        return weights.getOrDefault(scenario, 0) / (double) total;
+    }
+
+    @Override
+    public String toString() {
+        return weights.entrySet().stream()
+                .map(weight -> weight.getKey().name().toLowerCase() + "=" + weight.getValue())
+                .collect(Collectors.joining(","));
+    }
+}
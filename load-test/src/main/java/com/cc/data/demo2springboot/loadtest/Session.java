@@ -0,0 +1,181 @@
+package com.cc.data.demo2springboot.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * What the scenarios share during a run: the tokens of both accounts, the ids of the users
+ * known to exist, and a counter for unique usernames. Names start with a per-run prefix, so
+ * runs against the same database do not collide.
+ */
+public final class Session {
+
+    static final int BATCH_SIZE = 10;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final LoadTestOptions options;
+    private final Duration timeout;
+    private final String prefix;
+    private final AtomicLong names = new AtomicLong();
+    private final List<Long> ids = new ArrayList<>();
+    private String adminToken;
+    private String userToken;
+
+    public Session(LoadTestOptions options) {
+        this.options = options;
+        this.timeout = options.timeout();
+        this.prefix = "lt" + Long.toString(System.currentTimeMillis(), 36);
+    }
+
+    /**
+     * Logs both accounts in and creates the seed users in batches.
+     *
+     * @throws IllegalStateException if a login or a seed batch is refused
+     */
+    public void start(HttpClient client, int seedUsers) throws IOException, InterruptedException {
+        adminToken = login(client, options.adminUsername(), options.adminPassword());
+        userToken = login(client, options.username(), options.password());
+        for (int created = 0; created < seedUsers; created += BATCH_SIZE) {
+            HttpResponse<String> response = client.send(createBatch(Math.min(BATCH_SIZE, seedUsers - created)),
+                    HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 201) {
+                throw new IllegalStateException("Seeding users failed with " + response.statusCode()
+                        + ": " + response.body());
+            }
+            addIds(response.body());
+        }
+    }
+
+    private String login(HttpClient client, String username, String password) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(login(username, password), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Login of " + username + " failed with " + response.statusCode());
+        }
+        return objectMapper.readTree(response.body()).get("token").asText();
+    }
+
+    HttpRequest login() {
+        return login(options.username(), options.password());
+    }
+
+    private HttpRequest login(String username, String password) {
+        ObjectNode body = objectMapper.createObjectNode().put("username", username).put("password", password);
+        return json(request("/api/auth/login")).POST(HttpRequest.BodyPublishers.ofString(body.toString())).build();
+    }
+
+    HttpRequest listPage(Random random) {
+        return read(request("/api/users?page=" + random.nextInt(5) + "&size=20"));
+    }
+
+    HttpRequest get(Random random) {
+        return read(request("/api/users/" + anyId(random)));
+    }
+
+    HttpRequest create() {
+        return write(json(request("/api/users")).POST(HttpRequest.BodyPublishers.ofString(newUser().toString())));
+    }
+
+    HttpRequest createBatch(int size) {
+        ArrayNode users = objectMapper.createArrayNode();
+        for (int i = 0; i < size; i++) {
+            users.add(newUser());
+        }
+        return write(json(request("/api/users/batch")).POST(HttpRequest.BodyPublishers.ofString(users.toString())));
+    }
+
+    HttpRequest update(Random random) {
+        ObjectNode user = newUser().put("active", random.nextBoolean());
+        return write(json(request("/api/users/" + anyId(random))).PUT(HttpRequest.BodyPublishers.ofString(user.toString())));
+    }
+
+    HttpRequest delete(Random random) {
+        return write(request("/api/users/" + takeId(random)).DELETE());
+    }
+
+    /**
+     * Remembers the ids in a response body holding one user or an array of users.
+     */
+    void addIds(String body) {
+        try {
+            JsonNode json = objectMapper.readTree(body);
+            synchronized (ids) {
+                if (json.isArray()) {
+                    json.forEach(user -> ids.add(user.get("id").asLong()));
+                } else {
+                    ids.add(json.get("id").asLong());
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Unexpected response body " + body, e);
+        }
+    }
+
+    int knownUsers() {
+        synchronized (ids) {
+            return ids.size();
+        }
+    }
+
+    /**
+     * Any known id, or 0, which never exists, when every known user has been deleted.
+     */
+    private long anyId(Random random) {
+        synchronized (ids) {
+            return ids.isEmpty() ? 0 : ids.get(random.nextInt(ids.size()));
+        }
+    }
+
+    /**
+     * Removes a known id, so no two deletes pick the same user.
+     */
+    private long takeId(Random random) {
+        synchronized (ids) {
+            if (ids.isEmpty()) {
+                return 0;
+            }
+            int index = random.nextInt(ids.size());
+            long id = ids.get(index);
+            ids.set(index, ids.getLast());
+            ids.removeLast();
+            return id;
+        }
+    }
+
+    private ObjectNode newUser() {
+        String name = prefix + "-" + names.incrementAndGet();
+        return objectMapper.createObjectNode()
+                .put("username", name)
+                .put("email", name + "@example.com")
+                .put("fullName", "Load Test " + name)
+                .put("active", true);
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create(options.baseUrl() + path)).timeout(timeout);
+    }
+
+    private static HttpRequest.Builder json(HttpRequest.Builder request) {
+        return request.header("Content-Type", "application/json").header("Accept", "application/json");
+    }
+
+    private HttpRequest read(HttpRequest.Builder request) {
+        return request.header("Authorization", "Bearer " + userToken).GET().build();
+    }
+
+    private HttpRequest write(HttpRequest.Builder request) {
+        return request.header("Authorization", "Bearer " + adminToken).build();
+    }
+}
@@ -0,0 +1,75 @@
+package com.cc.data.demo2springboot.loadtest;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class LoadTestOptionsTest {
+
+    @Test
+    void parse_WithoutArguments_ShouldRunTheClosedModelWithTheDefaultMix() {
+        LoadTestOptions options = LoadTestOptions.parse();
+
+        assertThat(options.openModel()).isFalse();
+        assertThat(options.baseUrl()).isEqualTo(URI.create("http://localhost:8080"));
+        assertThat(options.concurrency()).isEqualTo(16);
+        assertThat(options.duration()).isEqualTo(Duration.ofSeconds(60));
+        assertThat(options.mix().toString()).isEqualTo(ScenarioMix.parse(LoadTestOptions.DEFAULT_MIX).toString());
+    }
+
+    @Test
+    void parse_WithRate_ShouldSelectTheOpenModel() {
+        LoadTestOptions options = LoadTestOptions.parse("--rate=250", "--arrivals=poisson",
+                "--baseUrl=http://app:9090/", "--mix=get=3,list=1", "--maxOutstanding=64");
+
+        assertThat(options.openModel()).isTrue();
+        assertThat(options.rate()).isEqualTo(250);
+        assertThat(options.arrivals()).isEqualTo(LoadTestOptions.Arrivals.POISSON);
+        assertThat(options.baseUrl()).isEqualTo(URI.create("http://app:9090"));
+        assertThat(options.maxOutstanding()).isEqualTo(64);
+        assertThat(options.mix().share(Scenario.GET)).isEqualTo(0.75);
+        assertThat(options.mix().share(Scenario.DELETE)).isZero();
+    }
+
+    @Test
+    void parse_ShouldRejectUnknownOptionsAndInvalidValues() {
+        assertThatThrownBy(() -> LoadTestOptions.parse("--threads=4"))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("--threads");
+        assertThatThrownBy(() -> LoadTestOptions.parse("rate=4"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> LoadTestOptions.parse("--concurrency=0"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> LoadTestOptions.parse("--mix=get=0"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> LoadTestOptions.parse("--mix=browse=1"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void pick_ShouldFollowTheWeightsAndReplayForTheSameSeed() {
+        ScenarioMix mix = ScenarioMix.parse("get=60,list=30,create=10");
+        Map<Scenario, Integer> picks = new EnumMap<>(Scenario.class);
+        Random random = new Random(7);
+        for (int i = 0; i < 100_000; i++) {
+            picks.merge(mix.pick(random), 1, Integer::sum);
+        }
+
+        assertThat(picks).containsOnlyKeys(Scenario.GET, Scenario.LIST, Scenario.CREATE);
+        assertThat(picks.get(Scenario.GET) / 100_000.0).isCloseTo(0.6, within(0.01));
+        assertThat(picks.get(Scenario.CREATE) / 100_000.0).isCloseTo(0.1, within(0.01));
+
+        Random first = new Random(42);
+        Random second = new Random(42);
+        for (int i = 0; i < 100; i++) {
+            assertThat(mix.pick(first)).isEqualTo(mix.pick(second));
+        }
+    }
+}
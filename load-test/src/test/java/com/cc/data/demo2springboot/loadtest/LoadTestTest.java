@@ -0,0 +1,129 @@
+package com.cc.data.demo2springboot.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the harness against a stub of the user API that answers every call immediately.
+ */
+class LoadTestTest {
+
+    private HttpServer server;
+    private HttpClient client;
+    private final AtomicLong ids = new AtomicLong();
+    private final AtomicInteger deletes = new AtomicInteger();
+
+    @TempDir
+    Path reports;
+
+    @BeforeEach
+    void startStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newFixedThreadPool(8));
+        server.createContext("/api/auth/login", exchange -> respond(exchange, 200, "{\"token\":\"stub\"}"));
+        server.createContext("/api/users", this::users);
+        server.start();
+        client = HttpClient.newHttpClient();
+    }
+
+    @AfterEach
+    void stopStub() {
+        client.close();
+        server.stop(0);
+    }
+
+    private void users(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        switch (exchange.getRequestMethod()) {
+            case "POST" -> {
+                if (path.endsWith("/batch")) {
+                    respond(exchange, 201, IntStream.range(0, Session.BATCH_SIZE)
+                            .mapToObj(i -> "{\"id\":" + ids.incrementAndGet() + "}")
+                            .collect(Collectors.joining(",", "[", "]")));
+                } else {
+                    respond(exchange, 201, "{\"id\":" + ids.incrementAndGet() + "}");
+                }
+            }
+            case "DELETE" -> {
+                deletes.incrementAndGet();
+                respond(exchange, 204, null);
+            }
+            default -> respond(exchange, path.endsWith("/0") ? 404 : 200, "{}");
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        byte[] bytes = body == null ? new byte[0] : body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
+
+    private LoadTestOptions options(String... args) {
+        String[] common = {"--baseUrl=http://localhost:" + server.getAddress().getPort(),
+                "--warmup=PT0.2S", "--duration=PT1S", "--seedUsers=20",
+                "--report=" + reports.resolve("report.txt")};
+        String[] all = new String[common.length + args.length];
+        System.arraycopy(common, 0, all, 0, common.length);
+        System.arraycopy(args, 0, all, common.length, args.length);
+        return LoadTestOptions.parse(all);
+    }
+
+    @Test
+    void openModel_ShouldSendAtTheConfiguredRateAndReportPercentiles() throws Exception {
+        LoadTestOptions options = options("--rate=200", "--arrivals=poisson");
+
+        Report report = LoadTest.run(client, options);
+        report.write(options.report());
+
+        String written = Files.readString(options.report());
+        String all = written.lines().filter(line -> line.startsWith("all ")).findFirst().orElseThrow();
+        long requests = Long.parseLong(all.trim().split("\\s+")[1]);
+        // 200 requests/s for one measured second, with Poisson spacing
+        assertThat(requests).isBetween(120L, 280L);
+        assertThat(written).contains("open, 200.0 requests/s with poisson arrivals")
+                .contains("Latency distribution of all requests (ms)")
+                .contains("Latency distribution of get (ms)")
+                .contains("#[Mean");
+        assertThat(deletes.get()).isPositive();
+    }
+
+    @Test
+    void closedModel_ShouldKeepEveryClientBusyAndCountOutcomes() throws Exception {
+        LoadTestOptions options = options("--concurrency=4", "--mix=get=1,delete=1");
+
+        Report report = LoadTest.run(client, options);
+        report.write(options.report());
+
+        String written = Files.readString(options.report());
+        assertThat(written).contains("closed, 4 clients").doesNotContain("\nlist ");
+        String[] all = written.lines().filter(line -> line.startsWith("all ")).findFirst().orElseThrow()
+                .trim().split("\\s+");
+        long requests = Long.parseLong(all[1]);
+        long success = Long.parseLong(all[8]);
+        long clientErrors = Long.parseLong(all[9]);
+        assertThat(requests).isPositive();
+        // Once the 20 seeded users are deleted, gets and deletes go to id 0 and are answered 404
+        assertThat(success + clientErrors).isEqualTo(requests);
+        assertThat(clientErrors).isPositive();
+    }
+}
@@ -0,0 +1,90 @@
+#!/usr/bin/env bash
+#
+# Restart-time and first-request-latency benchmark for the persistent (file-backed H2) profile.
+#
+# 1. starts the app once on an empty data directory so Flyway creates the schema (Hibernate only
+#    validates it)
+# 2. seeds USERS rows directly through the H2 shell
+# 3. restarts the app with and without the page-cache warm-up and reports, for each run,
+#    the time until the readiness probe reports UP and the latency of the first few requests
+#
+# Usage: scripts/bench-persistent-restart.sh [USERS]   (default 1000000)
+# Env:   JAR (default target/demo2-springboot-0.0.1-SNAPSHOT.jar), PORT (default 8080),
+#        DATA_DIR (default target/bench-data), H2_CACHE_SIZE_KB
+set -euo pipefail
+
+USERS="${1:-1000000}"
+PORT="${PORT:-8080}"
+DATA_DIR="${DATA_DIR:-target/bench-data}"
+JAR="${JAR:-target/demo2-springboot-0.0.1-SNAPSHOT.jar}"
+BASE="http://localhost:${PORT}"
+H2_JAR="${H2_JAR:-$(find "${HOME}/.m2/repository/com/h2database/h2" -name 'h2-*.jar' | sort | tail -1)}"
+
+if [[ ! -f "${JAR}" ]]; then
+    mvn -B -q -DskipTests package
+fi
+
+now_ms() { date +%s%3N; }
+
+start_app() {
+    local warmup="$1"
+    SPRING_PROFILES_ACTIVE=persistent H2_DATA_DIR="${DATA_DIR}" DB_WARMUP_ENABLED="${warmup}" \
+        java -jar "${JAR}" --server.port="${PORT}" \
+        --logging.level.org.springframework.security=INFO --logging.level.org.springframework.web=INFO \
+        > "${DATA_DIR}/app-${warmup}.log" 2>&1 &
+    APP_PID=$!
+}
+
+stop_app() {
+    kill "${APP_PID}" 2>/dev/null || true
+    wait "${APP_PID}" 2>/dev/null || true
+}
+
+wait_ready() {
+    until curl -sf -o /dev/null "${BASE}/actuator/health/readiness"; do
+        if ! kill -0 "${APP_PID}" 2>/dev/null; then
+            echo "Application exited during startup, see ${DATA_DIR}/app-*.log" >&2
+            exit 1
+        fi
+        sleep 0.05
+    done
+}
+
+request_ms() {
+    curl -s -o /dev/null -w '%{time_total}' "$1" | awk '{ printf "%.1f", $1 * 1000 }'
+}
+
+trap 'stop_app' EXIT
+rm -rf "${DATA_DIR}"
+mkdir -p "${DATA_DIR}"
+# H2 only accepts absolute (or ./-prefixed) file paths
+DATA_DIR="$(cd "${DATA_DIR}" && pwd)"
+DB_URL="jdbc:h2:file:${DATA_DIR}/usersdb"
+
+echo "Creating schema..."
+start_app false
+wait_ready
+stop_app
+
+echo "Seeding ${USERS} users..."
+seed_start=$(now_ms)
+java -cp "${H2_JAR}" org.h2.tools.Shell -url "${DB_URL}" -user sa -password password -sql \
+    "INSERT INTO users (username, email, full_name, created_at, updated_at, active, version)
+     SELECT 'user' || X, 'user' || X || '@example.com', 'User ' || X,
+            CURRENT_TIMESTAMP, CURRENT_TIMESTAMP, TRUE, 0
+     FROM SYSTEM_RANGE(1, ${USERS})" > /dev/null
+echo "  seeded in $(( $(now_ms) - seed_start )) ms"
+
+printf '\n%-8s %12s %12s %12s %12s %12s\n' "warmup" "ready(ms)" "page0(ms)" "page0#2(ms)" "byId(ms)" "byId#2(ms)"
+for warmup in false true; do
+    start=$(now_ms)
+    start_app "${warmup}"
+    wait_ready
+    ready=$(( $(now_ms) - start ))
+    page=$(request_ms "${BASE}/api/users?page=0&size=10")
+    page2=$(request_ms "${BASE}/api/users?page=0&size=10")
+    by_id=$(request_ms "${BASE}/api/users/$(( USERS - 1 ))")
+    by_id2=$(request_ms "${BASE}/api/users/$(( USERS - 2 ))")
+    printf '%-8s %12s %12s %12s %12s %12s\n' "${warmup}" "${ready}" "${page}" "${page2}" "${by_id}" "${by_id2}"
+    stop_app
+done
@@ -0,0 +1,84 @@
+#!/usr/bin/env bash
+#
+# Startup benchmark for the aot-cache and native profiles: time from launch to the first successful
+# GET /api/users, and the resident set size at that point, for
+#
+#   jar        the packaged jar as built by a plain mvn package
+#   extracted  the jar extracted into CACHE_DIR, without Spring AOT or a cache
+#   spring-aot the extracted jar with the Spring AOT bean definitions
+#   cached     the extracted jar with Spring AOT and the AOT cache or AppCDS archive from the training run
+#   native     the GraalVM executable from mvn -Pnative native:compile, if NATIVE exists
+#
+# Builds with -Paot-cache if CACHE_DIR/java.args is missing. Reports the best and the median of RUNS starts,
+# and the median RSS.
+#
+# Usage: scripts/bench-startup.sh [RUNS]   (default 5)
+# Env:   JAR (default target/demo2-springboot-0.0.1-SNAPSHOT.jar), CACHE_DIR (default target/aot-cache),
+#        NATIVE (default target/demo2-springboot), PORT (default 8080)
+set -euo pipefail
+
+RUNS="${1:-5}"
+PORT="${PORT:-8080}"
+JAR="${JAR:-target/demo2-springboot-0.0.1-SNAPSHOT.jar}"
+CACHE_DIR="${CACHE_DIR:-target/aot-cache}"
+NATIVE="${NATIVE:-target/demo2-springboot}"
+URL="http://localhost:${PORT}/api/users"
+
+if [[ ! -f "${CACHE_DIR}/java.args" ]]; then
+    mvn -B -q -Paot-cache -DskipTests package
+fi
+JAR="$(cd "$(dirname "${JAR}")" && pwd)/$(basename "${JAR}")"
+CACHE_DIR="$(cd "${CACHE_DIR}" && pwd)"
+APP_JAR="$(basename "${JAR}")"
+
+now_ms() { date +%s%3N; }
+
+# Starts one variant and sets ELAPSED to the milliseconds until GET /api/users first answers 200,
+# and RSS to the process's resident set in MB at that point
+first_request() {
+    local dir="$1"; shift
+    local start
+    start=$(now_ms)
+    (cd "${dir}" && exec "$@" --server.port="${PORT}") > "${CACHE_DIR}/bench.log" 2>&1 &
+    APP_PID=$!
+    until [[ "$(curl -s -o /dev/null -w '%{http_code}' "${URL}")" == "200" ]]; do
+        if ! kill -0 "${APP_PID}" 2>/dev/null; then
+            echo "Application exited during startup, see ${CACHE_DIR}/bench.log" >&2
+            exit 1
+        fi
+        sleep 0.01
+    done
+    ELAPSED=$(( $(now_ms) - start ))
+    RSS=$(awk '/VmRSS/ { print int($2 / 1024) }' "/proc/${APP_PID}/status")
+    stop_app
+}
+
+stop_app() {
+    kill "${APP_PID}" 2>/dev/null || true
+    wait "${APP_PID}" 2>/dev/null || true
+}
+
+trap 'stop_app' EXIT
+
+bench() {
+    local label="$1"; shift
+    local times=() sizes=()
+    for _ in $(seq "${RUNS}"); do
+        first_request "$@"
+        times+=("${ELAPSED}")
+        sizes+=("${RSS}")
+    done
+    local sorted rss
+    mapfile -t sorted < <(printf '%s\n' "${times[@]}" | sort -n)
+    mapfile -t rss < <(printf '%s\n' "${sizes[@]}" | sort -n)
+    printf '%-12s %10s %12s %10s\n' "${label}" "${sorted[0]}" "${sorted[$(( RUNS / 2 ))]}" "${rss[$(( RUNS / 2 ))]}"
+}
+
+printf '%-12s %10s %12s %10s\n' "variant" "best(ms)" "median(ms)" "rss(MB)"
+bench jar "$(dirname "${JAR}")" java -jar "${APP_JAR}"
+bench extracted "${CACHE_DIR}" java -jar "${APP_JAR}"
+bench spring-aot "${CACHE_DIR}" java -Dspring.aot.enabled=true -jar "${APP_JAR}"
+bench cached "${CACHE_DIR}" java @java.args -jar "${APP_JAR}"
+if [[ -x "${NATIVE}" ]]; then
+    bench native "${CACHE_DIR}" "$(cd "$(dirname "${NATIVE}")" && pwd)/$(basename "${NATIVE}")"
+fi
@@ -0,0 +1,125 @@
+#!/usr/bin/env bash
+#
+# First-minute latency with and without the JIT warm-up (app.warmup.*): starts the packaged jar once
+# per mode, waits for /actuator/health/readiness to report UP, seeds 20 users and then sends
+# authenticated reads (a page listing and lookups by id, alternating) from WORKERS concurrent
+# clients for SECONDS. Reports the time to readiness, the warm-up time, and the p50, p99 and max
+# latency over the first 500 requests and over the whole run.
+#
+# Rate limiting is switched off so the clients can share one token.
+#
+# Usage: scripts/bench-warmup.sh [SECONDS]   (default 60)
+# Env:   JAR (default target/demo2-springboot-0.0.1-SNAPSHOT.jar), PORT (default 8080), WORKERS (default 4)
+set -euo pipefail
+
+SECONDS_PER_RUN="${1:-60}"
+PORT="${PORT:-8080}"
+WORKERS="${WORKERS:-4}"
+JAR="${JAR:-target/demo2-springboot-0.0.1-SNAPSHOT.jar}"
+BASE="http://localhost:${PORT}"
+WORK_DIR="$(mktemp -d)"
+# Requests per curl invocation; each invocation reuses one connection
+BATCH=50
+FIRST=500
+
+if [[ ! -f "${JAR}" ]]; then
+    mvn -B -q -DskipTests package
+fi
+
+now_ms() { date +%s%3N; }
+
+start_app() {
+    JIT_WARMUP_ENABLED="$1" RATE_LIMIT_ENABLED=false java -jar "${JAR}" --server.port="${PORT}" \
+        > "${WORK_DIR}/app.log" 2>&1 &
+    APP_PID=$!
+}
+
+stop_app() {
+    if [[ -n "${APP_PID:-}" ]]; then
+        kill "${APP_PID}" 2>/dev/null || true
+        wait "${APP_PID}" 2>/dev/null || true
+        APP_PID=""
+    fi
+}
+
+trap 'stop_app; rm -rf "${WORK_DIR}"' EXIT
+
+wait_ready() {
+    until [[ "$(curl -s -o /dev/null -w '%{http_code}' "${BASE}/actuator/health/readiness")" == "200" ]]; do
+        if ! kill -0 "${APP_PID}" 2>/dev/null; then
+            echo "Application exited during startup:" >&2
+            tail -n 50 "${WORK_DIR}/app.log" >&2
+            exit 1
+        fi
+        sleep 0.05
+    done
+}
+
+login() {
+    curl -s -X POST "${BASE}/api/auth/login" -H 'Content-Type: application/json' \
+        -d '{"username":"admin","password":"admin"}' | sed -E 's/.*"token":"([^"]+)".*/\1/'
+}
+
+seed() {
+    local token="$1" batch
+    for offset in 0 10; do
+        batch=$(for i in $(seq $(( offset + 1 )) $(( offset + 10 ))); do
+            printf '{"username":"bench%d","email":"bench%d@example.com","fullName":"Bench %d","active":true},' \
+                "${i}" "${i}" "${i}"
+        done)
+        curl -s -o /dev/null -X POST "${BASE}/api/users/batch" -H "Authorization: Bearer ${token}" \
+            -H 'Content-Type: application/json' -d "[${batch%,}]"
+    done
+}
+
+# Sends batches of reads until the deadline, one latency in ms per line
+worker() {
+    local token="$1" deadline="$2" out="$3" args=() i
+    for (( i = 0; i < BATCH; i++ )); do
+        if (( i % 2 == 0 )); then
+            args+=(-o /dev/null "${BASE}/api/users?page=0&size=20")
+        else
+            args+=(-o /dev/null "${BASE}/api/users/$(( i / 2 % 20 + 1 ))")
+        fi
+    done
+    while (( $(now_ms) < deadline )); do
+        curl -s -H "Authorization: Bearer ${token}" -w '%{time_total}\n' "${args[@]}" \
+            | awk '{ printf "%.1f\n", $1 * 1000 }' >> "${out}"
+    done
+}
+
+# Prints p50, p99 and max of the latencies on stdin
+percentiles() {
+    sort -n | awk '{ v[NR] = $1 } END {
+        printf "%8.1f %8.1f %8.1f", v[int(NR * 0.50) + 1], v[int(NR * 0.99) + 1], v[NR] }'
+}
+
+run() {
+    local enabled="$1" start ready token deadline warmup
+    rm -f "${WORK_DIR}"/worker-*
+    start=$(now_ms)
+    start_app "${enabled}"
+    wait_ready
+    ready=$(( $(now_ms) - start ))
+    warmup=$(sed -nE 's/.*JIT warm-up ran .* in ([0-9]+) ms.*/\1/p' "${WORK_DIR}/app.log")
+    token=$(login)
+    seed "${token}"
+
+    deadline=$(( $(now_ms) + SECONDS_PER_RUN * 1000 ))
+    for w in $(seq "${WORKERS}"); do
+        worker "${token}" "${deadline}" "${WORK_DIR}/worker-${w}" &
+    done
+    wait $(jobs -p | grep -v "^${APP_PID}$")
+    stop_app
+
+    local total first all
+    total=$(cat "${WORK_DIR}"/worker-* | wc -l)
+    first=$(for f in "${WORK_DIR}"/worker-*; do head -n $(( FIRST / WORKERS )) "${f}"; done | percentiles)
+    all=$(cat "${WORK_DIR}"/worker-* | percentiles)
+    printf '%-8s %10s %10s %9s  %s   %s\n' "${enabled}" "${ready}" "${warmup:--}" "${total}" "${first}" "${all}"
+}
+
+printf '%-8s %10s %10s %9s  %-26s   %s\n' "warmup" "ready(ms)" "warm(ms)" "requests" \
+    "first ${FIRST}: p50/p99/max" "all: p50/p99/max (ms)"
+run false
+run true
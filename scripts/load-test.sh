@@ -0,0 +1,59 @@
+#!/usr/bin/env bash
+#
+# Capacity run: starts the packaged application with rate limiting off, waits until it reports ready,
+# runs the load-test harness against it and stops it again. Builds the application and the harness
+# if their jars are missing. Arguments are passed on to the harness (see LoadTestOptions), e.g.
+#
+#   scripts/load-test.sh --rate=200 --duration=PT2M
+#   scripts/load-test.sh --concurrency=32 --mix=get=70,list=30
+#
+# The report goes to target/load-test/report-<timestamp>.txt unless --report is given.
+#
+# Usage: scripts/load-test.sh [--name=value ...]
+# Env:   JAR (default target/demo2-springboot-0.0.1-SNAPSHOT.jar),
+#        HARNESS (default load-test/target/demo2-springboot-load-test-0.0.1-SNAPSHOT.jar),
+#        PORT (default 8080), JAVA_OPTS (extra JVM options for the application)
+set -euo pipefail
+
+PORT="${PORT:-8080}"
+JAR="${JAR:-target/demo2-springboot-0.0.1-SNAPSHOT.jar}"
+HARNESS="${HARNESS:-load-test/target/demo2-springboot-load-test-0.0.1-SNAPSHOT.jar}"
+BASE="http://localhost:${PORT}"
+REPORT_DIR="target/load-test"
+
+if [[ ! -f "${JAR}" ]]; then
+    mvn -B -q -DskipTests package
+fi
+if [[ ! -f "${HARNESS}" ]]; then
+    mvn -B -q -f load-test/pom.xml -DskipTests package
+fi
+mkdir -p "${REPORT_DIR}"
+STAMP="$(date +%Y%m%d-%H%M%S)"
+
+stop_app() {
+    if [[ -n "${APP_PID:-}" ]]; then
+        kill "${APP_PID}" 2>/dev/null || true
+        wait "${APP_PID}" 2>/dev/null || true
+        APP_PID=""
+    fi
+}
+
+trap 'stop_app' EXIT
+
+# shellcheck disable=SC2086
+RATE_LIMIT_ENABLED=false java ${JAVA_OPTS:-} -jar "${JAR}" --server.port="${PORT}" \
+    > "${REPORT_DIR}/app-${STAMP}.log" 2>&1 &
+APP_PID=$!
+until [[ "$(curl -s -o /dev/null -w '%{http_code}' "${BASE}/actuator/health/readiness")" == "200" ]]; do
+    if ! kill -0 "${APP_PID}" 2>/dev/null; then
+        echo "Application exited during startup, see ${REPORT_DIR}/app-${STAMP}.log" >&2
+        exit 1
+    fi
+    sleep 0.1
+done
+
+ARGS=(--baseUrl="${BASE}")
+if [[ " $* " != *" --report="* ]]; then
+    ARGS+=(--report="${REPORT_DIR}/report-${STAMP}.txt")
+fi
+java -jar "${HARNESS}" "${ARGS[@]}" "$@"
@@ -0,0 +1,70 @@
+#!/usr/bin/env bash
+#
+# Training run for the aot-cache Maven profile (mvn -Paot-cache package), which calls it after repackaging.
+#
+# 1. extracts the packaged jar into CACHE_DIR, because the JVM only caches classes loaded from plain jars
+# 2. starts the extracted app with Spring AOT, sends a login and a few reads so the classes of the request
+#    path are loaded as well as those of startup, and stops it
+# 3. turns what that run loaded into an AOT cache (JEP 483, Java 24 and later) or, on older JDKs, a dynamic
+#    AppCDS archive, and writes the matching JVM options to CACHE_DIR/java.args
+#
+# Start the cached app from CACHE_DIR with the same jar path it was trained with:
+#   cd target/aot-cache && java @java.args -jar demo2-springboot-0.0.1-SNAPSHOT.jar
+#
+# Usage: scripts/train-aot-cache.sh
+# Env:   JAR (default target/demo2-springboot-0.0.1-SNAPSHOT.jar), CACHE_DIR (default target/aot-cache),
+#        JAVA (default java), PORT (default 8089)
+set -euo pipefail
+
+JAR="${JAR:-target/demo2-springboot-0.0.1-SNAPSHOT.jar}"
+CACHE_DIR="${CACHE_DIR:-target/aot-cache}"
+JAVA="${JAVA:-java}"
+PORT="${PORT:-8089}"
+BASE="http://localhost:${PORT}"
+APP_JAR="$(basename "${JAR}")"
+
+FEATURE=$("${JAVA}" -XshowSettings:properties -version 2>&1 | awk -F' = ' '/java.specification.version/ { print $2 }')
+if (( FEATURE >= 24 )); then
+    RECORD=(-XX:AOTMode=record -XX:AOTConfiguration=app.aotconf)
+    RUN=(-XX:AOTCache=app.aot)
+else
+    echo "Java ${FEATURE} has no AOT cache, creating an AppCDS archive instead"
+    RECORD=(-XX:ArchiveClassesAtExit=app.jsa)
+    RUN=(-XX:SharedArchiveFile=app.jsa)
+fi
+# The generated bean definitions replace the reflective ones; they are fixed to the default profile
+SPRING=(-Dspring.aot.enabled=true)
+
+rm -rf "${CACHE_DIR}"
+"${JAVA}" -Djarmode=tools -jar "${JAR}" extract --destination "${CACHE_DIR}"
+cd "${CACHE_DIR}"
+
+echo "Training on port ${PORT}..."
+"${JAVA}" "${RECORD[@]}" "${SPRING[@]}" -jar "${APP_JAR}" --server.port="${PORT}" > training.log 2>&1 &
+APP_PID=$!
+trap 'kill "${APP_PID}" 2>/dev/null || true' EXIT
+until curl -sf -o /dev/null "${BASE}/actuator/health/readiness"; do
+    if ! kill -0 "${APP_PID}" 2>/dev/null; then
+        echo "Training run exited during startup, see ${CACHE_DIR}/training.log" >&2
+        exit 1
+    fi
+    sleep 0.1
+done
+for _ in 1 2 3; do
+    curl -s -o /dev/null -H 'Content-Type: application/json' \
+        -d '{"username":"admin","password":"admin"}' "${BASE}/api/auth/login"
+    curl -s -o /dev/null "${BASE}/api/users"
+    curl -s -o /dev/null "${BASE}/api/users?page=0&size=10"
+    curl -s -o /dev/null "${BASE}/api/users/1"
+done
+# A graceful exit, so the JVM writes what it recorded
+kill -TERM "${APP_PID}"
+wait "${APP_PID}" || true
+trap - EXIT
+
+if (( FEATURE >= 24 )); then
+    "${JAVA}" -XX:AOTMode=create -XX:AOTConfiguration=app.aotconf -XX:AOTCache=app.aot \
+        "${SPRING[@]}" -jar "${APP_JAR}" > create.log 2>&1
+fi
+printf '%s\n' "${RUN[@]}" "${SPRING[@]}" > java.args
+echo "Created ${CACHE_DIR}/${RUN[0]#*=}; start with: cd ${CACHE_DIR} && java @java.args -jar ${APP_JAR}"
@@ -1,9 +1,14 @@
 package com.cc.data.demo2springboot;
 
+import com.cc.data.demo2springboot.config.NativeRuntimeHints;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
+@ImportRuntimeHints(NativeRuntimeHints.class)
 public class Demo2SpringbootApplication {
 
     public static void main(String[] args) {
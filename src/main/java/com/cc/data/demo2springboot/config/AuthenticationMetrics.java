@@ -0,0 +1,51 @@
+package com.cc.data.demo2springboot.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.authentication.event.AbstractAuthenticationFailureEvent;
+import org.springframework.security.authentication.event.AuthenticationFailureBadCredentialsEvent;
+import org.springframework.security.authentication.event.AuthenticationFailureDisabledEvent;
+import org.springframework.security.authentication.event.AuthenticationFailureLockedEvent;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counts failed logins into {@code auth.failures}, from the failure events the authentication
+ * manager publishes. The reason is one of a fixed few, never the username, so the counter stays
+ * small however many accounts are attacked. Rejected tokens are counted by JwtService.
+ * The reactive stack's authentication manager publishes no events.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class AuthenticationMetrics {
+
+    private final Counter badCredentials;
+    private final Counter disabled;
+    private final Counter locked;
+    private final Counter other;
+
+    public AuthenticationMetrics(MeterRegistry meterRegistry) {
+        this.badCredentials = failures(meterRegistry, "bad_credentials");
+        this.disabled = failures(meterRegistry, "disabled");
+        this.locked = failures(meterRegistry, "locked");
+        this.other = failures(meterRegistry, "other");
+    }
+
+    private static Counter failures(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("auth.failures")
+                .description("Rejected logins and tokens, by reason")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    @EventListener
+    public void onFailure(AbstractAuthenticationFailureEvent event) {
+        switch (event) {
+            case AuthenticationFailureBadCredentialsEvent ignored -> badCredentials.increment();
+            case AuthenticationFailureDisabledEvent ignored -> disabled.increment();
+            case AuthenticationFailureLockedEvent ignored -> locked.increment();
+            default -> other.increment();
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.cc.data.demo2springboot.config;
+
+import java.time.Duration;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Concurrency limit with a bounded wait queue, adapted to latency.
+ * Up to {@code limit} callers run at once; the next {@code queueCapacity} wait up to
+ * {@code maxWait} in arrival order, and anyone beyond that is refused at once.
+ * The limit starts at {@code maxLimit} and follows AIMD on the latency of completed calls:
+ * a call slower than {@code targetLatency} cuts it by a tenth (at most once per target
+ * latency, so one slow batch counts once), and a call within target while the bulkhead is
+ * at least half used raises it by about one per limit's worth of calls. It never drops
+ * below one, so a slow bulkhead keeps making progress.
+ * Uses a lock rather than {@code synchronized} so waiting virtual threads do not pin their carrier.
+ */
+public class Bulkhead {
+
+    private static final double BACKOFF = 0.9;
+
+    private final int maxLimit;
+    private final int queueCapacity;
+    private final long maxWaitNanos;
+    private final long targetNanos;
+    private final LongSupplier nanoClock;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private double limit;
+    private int inFlight;
+    private int waiting;
+    private long lastDecrease;
+
+    public Bulkhead(int maxLimit, int queueCapacity, Duration maxWait, Duration targetLatency) {
+        this(maxLimit, queueCapacity, maxWait, targetLatency, System::nanoTime);
+    }
+
+    Bulkhead(int maxLimit, int queueCapacity, Duration maxWait, Duration targetLatency, LongSupplier nanoClock) {
+        if (maxLimit < 1 || queueCapacity < 0 || maxWait.isNegative()
+                || targetLatency.isNegative() || targetLatency.isZero()) {
+            throw new IllegalArgumentException(
+                    "A bulkhead needs a positive limit and target latency, and a non-negative queue and wait");
+        }
+        this.maxLimit = maxLimit;
+        this.queueCapacity = queueCapacity;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.targetNanos = targetLatency.toNanos();
+        this.nanoClock = nanoClock;
+        this.limit = maxLimit;
+        this.lastDecrease = nanoClock.getAsLong() - targetNanos;
+    }
+
+    /**
+     * Takes a slot, waiting in the queue if the bulkhead is full.
+     * @return true if the caller may run and must call {@link #release}; false if it is shed
+     * @throws InterruptedException if interrupted while queued
+     */
+    public boolean tryAcquire() throws InterruptedException {
+        lock.lock();
+        try {
+            // Queued callers go first, so a newcomer never overtakes them
+            if (waiting == 0 && inFlight < currentLimit()) {
+                inFlight++;
+                return true;
+            }
+            if (waiting >= queueCapacity) {
+                return false;
+            }
+            waiting++;
+            try {
+                long remaining = maxWaitNanos;
+                while (inFlight >= currentLimit()) {
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    remaining = available.awaitNanos(remaining);
+                }
+                inFlight++;
+                return true;
+            } finally {
+                waiting--;
+                if (waiting > 0 && inFlight < currentLimit()) {
+                    available.signal();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gives back a slot taken by {@link #tryAcquire} and feeds the call's latency to the limit.
+     * @param latencyNanos how long the call ran, not counting its time in the queue
+     */
+    public void release(long latencyNanos) {
+        lock.lock();
+        try {
+            int used = inFlight--;
+            if (latencyNanos > targetNanos) {
+                long now = nanoClock.getAsLong();
+                if (now - lastDecrease >= targetNanos) {
+                    limit = Math.max(1, limit * BACKOFF);
+                    lastDecrease = now;
+                }
+            } else if (used * 2 >= limit) {
+                // Only grow while the limit is actually in use, or an idle bulkhead would creep upwards
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+            if (waiting > 0 && inFlight < currentLimit()) {
+                available.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int currentLimit() {
+        return (int) limit;
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return currentLimit();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getQueued() {
+        lock.lock();
+        try {
+            return waiting;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+}
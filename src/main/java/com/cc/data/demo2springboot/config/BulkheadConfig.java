@@ -0,0 +1,191 @@
+package com.cc.data.demo2springboot.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the bulkheads that keep login, read, write and batch traffic
+ * from exhausting each other's share of the request threads (see {@link BulkheadFilter}).
+ * The maximum concurrencies together should stay below {@code server.tomcat.threads.max}
+ * (200 by default), so a full bulkhead never leaves the others without a thread.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConfigurationProperties(prefix = "app.bulkhead")
+public class BulkheadConfig {
+
+    /**
+     * Limits for one kind of request.
+     */
+    public static class Category {
+
+        /**
+         * Requests run at once when latency is on target; the adaptive limit never exceeds it.
+         */
+        private int maxConcurrency;
+
+        /**
+         * Requests that may wait for a slot; anything beyond is refused at once.
+         */
+        private int queueCapacity;
+
+        /**
+         * Longest time a request waits in the queue before it is refused.
+         */
+        private Duration maxWait;
+
+        /**
+         * Completions slower than this shrink the concurrency limit.
+         */
+        private Duration targetLatency;
+
+        public Category(int maxConcurrency, int queueCapacity, Duration maxWait, Duration targetLatency) {
+            this.maxConcurrency = maxConcurrency;
+            this.queueCapacity = queueCapacity;
+            this.maxWait = maxWait;
+            this.targetLatency = targetLatency;
+        }
+
+        Bulkhead toBulkhead() {
+            return new Bulkhead(maxConcurrency, queueCapacity, maxWait, targetLatency);
+        }
+
+        public int getMaxConcurrency() {
+            return maxConcurrency;
+        }
+
+        public void setMaxConcurrency(int maxConcurrency) {
+            this.maxConcurrency = maxConcurrency;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        public Duration getMaxWait() {
+            return maxWait;
+        }
+
+        public void setMaxWait(Duration maxWait) {
+            this.maxWait = maxWait;
+        }
+
+        public Duration getTargetLatency() {
+            return targetLatency;
+        }
+
+        public void setTargetLatency(Duration targetLatency) {
+            this.targetLatency = targetLatency;
+        }
+    }
+
+    /**
+     * Whether API requests go through the bulkheads at all.
+     * Default value is true.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Retry-After sent with a shed request.
+     * Default value is one second.
+     */
+    private Duration retryAfter = Duration.ofSeconds(1);
+
+    /**
+     * POST /api/auth/login, which spends most of its time in BCrypt.
+     * Default: 8 at once, 16 queued for up to 1s, target 500ms.
+     */
+    private Category login = new Category(8, 16, Duration.ofSeconds(1), Duration.ofMillis(500));
+
+    /**
+     * GET, HEAD and OPTIONS under /api/.
+     * Default: 100 at once, 100 queued for up to 100ms, target 100ms.
+     */
+    private Category read = new Category(100, 100, Duration.ofMillis(100), Duration.ofMillis(100));
+
+    /**
+     * Other single-user changes under /api/.
+     * Default: 40 at once, 40 queued for up to 500ms, target 500ms.
+     */
+    private Category write = new Category(40, 40, Duration.ofMillis(500), Duration.ofMillis(500));
+
+    /**
+     * POST and PUT /api/users/batch.
+     * Default: 4 at once, 4 queued for up to 1s, target 2s.
+     */
+    private Category batch = new Category(4, 4, Duration.ofSeconds(1), Duration.ofSeconds(2));
+
+    @Bean
+    public FilterRegistrationBean<BulkheadFilter> bulkheadFilterRegistration(MeterRegistry meterRegistry,
+                                                                             ObjectProvider<JitWarmup> warmup) {
+        JitWarmup jitWarmup = warmup.getIfAvailable();
+        BulkheadFilter filter = new BulkheadFilter(login.toBulkhead(), read.toBulkhead(), write.toBulkhead(),
+                batch.toBulkhead(), retryAfter, meterRegistry,
+                jitWarmup != null ? jitWarmup::isWarmupRequest : request -> false);
+        FilterRegistrationBean<BulkheadFilter> registration = new FilterRegistrationBean<>(filter);
+        // Shed before the security chain, so a refused request costs no token parsing or lookups
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER - 1);
+        registration.setEnabled(enabled);
+        return registration;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+    public void setRetryAfter(Duration retryAfter) {
+        this.retryAfter = retryAfter;
+    }
+
+    public Category getLogin() {
+        return login;
+    }
+
+    public void setLogin(Category login) {
+        this.login = login;
+    }
+
+    public Category getRead() {
+        return read;
+    }
+
+    public void setRead(Category read) {
+        this.read = read;
+    }
+
+    public Category getWrite() {
+        return write;
+    }
+
+    public void setWrite(Category write) {
+        this.write = write;
+    }
+
+    public Category getBatch() {
+        return batch;
+    }
+
+    public void setBatch(Category batch) {
+        this.batch = batch;
+    }
+}
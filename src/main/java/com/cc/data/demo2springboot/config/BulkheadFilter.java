@@ -0,0 +1,139 @@
+package com.cc.data.demo2springboot.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.function.Predicate;
+
+/**
+ * Filter that runs each API request inside the bulkhead for its kind: login, read, write or
+ * batch. A request that finds its bulkhead full waits briefly in that bulkhead's queue, and is
+ * refused with 503 and Retry-After when the queue is full or the wait runs out, so a backlog
+ * of slow writes or logins can neither hold every request thread nor make reads queue behind it.
+ * Requests matching the bypass, the JIT warm-up's own, skip the bulkheads, so their latency
+ * before compilation settles does not shrink the adaptive limits real traffic starts with.
+ * Registered ahead of the security chain by {@link BulkheadConfig}.
+ */
+public class BulkheadFilter extends OncePerRequestFilter {
+
+    private static final String LOGIN_PATH = "/api/auth/login";
+    private static final String BATCH_PATH = "/api/users/batch";
+
+    /**
+     * One bulkhead with its meters.
+     */
+    private record Compartment(Bulkhead bulkhead, Counter rejected) {
+
+        static Compartment of(String name, Bulkhead bulkhead, MeterRegistry meterRegistry) {
+            Gauge.builder("http.bulkhead.limit", bulkhead, Bulkhead::getLimit)
+                    .description("Current adaptive concurrency limit")
+                    .tag("bulkhead", name)
+                    .register(meterRegistry);
+            Gauge.builder("http.bulkhead.inflight", bulkhead, Bulkhead::getInFlight)
+                    .description("Requests running inside the bulkhead")
+                    .tag("bulkhead", name)
+                    .register(meterRegistry);
+            Gauge.builder("http.bulkhead.queued", bulkhead, Bulkhead::getQueued)
+                    .description("Requests waiting for a slot")
+                    .tag("bulkhead", name)
+                    .register(meterRegistry);
+            Counter rejected = Counter.builder("http.bulkhead.rejected")
+                    .description("Requests shed with 503 Service Unavailable")
+                    .tag("bulkhead", name)
+                    .register(meterRegistry);
+            return new Compartment(bulkhead, rejected);
+        }
+    }
+
+    private final Compartment login;
+    private final Compartment reads;
+    private final Compartment writes;
+    private final Compartment batches;
+    private final String retryAfter;
+    private final Predicate<HttpServletRequest> bypass;
+
+    public BulkheadFilter(Bulkhead login, Bulkhead reads, Bulkhead writes, Bulkhead batches, Duration retryAfter,
+                          MeterRegistry meterRegistry) {
+        this(login, reads, writes, batches, retryAfter, meterRegistry, request -> false);
+    }
+
+    public BulkheadFilter(Bulkhead login, Bulkhead reads, Bulkhead writes, Bulkhead batches, Duration retryAfter,
+                          MeterRegistry meterRegistry, Predicate<HttpServletRequest> bypass) {
+        this.login = Compartment.of("login", login, meterRegistry);
+        this.reads = Compartment.of("read", reads, meterRegistry);
+        this.writes = Compartment.of("write", writes, meterRegistry);
+        this.batches = Compartment.of("batch", batches, meterRegistry);
+        this.retryAfter = Long.toString(Math.max(1, retryAfter.toSeconds()));
+        this.bypass = bypass;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/api/", request.getContextPath().length())
+                || bypass.test(request);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Compartment compartment = compartmentFor(request);
+        boolean admitted;
+        try {
+            admitted = compartment.bulkhead().tryAcquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            admitted = false;
+        }
+        if (!admitted) {
+            compartment.rejected().increment();
+            shed(response);
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            compartment.bulkhead().release(System.nanoTime() - start);
+        }
+    }
+
+    private Compartment compartmentFor(HttpServletRequest request) {
+        int contextPath = request.getContextPath().length();
+        String uri = request.getRequestURI();
+        String method = request.getMethod();
+        if ("GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method)) {
+            return reads;
+        }
+        if (uri.startsWith(LOGIN_PATH, contextPath)) {
+            return login;
+        }
+        if (uri.startsWith(BATCH_PATH, contextPath)) {
+            return batches;
+        }
+        return writes;
+    }
+
+    /**
+     * Written directly rather than through sendError: an error dispatch would run the security
+     * chain and the error controller for a request that is being refused to save work.
+     */
+    private void shed(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, retryAfter);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"status\":503,\"error\":\"Service Unavailable\","
+                + "\"message\":\"Server is overloaded, retry later\"}");
+    }
+}
@@ -0,0 +1,65 @@
+package com.cc.data.demo2springboot.config;
+
+import com.cc.data.demo2springboot.service.UserShards;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Warms the H2 page cache after a restart of a file-backed database.
+ * Runs before the application reports ready and walks both ends of the primary key:
+ * the data pages behind the first listing pages and those of the most recently created
+ * users, so the first requests are served from memory instead of from disk. It also walks
+ * the unique username and email indexes, which logins and duplicate checks probe; seeding
+ * UserUniquenessIndex scans the table, not these indexes. Shards are warmed in parallel.
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.db.warmup", name = "enabled", havingValue = "true")
+public class DatabaseWarmup implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(DatabaseWarmup.class);
+
+    static final String COUNT_SQL = "SELECT COUNT(*) FROM users";
+    // Data pages of the oldest rows, which the unsorted first listing pages return,
+    // and of the newest rows, which recent lookups by id hit first
+    static final String OLDEST_SQL =
+            "SELECT COUNT(full_name) FROM (SELECT full_name FROM users ORDER BY id LIMIT ?)";
+    static final String NEWEST_SQL =
+            "SELECT COUNT(full_name) FROM (SELECT full_name FROM users ORDER BY id DESC LIMIT ?)";
+    // Range scans over every key of uk_users_username and uk_users_email, without touching the rows
+    static final String USERNAMES_SQL = "SELECT COUNT(*) FROM users WHERE username >= ''";
+    static final String EMAILS_SQL = "SELECT COUNT(*) FROM users WHERE email >= ''";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final UserShards shards;
+    private final int recentRows;
+
+    public DatabaseWarmup(JdbcTemplate jdbcTemplate, UserShards shards,
+                          @Value("${app.db.warmup.recentRows:100000}") int recentRows) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shards = shards;
+        this.recentRows = recentRows;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long start = System.nanoTime();
+        long users = shards.scatter(this::warmShard).stream().mapToLong(Long::longValue).sum();
+        logger.info("Database warm-up touched {} users in {} ms", users,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private long warmShard() {
+        Long users = jdbcTemplate.queryForObject(COUNT_SQL, Long.class);
+        jdbcTemplate.queryForObject(OLDEST_SQL, Long.class, recentRows);
+        jdbcTemplate.queryForObject(NEWEST_SQL, Long.class, recentRows);
+        jdbcTemplate.queryForObject(USERNAMES_SQL, Long.class);
+        jdbcTemplate.queryForObject(EMAILS_SQL, Long.class);
+        return users != null ? users : 0L;
+    }
+}
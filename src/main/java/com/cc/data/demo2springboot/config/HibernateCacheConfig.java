@@ -0,0 +1,104 @@
+package com.cc.data.demo2springboot.config;
+
+import com.cc.data.demo2springboot.model.User;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+/**
+ * Hibernate second-level and query cache for {@link User}, on a local Caffeine JCache provider.
+ * Hibernate keeps the cache consistent with its own writes, including bulk JPQL and native
+ * updates, which evict the affected regions and invalidate cached queries on commit.
+ * <ul>
+ *   <li>With read replicas the cache is off: a lagging replica would seed it with stale rows
+ *       that then bypass the read-your-writes routing.</li>
+ *   <li>With sharding only the entity cache is on: ids are unique across shards, but a cached
+ *       query result cannot tell which shard it came from.</li>
+ * </ul>
+ * Any write to users invalidates every cached query on the table, so the query cache can be
+ * switched off on its own where writes are frequent relative to listings.
+ * Hits, misses, puts and evictions of every region are published as {@code cache.*} metrics
+ * from JCache statistics, which, unlike Hibernate's own statistics, cost next to nothing.
+ */
+@Configuration
+public class HibernateCacheConfig {
+
+    /** Entity region for users, named on the entity */
+    public static final String USER_REGION = "users";
+
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager(@Value("${app.cache.users.maxEntries:100000}") long maxEntries,
+                                              @Value("${app.cache.users.ttl:PT10M}") Duration ttl,
+                                              @Value("${app.cache.queries.maxEntries:1000}") long maxQueries) {
+        // A manager of our own per context, so contexts sharing a JVM (tests) never share regions
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("hibernate-" + UUID.randomUUID()), getClass().getClassLoader());
+        cacheManager.createCache(USER_REGION, bounded(maxEntries, ttl));
+        cacheManager.createCache(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME, bounded(maxQueries, ttl));
+        // Update timestamps guard every cached query, so they are never evicted or expired
+        cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME, byReference());
+        return cacheManager;
+    }
+
+    /**
+     * JCache stores by value unless told otherwise, which would serialize every entry on each
+     * get and put; Hibernate already caches disassembled copies, never the entities themselves.
+     */
+    private static CaffeineConfiguration<Object, Object> byReference() {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setStoreByValue(false);
+        configuration.setStatisticsEnabled(true);
+        return configuration;
+    }
+
+    @Bean
+    public MeterBinder hibernateCacheMetrics(CacheManager hibernateCacheManager) {
+        return registry -> hibernateCacheManager.getCacheNames().forEach(name ->
+                new JCacheMetrics<>(hibernateCacheManager.getCache(name), Tags.empty()).bindTo(registry));
+    }
+
+    private static CaffeineConfiguration<Object, Object> bounded(long maxEntries, Duration ttl) {
+        return byReference()
+                .setMaximumSize(OptionalLong.of(maxEntries))
+                .setExpireAfterWrite(OptionalLong.of(ttl.toNanos()));
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager hibernateCacheManager,
+                                                                    @Value("${app.cache.enabled:true}") boolean enabled,
+                                                                    @Value("${app.cache.queries.enabled:false}") boolean queries,
+                                                                    Environment environment) {
+        boolean replicas = environment.containsProperty("app.datasource.replica.url");
+        boolean sharded = environment.containsProperty("app.sharding.urls");
+        return properties -> {
+            if (!enabled || replicas) {
+                // Explicitly off: Hibernate would otherwise pick up hibernate-jcache from the classpath
+                properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, false);
+                properties.put(AvailableSettings.USE_QUERY_CACHE, false);
+                return;
+            }
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, ConfigSettings.SIMPLE_FACTORY_NAME);
+            properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            properties.put(AvailableSettings.USE_QUERY_CACHE, queries && !sharded);
+        };
+    }
+}
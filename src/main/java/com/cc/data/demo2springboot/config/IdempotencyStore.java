@@ -0,0 +1,143 @@
+package com.cc.data.demo2springboot.config;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Bounded, TTL-evicted store of idempotency keys.
+ * Each key holds the fingerprint of the request that first used it and a future that
+ * completes with the serialized response once that request finishes. Entries are kept
+ * in insertion order, so expired entries are always at the head and the oldest completed
+ * entry is evicted first when the store is full. An entry whose request is still in flight
+ * is never evicted: a concurrent retry would otherwise run the request a second time.
+ */
+public class IdempotencyStore {
+
+    /**
+     * A response captured from a successful execution, ready to be replayed byte for byte.
+     */
+    public record StoredResponse(int status, String contentType, List<Map.Entry<String, String>> headers,
+                                 byte[] body) {
+    }
+
+    /**
+     * The state of one idempotency key.
+     */
+    public static final class Entry {
+        private final String fingerprint;
+        private final long expiresAt;
+        private final CompletableFuture<StoredResponse> result = new CompletableFuture<>();
+
+        private Entry(String fingerprint, long expiresAt) {
+            this.fingerprint = fingerprint;
+            this.expiresAt = expiresAt;
+        }
+
+        public String getFingerprint() {
+            return fingerprint;
+        }
+
+        /**
+         * Completes with the stored response, or with null if the owning execution
+         * failed and the key was released for another attempt.
+         */
+        public CompletableFuture<StoredResponse> getResult() {
+            return result;
+        }
+    }
+
+    /**
+     * Outcome of {@link #claim}: either the caller now owns the key and must execute
+     * the request, or another request already holds it.
+     */
+    public record Claim(Entry entry, boolean owner) {
+    }
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final Clock clock;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+
+    public IdempotencyStore(int maxEntries, Duration ttl) {
+        this(maxEntries, ttl, Clock.systemUTC());
+    }
+
+    IdempotencyStore(int maxEntries, Duration ttl, Clock clock) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.ttlMillis = ttl.toMillis();
+        this.clock = clock;
+    }
+
+    /**
+     * Returns the live entry for a key, or registers a new one owned by the caller.
+     * @return the claim, or null if the store is full of requests still in flight
+     */
+    public synchronized Claim claim(String key, String fingerprint) {
+        long now = clock.millis();
+        evictExpired(now);
+
+        Entry existing = entries.get(key);
+        if (existing != null) {
+            return new Claim(existing, false);
+        }
+
+        if (entries.size() >= maxEntries && !evictCompleted(entries.size() - maxEntries + 1)) {
+            return null;
+        }
+        Entry entry = new Entry(fingerprint, now + ttlMillis);
+        entries.put(key, entry);
+        return new Claim(entry, true);
+    }
+
+    /**
+     * Stores the response of a successful execution and wakes up any waiting duplicates.
+     */
+    public void complete(Entry entry, StoredResponse response) {
+        entry.result.complete(response);
+    }
+
+    /**
+     * Forgets a key whose execution did not succeed, so a retry runs again.
+     */
+    public void release(String key, Entry entry) {
+        synchronized (this) {
+            entries.remove(key, entry);
+        }
+        entry.result.complete(null);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Evicts up to count of the oldest entries whose request has finished.
+     * @return whether count entries were evicted
+     */
+    private boolean evictCompleted(int count) {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (count > 0 && iterator.hasNext()) {
+            if (iterator.next().result.isDone()) {
+                iterator.remove();
+                count--;
+            }
+        }
+        return count == 0;
+    }
+
+    private void evictExpired(long now) {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.expiresAt > now) {
+                break;
+            }
+            iterator.remove();
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.cc.data.demo2springboot.config;
+
+import com.cc.data.demo2springboot.model.User;
+import com.cc.data.demo2springboot.service.JwtService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationPredicate;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.NativeDetector;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.observation.ServerRequestObservationContext;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the hot request path before the application reports ready, so the first real requests
+ * are served by compiled code instead of the interpreter.
+ * Each round mints a token and sends authenticated reads over loopback through the whole
+ * chain (security filters, JWT validation, controller, service, repository, Jackson), then
+ * round-trips sample users through the ObjectMapper, which covers serialization even while
+ * the database is still empty. Rounds repeat until compilation has settled, meaning the JIT
+ * compilers spent less than {@code settledShare} of a round compiling, two rounds in a row,
+ * or until {@code maxDuration} runs out.
+ * As an ApplicationRunner it finishes before readiness turns ACCEPTING_TRAFFIC, so the
+ * readiness probe keeps traffic away until then. Each round uses its own token subject, so
+ * the warm-up never runs into the per-client rate limit. Its requests carry a secret header,
+ * which the bulkheads use to let them through without feeding their adaptive limits, the JWT
+ * filter uses to leave their subjects out of last-seen tracking, and which keeps them out of
+ * {@code http.server.requests} (as an {@link ObservationPredicate}).
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.warmup", name = "enabled", havingValue = "true")
+public class JitWarmup implements ApplicationRunner, ObservationPredicate {
+
+    private static final Logger logger = LoggerFactory.getLogger(JitWarmup.class);
+
+    private static final int SETTLED_ROUNDS = 2;
+    private static final int SAMPLE_USERS = 20;
+    private static final String HEADER = "X-Warmup";
+
+    private final JwtService jwtService;
+    private final ObjectMapper objectMapper;
+    private final Environment environment;
+    private final Timer duration;
+    private final Duration maxDuration;
+    private final int requestsPerRound;
+    private final double settledShare;
+    // Only this process knows it, so clients cannot pass for the warm-up
+    private final String secret = UUID.randomUUID().toString();
+    private volatile boolean running;
+
+    public JitWarmup(JwtService jwtService, ObjectMapper objectMapper, Environment environment,
+                     MeterRegistry meterRegistry,
+                     @Value("${app.warmup.maxDuration:PT10S}") Duration maxDuration,
+                     @Value("${app.warmup.requestsPerRound:200}") int requestsPerRound,
+                     @Value("${app.warmup.settledShare:0.05}") double settledShare) {
+        this.jwtService = jwtService;
+        this.objectMapper = objectMapper;
+        this.environment = environment;
+        this.duration = Timer.builder("jit.warmup")
+                .description("Time spent warming up the request path before accepting traffic")
+                .register(meterRegistry);
+        this.maxDuration = maxDuration;
+        this.requestsPerRound = requestsPerRound;
+        this.settledShare = settledShare;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws InterruptedException {
+        if (NativeDetector.inNativeImage()) {
+            logger.info("JIT warm-up skipped: a native image is compiled ahead of time");
+            return;
+        }
+        String port = environment.getProperty("local.server.port");
+        if (port == null) {
+            logger.info("JIT warm-up skipped: no web server is listening");
+            return;
+        }
+        URI base = URI.create("http://localhost:" + port
+                + environment.getProperty("server.servlet.context-path", "") + "/api/users");
+        CompilationMXBean compiler = ManagementFactory.getCompilationMXBean();
+        boolean measurable = compiler != null && compiler.isCompilationTimeMonitoringSupported();
+
+        long start = System.nanoTime();
+        long deadline = start + maxDuration.toNanos();
+        int rounds = 0;
+        int settled = 0;
+        long failures = 0;
+        running = true;
+        try (HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build()) {
+            while (settled < SETTLED_ROUNDS && System.nanoTime() < deadline) {
+                long roundStart = System.nanoTime();
+                long compiledBefore = measurable ? compiler.getTotalCompilationTime() : 0;
+                failures += round(client, base, rounds++);
+                long roundMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - roundStart);
+                if (measurable) {
+                    long compiling = compiler.getTotalCompilationTime() - compiledBefore;
+                    settled = compiling < roundMillis * settledShare ? settled + 1 : 0;
+                }
+            }
+        } finally {
+            running = false;
+        }
+        long elapsed = System.nanoTime() - start;
+        duration.record(elapsed, TimeUnit.NANOSECONDS);
+        logger.info("JIT warm-up ran {} rounds of {} requests in {} ms, {}{}", rounds, requestsPerRound,
+                TimeUnit.NANOSECONDS.toMillis(elapsed), settled >= SETTLED_ROUNDS ? "compilation settled"
+                        : "stopped at " + maxDuration, failures > 0 ? ", " + failures + " requests failed" : "");
+    }
+
+    /**
+     * One round of reads under a fresh token, plus a serialization round trip.
+     * @return the number of requests that failed to get any response
+     */
+    private long round(HttpClient client, URI base, int round) throws InterruptedException {
+        String token = jwtService.generateToken("warmup-" + round, List.of("USER"));
+        if (!jwtService.validateToken(token)) {
+            throw new IllegalStateException("Freshly generated warm-up token does not validate");
+        }
+        String authorization = "Bearer " + token;
+        long failures = 0;
+        for (int i = 0; i < requestsPerRound; i++) {
+            // Alternate a page listing with lookups by id; ids that do not exist warm the 404 path
+            URI uri = i % 2 == 0 ? URI.create(base + "?page=0&size=20") : URI.create(base + "/" + (i / 2 + 1));
+            HttpRequest request = HttpRequest.newBuilder(uri).header(HttpHeaders.AUTHORIZATION, authorization)
+                    .header(HEADER, secret).build();
+            try {
+                client.send(request, HttpResponse.BodyHandlers.discarding());
+            } catch (IOException e) {
+                logger.debug("Warm-up request to {} failed", uri, e);
+                failures++;
+            }
+        }
+        roundTripUsers();
+        return failures;
+    }
+
+    /**
+     * @return true for a request sent by a warm-up that is still running
+     */
+    public boolean isWarmupRequest(HttpServletRequest request) {
+        return running && secret.equals(request.getHeader(HEADER));
+    }
+
+    @Override
+    public boolean test(String name, Observation.Context context) {
+        return !(running && context instanceof ServerRequestObservationContext server
+                && isWarmupRequest(server.getCarrier()));
+    }
+
+    private void roundTripUsers() {
+        LocalDateTime now = LocalDateTime.now();
+        List<User> users = new ArrayList<>(SAMPLE_USERS);
+        for (int i = 0; i < SAMPLE_USERS; i++) {
+            User user = new User((long) i, "warmup" + i, "warmup" + i + "@example.com", "Warm Up " + i, now, now, true);
+            user.setVersion(0L);
+            users.add(user);
+        }
+        try {
+            objectMapper.readValue(objectMapper.writeValueAsString(users), new TypeReference<List<User>>() { });
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not round-trip warm-up users through Jackson", e);
+        }
+    }
+}
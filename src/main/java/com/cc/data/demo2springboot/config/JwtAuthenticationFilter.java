@@ -1,6 +1,7 @@
 package com.cc.data.demo2springboot.config;
 
 import com.cc.data.demo2springboot.service.JwtService;
+import com.cc.data.demo2springboot.service.LastSeenTracker;
 import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -8,7 +9,10 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -19,19 +23,24 @@ import org.springframework.web.filter.OncePerRequestFilter;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 /**
  * Filter for JWT token validation that validates JWT tokens in requests and
  * sets up the Spring Security context based on the token claims.
+ * JIT warm-up requests are authenticated like any other but not recorded as user activity.
  */
 @Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private static final Logger logger = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
     private static final String AUTHORITIES_KEY = "roles";
 
     private final JwtService jwtService;
+    private final LastSeenTracker lastSeenTracker;
+    private final Predicate<HttpServletRequest> isWarmup;
 
     @Value("${jwt.header:Authorization}")
     private String headerName;
@@ -39,8 +48,21 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Value("${jwt.prefix:Bearer }")
     private String headerPrefix;
 
-    public JwtAuthenticationFilter(JwtService jwtService) {
+    @Autowired
+    public JwtAuthenticationFilter(JwtService jwtService, LastSeenTracker lastSeenTracker,
+                                   ObjectProvider<JitWarmup> warmup) {
+        this(jwtService, lastSeenTracker, warmupPredicate(warmup.getIfAvailable()));
+    }
+
+    JwtAuthenticationFilter(JwtService jwtService, LastSeenTracker lastSeenTracker,
+                            Predicate<HttpServletRequest> isWarmup) {
         this.jwtService = jwtService;
+        this.lastSeenTracker = lastSeenTracker;
+        this.isWarmup = isWarmup;
+    }
+
+    private static Predicate<HttpServletRequest> warmupPredicate(JitWarmup jitWarmup) {
+        return jitWarmup != null ? jitWarmup::isWarmupRequest : request -> false;
     }
 
     @Override
@@ -49,20 +71,22 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         try {
             String jwt = getJwtFromRequest(request);
 
-            if (StringUtils.hasText(jwt) && jwtService.validateToken(jwt)) {
-                Claims claims = jwtService.extractClaims(jwt);
+            if (StringUtils.hasText(jwt)) {
+                long start = System.nanoTime();
+                Claims claims = jwtService.validateToken(jwt) ? jwtService.extractClaims(jwt) : null;
+                ServerTiming.record(ServerTiming.Phase.AUTH, System.nanoTime() - start);
 
-                String username = claims.getSubject();
+                if (claims != null) {
+                    UsernamePasswordAuthenticationToken authentication = authenticationFrom(claims);
 
-                Collection<SimpleGrantedAuthority> authorities =
-                        Arrays.stream(claims.get(AUTHORITIES_KEY).toString().split(","))
-                                .map(role -> new SimpleGrantedAuthority("ROLE_" + role))
-                                .collect(Collectors.toList());
+                    SecurityContextHolder.getContext().setAuthentication(authentication);
 
-                UsernamePasswordAuthenticationToken authentication =
-                        new UsernamePasswordAuthenticationToken(username, null, authorities);
-
-                SecurityContextHolder.getContext().setAuthentication(authentication);
+                    // In-memory only; persisted in batches by the tracker's scheduled flush.
+                    // Warm-up subjects are not users and would only fill the tracker's map
+                    if (!isWarmup.test(request)) {
+                        lastSeenTracker.record(authentication.getName());
+                    }
+                }
             }
         } catch (Exception ex) {
             logger.error("Could not set user authentication in security context", ex);
@@ -71,6 +95,18 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    /**
+     * Builds the authentication for a validated token: its subject with the roles it carries.
+     */
+    static UsernamePasswordAuthenticationToken authenticationFrom(Claims claims) {
+        Collection<SimpleGrantedAuthority> authorities =
+                Arrays.stream(claims.get(AUTHORITIES_KEY).toString().split(","))
+                        .map(role -> new SimpleGrantedAuthority("ROLE_" + role))
+                        .collect(Collectors.toList());
+
+        return new UsernamePasswordAuthenticationToken(claims.getSubject(), null, authorities);
+    }
+
     private String getJwtFromRequest(HttpServletRequest request) {
         String bearerToken = request.getHeader(headerName);
         if (StringUtils.hasText(bearerToken) && bearerToken.startsWith(headerPrefix)) {
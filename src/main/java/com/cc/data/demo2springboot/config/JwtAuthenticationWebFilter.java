@@ -0,0 +1,65 @@
+package com.cc.data.demo2springboot.config;
+
+import com.cc.data.demo2springboot.service.JwtService;
+import com.cc.data.demo2springboot.service.LastSeenTracker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.util.StringUtils;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive counterpart of {@link JwtAuthenticationFilter}: validates the bearer token in the same
+ * way and puts the resulting authentication in the reactive security context of the exchange.
+ * Added to the chain by {@link ReactiveSecurityConfig}.
+ */
+public class JwtAuthenticationWebFilter implements WebFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(JwtAuthenticationWebFilter.class);
+
+    private final JwtService jwtService;
+    private final LastSeenTracker lastSeenTracker;
+    private final String headerName;
+    private final String headerPrefix;
+
+    public JwtAuthenticationWebFilter(JwtService jwtService, LastSeenTracker lastSeenTracker,
+                                      String headerName, String headerPrefix) {
+        this.jwtService = jwtService;
+        this.lastSeenTracker = lastSeenTracker;
+        this.headerName = headerName;
+        this.headerPrefix = headerPrefix;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        UsernamePasswordAuthenticationToken authentication = null;
+        try {
+            String jwt = getJwtFromRequest(exchange);
+            if (StringUtils.hasText(jwt) && jwtService.validateToken(jwt)) {
+                authentication = JwtAuthenticationFilter.authenticationFrom(jwtService.extractClaims(jwt));
+
+                // In-memory only; persisted in batches by the tracker's scheduled flush
+                lastSeenTracker.record(authentication.getName());
+            }
+        } catch (Exception ex) {
+            logger.error("Could not set user authentication in security context", ex);
+        }
+
+        if (authentication == null) {
+            return chain.filter(exchange);
+        }
+        return chain.filter(exchange).contextWrite(ReactiveSecurityContextHolder.withAuthentication(authentication));
+    }
+
+    private String getJwtFromRequest(ServerWebExchange exchange) {
+        String bearerToken = exchange.getRequest().getHeaders().getFirst(headerName);
+        if (StringUtils.hasText(bearerToken) && bearerToken.startsWith(headerPrefix)) {
+            return bearerToken.substring(headerPrefix.length());
+        }
+        return null;
+    }
+}
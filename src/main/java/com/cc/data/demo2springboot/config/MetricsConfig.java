@@ -0,0 +1,37 @@
+package com.cc.data.demo2springboot.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.config.MeterFilter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Metrics that are not tied to one component. Percentile histograms for Boot's own HTTP and
+ * repository timers, and the Prometheus endpoint, are configured in application.properties.
+ */
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * Replaces Boot's JSON converter, which backs off for any bean of its type.
+     */
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    public TimedJacksonHttpMessageConverter timedJacksonHttpMessageConverter(ObjectMapper objectMapper,
+                                                                             MeterRegistry meterRegistry) {
+        return new TimedJacksonHttpMessageConverter(objectMapper, meterRegistry);
+    }
+
+    /**
+     * The serialized types come from the controllers' return values, so there are only a few;
+     * the cap keeps a mistake from turning the tag into an unbounded one.
+     */
+    @Bean
+    public MeterFilter serializationTypeLimit(@Value("${app.metrics.maxSerializationTypes:20}") int maxTypes) {
+        return MeterFilter.maximumAllowableTags(TimedJacksonHttpMessageConverter.METER_NAME, "type", maxTypes,
+                MeterFilter.deny());
+    }
+}
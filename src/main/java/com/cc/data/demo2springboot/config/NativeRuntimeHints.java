@@ -0,0 +1,69 @@
+package com.cc.data.demo2springboot.config;
+
+import com.cc.data.demo2springboot.dto.AuthResponse;
+import com.cc.data.demo2springboot.dto.BatchItemResult;
+import com.cc.data.demo2springboot.model.User;
+import com.cc.data.demo2springboot.model.UserEvent;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+
+import java.util.stream.Stream;
+
+/**
+ * Reflection and resource hints for the native image, covering what Spring AOT cannot see.
+ * <ul>
+ *   <li>jjwt creates its builder, parser and header implementations by class name, and finds
+ *       its Jackson serializer and compression codecs through {@code ServiceLoader}.</li>
+ *   <li>Spring AOT registers Jackson bindings for controller return types, but cannot see through
+ *       {@code ResponseEntity<?>} (login, batch results) or the ObjectMapper call that writes
+ *       {@link User} to the outbox. Both entities also get full reflection for Hibernate.</li>
+ *   <li>The Hibernate cache looks its JCache provider up by name, and Caffeine reads its
+ *       defaults from {@code reference.conf}.</li>
+ * </ul>
+ * H2 and Hibernate ship their own native-image metadata, and the GraalVM reachability
+ * metadata repository, added by the {@code native} profile, covers Caffeine's generated caches.
+ */
+public class NativeRuntimeHints implements RuntimeHintsRegistrar {
+
+    private static final String[] JJWT_TYPES = {
+            "io.jsonwebtoken.impl.DefaultJwtBuilder",
+            "io.jsonwebtoken.impl.DefaultJwtParserBuilder",
+            "io.jsonwebtoken.impl.DefaultJwtParser",
+            "io.jsonwebtoken.impl.DefaultClaims",
+            "io.jsonwebtoken.impl.DefaultHeader",
+            "io.jsonwebtoken.impl.DefaultJwsHeader",
+            "io.jsonwebtoken.impl.compression.DeflateCompressionCodec",
+            "io.jsonwebtoken.impl.compression.GzipCompressionCodec",
+            "io.jsonwebtoken.jackson.io.JacksonSerializer",
+            "io.jsonwebtoken.jackson.io.JacksonDeserializer"
+    };
+
+    private static final String[] JJWT_SERVICES = {
+            "io.jsonwebtoken.io.Serializer",
+            "io.jsonwebtoken.io.Deserializer",
+            "io.jsonwebtoken.CompressionCodec"
+    };
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        for (String type : JJWT_TYPES) {
+            hints.reflection().registerType(TypeReference.of(type), MemberCategory.INVOKE_DECLARED_CONSTRUCTORS);
+        }
+        for (String service : JJWT_SERVICES) {
+            hints.resources().registerPattern("META-INF/services/" + service);
+        }
+
+        Stream.of(User.class, UserEvent.class).forEach(entity -> hints.reflection().registerType(entity,
+                MemberCategory.DECLARED_FIELDS, MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                MemberCategory.INVOKE_DECLARED_METHODS));
+        new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(),
+                User.class, AuthResponse.class, BatchItemResult.class);
+
+        hints.reflection().registerType(CaffeineCachingProvider.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+        hints.resources().registerPattern("reference.conf");
+    }
+}
@@ -0,0 +1,136 @@
+package com.cc.data.demo2springboot.config;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects the places where virtual threads pin their carrier thread, from the JFR
+ * jdk.VirtualThreadPinned event. A pinned virtual thread blocks its carrier, so the carriers
+ * (one per CPU by default) can all end up blocked while runnable virtual threads queue.
+ * Pinnings are grouped by site: the first application frame of the stack, or its top frame.
+ * The first pinning at each site is logged with its stack.
+ */
+public class PinnedThreadRecorder implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(PinnedThreadRecorder.class);
+
+    static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    private static final String APPLICATION_PACKAGE = "com.cc.data.demo2springboot.";
+
+    /**
+     * Pinnings at one site; times in milliseconds.
+     */
+    public record PinnedSite(String site, long count, double totalMs, double maxMs, List<String> stack) {
+    }
+
+    private static final class Site {
+        final List<String> stack;
+        long count;
+        long totalNanos;
+        long maxNanos;
+
+        Site(List<String> stack) {
+            this.stack = stack;
+        }
+    }
+
+    private final Duration threshold;
+    private final int maxSites;
+    private final int stackDepth;
+    private final Map<String, Site> sites = new ConcurrentHashMap<>();
+    private RecordingStream stream;
+
+    public PinnedThreadRecorder(Duration threshold, int maxSites, int stackDepth) {
+        this.threshold = threshold;
+        this.maxSites = maxSites;
+        this.stackDepth = stackDepth;
+    }
+
+    /**
+     * Starts listening for pinned events in the background.
+     */
+    public void start() {
+        stream = new RecordingStream();
+        stream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        stream.onEvent(PINNED_EVENT, this::onPinned);
+        stream.startAsync();
+    }
+
+    @Override
+    public void close() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    private void onPinned(RecordedEvent event) {
+        RecordedStackTrace trace = event.getStackTrace();
+        List<String> stack = trace == null ? List.of() : trace.getFrames().stream()
+                .filter(RecordedFrame::isJavaFrame)
+                .limit(stackDepth)
+                .map(PinnedThreadRecorder::describe)
+                .toList();
+        record(stack, event.getDuration());
+    }
+
+    /**
+     * Adds one pinning of the given duration with the given stack, top frame first.
+     */
+    void record(List<String> stack, Duration duration) {
+        String site = stack.stream().filter(frame -> frame.startsWith(APPLICATION_PACKAGE)).findFirst()
+                .orElse(stack.isEmpty() ? "unknown" : stack.get(0));
+        Site entry = sites.get(site);
+        if (entry == null) {
+            if (sites.size() >= maxSites) {
+                return;
+            }
+            entry = sites.computeIfAbsent(site, key -> {
+                logger.warn("Virtual thread pinned its carrier for {} ms at {}\n\tat {}",
+                        duration.toMillis(), key, String.join("\n\tat ", stack));
+                return new Site(stack);
+            });
+        }
+        long nanos = duration.toNanos();
+        synchronized (entry) {
+            entry.count++;
+            entry.totalNanos += nanos;
+            entry.maxNanos = Math.max(entry.maxNanos, nanos);
+        }
+    }
+
+    /**
+     * @return the pinning sites, most total pinned time first
+     */
+    public List<PinnedSite> sites() {
+        return sites.entrySet().stream()
+                .map(entry -> {
+                    Site site = entry.getValue();
+                    synchronized (site) {
+                        return new PinnedSite(entry.getKey(), site.count, millis(site.totalNanos),
+                                millis(site.maxNanos), site.stack);
+                    }
+                })
+                .sorted(Comparator.comparingDouble(PinnedSite::totalMs).reversed())
+                .toList();
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    private static String describe(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+}
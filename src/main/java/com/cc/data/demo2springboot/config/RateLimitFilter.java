@@ -0,0 +1,150 @@
+package com.cc.data.demo2springboot.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filter that rate-limits API requests per client, with separate buckets for login, reads
+ * and writes. A client is the JWT subject, so it runs after {@link JwtAuthenticationFilter};
+ * anonymous callers, including every login attempt, are keyed by client IP.
+ * Allowed responses carry RateLimit-Limit, RateLimit-Remaining, RateLimit-Reset (seconds
+ * until the bucket is full) and RateLimit-Policy headers; refused requests get 429 with
+ * Retry-After.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    public static final String LIMIT_HEADER = "RateLimit-Limit";
+    public static final String REMAINING_HEADER = "RateLimit-Remaining";
+    public static final String RESET_HEADER = "RateLimit-Reset";
+    public static final String POLICY_HEADER = "RateLimit-Policy";
+
+    private static final String LOGIN_PATH = "/api/auth/login";
+
+    /**
+     * One bucket per client for a kind of request, with its headers precomputed.
+     */
+    private record Limit(RateLimiter limiter, String limitHeader, String policyHeader, Counter rejected) {
+
+        static Limit of(String name, RateLimiter limiter, MeterRegistry meterRegistry) {
+            Gauge.builder("http.ratelimit.clients", limiter, RateLimiter::size)
+                    .description("Clients with a partly used rate limit bucket")
+                    .tag("limit", name)
+                    .register(meterRegistry);
+            Counter rejected = Counter.builder("http.ratelimit.rejected")
+                    .description("Requests refused with 429 Too Many Requests")
+                    .tag("limit", name)
+                    .register(meterRegistry);
+            return new Limit(limiter, Integer.toString(limiter.getCapacity()),
+                    limiter.getCapacity() + ";w=" + limiter.getPeriod().toSeconds(), rejected);
+        }
+    }
+
+    private final boolean enabled;
+    private final Limit login;
+    private final Limit reads;
+    private final Limit writes;
+
+    @Autowired
+    public RateLimitFilter(@Value("${app.ratelimit.enabled:true}") boolean enabled,
+                           @Value("${app.ratelimit.login.capacity:10}") int loginCapacity,
+                           @Value("${app.ratelimit.login.period:PT1M}") Duration loginPeriod,
+                           @Value("${app.ratelimit.read.capacity:1200}") int readCapacity,
+                           @Value("${app.ratelimit.read.period:PT1M}") Duration readPeriod,
+                           @Value("${app.ratelimit.write.capacity:120}") int writeCapacity,
+                           @Value("${app.ratelimit.write.period:PT1M}") Duration writePeriod,
+                           MeterRegistry meterRegistry) {
+        this(enabled, new RateLimiter(loginCapacity, loginPeriod), new RateLimiter(readCapacity, readPeriod),
+                new RateLimiter(writeCapacity, writePeriod), meterRegistry);
+    }
+
+    RateLimitFilter(boolean enabled, RateLimiter login, RateLimiter reads, RateLimiter writes,
+                    MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.login = Limit.of("login", login, meterRegistry);
+        this.reads = Limit.of("read", reads, meterRegistry);
+        this.writes = Limit.of("write", writes, meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || !request.getRequestURI().startsWith("/api/", request.getContextPath().length());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Limit limit;
+        String client;
+        String method = request.getMethod();
+        if (request.getRequestURI().startsWith(LOGIN_PATH, request.getContextPath().length())) {
+            limit = login;
+            client = request.getRemoteAddr();
+        } else {
+            limit = "GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method) ? reads : writes;
+            client = clientOf(request);
+        }
+
+        long result = limit.limiter().tryAcquire(client);
+        response.setHeader(LIMIT_HEADER, limit.limitHeader());
+        response.setHeader(POLICY_HEADER, limit.policyHeader());
+        if (result >= 0) {
+            response.setHeader(REMAINING_HEADER, Integer.toString(limit.limiter().remaining(result)));
+            response.setHeader(RESET_HEADER, Long.toString(seconds(result)));
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        String retryAfter = Long.toString(seconds(-result));
+        limit.rejected().increment();
+        response.setHeader(REMAINING_HEADER, "0");
+        response.setHeader(RESET_HEADER, retryAfter);
+        response.setHeader(HttpHeaders.RETRY_AFTER, retryAfter);
+        response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), "Rate limit exceeded");
+    }
+
+    private static String clientOf(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated()
+                && !(authentication instanceof AnonymousAuthenticationToken)) {
+            return authentication.getName();
+        }
+        // Prefixed so that an address can never share a bucket with a username
+        return "ip:" + request.getRemoteAddr();
+    }
+
+    private static long seconds(long nanos) {
+        return (nanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1);
+    }
+
+    /**
+     * Drops the buckets of clients that have been idle long enough to refill.
+     */
+    @Scheduled(fixedDelayString = "${app.ratelimit.evictInterval:PT1M}")
+    public void evictIdleClients() {
+        login.limiter().evictIdle();
+        reads.limiter().evictIdle();
+        writes.limiter().evictIdle();
+    }
+}
@@ -0,0 +1,99 @@
+package com.cc.data.demo2springboot.config;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Token buckets per key, each allowing {@code capacity} requests per {@code period}.
+ * A bucket is a single timestamp, the time at which it will be full again (the generic cell
+ * rate algorithm): taking a token pushes it one refill interval later, and the request is
+ * refused when that would put it more than a full bucket ahead of now. Taking a token is a
+ * map lookup and a CAS, with no lock and no allocation for a known key.
+ * A bucket that has refilled completely holds no information, so {@link #evictIdle()} drops it.
+ */
+public class RateLimiter {
+
+    private final int capacity;
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final LongSupplier nanoClock;
+
+    // ConcurrentHashMap is striped per bin and its reads are lock-free
+    private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+    public RateLimiter(int capacity, Duration period) {
+        this(capacity, period, System::nanoTime);
+    }
+
+    RateLimiter(int capacity, Duration period, LongSupplier nanoClock) {
+        if (capacity < 1 || period.isNegative() || period.isZero()) {
+            throw new IllegalArgumentException("A rate limit needs a positive capacity and period");
+        }
+        this.capacity = capacity;
+        this.intervalNanos = Math.max(1, period.toNanos() / capacity);
+        this.burstNanos = intervalNanos * capacity;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Takes a token from the key's bucket.
+     * @return when allowed, the nanoseconds until the bucket is full again (zero or more);
+     *         when refused, minus the nanoseconds until a token is available
+     */
+    public long tryAcquire(String key) {
+        long now = nanoClock.getAsLong();
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+        }
+        while (true) {
+            long fullAt = bucket.get();
+            long next = Math.max(fullAt - now, 0) + intervalNanos;
+            if (next > burstNanos) {
+                return -(next - burstNanos);
+            }
+            if (bucket.compareAndSet(fullAt, now + next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * @param fullInNanos a non-negative result of {@link #tryAcquire}
+     * @return the tokens left in the bucket after that request
+     */
+    public int remaining(long fullInNanos) {
+        return (int) ((burstNanos - fullInNanos) / intervalNanos);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public Duration getPeriod() {
+        return Duration.ofNanos(burstNanos);
+    }
+
+    /**
+     * Drops the buckets that have refilled completely; a later request starts a new, full one.
+     * @return the number of buckets dropped
+     */
+    public int evictIdle() {
+        long now = nanoClock.getAsLong();
+        int evicted = 0;
+        for (Map.Entry<String, AtomicLong> entry : buckets.entrySet()) {
+            // A request racing the removal takes its token from the dropped bucket: one free request at most
+            if (entry.getValue().get() - now <= 0 && buckets.remove(entry.getKey(), entry.getValue())) {
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+}
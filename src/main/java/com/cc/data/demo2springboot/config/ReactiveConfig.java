@@ -0,0 +1,78 @@
+package com.cc.data.demo2springboot.config;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.reactive.TransactionalOperator;
+
+import java.time.Duration;
+
+/**
+ * Infrastructure of the reactive stack, active when the application runs as a reactive web
+ * application (the reactive profile). Requests are served by Netty's event loops and reach the
+ * database through a pool of R2DBC connections, so a request waiting on the database or on a slow
+ * client holds neither a thread nor a JDBC connection.
+ * The JDBC datasource stays in place for Flyway and the background jobs; the R2DBC pool points at
+ * the same database. Its transaction manager is deliberately not a bean, so the JPA transaction
+ * manager remains the only one {@code @Transactional} can pick.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveConfig {
+
+    private final ConnectionPool connectionPool;
+
+    /**
+     * The pool is kept off the bean registry: Boot's JDBC datasource backs off as soon as any
+     * {@link ConnectionFactory} bean exists, and Flyway and the background jobs still need it.
+     */
+    public ReactiveConfig(@Value("${app.reactive.r2dbc.url}") String url,
+                          @Value("${app.reactive.r2dbc.username:${spring.datasource.username:}}") String username,
+                          @Value("${app.reactive.r2dbc.password:${spring.datasource.password:}}") String password,
+                          @Value("${app.reactive.r2dbc.poolSize:20}") int poolSize,
+                          @Value("${app.reactive.r2dbc.acquireTimeout:PT30S}") Duration acquireTimeout) {
+        ConnectionFactory connectionFactory = ConnectionFactories.get(ConnectionFactoryOptions.parse(url).mutate()
+                .option(ConnectionFactoryOptions.USER, username)
+                .option(ConnectionFactoryOptions.PASSWORD, password)
+                .build());
+        this.connectionPool = new ConnectionPool(ConnectionPoolConfiguration.builder(connectionFactory)
+                .name("reactive")
+                .initialSize(Math.min(poolSize, 2))
+                .maxSize(poolSize)
+                .maxAcquireTime(acquireTimeout)
+                .build());
+    }
+
+    /**
+     * Netty rather than Tomcat, which is also on the classpath and would otherwise be preferred.
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    @Bean
+    public DatabaseClient databaseClient() {
+        return DatabaseClient.create(connectionPool);
+    }
+
+    @Bean
+    public TransactionalOperator reactiveTransactions() {
+        return TransactionalOperator.create(new R2dbcTransactionManager(connectionPool));
+    }
+
+    @PreDestroy
+    public void closePool() {
+        connectionPool.dispose();
+    }
+}
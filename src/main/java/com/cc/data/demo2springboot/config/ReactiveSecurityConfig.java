@@ -0,0 +1,84 @@
+package com.cc.data.demo2springboot.config;
+
+import com.cc.data.demo2springboot.service.JwtService;
+import com.cc.data.demo2springboot.service.LastSeenTracker;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.authentication.UserDetailsRepositoryReactiveAuthenticationManager;
+import org.springframework.security.config.annotation.method.configuration.EnableReactiveMethodSecurity;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.core.userdetails.MapReactiveUserDetailsService;
+import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.authentication.HttpStatusServerEntryPoint;
+import org.springframework.security.web.server.context.NoOpServerSecurityContextRepository;
+
+/**
+ * Security for the reactive stack, with the same rules as {@link SecurityConfig}: stateless JWT
+ * authentication, public reads of users, ADMIN-only writes (enforced on the controller) and actuator.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@EnableWebFluxSecurity
+@EnableReactiveMethodSecurity
+public class ReactiveSecurityConfig {
+
+    @Bean
+    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http, JwtService jwtService,
+                                                         LastSeenTracker lastSeenTracker,
+                                                         @Value("${jwt.header:Authorization}") String headerName,
+                                                         @Value("${jwt.prefix:Bearer }") String headerPrefix) {
+        // Not a bean: WebFlux would also apply a WebFilter bean to every request outside this chain
+        JwtAuthenticationWebFilter jwtAuthenticationWebFilter =
+                new JwtAuthenticationWebFilter(jwtService, lastSeenTracker, headerName, headerPrefix);
+        return http
+            .csrf(ServerHttpSecurity.CsrfSpec::disable)
+            .httpBasic(ServerHttpSecurity.HttpBasicSpec::disable)
+            .formLogin(ServerHttpSecurity.FormLoginSpec::disable)
+            // Stateless: the authentication comes from the token on every request
+            .securityContextRepository(NoOpServerSecurityContextRepository.getInstance())
+            // Rejected requests get 403, as on the servlet stack
+            .exceptionHandling(exceptions -> exceptions
+                .authenticationEntryPoint(new HttpStatusServerEntryPoint(HttpStatus.FORBIDDEN)))
+            .authorizeExchange(exchanges -> exchanges
+                .pathMatchers("/api/auth/**").permitAll()
+                .pathMatchers("/actuator/health/**").permitAll() // liveness/readiness probes
+                .pathMatchers("/actuator/**").hasRole("ADMIN") // metrics expose SQL text
+                .pathMatchers(HttpMethod.GET, "/api/users/**").permitAll() // GET users is public
+                .anyExchange().authenticated())
+            .addFilterAt(jwtAuthenticationWebFilter, SecurityWebFiltersOrder.AUTHENTICATION)
+            .build();
+    }
+
+    @Bean
+    public PasswordEncoder passwordEncoder(MeterRegistry meterRegistry) {
+        return new TimedPasswordEncoder(new BCryptPasswordEncoder(), meterRegistry);
+    }
+
+    @Bean
+    public ReactiveUserDetailsService reactiveUserDetailsService(PasswordEncoder passwordEncoder) {
+        return new MapReactiveUserDetailsService(SecurityConfig.demoUsers(passwordEncoder));
+    }
+
+    /**
+     * Checks passwords off the event loop, on the bounded elastic scheduler.
+     */
+    @Bean
+    public ReactiveAuthenticationManager reactiveAuthenticationManager(ReactiveUserDetailsService userDetailsService,
+                                                                       PasswordEncoder passwordEncoder) {
+        UserDetailsRepositoryReactiveAuthenticationManager manager =
+                new UserDetailsRepositoryReactiveAuthenticationManager(userDetailsService);
+        manager.setPasswordEncoder(passwordEncoder);
+        return manager;
+    }
+}
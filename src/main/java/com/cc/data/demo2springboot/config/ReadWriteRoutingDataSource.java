@@ -0,0 +1,42 @@
+package com.cc.data.demo2springboot.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Sends connections for read-only transactions to the replica and everything else to the primary.
+ * Must sit behind a LazyConnectionDataSourceProxy: the read-only flag of a transaction is
+ * only known once it has begun, so the physical connection is chosen at its first statement.
+ * A read-only transaction still goes to the primary if the current request has already
+ * written, or if the replica has not yet replayed up to the client's read-your-writes token.
+ */
+class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    enum Route { PRIMARY, REPLICA }
+
+    private final ReplicaLagMonitor lagMonitor;
+
+    ReadWriteRoutingDataSource(ReplicaLagMonitor lagMonitor) {
+        this.lagMonitor = lagMonitor;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        ReadYourWrites.markWritten();
+                    }
+                });
+            }
+            return Route.PRIMARY;
+        }
+        if (ReadYourWrites.hasWritten() || !lagMonitor.hasReplayed(ReadYourWrites.requiredPosition())) {
+            return Route.PRIMARY;
+        }
+        return Route.REPLICA;
+    }
+}
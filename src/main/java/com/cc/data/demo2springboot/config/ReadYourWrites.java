@@ -0,0 +1,73 @@
+package com.cc.data.demo2springboot.config;
+
+/**
+ * Per-request read-your-writes state, bound to the request thread by {@link ReadYourWritesFilter}.
+ * Holds the replica position the client must observe (from the token it sent back)
+ * and whether the request itself has committed a write, in which case the rest of the
+ * request reads from the primary. Outside a request no state is bound and reads are
+ * never pinned.
+ */
+public final class ReadYourWrites {
+
+    private static final ThreadLocal<ReadYourWrites> CURRENT = new ThreadLocal<>();
+
+    private final long requiredPosition;
+    private volatile boolean written;
+
+    private ReadYourWrites(long requiredPosition) {
+        this.requiredPosition = requiredPosition;
+    }
+
+    /**
+     * Binds state for the current request.
+     * @param requiredPosition the position from the client's token, or -1 if it sent none
+     */
+    static ReadYourWrites begin(long requiredPosition) {
+        ReadYourWrites context = new ReadYourWrites(requiredPosition);
+        CURRENT.set(context);
+        return context;
+    }
+
+    static void end() {
+        CURRENT.remove();
+    }
+
+    /**
+     * @return the replica position the current request must observe, or -1 if none
+     */
+    static long requiredPosition() {
+        ReadYourWrites context = CURRENT.get();
+        return context != null ? context.requiredPosition : -1;
+    }
+
+    /**
+     * Records that the current request committed a write. A no-op outside a request.
+     */
+    static void markWritten() {
+        ReadYourWrites context = CURRENT.get();
+        if (context != null) {
+            context.written = true;
+        }
+    }
+
+    /**
+     * @return true if the current request has committed a write
+     */
+    static boolean hasWritten() {
+        ReadYourWrites context = CURRENT.get();
+        return context != null && context.written;
+    }
+
+    /**
+     * @return true if the current request must read from the primary or from a replica that
+     *         has reached its token, so it cannot be answered with a result read for another request
+     */
+    public static boolean isPinned() {
+        ReadYourWrites context = CURRENT.get();
+        return context != null && (context.written || context.requiredPosition >= 0);
+    }
+
+    boolean written() {
+        return written;
+    }
+}
@@ -0,0 +1,86 @@
+package com.cc.data.demo2springboot.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+
+/**
+ * Issues and honours read-your-writes tokens.
+ * A request that commits a write gets the primary's commit-log position back in the
+ * Consistency-Token header. A client that sends that token on later requests has its
+ * reads served by the primary until the replica has replayed past it, and by the
+ * replica from then on.
+ * Write responses are buffered so the header can still be set after the handler has
+ * written the body; those bodies are small.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    public static final String TOKEN_HEADER = "Consistency-Token";
+
+    private static final Logger logger = LoggerFactory.getLogger(ReadYourWritesFilter.class);
+
+    private final ReplicaLagMonitor lagMonitor;
+
+    public ReadYourWritesFilter(ReplicaLagMonitor lagMonitor) {
+        this.lagMonitor = lagMonitor;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        ReadYourWrites context = ReadYourWrites.begin(parseToken(request.getHeader(TOKEN_HEADER)));
+        try {
+            if (isSafe(request.getMethod())) {
+                filterChain.doFilter(request, response);
+                return;
+            }
+
+            ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+            try {
+                filterChain.doFilter(request, wrapper);
+                if (context.written()) {
+                    issueToken(wrapper);
+                }
+            } finally {
+                wrapper.copyBodyToResponse();
+            }
+        } finally {
+            ReadYourWrites.end();
+        }
+    }
+
+    private void issueToken(HttpServletResponse response) {
+        try {
+            response.setHeader(TOKEN_HEADER, Long.toString(lagMonitor.primaryPosition()));
+        } catch (DataAccessException e) {
+            // The write itself succeeded; the client just won't get a token
+            logger.warn("Could not read the primary position for a read-your-writes token", e);
+        }
+    }
+
+    /**
+     * An absent or malformed token is ignored rather than rejected.
+     */
+    private static long parseToken(String token) {
+        if (token == null || token.isBlank()) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(token.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static boolean isSafe(String method) {
+        return "GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method);
+    }
+}
@@ -0,0 +1,83 @@
+package com.cc.data.demo2springboot.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks how far the replica has replayed the primary's commit log.
+ * The replica position is polled on a schedule rather than per request, so routing a read
+ * costs a field read. A stale value only ever under-reports the replica, which keeps
+ * pinned clients on the primary slightly longer, never shorter.
+ */
+public class ReplicaLagMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    private final JdbcTemplate primary;
+    private final JdbcTemplate replica;
+    private final String primaryPositionQuery;
+    private final String replicaPositionQuery;
+
+    private final AtomicLong replicaPosition = new AtomicLong(-1);
+    private final AtomicLong lag = new AtomicLong();
+
+    public ReplicaLagMonitor(DataSource primary, DataSource replica,
+                             String primaryPositionQuery, String replicaPositionQuery,
+                             MeterRegistry meterRegistry) {
+        this.primary = new JdbcTemplate(primary);
+        this.replica = new JdbcTemplate(replica);
+        this.primaryPositionQuery = primaryPositionQuery;
+        this.replicaPositionQuery = replicaPositionQuery;
+        Gauge.builder("datasource.replica.lag", lag, AtomicLong::get)
+                .description("Primary commit-log position minus the replica's replayed position")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Reads the primary's current commit-log position; this is the read-your-writes token value.
+     * @return the primary position
+     */
+    public long primaryPosition() {
+        Long position = primary.queryForObject(primaryPositionQuery, Long.class);
+        return position != null ? position : 0L;
+    }
+
+    /**
+     * @param position a primary position handed out earlier, or -1 for none
+     * @return true if the replica was last seen at or past the position
+     */
+    public boolean hasReplayed(long position) {
+        return position < 0 || replicaPosition.get() >= position;
+    }
+
+    /**
+     * Refreshes the replica position and the lag gauge. On failure the previous
+     * position is kept.
+     */
+    @Scheduled(fixedDelayString = "${app.datasource.replica.positionPollInterval:PT0.1S}")
+    public void refresh() {
+        try {
+            Long replayed = replica.queryForObject(replicaPositionQuery, Long.class);
+            long current = replayed != null ? replayed : 0L;
+            replicaPosition.set(current);
+            lag.set(Math.max(0, primaryPosition() - current));
+        } catch (DataAccessException e) {
+            logger.debug("Could not read replication positions", e);
+        }
+    }
+
+    /**
+     * @return the replica position seen by the last successful poll, or -1 before the first
+     */
+    public long getReplicaPosition() {
+        return replicaPosition.get();
+    }
+}
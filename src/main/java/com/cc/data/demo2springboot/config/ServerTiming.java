@@ -0,0 +1,132 @@
+package com.cc.data.demo2springboot.config;
+
+import java.util.Locale;
+
+/**
+ * Where the time of one request went, by phase, for the {@code Server-Timing} header and the
+ * slow request log. {@link ServerTimingFilter} opens a context on the request thread and the
+ * hooks in the security, service, repository, JDBC and JSON layers add to it through
+ * {@link #record}, which does nothing outside a timed request. Work done on other threads,
+ * such as the shard fan-out, is not attributed. Phases nest rather than add up: service time
+ * includes the repository calls it makes, and those include their SQL.
+ */
+public final class ServerTiming {
+
+    public static final String HEADER = "Server-Timing";
+
+    /**
+     * The measured phases, in header order.
+     */
+    public enum Phase {
+        /** Bearer token verification and password checks. */
+        AUTH("auth", "check", "checks"),
+        /** URL and method security decisions. */
+        AUTHZ("authz", "decision", "decisions"),
+        /** {@code UserService} calls. */
+        SERVICE("service", "call", "calls"),
+        /** Spring Data repository calls. */
+        REPOSITORY("repo", "call", "calls"),
+        /** JDBC statements, when SQL tracing is on. */
+        DB("db", "statement", "statements"),
+        /** Writing JSON response bodies. */
+        SERIALIZATION("ser", "body", "bodies");
+
+        private final String metric;
+        private final String one;
+        private final String many;
+
+        Phase(String metric, String one, String many) {
+            this.metric = metric;
+            this.one = one;
+            this.many = many;
+        }
+
+        public String metric() {
+            return metric;
+        }
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+    private static final ThreadLocal<ServerTiming> CURRENT = new ThreadLocal<>();
+
+    private final long start;
+    private final long[] nanos = new long[PHASES.length];
+    private final int[] counts = new int[PHASES.length];
+
+    ServerTiming(long start) {
+        this.start = start;
+    }
+
+    /**
+     * Opens a context for the request on the current thread; {@link #close()} it when the
+     * request is done.
+     */
+    static ServerTiming open() {
+        ServerTiming timing = new ServerTiming(System.nanoTime());
+        CURRENT.set(timing);
+        return timing;
+    }
+
+    void close() {
+        CURRENT.remove();
+    }
+
+    /**
+     * The context of the request on this thread, or null if it is not timed.
+     */
+    public static ServerTiming current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Adds one occurrence of a phase to the request on this thread, if it is timed.
+     */
+    public static void record(Phase phase, long nanos) {
+        ServerTiming timing = CURRENT.get();
+        if (timing != null) {
+            timing.add(phase, nanos);
+        }
+    }
+
+    void add(Phase phase, long elapsed) {
+        nanos[phase.ordinal()] += elapsed;
+        counts[phase.ordinal()]++;
+    }
+
+    public long nanos(Phase phase) {
+        return nanos[phase.ordinal()];
+    }
+
+    public int count(Phase phase) {
+        return counts[phase.ordinal()];
+    }
+
+    /**
+     * Time since the context was opened.
+     */
+    public long elapsed() {
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * The header value: each phase that occurred with its total duration in milliseconds and
+     * how often it occurred, then the total so far, e.g.
+     * {@code auth;dur=0.4;desc="1 check", db;dur=2.1;desc="3 statements", total;dur=5.0}.
+     */
+    public String header() {
+        StringBuilder header = new StringBuilder(160);
+        for (Phase phase : PHASES) {
+            int count = counts[phase.ordinal()];
+            if (count > 0) {
+                header.append(phase.metric).append(";dur=").append(millis(nanos[phase.ordinal()]))
+                        .append(";desc=\"").append(count).append(' ').append(count == 1 ? phase.one : phase.many)
+                        .append("\", ");
+            }
+        }
+        return header.append("total;dur=").append(millis(elapsed())).toString();
+    }
+
+    static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.1f", nanos / 1_000_000.0);
+    }
+}
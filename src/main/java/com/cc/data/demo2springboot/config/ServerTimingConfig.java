@@ -0,0 +1,115 @@
+package com.cc.data.demo2springboot.config;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.security.authorization.AuthorizationObservationContext;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request phase timing, reported in the {@code Server-Timing} header (see
+ * {@link ServerTimingFilter}). Off unless {@code app.servertiming.enabled} is true. Token and
+ * password checks are fed from {@link JwtAuthenticationFilter} and {@link TimedPasswordEncoder},
+ * SQL from {@link SqlStatementTracer} and JSON from {@link TimedJacksonHttpMessageConverter};
+ * the hooks for authorization, the service and the repositories are defined here.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(prefix = "app.servertiming", name = "enabled", havingValue = "true")
+public class ServerTimingConfig {
+
+    private static final String START_KEY = ServerTimingConfig.class.getName() + ".start";
+
+    @Bean
+    public FilterRegistrationBean<ServerTimingFilter> serverTimingFilterRegistration(
+            @Value("${app.servertiming.logThreshold:PT0.5S}") Duration logThreshold) {
+        FilterRegistrationBean<ServerTimingFilter> registration =
+                new FilterRegistrationBean<>(new ServerTimingFilter(logThreshold));
+        // Outside the bulkhead, so time spent queued for a slot shows in the total
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER - 2);
+        return registration;
+    }
+
+    /**
+     * URL and method security decisions, from the observations Spring Security makes of them.
+     */
+    @Bean
+    public ObservationHandler<Observation.Context> serverTimingAuthorizationHandler() {
+        return new ObservationHandler<>() {
+            @Override
+            public void onStart(Observation.Context context) {
+                context.put(START_KEY, System.nanoTime());
+            }
+
+            @Override
+            public void onStop(Observation.Context context) {
+                Long start = context.get(START_KEY);
+                if (start != null) {
+                    ServerTiming.record(ServerTiming.Phase.AUTHZ, System.nanoTime() - start);
+                }
+            }
+
+            @Override
+            public boolean supportsContext(Observation.Context context) {
+                return context instanceof AuthorizationObservationContext<?> && ServerTiming.current() != null;
+            }
+        };
+    }
+
+    /**
+     * Every Spring Data repository call, through the invocation listener Boot also uses for
+     * {@code spring.data.repository.invocations}.
+     */
+    @Bean
+    public static BeanPostProcessor serverTimingRepositoryListener() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+                    factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addInvocationListener(
+                            invocation -> ServerTiming.record(ServerTiming.Phase.REPOSITORY,
+                                    invocation.getDuration(TimeUnit.NANOSECONDS))));
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public ServiceTiming serverTimingServiceAspect() {
+        return new ServiceTiming();
+    }
+
+    /**
+     * Calls into {@code UserService} from outside it.
+     */
+    @Aspect
+    static class ServiceTiming {
+
+        @Around("within(com.cc.data.demo2springboot.service.UserService)")
+        public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+            if (ServerTiming.current() == null) {
+                return joinPoint.proceed();
+            }
+            long start = System.nanoTime();
+            try {
+                return joinPoint.proceed();
+            } finally {
+                ServerTiming.record(ServerTiming.Phase.SERVICE, System.nanoTime() - start);
+            }
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.cc.data.demo2springboot.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.spi.LoggingEventBuilder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.time.Duration;
+
+/**
+ * Filter that times each API request by phase (see {@link ServerTiming}) and reports the
+ * breakdown in a {@code Server-Timing} response header. The header is added just before the
+ * response is committed, when the body is first written or an error is sent, so it covers
+ * everything up to that point: JSON bodies are serialized into a buffer first, and the total is
+ * the time to the first byte. Requests slower than the log threshold are logged at WARN with
+ * each phase as a key-value pair, which structured log formats emit as separate fields.
+ * Asynchronous responses, such as the change stream, are left untimed: their body is written
+ * later by other threads, and the time to the handler's return says nothing about them.
+ * Registered ahead of the bulkhead and the security chain by {@link ServerTimingConfig}.
+ */
+public class ServerTimingFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ServerTimingFilter.class);
+
+    private final long logThresholdNanos;
+
+    public ServerTimingFilter(Duration logThreshold) {
+        this.logThresholdNanos = logThreshold.toNanos();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/api/", request.getContextPath().length());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        ServerTiming timing = ServerTiming.open();
+        TimingResponse timed = new TimingResponse(request, response, timing);
+        try {
+            filterChain.doFilter(request, timed);
+            timed.writeHeader();
+        } finally {
+            timing.close();
+            long elapsed = timing.elapsed();
+            if (elapsed >= logThresholdNanos && !request.isAsyncStarted()) {
+                logSlow(request, response, timing, elapsed);
+            }
+        }
+    }
+
+    private static void logSlow(HttpServletRequest request, HttpServletResponse response, ServerTiming timing,
+                                long elapsed) {
+        LoggingEventBuilder event = logger.atWarn()
+                .addKeyValue("http.method", request.getMethod())
+                .addKeyValue("http.path", request.getRequestURI())
+                .addKeyValue("http.status", response.getStatus())
+                .addKeyValue("timing.total", ServerTiming.millis(elapsed));
+        StringBuilder phases = new StringBuilder();
+        for (ServerTiming.Phase phase : ServerTiming.Phase.values()) {
+            int count = timing.count(phase);
+            if (count > 0) {
+                String millis = ServerTiming.millis(timing.nanos(phase));
+                event = event.addKeyValue("timing." + phase.metric(), millis)
+                        .addKeyValue("timing." + phase.metric() + ".count", count);
+                phases.append(' ').append(phase.metric()).append('=').append(millis).append("ms/").append(count);
+            }
+        }
+        event.log("Slow request {} {} {} ({} ms):{}", request.getMethod(), request.getRequestURI(),
+                response.getStatus(), ServerTiming.millis(elapsed), phases);
+    }
+
+    /**
+     * Adds the header once, the first time the response is about to be committed. Only the
+     * request thread, while its timing is open, touches the header or the written flag.
+     */
+    private static final class TimingResponse extends HttpServletResponseWrapper {
+
+        private final HttpServletRequest request;
+        private final ServerTiming timing;
+        private boolean written;
+
+        TimingResponse(HttpServletRequest request, HttpServletResponse response, ServerTiming timing) {
+            super(response);
+            this.request = request;
+            this.timing = timing;
+        }
+
+        void writeHeader() {
+            if (ServerTiming.current() != timing || written) {
+                return;
+            }
+            written = true;
+            if (!isCommitted() && !request.isAsyncStarted()) {
+                setHeader(ServerTiming.HEADER, timing.header());
+            }
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            writeHeader();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            writeHeader();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            writeHeader();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            writeHeader();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            writeHeader();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            writeHeader();
+            super.sendRedirect(location);
+        }
+    }
+}
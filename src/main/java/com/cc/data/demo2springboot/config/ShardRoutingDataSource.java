@@ -0,0 +1,17 @@
+package com.cc.data.demo2springboot.config;
+
+import com.cc.data.demo2springboot.service.UserShards;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/**
+ * Routes each connection to the shard bound to the current thread by {@link UserShards}.
+ * Must sit behind a LazyConnectionDataSourceProxy so a transaction opened before its
+ * shard is bound still gets that shard's connection. Unbound work uses shard 0.
+ */
+class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return UserShards.current();
+    }
+}
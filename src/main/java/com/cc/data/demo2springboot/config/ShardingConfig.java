@@ -0,0 +1,135 @@
+package com.cc.data.demo2springboot.config;
+
+import com.cc.data.demo2springboot.service.UserClaims;
+import com.cc.data.demo2springboot.service.UserShards;
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hash-sharded user storage, enabled by listing two or more JDBC URLs in app.sharding.urls.
+ * Each URL gets its own pool; a routing datasource sends every connection to the shard
+ * bound by {@link UserShards}. Credentials and driver come from spring.datasource.*.
+ * Every shard is migrated with the same Flyway migrations. Usernames and emails are claimed
+ * across shards in shard 0's user_claims table (see {@link UserClaims}), through a pool of its own.
+ * Cannot be combined with the read replica routing of {@link ReadWriteDataSourceConfig}.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.sharding", name = "urls")
+public class ShardingConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardingConfig.class);
+
+    /**
+     * One pool per shard, and one for the claims on shard 0, closed with the context.
+     */
+    record ShardDataSources(List<HikariDataSource> pools, HikariDataSource claims) implements AutoCloseable {
+        @Override
+        public void close() {
+            pools.forEach(HikariDataSource::close);
+            claims.close();
+        }
+    }
+
+    @Bean
+    ShardDataSources shardDataSources(DataSourceProperties properties,
+                                                   @Value("${app.sharding.urls}") String[] urls,
+                                                   @Value("${app.sharding.maxPoolSize:10}") int maxPoolSize,
+                                                   Environment environment) {
+        if (environment.containsProperty("app.datasource.replica.url")) {
+            throw new IllegalStateException("app.sharding.urls and app.datasource.replica.url cannot both be set");
+        }
+        List<HikariDataSource> shards = new ArrayList<>();
+        for (String url : Arrays.stream(urls).filter(url -> !url.isBlank()).toList()) {
+            HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class)
+                    .url(url.trim()).build();
+            dataSource.setPoolName("shard-" + shards.size());
+            dataSource.setMaximumPoolSize(maxPoolSize);
+            shards.add(dataSource);
+        }
+        // Separate from shard 0's pool: a claim is taken while holding a connection of the
+        // user's shard, and sharing the pool could leave every connection waiting for another
+        HikariDataSource claims = properties.initializeDataSourceBuilder().type(HikariDataSource.class)
+                .url(shards.get(0).getJdbcUrl()).build();
+        claims.setPoolName("shard-0-claims");
+        claims.setMaximumPoolSize(maxPoolSize);
+        return new ShardDataSources(shards, claims);
+    }
+
+    @Bean
+    public UserClaims userClaims(ShardDataSources shardDataSources) {
+        return new UserClaims(new JdbcTemplate(shardDataSources.claims()));
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardDataSources shardDataSources) {
+        List<HikariDataSource> pools = shardDataSources.pools();
+        Map<Object, Object> targets = new HashMap<>();
+        for (int shard = 0; shard < pools.size(); shard++) {
+            targets.put(shard, pools.get(shard));
+        }
+        ShardRoutingDataSource routing = new ShardRoutingDataSource();
+        routing.setTargetDataSources(targets);
+        routing.setDefaultTargetDataSource(pools.get(0));
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    /**
+     * Migrates every shard's schema and interleaves their user and event ids, before the
+     * EntityManagerFactory validates the schema, then claims the names of users that hold no
+     * claim yet. Replaces Boot's migration of the primary datasource, which would only reach shard 0.
+     */
+    @Bean
+    public FlywayMigrationStrategy shardMigrationStrategy(ShardDataSources shardDataSources, UserClaims claims) {
+        return flyway -> {
+            List<HikariDataSource> pools = shardDataSources.pools();
+            int count = pools.size();
+            for (int shard = 0; shard < count; shard++) {
+                DataSource dataSource = pools.get(shard);
+                Flyway.configure().configuration(flyway.getConfiguration()).dataSource(dataSource).load().migrate();
+                JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+                interleaveIds(jdbcTemplate, "users", shard, count);
+                interleaveIds(jdbcTemplate, "user_events", shard, count);
+            }
+            int claimed = 0;
+            for (HikariDataSource dataSource : pools) {
+                claimed += claims.backfill(new JdbcTemplate(dataSource));
+            }
+            logger.info("Migrated {} user shards, claimed {} existing users", count, claimed);
+        };
+    }
+
+    /**
+     * Makes the table's ids on shard i congruent to i+1 modulo the shard count, never reusing
+     * an id below the current maximum or the current identity position.
+     */
+    private static void interleaveIds(JdbcTemplate jdbcTemplate, String table, int shard, int count) {
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+        Long base = jdbcTemplate.queryForObject("SELECT COALESCE(IDENTITY_BASE, 1) FROM INFORMATION_SCHEMA.COLUMNS "
+                + "WHERE TABLE_NAME = ? AND COLUMN_NAME = 'ID'", Long.class, table.toUpperCase());
+        long floor = Math.max(maxId + 1, base != null ? base : 1);
+        long next = floor + Math.floorMod(shard - (floor - 1), count);
+        jdbcTemplate.execute("ALTER TABLE " + table + " ALTER COLUMN id RESTART WITH " + next
+                + " SET INCREMENT BY " + count);
+    }
+}
@@ -0,0 +1,142 @@
+package com.cc.data.demo2springboot.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Times every JDBC statement issued through {@link TracingDataSource}.
+ * Each distinct statement shape gets a sql.statement timer with a few latency buckets, tagged
+ * with a short id of the shape rather than its text; {@link #statement} maps ids back to SQL.
+ * A statement is logged, with its bound parameters, only if it ran longer than the
+ * slow threshold or was picked by the sample rate, so the per-statement cost is a map
+ * lookup and a timer update. Executions also count towards the {@code db} phase of
+ * {@link ServerTiming}.
+ */
+public class SqlStatementTracer {
+
+    private static final Logger logger = LoggerFactory.getLogger(SqlStatementTracer.class);
+
+    static final String METER_NAME = "sql.statement";
+    static final String STATEMENT_TAG = "statement";
+    static final String OVERFLOW_STATEMENT = "other";
+
+    // Buckets for the p99 of /actuator/sqlstatements; a full percentile histogram per shape
+    // would be some seventy series each
+    private static final Duration[] BUCKETS = {Duration.ofMillis(1), Duration.ofMillis(5), Duration.ofMillis(10),
+            Duration.ofMillis(50), Duration.ofMillis(100), Duration.ofMillis(500), Duration.ofSeconds(1),
+            Duration.ofSeconds(5)};
+
+    private static final Pattern IN_LIST = Pattern.compile("(?i)\\bIN\\s*\\(\\s*\\?(\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern NUMBER = Pattern.compile("\\b\\d+\\b");
+    private static final Pattern STRING = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final MeterRegistry meterRegistry;
+    private final long slowThresholdNanos;
+    private final double sampleRate;
+    private final boolean logParameters;
+    private final int maxStatements;
+
+    // Raw SQL -> timer. Raw strings repeat (Hibernate and JdbcTemplate reuse them), so the
+    // normalization below runs once per string, not once per execution
+    private final ConcurrentHashMap<String, Timer> timers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Timer> timersByShape = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, String> shapesById = new ConcurrentHashMap<>();
+
+    public SqlStatementTracer(MeterRegistry meterRegistry, Duration slowThreshold, double sampleRate,
+                              boolean logParameters, int maxStatements) {
+        this.meterRegistry = meterRegistry;
+        this.slowThresholdNanos = slowThreshold.toNanos();
+        this.sampleRate = sampleRate;
+        this.logParameters = logParameters;
+        this.maxStatements = Math.max(1, maxStatements);
+    }
+
+    /**
+     * Records one execution.
+     * @param sql the statement text as sent to the driver
+     * @param nanos elapsed time of the execute call
+     * @param parameters bound parameters by position (index 0 unused), or null for plain statements
+     * @param parameterCount highest bound position
+     * @param failed true if the driver threw
+     */
+    void record(String sql, long nanos, Object[] parameters, int parameterCount, boolean failed) {
+        ServerTiming.record(ServerTiming.Phase.DB, nanos);
+        if (sql == null) {
+            return;
+        }
+        timerFor(sql).record(nanos, TimeUnit.NANOSECONDS);
+
+        boolean slow = nanos >= slowThresholdNanos;
+        if (slow || (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate)) {
+            String parameterText = logParameters && parameters != null
+                    ? " " + Arrays.toString(Arrays.copyOfRange(parameters, 1, parameterCount + 1)) : "";
+            String outcome = failed ? " failed" : "";
+            if (slow) {
+                logger.warn("Slow SQL{} ({} ms): {}{}", outcome, nanos / 1_000_000, sql, parameterText);
+            } else {
+                logger.info("Sampled SQL{} ({} ms): {}{}", outcome, nanos / 1_000_000, sql, parameterText);
+            }
+        }
+    }
+
+    private Timer timerFor(String sql) {
+        Timer timer = timers.get(sql);
+        if (timer != null) {
+            return timer;
+        }
+        String shape = normalize(sql);
+        if (timersByShape.size() >= maxStatements && !timersByShape.containsKey(shape)) {
+            shape = OVERFLOW_STATEMENT;
+        }
+        timer = timersByShape.computeIfAbsent(shape, key -> {
+            String id = OVERFLOW_STATEMENT.equals(key) ? key : id(key);
+            shapesById.putIfAbsent(id, key);
+            return Timer.builder(METER_NAME)
+                    .description("Execution time of JDBC statements by statement shape")
+                    .tag(STATEMENT_TAG, id)
+                    .serviceLevelObjectives(BUCKETS)
+                    .register(meterRegistry);
+        });
+        // Literal-heavy SQL would make this map grow without bound; only cache a bounded set
+        if (timers.size() < maxStatements * 4) {
+            timers.put(sql, timer);
+        }
+        return timer;
+    }
+
+    /**
+     * @return the statement shape behind the id in a timer's statement tag, or null if unknown
+     */
+    public String statement(String id) {
+        return shapesById.get(id);
+    }
+
+    /**
+     * Short tag value for a shape. Eight hex digits keep collisions unlikely at the default
+     * cap of 500 shapes; colliding shapes would share a timer.
+     */
+    static String id(String shape) {
+        return String.format("%08x", shape.hashCode());
+    }
+
+    /**
+     * Reduces a statement to its shape: literals become ?, IN lists of any length become
+     * (?...), and whitespace is collapsed, so one query maps to one timer.
+     */
+    static String normalize(String sql) {
+        String shape = STRING.matcher(sql).replaceAll("?");
+        shape = NUMBER.matcher(shape).replaceAll("?");
+        shape = IN_LIST.matcher(shape).replaceAll("IN (?...)");
+        return WHITESPACE.matcher(shape).replaceAll(" ").trim();
+    }
+}
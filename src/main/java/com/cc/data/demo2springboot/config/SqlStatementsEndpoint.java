@@ -0,0 +1,63 @@
+package com.cc.data.demo2springboot.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.CountAtBucket;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Actuator endpoint at /actuator/sqlstatements listing every traced statement shape,
+ * most total time first, with the id its timer is tagged with and a bucket-derived p99.
+ */
+@Endpoint(id = "sqlstatements")
+public class SqlStatementsEndpoint {
+
+    private final MeterRegistry meterRegistry;
+    private final SqlStatementTracer tracer;
+
+    public SqlStatementsEndpoint(MeterRegistry meterRegistry, SqlStatementTracer tracer) {
+        this.meterRegistry = meterRegistry;
+        this.tracer = tracer;
+    }
+
+    /**
+     * Aggregated timings of one statement shape, in milliseconds.
+     */
+    public record StatementStats(String id, String statement, long count, double totalMs, double meanMs,
+                                 double p99Ms, double maxMs) {
+    }
+
+    @ReadOperation
+    public List<StatementStats> statements() {
+        return meterRegistry.find(SqlStatementTracer.METER_NAME).timers().stream()
+                .map(this::toStats)
+                .sorted(Comparator.comparingDouble(StatementStats::totalMs).reversed())
+                .toList();
+    }
+
+    private StatementStats toStats(Timer timer) {
+        String id = timer.getId().getTag(SqlStatementTracer.STATEMENT_TAG);
+        return new StatementStats(id, tracer.statement(id), timer.count(),
+                timer.totalTime(TimeUnit.MILLISECONDS), timer.mean(TimeUnit.MILLISECONDS),
+                percentile(timer, 0.99), timer.max(TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Upper bound of the bucket holding the given percentile, or the max above the last bucket.
+     */
+    private static double percentile(Timer timer, double percentile) {
+        CountAtBucket[] buckets = timer.takeSnapshot().histogramCounts();
+        double target = percentile * timer.count();
+        for (CountAtBucket bucket : buckets) {
+            if (bucket.count() >= target) {
+                return bucket.bucket(TimeUnit.MILLISECONDS);
+            }
+        }
+        return timer.max(TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,60 @@
+package com.cc.data.demo2springboot.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.config.MeterFilter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * JDBC statement tracing in place of show-sql: the application's "dataSource" bean is
+ * wrapped in a {@link TracingDataSource} so every statement is timed, whichever of the
+ * single, replica-routed or sharded setups defined it.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.sql.trace", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class SqlTracingConfig {
+
+    @Bean
+    public SqlStatementTracer sqlStatementTracer(MeterRegistry meterRegistry,
+                                                 @Value("${app.sql.trace.slowThreshold:PT0.1S}") Duration slowThreshold,
+                                                 @Value("${app.sql.trace.sampleRate:0.001}") double sampleRate,
+                                                 @Value("${app.sql.trace.logParameters:true}") boolean logParameters,
+                                                 @Value("${app.sql.trace.maxStatements:500}") int maxStatements) {
+        return new SqlStatementTracer(meterRegistry, slowThreshold, sampleRate, logParameters, maxStatements);
+    }
+
+    @Bean
+    public static BeanPostProcessor tracingDataSourcePostProcessor(ObjectProvider<SqlStatementTracer> tracer) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if ("dataSource".equals(beanName) && bean instanceof DataSource dataSource
+                        && !(bean instanceof TracingDataSource)) {
+                    return new TracingDataSource(dataSource, tracer.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * Backs up the tracer's own cap at the registry: no more statement ids than shapes, plus "other".
+     */
+    @Bean
+    public MeterFilter sqlStatementLimit(@Value("${app.sql.trace.maxStatements:500}") int maxStatements) {
+        return MeterFilter.maximumAllowableTags(SqlStatementTracer.METER_NAME, SqlStatementTracer.STATEMENT_TAG,
+                Math.max(1, maxStatements) + 1, MeterFilter.deny());
+    }
+
+    @Bean
+    public SqlStatementsEndpoint sqlStatementsEndpoint(MeterRegistry meterRegistry, SqlStatementTracer tracer) {
+        return new SqlStatementsEndpoint(meterRegistry, tracer);
+    }
+}
@@ -0,0 +1,105 @@
+package com.cc.data.demo2springboot.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJacksonValue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The JSON converter for MVC responses, timing each body it writes into
+ * {@code http.server.serialization}, tagged with the type written: {@code User},
+ * {@code Page<User>}, {@code List<BatchItemResult>} and so on. Writing includes flushing into
+ * the response buffer, and for bodies larger than the buffer also the time spent sending.
+ * Within a request timed by {@link ServerTimingFilter} the body is serialized into memory
+ * first, so the {@code ser} phase is known before the {@code Server-Timing} header is sent;
+ * the timer then measures serialization alone.
+ */
+public class TimedJacksonHttpMessageConverter extends MappingJackson2HttpMessageConverter {
+
+    static final String METER_NAME = "http.server.serialization";
+
+    private final MeterRegistry meterRegistry;
+
+    public TimedJacksonHttpMessageConverter(ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        super(objectMapper);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException {
+        if (ServerTiming.current() != null) {
+            writeBuffered(object, type, outputMessage);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            super.writeInternal(object, type, outputMessage);
+        } finally {
+            record(object, System.nanoTime() - start);
+        }
+    }
+
+    private void writeBuffered(Object object, Type type, HttpOutputMessage outputMessage) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(1024);
+        HttpOutputMessage buffered = new HttpOutputMessage() {
+            @Override
+            public OutputStream getBody() {
+                return buffer;
+            }
+
+            @Override
+            public HttpHeaders getHeaders() {
+                return outputMessage.getHeaders();
+            }
+        };
+        long start = System.nanoTime();
+        try {
+            super.writeInternal(object, type, buffered);
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            record(object, elapsed);
+            ServerTiming.record(ServerTiming.Phase.SERIALIZATION, elapsed);
+        }
+        buffer.writeTo(outputMessage.getBody());
+    }
+
+    private void record(Object object, long nanos) {
+        Timer.builder(METER_NAME)
+                .description("Time to write a response body as JSON")
+                .tag("type", typeOf(object))
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * The written type by its simple name, with the element type for pages and collections.
+     */
+    static String typeOf(Object object) {
+        Object value = object instanceof MappingJacksonValue wrapper ? wrapper.getValue() : object;
+        if (value instanceof Page<?> page) {
+            return "Page<" + elementOf(page.getContent()) + ">";
+        }
+        if (value instanceof Collection<?> collection) {
+            return "List<" + elementOf(collection) + ">";
+        }
+        return value == null ? "null" : value.getClass().getSimpleName();
+    }
+
+    private static String elementOf(Collection<?> collection) {
+        return collection.stream().filter(element -> element != null).findFirst()
+                .map(element -> element.getClass().getSimpleName())
+                .orElse("?");
+    }
+}
@@ -0,0 +1,148 @@
+package com.cc.data.demo2springboot.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * DataSource wrapper that hands out connections whose statements report to a {@link SqlStatementTracer}.
+ * Only the execute calls are timed; every other call passes straight through to the driver.
+ */
+public class TracingDataSource extends DelegatingDataSource {
+
+    private static final Set<String> EXECUTE_METHODS = Set.of("execute", "executeQuery", "executeUpdate",
+            "executeLargeUpdate", "executeBatch", "executeLargeBatch");
+
+    private final SqlStatementTracer tracer;
+
+    public TracingDataSource(DataSource target, SqlStatementTracer tracer) {
+        super(target);
+        this.tracer = tracer;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(obtainTargetDataSource().getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(obtainTargetDataSource().getConnection(username, password));
+    }
+
+    private Connection wrap(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{Connection.class}, new ConnectionHandler(connection));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    private final class ConnectionHandler implements InvocationHandler {
+        private final Connection target;
+
+        ConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if ("equals".equals(name)) {
+                return proxy == args[0];
+            }
+            if ("hashCode".equals(name)) {
+                return System.identityHashCode(proxy);
+            }
+            Object result = TracingDataSource.invoke(target, method, args);
+            if (result instanceof CallableStatement statement && "prepareCall".equals(name)) {
+                return proxy(statement, CallableStatement.class, (String) args[0]);
+            }
+            if (result instanceof PreparedStatement statement && "prepareStatement".equals(name)) {
+                return proxy(statement, PreparedStatement.class, (String) args[0]);
+            }
+            if (result instanceof Statement statement && "createStatement".equals(name)) {
+                return proxy(statement, Statement.class, null);
+            }
+            return result;
+        }
+
+        private Object proxy(Statement statement, Class<? extends Statement> type, String sql) {
+            return Proxy.newProxyInstance(TracingDataSource.class.getClassLoader(),
+                    new Class<?>[]{type}, new StatementHandler(statement, sql));
+        }
+    }
+
+    private final class StatementHandler implements InvocationHandler {
+        private final Statement target;
+        private final boolean prepared;
+        private String sql;
+        private Object[] parameters;
+        private int parameterCount;
+
+        StatementHandler(Statement target, String sql) {
+            this.target = target;
+            this.prepared = sql != null;
+            this.sql = sql;
+            this.parameters = prepared ? new Object[8] : null;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if ("equals".equals(name)) {
+                return proxy == args[0];
+            }
+            if ("hashCode".equals(name)) {
+                return System.identityHashCode(proxy);
+            }
+            if (prepared && name.startsWith("set") && args != null && args.length >= 2
+                    && args[0] instanceof Integer index && index > 0) {
+                bind(index, "setNull".equals(name) ? null : args[1]);
+            } else if (prepared && "clearParameters".equals(name)) {
+                Arrays.fill(parameters, null);
+                parameterCount = 0;
+            } else if (!prepared && args != null && args.length > 0 && args[0] instanceof String text
+                    && (EXECUTE_METHODS.contains(name) || "addBatch".equals(name))) {
+                sql = text;
+            }
+
+            if (!EXECUTE_METHODS.contains(name)) {
+                return TracingDataSource.invoke(target, method, args);
+            }
+            long start = System.nanoTime();
+            boolean failed = true;
+            try {
+                Object result = TracingDataSource.invoke(target, method, args);
+                failed = false;
+                return result;
+            } finally {
+                tracer.record(sql, System.nanoTime() - start, parameters, parameterCount, failed);
+            }
+        }
+
+        private void bind(int index, Object value) {
+            if (index >= parameters.length) {
+                parameters = Arrays.copyOf(parameters, Math.max(index + 1, parameters.length * 2));
+            }
+            parameters[index] = value;
+            parameterCount = Math.max(parameterCount, index);
+        }
+    }
+}
@@ -28,6 +28,20 @@ public class UserConfig {
      */
     private int defaultPageSize = 10;
 
+    /**
+     * Number of usernames/emails the uniqueness pre-check filter is sized for.
+     * The filter grows to twice the existing row count at startup if that is larger.
+     * Default value is 100000.
+     */
+    private long uniquenessExpectedInsertions = 100_000;
+
+    /**
+     * Target false-positive rate of the uniqueness pre-check filter.
+     * False positives only cost an extra exists query, never a wrong rejection.
+     * Default value is 0.01.
+     */
+    private double uniquenessFalsePositiveRate = 0.01;
+
     public int getMaxBatchSize() {
         return maxBatchSize;
     }
@@ -51,4 +65,20 @@ public class UserConfig {
     public void setDefaultPageSize(int defaultPageSize) {
         this.defaultPageSize = defaultPageSize;
     }
+
+    public long getUniquenessExpectedInsertions() {
+        return uniquenessExpectedInsertions;
+    }
+
+    public void setUniquenessExpectedInsertions(long uniquenessExpectedInsertions) {
+        this.uniquenessExpectedInsertions = uniquenessExpectedInsertions;
+    }
+
+    public double getUniquenessFalsePositiveRate() {
+        return uniquenessFalsePositiveRate;
+    }
+
+    public void setUniquenessFalsePositiveRate(double uniquenessFalsePositiveRate) {
+        this.uniquenessFalsePositiveRate = uniquenessFalsePositiveRate;
+    }
 }
@@ -0,0 +1,40 @@
+package com.cc.data.demo2springboot.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Diagnostics for the virtual thread mode (spring.threads.virtual.enabled=true), in which Tomcat
+ * runs each request, and Spring each scheduled and async task, on its own virtual thread.
+ * Pinning and failed submits are counted by Micrometer's JFR-based VirtualThreadMetrics;
+ * this adds where the pinning happens and how contended the carriers are.
+ */
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadConfig {
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    public PinnedThreadRecorder pinnedThreadRecorder(
+            @Value("${app.threads.virtual.pinnedThreshold:PT0.02S}") Duration threshold,
+            @Value("${app.threads.virtual.maxPinnedSites:100}") int maxSites,
+            @Value("${app.threads.virtual.pinnedStackDepth:16}") int stackDepth) {
+        return new PinnedThreadRecorder(threshold, maxSites, stackDepth);
+    }
+
+    @Bean
+    public VirtualThreadScheduler virtualThreadScheduler(MeterRegistry meterRegistry) {
+        return new VirtualThreadScheduler(meterRegistry);
+    }
+
+    @Bean
+    public VirtualThreadsEndpoint virtualThreadsEndpoint(PinnedThreadRecorder recorder,
+                                                         VirtualThreadScheduler scheduler) {
+        return new VirtualThreadsEndpoint(recorder, scheduler);
+    }
+}
@@ -0,0 +1,73 @@
+package com.cc.data.demo2springboot.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The carrier pool that runs virtual threads, as reported by the JDK's VirtualThreadScheduler
+ * MXBean (JDK 24 and later). Queued virtual threads while every carrier is busy mean the
+ * carriers are contended, typically because virtual threads are pinned or CPU-bound.
+ * On earlier JDKs nothing is reported.
+ */
+public class VirtualThreadScheduler {
+
+    private static final String OBJECT_NAME = "jdk.management:type=VirtualThreadScheduler";
+    private static final List<String> ATTRIBUTES =
+            List.of("Parallelism", "PoolSize", "MountedVirtualThreadCount", "QueuedVirtualThreadCount");
+
+    private final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    private final ObjectName name;
+
+    public VirtualThreadScheduler(MeterRegistry meterRegistry) {
+        ObjectName found = null;
+        try {
+            ObjectName candidate = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(candidate)) {
+                found = candidate;
+            }
+        } catch (JMException e) {
+            // Not available on this JDK
+        }
+        this.name = found;
+        if (name == null) {
+            return;
+        }
+
+        Gauge.builder("jvm.threads.virtual.carriers", this, scheduler -> scheduler.read("PoolSize"))
+                .description("Carrier threads in the virtual thread scheduler")
+                .register(meterRegistry);
+        Gauge.builder("jvm.threads.virtual.mounted", this, scheduler -> scheduler.read("MountedVirtualThreadCount"))
+                .description("Virtual threads mounted on a carrier")
+                .register(meterRegistry);
+        Gauge.builder("jvm.threads.virtual.queued", this, scheduler -> scheduler.read("QueuedVirtualThreadCount"))
+                .description("Runnable virtual threads waiting for a carrier")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return the scheduler's attributes, empty if the JDK does not report them
+     */
+    public Map<String, Object> attributes() {
+        Map<String, Object> attributes = new LinkedHashMap<>();
+        if (name != null) {
+            ATTRIBUTES.forEach(attribute -> attributes.put(attribute, read(attribute)));
+        }
+        return attributes;
+    }
+
+    private double read(String attribute) {
+        try {
+            return ((Number) server.getAttribute(name, attribute)).doubleValue();
+        } catch (JMException | ClassCastException e) {
+            return Double.NaN;
+        }
+    }
+}
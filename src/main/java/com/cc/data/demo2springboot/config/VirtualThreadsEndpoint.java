@@ -0,0 +1,35 @@
+package com.cc.data.demo2springboot.config;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Actuator endpoint at /actuator/virtualthreads listing where virtual threads pinned their
+ * carrier, most total time first, with the state of the carrier pool where the JDK reports it.
+ */
+@Endpoint(id = "virtualthreads")
+public class VirtualThreadsEndpoint {
+
+    private final PinnedThreadRecorder recorder;
+    private final VirtualThreadScheduler scheduler;
+
+    public VirtualThreadsEndpoint(PinnedThreadRecorder recorder, VirtualThreadScheduler scheduler) {
+        this.recorder = recorder;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * @param scheduler carrier pool attributes; empty before JDK 24
+     * @param pinned    pinning sites
+     */
+    public record Report(Map<String, Object> scheduler, List<PinnedThreadRecorder.PinnedSite> pinned) {
+    }
+
+    @ReadOperation
+    public Report report() {
+        return new Report(scheduler.attributes(), recorder.sites());
+    }
+}
@@ -4,6 +4,7 @@ import com.cc.data.demo2springboot.dto.AuthRequest;
 import com.cc.data.demo2springboot.dto.AuthResponse;
 import com.cc.data.demo2springboot.service.JwtService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -25,6 +26,7 @@ import java.util.stream.Collectors;
  * REST controller for managing authentication.
  */
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping("/api/auth")
 public class AuthController {
 
@@ -0,0 +1,68 @@
+package com.cc.data.demo2springboot.controller;
+
+import com.cc.data.demo2springboot.dto.AuthRequest;
+import com.cc.data.demo2springboot.dto.AuthResponse;
+import com.cc.data.demo2springboot.service.JwtService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Non-blocking variant of {@link AuthController}, served by the reactive profile.
+ */
+@RestController
+@RequestMapping("/api/auth")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveAuthController {
+
+    private final ReactiveAuthenticationManager authenticationManager;
+    private final JwtService jwtService;
+
+    public ReactiveAuthController(ReactiveAuthenticationManager authenticationManager, JwtService jwtService) {
+        this.authenticationManager = authenticationManager;
+        this.jwtService = jwtService;
+    }
+
+    /**
+     * POST /api/auth/login : Authenticate a user and return a JWT token
+     *
+     * @param authRequest the login request containing username and password
+     * @return status 200 (OK) with the AuthResponse, containing the JWT token
+     */
+    @PostMapping("/login")
+    public Mono<ResponseEntity<?>> login(@RequestBody AuthRequest authRequest) {
+        if (authRequest.getUsername() == null || authRequest.getUsername().isEmpty()) {
+            return Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Username cannot be empty"));
+        }
+        if (authRequest.getPassword() == null || authRequest.getPassword().isEmpty()) {
+            return Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Password cannot be empty"));
+        }
+
+        return authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(
+                        authRequest.getUsername(), authRequest.getPassword()))
+                .<ResponseEntity<?>>map(authentication -> {
+                    UserDetails userDetails = (UserDetails) authentication.getPrincipal();
+                    List<String> roles = userDetails.getAuthorities().stream()
+                            .map(GrantedAuthority::getAuthority)
+                            .map(role -> role.replace("ROLE_", ""))
+                            .toList();
+                    return ResponseEntity.ok(new AuthResponse(jwtService.generateToken(userDetails.getUsername(), roles)));
+                })
+                .onErrorResume(BadCredentialsException.class, e -> Mono.just(
+                        ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid username or password")))
+                .onErrorResume(e -> Mono.just(
+                        ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Authentication error")));
+    }
+}
@@ -0,0 +1,153 @@
+package com.cc.data.demo2springboot.controller;
+
+import com.cc.data.demo2springboot.config.UserConfig;
+import com.cc.data.demo2springboot.exception.ResourceNotFoundException;
+import com.cc.data.demo2springboot.model.User;
+import com.cc.data.demo2springboot.service.ReactiveUserService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.security.Principal;
+import java.time.LocalDateTime;
+
+/**
+ * Non-blocking variant of {@link UserController}, served by the reactive profile.
+ * Same paths, status codes, ETag and If-Match handling; batch writes, Idempotency-Key replay and
+ * the change stream stay on the servlet stack.
+ */
+@RestController
+@RequestMapping("/api/users")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveUserController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveUserController.class);
+
+    private final ReactiveUserService userService;
+    private final UserConfig userConfig;
+
+    public ReactiveUserController(ReactiveUserService userService, UserConfig userConfig) {
+        this.userService = userService;
+        this.userConfig = userConfig;
+    }
+
+    /**
+     * GET /api/users : Get all users with pagination support
+     *
+     * @param page The page number (zero-based), defaults to configured value
+     * @param size The size of the page, defaults to configured value
+     * @return the page of users
+     */
+    @GetMapping(params = {"page", "size"})
+    public Mono<Page<User>> getAllUsersPaginated(@RequestParam(required = false) Integer page,
+                                                 @RequestParam(required = false) Integer size) {
+        int pageNumber = (page != null) ? page : userConfig.getDefaultPage();
+        int pageSize = (size != null) ? size : userConfig.getDefaultPageSize();
+        return userService.getAllUsers(PageRequest.of(pageNumber, pageSize));
+    }
+
+    /**
+     * GET /api/users : Get all users (non-paginated), written out as rows arrive
+     */
+    @GetMapping
+    public Flux<User> getAllUsers() {
+        return userService.getAllUsers();
+    }
+
+    /**
+     * GET /api/users/{id} : Get the user with the specified id
+     *
+     * @return status 200 (OK) with the user and its version as ETag, or status 404 (Not Found)
+     */
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<User>> getUserById(@PathVariable Long id) {
+        return userService.getUserById(id)
+                .map(user -> UserController.withETag(ResponseEntity.ok(), user).body(user))
+                .switchIfEmpty(Mono.error(() -> new ResourceNotFoundException("User", "id", id)));
+    }
+
+    /**
+     * POST /api/users : Create a new user
+     * Requires JWT token authentication with ROLE_ADMIN
+     *
+     * @return status 201 (Created) with the new user, or status 409 (Conflict) if the username or email is taken
+     */
+    @PostMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public Mono<ResponseEntity<User>> createUser(@RequestBody User user, Principal principal,
+                                                 ServerHttpRequest request) {
+        logger.info("User creation requested by: {}", principal.getName());
+
+        user.setCreatedAt(LocalDateTime.now());
+        user.setUpdatedAt(LocalDateTime.now());
+
+        return userService.createUser(user).map(createdUser -> {
+            URI location = UriComponentsBuilder.fromUri(request.getURI())
+                    .path("/{id}")
+                    .buildAndExpand(createdUser.getId())
+                    .toUri();
+            return UserController.withETag(ResponseEntity.created(location), createdUser).body(createdUser);
+        });
+    }
+
+    /**
+     * PUT /api/users/{id} : Updates an existing user
+     * Requires JWT token authentication with ROLE_ADMIN.
+     * When an If-Match header is sent, the update only applies if the user is still at that version.
+     *
+     * @return status 200 (OK) with the updated user, status 404 (Not Found) if the user is not found,
+     *         or status 412 (Precondition Failed) if the user has changed since the given ETag
+     */
+    @PutMapping("/{id}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Mono<ResponseEntity<User>> updateUser(@PathVariable Long id,
+                                                 @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                 @RequestBody User userDetails, Principal principal) {
+        logger.info("User update requested by: {} for user id: {}", principal.getName(), id);
+
+        Long expectedVersion = UserController.parseIfMatch(ifMatch, id);
+        userDetails.setUpdatedAt(LocalDateTime.now());
+        return userService.updateUser(id, userDetails, expectedVersion)
+                .map(updatedUser -> UserController.withETag(ResponseEntity.ok(), updatedUser).body(updatedUser));
+    }
+
+    /**
+     * DELETE /api/users/{id} : Delete the user with the specified id
+     * Requires JWT token authentication with ROLE_ADMIN.
+     * When an If-Match header is sent, the user is only deleted if it is still at that version.
+     *
+     * @return status 204 (NO_CONTENT), status 404 (Not Found) if the user is not found,
+     *         or status 412 (Precondition Failed) if the user has changed since the given ETag
+     */
+    @DeleteMapping("/{id}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Mono<ResponseEntity<Void>> deleteUser(@PathVariable Long id,
+                                                 @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                 Principal principal) {
+        logger.info("User deletion requested by: {} for user id: {}", principal.getName(), id);
+
+        Long expectedVersion = UserController.parseIfMatch(ifMatch, id);
+        return userService.deleteUser(id, expectedVersion)
+                .then(Mono.just(ResponseEntity.noContent().build()));
+    }
+}
@@ -1,18 +1,26 @@
 package com.cc.data.demo2springboot.controller;
 
 import com.cc.data.demo2springboot.config.UserConfig;
+import com.cc.data.demo2springboot.dto.BatchItemResult;
+import com.cc.data.demo2springboot.exception.PreconditionFailedException;
 import com.cc.data.demo2springboot.exception.ResourceNotFoundException;
 import com.cc.data.demo2springboot.model.User;
+import com.cc.data.demo2springboot.service.UserChangeFeed;
 import com.cc.data.demo2springboot.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import org.slf4j.Logger;
@@ -28,17 +36,20 @@ import java.util.stream.Collectors;
  * REST controller for managing User resources.
  */
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping("/api/users")
 public class UserController {
 
     private final UserService userService;
     private final UserConfig userConfig;
+    private final UserChangeFeed changeFeed;
     private static final Logger logger = LoggerFactory.getLogger(UserController.class);
 
     @Autowired
-    public UserController(UserService userService, UserConfig userConfig) {
+    public UserController(UserService userService, UserConfig userConfig, UserChangeFeed changeFeed) {
         this.userService = userService;
         this.userConfig = userConfig;
+        this.changeFeed = changeFeed;
     }
 
     /**
@@ -75,16 +86,40 @@ public class UserController {
         return ResponseEntity.ok(users);
     }
 
+    /**
+     * GET /api/users/changes/stream : Stream user changes as Server-Sent Events
+     * Each event is named created, updated or deleted, carries the outbox event id and has the user
+     * (or, for deletions, its id and version) as JSON data. A client reconnecting with Last-Event-ID
+     * receives the events it missed, or a reset event if they are no longer buffered.
+     *
+     * @param lastEventId optional id of the last event the client received
+     * @return the event stream, kept open until the client disconnects or the stream times out
+     */
+    @GetMapping(path = "/changes/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        Long resumeFrom = null;
+        if (lastEventId != null && !lastEventId.isBlank()) {
+            try {
+                resumeFrom = Long.parseLong(lastEventId.trim());
+            } catch (NumberFormatException e) {
+                // Not one of ours: the client gets a reset and reloads
+                resumeFrom = -1L;
+            }
+        }
+        return changeFeed.subscribe(resumeFrom);
+    }
+
     /**
      * GET /api/users/{id} : Get the user with the specified id
      *
      * @param id the id of the user to retrieve
-     * @return the ResponseEntity with status 200 (OK) and with body the user, or with status 404 (Not Found)
+     * @return the ResponseEntity with status 200 (OK) and with body the user and its version as ETag,
+     *         or with status 404 (Not Found)
      */
     @GetMapping("/{id}")
     public ResponseEntity<User> getUserById(@PathVariable Long id) {
         return userService.getUserById(id)
-                .map(ResponseEntity::ok)
+                .map(user -> withETag(ResponseEntity.ok(), user).body(user))
                 .orElseThrow(() -> new ResourceNotFoundException("User", "id", id));
     }
 
@@ -93,7 +128,8 @@ public class UserController {
      * Requires JWT token authentication with ROLE_ADMIN
      *
      * @param user the user to create
-     * @return the ResponseEntity with status 201 (Created) and with body the new user
+     * @return the ResponseEntity with status 201 (Created) and with body the new user,
+     *         or with status 409 (Conflict) if the username or email is already taken
      */
     @PostMapping
     @PreAuthorize("hasRole('ADMIN')")
@@ -113,7 +149,7 @@ public class UserController {
                 .buildAndExpand(createdUser.getId())
                 .toUri();
 
-        return ResponseEntity.created(location).body(createdUser);
+        return withETag(ResponseEntity.created(location), createdUser).body(createdUser);
     }
 
     /**
@@ -122,7 +158,8 @@ public class UserController {
      *
      * @param users the list of users to create
      * @return the ResponseEntity with status 201 (Created) and with body the list of created users,
-     *         or with status 400 (Bad Request) if the batch size exceeds the maximum allowed
+     *         with status 400 (Bad Request) if the batch size exceeds the maximum allowed,
+     *         or with status 409 (Conflict) and one result per duplicate row if any username or email is taken
      */
     @PostMapping("/batch")
     @PreAuthorize("hasRole('ADMIN')")
@@ -140,6 +177,14 @@ public class UserController {
                           " users can be created per request.");
         }
 
+        // Reject duplicates, including ones within this batch, before any insert runs
+        List<BatchItemResult> conflicts = userService.findDuplicates(users);
+        if (!conflicts.isEmpty()) {
+            logger.warn("Batch user creation rejected: {} of {} users conflict with existing or batch users",
+                    conflicts.size(), users.size());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(conflicts);
+        }
+
         // Set creation timestamp for all users
         LocalDateTime now = LocalDateTime.now();
         users.forEach(user -> {
@@ -159,22 +204,70 @@ public class UserController {
         return ResponseEntity.created(location).body(createdUsers);
     }
 
+    /**
+     * PUT /api/users/batch : Updates multiple users at once
+     * Requires JWT token authentication with ROLE_ADMIN.
+     * Each user must carry its id and the version it was read at; rows whose version
+     * has moved on are reported as 412 without affecting the rest of the batch.
+     *
+     * @param users the list of users to update
+     * @return the ResponseEntity with status 200 (OK) and with body one result per row,
+     *         or with status 400 (Bad Request) if the batch size exceeds the maximum allowed
+     */
+    @PutMapping("/batch")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> updateUsers(@RequestBody List<User> users) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        logger.info("Batch user update requested by: {} for {} users", authentication.getName(), users.size());
+
+        int maxBatchSize = userConfig.getMaxBatchSize();
+        if (users.size() > maxBatchSize) {
+            logger.warn("Batch user update rejected: batch size {} exceeds maximum allowed {}",
+                    users.size(), maxBatchSize);
+            return ResponseEntity.badRequest()
+                    .body("Batch size exceeds maximum allowed. Maximum " + maxBatchSize +
+                          " users can be updated per request.");
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        users.forEach(user -> {
+            if (user != null) {
+                user.setUpdatedAt(now);
+            }
+        });
+
+        List<BatchItemResult> results = userService.updateUsers(users);
+        return ResponseEntity.ok(results);
+    }
+
     /**
      * PUT /api/users/{id} : Updates an existing user
-     * Requires JWT token authentication with ROLE_ADMIN
+     * Requires JWT token authentication with ROLE_ADMIN.
+     * When an If-Match header is sent, the update only applies if the user is still at that version.
      *
      * @param id          the id of the user to update
+     * @param ifMatch     optional ETag of the version the client last saw
      * @param userDetails the user to update
      * @return the ResponseEntity with status 200 (OK) and with body the updated user,
-     * or with status 404 (Not Found) if the user is not found
+     * with status 404 (Not Found) if the user is not found,
+     * with status 409 (Conflict) if the new username or email is already taken,
+     * or with status 412 (Precondition Failed) if the user has changed since the given ETag
      */
     @PutMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<User> updateUser(@PathVariable Long id, @RequestBody User userDetails) {
+    public ResponseEntity<User> updateUser(@PathVariable Long id,
+                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                           @RequestBody User userDetails) {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         logger.info("User update requested by: {} for user id: {}", authentication.getName(), id);
 
-        try {
+        Long expectedVersion = parseIfMatch(ifMatch, id);
+        User updatedUser;
+        if (expectedVersion != null) {
+            // The service reads the user to compare versions, so skip the pre-read here
+            userDetails.setUpdatedAt(LocalDateTime.now());
+            updatedUser = userService.updateUser(id, userDetails, expectedVersion);
+        } else {
             // Get the existing user and update only the allowed fields
             Optional<User> existingUser = userService.getUserById(id);
             if (existingUser.isPresent()) {
@@ -183,31 +276,66 @@ public class UserController {
                 userDetails.setCreatedAt(existingUser.get().getCreatedAt());
             }
 
-            User updatedUser = userService.updateUser(id, userDetails);
-            return ResponseEntity.ok(updatedUser);
-        } catch (RuntimeException e) {
-            throw new ResourceNotFoundException("User", "id", id);
+            updatedUser = userService.updateUser(id, userDetails);
         }
+        return withETag(ResponseEntity.ok(), updatedUser).body(updatedUser);
     }
 
     /**
      * DELETE /api/users/{id} : Delete the user with the specified id
-     * Requires JWT token authentication with ROLE_ADMIN
+     * Requires JWT token authentication with ROLE_ADMIN.
+     * When an If-Match header is sent, the user is only deleted if it is still at that version.
      *
-     * @param id the id of the user to delete
-     * @return the ResponseEntity with status 204 (NO_CONTENT)
+     * @param id      the id of the user to delete
+     * @param ifMatch optional ETag of the version the client last saw
+     * @return the ResponseEntity with status 204 (NO_CONTENT),
+     *         or with status 412 (Precondition Failed) if the user has changed since the given ETag
      */
     @DeleteMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<Void> deleteUser(@PathVariable Long id) {
+    public ResponseEntity<Void> deleteUser(@PathVariable Long id,
+                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         logger.info("User deletion requested by: {} for user id: {}", authentication.getName(), id);
 
-        try {
+        Long expectedVersion = parseIfMatch(ifMatch, id);
+        if (expectedVersion != null) {
+            userService.deleteUser(id, expectedVersion);
+        } else {
             userService.deleteUser(id);
-            return ResponseEntity.noContent().build();
-        } catch (RuntimeException e) {
-            throw new ResourceNotFoundException("User", "id", id);
+        }
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Adds the user's version as a strong ETag, if the user has one yet.
+     */
+    static ResponseEntity.BodyBuilder withETag(ResponseEntity.BodyBuilder builder, User user) {
+        if (user != null && user.getVersion() != null) {
+            builder.eTag("\"" + user.getVersion() + "\"");
+        }
+        return builder;
+    }
+
+    /**
+     * Reads the expected version from an If-Match header.
+     * Returns null when the header is absent or "*". If-Match compares strongly (RFC 9110),
+     * so a weak ETag never matches.
+     *
+     * @throws PreconditionFailedException if the header cannot match any version
+     */
+    static Long parseIfMatch(String ifMatch, Long id) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.length() >= 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            tag = tag.substring(1, tag.length() - 1);
+        }
+        try {
+            return Long.parseLong(tag);
+        } catch (NumberFormatException e) {
+            throw new PreconditionFailedException("If-Match " + ifMatch + " does not match User with id '" + id + "'");
         }
     }
 }
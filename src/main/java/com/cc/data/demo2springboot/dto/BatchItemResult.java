@@ -0,0 +1,65 @@
+package com.cc.data.demo2springboot.dto;
+
+/**
+ * Outcome of a single row in a batch operation.
+ * The status field carries the HTTP status the row would have produced on its own.
+ */
+public class BatchItemResult {
+    private int index;
+    private Long id;
+    private int status;
+    private Long version;
+    private String message;
+
+    // Default constructor for Jackson
+    public BatchItemResult() {
+    }
+
+    public BatchItemResult(int index, Long id, int status, Long version, String message) {
+        this.index = index;
+        this.id = id;
+        this.status = status;
+        this.version = version;
+        this.message = message;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public void setStatus(int status) {
+        this.status = status;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
@@ -0,0 +1,16 @@
+package com.cc.data.demo2springboot.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+public class PreconditionFailedException extends RuntimeException {
+
+    public PreconditionFailedException(String message) {
+        super(message);
+    }
+
+    public PreconditionFailedException(String resourceName, Object id, long expectedVersion) {
+        super(String.format("%s with id '%s' is no longer at version %d", resourceName, id, expectedVersion));
+    }
+}
@@ -0,0 +1,22 @@
+package com.cc.data.demo2springboot.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * A committed change to a user, as recorded in the user_events outbox.
+ *
+ * @param id         position of the event in its shard's outbox; unique across shards
+ * @param userId     the changed user
+ * @param type       what happened to the user
+ * @param version    the user's version after the change, if known
+ * @param occurredAt when the change was made
+ * @param payload    the user as JSON after the change; null for deletions
+ */
+public record UserEvent(long id, long userId, Type type, Long version, LocalDateTime occurredAt, String payload) {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+}
@@ -0,0 +1,160 @@
+package com.cc.data.demo2springboot.repository;
+
+import com.cc.data.demo2springboot.model.User;
+import io.r2dbc.spi.Readable;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+/**
+ * Non-blocking access to the users table over R2DBC, for the reactive stack.
+ * Mirrors the queries of {@link UserRepository}: soft-deleted rows are hidden from reads,
+ * every write increments the version, and the uniqueness lookups include soft-deleted rows.
+ */
+@Repository
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveUserRepository {
+
+    private static final String SELECT_SQL = "SELECT id, username, email, full_name, created_at, updated_at, active, "
+            + "last_seen_at, version FROM users WHERE deleted_at IS NULL";
+
+    private static final String UPDATE_SQL = "UPDATE users SET username = :username, email = :email, "
+            + "full_name = :fullName, active = :active, updated_at = :updatedAt, version = version + 1 "
+            + "WHERE id = :id AND deleted_at IS NULL";
+
+    private static final String SOFT_DELETE_SQL = "UPDATE users SET deleted_at = :deletedAt, version = version + 1 "
+            + "WHERE id = :id AND deleted_at IS NULL";
+
+    private final DatabaseClient databaseClient;
+
+    public ReactiveUserRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Flux<User> findAll() {
+        return databaseClient.sql(SELECT_SQL + " ORDER BY id").map(ReactiveUserRepository::mapUser).all();
+    }
+
+    public Flux<User> findPage(long offset, int limit) {
+        return databaseClient.sql(SELECT_SQL + " ORDER BY id LIMIT :limit OFFSET :offset")
+                .bind("limit", limit)
+                .bind("offset", offset)
+                .map(ReactiveUserRepository::mapUser)
+                .all();
+    }
+
+    public Mono<Long> count() {
+        return databaseClient.sql("SELECT COUNT(*) FROM users WHERE deleted_at IS NULL")
+                .map(row -> row.get(0, Long.class))
+                .one();
+    }
+
+    public Mono<User> findById(long id) {
+        return databaseClient.sql(SELECT_SQL + " AND id = :id")
+                .bind("id", id)
+                .map(ReactiveUserRepository::mapUser)
+                .one();
+    }
+
+    /**
+     * Includes soft-deleted users.
+     */
+    public Mono<Boolean> existsById(long id) {
+        return databaseClient.sql("SELECT COUNT(*) > 0 FROM users WHERE id = :id")
+                .bind("id", id)
+                .map(row -> row.get(0, Boolean.class))
+                .one();
+    }
+
+    /**
+     * Username lookup that includes soft-deleted rows, which still hold the unique key until purged.
+     */
+    public Mono<Boolean> existsByUsername(String username) {
+        return databaseClient.sql("SELECT COUNT(*) > 0 FROM users WHERE username = :username")
+                .bind("username", username)
+                .map(row -> row.get(0, Boolean.class))
+                .one();
+    }
+
+    /**
+     * Email lookup that includes soft-deleted rows, which still hold the unique key until purged.
+     */
+    public Mono<Boolean> existsByEmail(String email) {
+        return databaseClient.sql("SELECT COUNT(*) > 0 FROM users WHERE email = :email")
+                .bind("email", email)
+                .map(row -> row.get(0, Boolean.class))
+                .one();
+    }
+
+    /**
+     * Inserts a new user at version 0.
+     * @return the id assigned to the user
+     */
+    public Mono<Long> insert(User user) {
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql("INSERT INTO users (username, email, full_name, "
+                + "created_at, updated_at, active, version) VALUES (:username, :email, :fullName, :createdAt, "
+                + ":updatedAt, :active, 0)");
+        return bind(bindDetails(spec, user), "createdAt", user.getCreatedAt(), LocalDateTime.class)
+                .filter(statement -> statement.returnGeneratedValues("id"))
+                .map(row -> row.get("id", Long.class))
+                .one();
+    }
+
+    /**
+     * Overwrites the user's details and increments its version.
+     * @param expectedVersion the version the row must still be at, or null to update any version
+     * @return the number of rows updated (0 if the user is missing, deleted or at another version)
+     */
+    public Mono<Long> update(long id, User details, Long expectedVersion) {
+        DatabaseClient.GenericExecuteSpec spec = databaseClient
+                .sql(expectedVersion != null ? UPDATE_SQL + " AND version = :version" : UPDATE_SQL)
+                .bind("id", id);
+        if (expectedVersion != null) {
+            spec = spec.bind("version", expectedVersion);
+        }
+        return bindDetails(spec, details).fetch().rowsUpdated();
+    }
+
+    /**
+     * Marks a user as deleted; the row is removed later by the background purger.
+     * @param expectedVersion the version the row must still be at, or null to delete any version
+     * @return the number of rows marked
+     */
+    public Mono<Long> softDelete(long id, Long expectedVersion, LocalDateTime deletedAt) {
+        DatabaseClient.GenericExecuteSpec spec = databaseClient
+                .sql(expectedVersion != null ? SOFT_DELETE_SQL + " AND version = :version" : SOFT_DELETE_SQL)
+                .bind("id", id)
+                .bind("deletedAt", deletedAt);
+        if (expectedVersion != null) {
+            spec = spec.bind("version", expectedVersion);
+        }
+        return spec.fetch().rowsUpdated();
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bindDetails(DatabaseClient.GenericExecuteSpec spec, User user) {
+        spec = bind(spec, "username", user.getUsername(), String.class);
+        spec = bind(spec, "email", user.getEmail(), String.class);
+        spec = bind(spec, "fullName", user.getFullName(), String.class);
+        spec = bind(spec, "updatedAt", user.getUpdatedAt(), LocalDateTime.class);
+        return spec.bind("active", user.isActive());
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bind(DatabaseClient.GenericExecuteSpec spec, String name,
+                                                          Object value, Class<?> type) {
+        return value != null ? spec.bind(name, value) : spec.bindNull(name, type);
+    }
+
+    private static User mapUser(Readable row) {
+        User user = new User(row.get("id", Long.class), row.get("username", String.class),
+                row.get("email", String.class), row.get("full_name", String.class),
+                row.get("created_at", LocalDateTime.class), row.get("updated_at", LocalDateTime.class),
+                Boolean.TRUE.equals(row.get("active", Boolean.class)));
+        user.setLastSeenAt(row.get("last_seen_at", LocalDateTime.class));
+        user.setVersion(row.get("version", Long.class));
+        return user;
+    }
+}
@@ -1,15 +1,104 @@
 package com.cc.data.demo2springboot.repository;
 
 import com.cc.data.demo2springboot.model.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * JPA repository for User entities.
  * Extends JpaRepository to enable CRUD operations with the H2 database.
+ * Soft-deleted users are hidden from all entity queries by the restriction on {@link User};
+ * the native queries below state explicitly whether they include them.
  */
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
-    // Spring Data JPA provides all basic CRUD operations automatically
-    // Custom query methods can be added here if needed
+public interface UserRepository extends JpaRepository<User, Long>, UserScanRepository, UserUpdateRepository {
+
+    /**
+     * Listing and count queries are served from the query cache until the users table changes.
+     */
+    @Override
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
+    List<User> findAll();
+
+    @Override
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
+    Page<User> findAll(Pageable pageable);
+
+    @Override
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
+    long count();
+
+    /**
+     * Marks a user as deleted in a single-column update.
+     * The row itself is removed later by the background purger.
+     *
+     * @return the number of rows marked (0 if the user is missing or already deleted)
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE User u SET u.deletedAt = :deletedAt, u.version = u.version + 1 "
+            + "WHERE u.id = :id AND u.deletedAt IS NULL")
+    int softDeleteById(@Param("id") Long id, @Param("deletedAt") LocalDateTime deletedAt);
+
+    /**
+     * Marks a user as deleted only if its stored version still matches the expected one.
+     *
+     * @return the number of rows marked (0 if the user is missing or the version changed)
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE User u SET u.deletedAt = :deletedAt, u.version = u.version + 1 "
+            + "WHERE u.id = :id AND u.version = :version AND u.deletedAt IS NULL")
+    int softDeleteIfVersionMatches(@Param("id") Long id, @Param("version") long version,
+                                   @Param("deletedAt") LocalDateTime deletedAt);
+
+    /**
+     * Username lookup that includes soft-deleted rows, which still hold the unique key until purged.
+     */
+    @Query(value = "SELECT COUNT(*) > 0 FROM users WHERE username = :username", nativeQuery = true)
+    boolean existsByUsername(@Param("username") String username);
+
+    /**
+     * Email lookup that includes soft-deleted rows, which still hold the unique key until purged.
+     */
+    @Query(value = "SELECT COUNT(*) > 0 FROM users WHERE email = :email", nativeQuery = true)
+    boolean existsByEmail(@Param("email") String email);
+
+    @Query(value = "SELECT username FROM users", nativeQuery = true)
+    List<String> findAllUsernames();
+
+    @Query(value = "SELECT email FROM users", nativeQuery = true)
+    List<String> findAllEmails();
+
+    /**
+     * Ids of soft-deleted users whose tombstone is older than the cutoff, oldest first.
+     */
+    @Query(value = "SELECT id FROM users WHERE deleted_at IS NOT NULL AND deleted_at < :cutoff "
+            + "ORDER BY deleted_at LIMIT :limit", nativeQuery = true)
+    List<Long> findTombstoneIds(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+
+    @Query(value = "SELECT COUNT(*) FROM users WHERE deleted_at IS NOT NULL", nativeQuery = true)
+    long countTombstones();
+
+    /**
+     * Physically removes soft-deleted users.
+     *
+     * @return the number of rows removed
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM users WHERE id IN (:ids) AND deleted_at IS NOT NULL", nativeQuery = true)
+    int purgeTombstones(@Param("ids") List<Long> ids);
 }
@@ -0,0 +1,17 @@
+package com.cc.data.demo2springboot.repository;
+
+import com.cc.data.demo2springboot.model.User;
+
+import java.util.List;
+
+/**
+ * Full-table reads that keep no persistence-context state.
+ */
+public interface UserScanRepository {
+
+    /**
+     * Reads every user that is not soft-deleted, ordered by id, through a stateless session:
+     * the returned users are detached, never dirty-checked and not put in the second-level cache.
+     */
+    List<User> scanAll();
+}
@@ -0,0 +1,39 @@
+package com.cc.data.demo2springboot.repository;
+
+import com.cc.data.demo2springboot.model.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.hibernate.StatelessSession;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Runs the scan on a stateless session opened over the current transaction's connection, so it
+ * reads from the same shard or replica, under the same read-only settings, as the rest of the
+ * transaction and never takes a second connection from the pool.
+ */
+@Transactional(readOnly = true)
+public class UserScanRepositoryImpl implements UserScanRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${app.user.scanFetchSize:500}")
+    private int fetchSize;
+
+    @Override
+    public List<User> scanAll() {
+        Session session = entityManager.unwrap(Session.class);
+        return session.doReturningWork(connection -> {
+            try (StatelessSession scan = session.getSessionFactory().withStatelessOptions()
+                    .connection(connection).openStatelessSession()) {
+                return scan.createSelectionQuery("from User u order by u.id", User.class)
+                        .setFetchSize(fetchSize)
+                        .getResultList();
+            }
+        });
+    }
+}
@@ -0,0 +1,20 @@
+package com.cc.data.demo2springboot.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Writes that bypass Hibernate and keep the rest of the second-level cache intact.
+ */
+public interface UserUpdateRepository {
+
+    /**
+     * Updates a user only if its stored version still matches the expected one.
+     * The version check and increment are part of the UPDATE statement itself,
+     * so no row is read or locked beforehand. Only this user is evicted from the
+     * second-level cache.
+     *
+     * @return the number of rows updated (0 if the user is missing or the version changed)
+     */
+    int updateIfVersionMatches(Long id, long version, String username, String email, String fullName,
+                               boolean active, LocalDateTime updatedAt);
+}
@@ -0,0 +1,65 @@
+package com.cc.data.demo2springboot.repository;
+
+import com.cc.data.demo2springboot.model.User;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.boot.spi.SessionFactoryOptions;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * Runs the versioned update through JDBC on the current transaction's connection. Hibernate
+ * would invalidate the whole users region around a JPQL or native bulk update; this evicts just
+ * the updated user, and the cached listings it may appear in, once straight away so a read in
+ * the same transaction misses, and again when the transaction completes so a read that loaded
+ * the old row before the commit cannot leave it cached.
+ */
+@Transactional
+public class UserUpdateRepositoryImpl implements UserUpdateRepository {
+
+    private static final String UPDATE_SQL = "UPDATE users SET username = ?, email = ?, full_name = ?, active = ?, "
+            + "updated_at = ?, version = version + 1 WHERE id = ? AND version = ? AND deleted_at IS NULL";
+
+    private final JdbcTemplate jdbcTemplate;
+    // Null if the second-level cache is disabled
+    private final Cache userCache;
+    private final boolean queryCache;
+
+    public UserUpdateRepositoryImpl(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        SessionFactoryOptions options = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getSessionFactoryOptions();
+        this.userCache = options.isSecondLevelCacheEnabled() ? entityManagerFactory.getCache() : null;
+        this.queryCache = options.isQueryCacheEnabled();
+    }
+
+    @Override
+    public int updateIfVersionMatches(Long id, long version, String username, String email, String fullName,
+                                      boolean active, LocalDateTime updatedAt) {
+        int updated = jdbcTemplate.update(UPDATE_SQL, username, email, fullName, active,
+                updatedAt != null ? Timestamp.valueOf(updatedAt) : null, id, version);
+        if (updated > 0 && userCache != null) {
+            evict(id);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(id);
+                }
+            });
+        }
+        return updated;
+    }
+
+    private void evict(Long id) {
+        userCache.evict(User.class, id);
+        if (queryCache) {
+            userCache.unwrap(org.hibernate.Cache.class).evictQueryRegions();
+        }
+    }
+}
@@ -1,9 +1,13 @@
 package com.cc.data.demo2springboot.service;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
@@ -13,20 +17,28 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import javax.crypto.SecretKey;
 
 /**
  * Service class for handling JWT token generation and validation.
+ * Every verification is timed into {@code jwt.verification}, tagged with its outcome, and
+ * rejected tokens also count towards {@code auth.failures}.
  */
 @Service
 public class JwtService {
 
     private final SecretKey signingKey;
+    private final Timer validTokens;
+    private final Timer expiredTokens;
+    private final Timer invalidTokens;
+    private final Counter expiredFailures;
+    private final Counter invalidFailures;
 
     @Value("${jwt.expiration:86400000}")
     private long jwtExpiration;
 
-    public JwtService() {
+    public JwtService(MeterRegistry meterRegistry) {
         // Try to get secret from environment variable first, fall back to other methods if not available
         String secret = System.getenv("JWT_SECRET");
 
@@ -51,6 +63,27 @@ public class JwtService {
 
         // Create signing key
         this.signingKey = Keys.hmacShaKeyFor(keyBytes);
+
+        this.validTokens = verificationTimer(meterRegistry, "valid");
+        this.expiredTokens = verificationTimer(meterRegistry, "expired");
+        this.invalidTokens = verificationTimer(meterRegistry, "invalid");
+        this.expiredFailures = authFailures(meterRegistry, "expired_token");
+        this.invalidFailures = authFailures(meterRegistry, "invalid_token");
+    }
+
+    private static Timer verificationTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("jwt.verification")
+                .description("Time to parse a JWT and verify its signature and expiry")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private static Counter authFailures(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("auth.failures")
+                .description("Rejected logins and tokens, by reason")
+                .tag("reason", reason)
+                .register(meterRegistry);
     }
 
     /**
@@ -81,10 +114,7 @@ public class JwtService {
      */
     public boolean validateToken(String token) {
         try {
-            Jwts.parserBuilder()
-                .setSigningKey(signingKey)
-                .build()
-                .parseClaimsJws(token);
+            verify(token);
             return true;
         } catch (Exception e) {
             return false;
@@ -98,11 +128,28 @@ public class JwtService {
      * @return the claims
      */
     public Claims extractClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(signingKey)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return verify(token);
+    }
+
+    private Claims verify(String token) {
+        long start = System.nanoTime();
+        try {
+            Claims claims = Jwts.parserBuilder()
+                    .setSigningKey(signingKey)
+                    .build()
+                    .parseClaimsJws(token)
+                    .getBody();
+            validTokens.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return claims;
+        } catch (ExpiredJwtException e) {
+            expiredTokens.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            expiredFailures.increment();
+            throw e;
+        } catch (RuntimeException e) {
+            invalidTokens.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            invalidFailures.increment();
+            throw e;
+        }
     }
 
     /**
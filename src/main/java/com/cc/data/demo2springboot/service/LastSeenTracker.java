@@ -0,0 +1,223 @@
+package com.cc.data.demo2springboot.service;
+
+import com.cc.data.demo2springboot.model.User;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind aggregator for users' last-activity timestamps.
+ * Authenticated requests record their subject here at the cost of a map lookup and,
+ * at most once per millisecond per subject, a CAS. A scheduled flush writes the latest
+ * timestamp of every subject seen since the previous flush to users.last_seen_at in a
+ * single JDBC batch per shard, and a final flush runs on shutdown. The subject is the name of
+ * an in-memory login account, not a user id, so users are looked up by username; a user whose
+ * username matches no account is never updated. A username does not identify a shard, so every
+ * shard receives the batch.
+ * The flush bypasses Hibernate, so the written users are evicted from the second-level cache.
+ */
+@Service
+public class LastSeenTracker {
+
+    private static final Logger logger = LoggerFactory.getLogger(LastSeenTracker.class);
+
+    // Never move last_seen_at backwards, e.g. if two nodes flush out of order
+    private static final String UPDATE_SQL =
+            "UPDATE users SET last_seen_at = ? WHERE username = ? AND (last_seen_at IS NULL OR last_seen_at < ?)";
+
+    private static final int EVICTION_CHUNK = 500;
+
+    /**
+     * Latest activity of one subject. Only the flusher touches flushedMillis.
+     */
+    private static final class Activity {
+        final AtomicLong latestMillis = new AtomicLong();
+        long flushedMillis;
+    }
+
+    // ConcurrentHashMap is striped per bin and its reads are lock-free, so recording an
+    // already-known subject never blocks; only the first sighting of a subject inserts
+    private final ConcurrentHashMap<String, Activity> pending = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final JdbcTemplate jdbcTemplate;
+    private final UserShards shards;
+    private final Clock clock;
+    private final Cache userCache;
+
+    private final DistributionSummary batchSize;
+    private final Timer flushLag;
+    private final Timer flushDuration;
+
+    @Autowired
+    public LastSeenTracker(JdbcTemplate jdbcTemplate, UserShards shards, MeterRegistry meterRegistry,
+                           EntityManagerFactory entityManagerFactory) {
+        this(jdbcTemplate, shards, meterRegistry, Clock.systemDefaultZone(), secondLevelCache(entityManagerFactory));
+    }
+
+    LastSeenTracker(JdbcTemplate jdbcTemplate, UserShards shards, MeterRegistry meterRegistry, Clock clock,
+                    Cache userCache) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shards = shards;
+        this.clock = clock;
+        this.userCache = userCache;
+        this.batchSize = DistributionSummary.builder("users.lastseen.flush.batch.size")
+                .description("Subjects written per last-seen flush")
+                .register(meterRegistry);
+        this.flushLag = Timer.builder("users.lastseen.flush.lag")
+                .description("Age of the oldest unflushed activity when a flush starts")
+                .register(meterRegistry);
+        this.flushDuration = Timer.builder("users.lastseen.flush.duration")
+                .description("Time to write one last-seen batch")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Records activity for a subject. Safe to call on every request.
+     * @param subject the authenticated username
+     */
+    public void record(String subject) {
+        if (subject == null) {
+            return;
+        }
+        Activity activity = pending.get(subject);
+        if (activity == null) {
+            activity = pending.computeIfAbsent(subject, key -> new Activity());
+        }
+        long now = clock.millis();
+        advance(activity.latestMillis, now);
+        // A flush may have dropped the entry as idle between the lookup and the CAS
+        if (pending.get(subject) != activity) {
+            keep(subject, activity);
+        }
+    }
+
+    private static void advance(AtomicLong latest, long millis) {
+        long current = latest.get();
+        while (current < millis && !latest.compareAndSet(current, millis)) {
+            current = latest.get();
+        }
+    }
+
+    /**
+     * Puts a dropped entry back, or folds its activity into the one that replaced it.
+     */
+    private void keep(String subject, Activity activity) {
+        Activity current = pending.putIfAbsent(subject, activity);
+        if (current != null && current != activity) {
+            advance(current.latestMillis, activity.latestMillis.get());
+        }
+    }
+
+    /**
+     * Writes every subject with activity newer than its last flush in one JDBC batch per shard.
+     * Subjects with nothing new are dropped from the map so it stays proportional to
+     * recently active users.
+     * @return the number of subjects written
+     */
+    @Scheduled(fixedDelayString = "${app.user.lastSeen.flushInterval:PT10S}")
+    public int flush() {
+        // A lock rather than synchronized: the flush blocks on JDBC and may run on a virtual thread
+        flushLock.lock();
+        try {
+            return flushPending();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private int flushPending() {
+        long now = clock.millis();
+        List<Object[]> rows = new ArrayList<>();
+        List<Map.Entry<Activity, Long>> flushed = new ArrayList<>();
+        long oldest = Long.MAX_VALUE;
+
+        for (Map.Entry<String, Activity> entry : pending.entrySet()) {
+            Activity activity = entry.getValue();
+            long latest = activity.latestMillis.get();
+            if (latest <= activity.flushedMillis) {
+                // A record may land between the read and the removal; if so, keep it for the next flush
+                if (pending.remove(entry.getKey(), activity) && activity.latestMillis.get() > activity.flushedMillis) {
+                    keep(entry.getKey(), activity);
+                }
+                continue;
+            }
+            Timestamp timestamp = new Timestamp(latest);
+            rows.add(new Object[]{timestamp, entry.getKey(), timestamp});
+            flushed.add(Map.entry(activity, latest));
+            oldest = Math.min(oldest, latest);
+        }
+
+        if (rows.isEmpty()) {
+            return 0;
+        }
+
+        flushLag.record(Duration.ofMillis(Math.max(0, now - oldest)));
+        batchSize.record(rows.size());
+        flushDuration.record(() -> shards.scatter(() -> jdbcTemplate.batchUpdate(UPDATE_SQL, rows)));
+        flushed.forEach(done -> done.getKey().flushedMillis = done.getValue());
+        evictFromCache(rows);
+
+        logger.debug("Flushed last-seen timestamps for {} users", rows.size());
+        return rows.size();
+    }
+
+    /**
+     * @return the second-level cache, or null if it is disabled
+     */
+    private static Cache secondLevelCache(EntityManagerFactory entityManagerFactory) {
+        boolean enabled = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getSessionFactoryOptions().isSecondLevelCacheEnabled();
+        return enabled ? entityManagerFactory.getCache() : null;
+    }
+
+    private void evictFromCache(List<Object[]> rows) {
+        if (userCache == null) {
+            return;
+        }
+        for (int from = 0; from < rows.size(); from += EVICTION_CHUNK) {
+            List<Object> usernames = rows.subList(from, Math.min(rows.size(), from + EVICTION_CHUNK)).stream()
+                    .map(row -> row[1]).toList();
+            String placeholders = String.join(",", Collections.nCopies(usernames.size(), "?"));
+            shards.scatter(() -> jdbcTemplate.queryForList(
+                    "SELECT id FROM users WHERE username IN (" + placeholders + ")", Long.class, usernames.toArray()))
+                    .forEach(ids -> ids.forEach(id -> userCache.evict(User.class, id)));
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            logger.warn("Could not flush last-seen timestamps on shutdown", e);
+        }
+    }
+
+    /**
+     * @return the number of subjects currently tracked
+     */
+    public int getTrackedCount() {
+        return pending.size();
+    }
+}
@@ -0,0 +1,65 @@
+package com.cc.data.demo2springboot.service;
+
+import com.cc.data.demo2springboot.model.User;
+import com.cc.data.demo2springboot.model.UserEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+/**
+ * Writes user change events to the user_events outbox over R2DBC, for the reactive stack.
+ * The counterpart of {@link UserEventOutbox}: an append must run inside the reactive
+ * transaction of the change itself, and {@link UserEventRelay} publishes the events as usual.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveUserEventOutbox {
+
+    private static final String INSERT_SQL = "INSERT INTO user_events (user_id, type, user_version, occurred_at, "
+            + "payload) VALUES (:userId, :type, :version, :occurredAt, :payload)";
+
+    private final DatabaseClient databaseClient;
+    private final ObjectMapper objectMapper;
+
+    public ReactiveUserEventOutbox(DatabaseClient databaseClient, ObjectMapper objectMapper) {
+        this.databaseClient = databaseClient;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Records that a user was created or updated, with its state after the change.
+     * @param user the user as written, including its new version
+     */
+    public Mono<Void> append(UserEvent.Type type, User user) {
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(user);
+        } catch (JsonProcessingException e) {
+            return Mono.error(new IllegalStateException("Could not serialize user " + user.getId(), e));
+        }
+        return insert(user.getId(), type, user.getVersion(), payload);
+    }
+
+    /**
+     * Records that a user was deleted.
+     * @param version the user's version after the deletion, or null if unknown
+     */
+    public Mono<Void> appendDeleted(long userId, Long version) {
+        return insert(userId, UserEvent.Type.DELETED, version, null);
+    }
+
+    private Mono<Void> insert(long userId, UserEvent.Type type, Long version, String payload) {
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(INSERT_SQL)
+                .bind("userId", userId)
+                .bind("type", type.name())
+                .bind("occurredAt", LocalDateTime.now());
+        spec = version != null ? spec.bind("version", version) : spec.bindNull("version", Long.class);
+        spec = payload != null ? spec.bind("payload", payload) : spec.bindNull("payload", String.class);
+        return spec.then();
+    }
+}
@@ -0,0 +1,168 @@
+package com.cc.data.demo2springboot.service;
+
+import com.cc.data.demo2springboot.exception.DuplicateResourceException;
+import com.cc.data.demo2springboot.exception.PreconditionFailedException;
+import com.cc.data.demo2springboot.exception.ResourceNotFoundException;
+import com.cc.data.demo2springboot.model.User;
+import com.cc.data.demo2springboot.model.UserEvent;
+import com.cc.data.demo2springboot.repository.ReactiveUserRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Non-blocking counterpart of {@link UserService} for the reactive stack.
+ * Applies the same rules: duplicates are rejected after the uniqueness filter, updates and
+ * deletes can be guarded by a version, deletes are soft, and every change appends an event to
+ * the outbox in its own transaction. The second-level cache is not involved, so the reactive
+ * profile turns it off. A single database only: sharding is not supported here.
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveUserService {
+
+    private final ReactiveUserRepository userRepository;
+    private final ReactiveUserEventOutbox events;
+    private final UserUniquenessIndex uniquenessIndex;
+    private final TransactionalOperator transactions;
+
+    public ReactiveUserService(ReactiveUserRepository userRepository, ReactiveUserEventOutbox events,
+                               UserUniquenessIndex uniquenessIndex, TransactionalOperator transactions,
+                               UserShards shards) {
+        if (shards.isSharded()) {
+            throw new IllegalStateException("The reactive stack does not support app.sharding.urls");
+        }
+        this.userRepository = userRepository;
+        this.events = events;
+        this.uniquenessIndex = uniquenessIndex;
+        this.transactions = transactions;
+    }
+
+    /**
+     * Get all users, streamed in id order as rows arrive.
+     */
+    public Flux<User> getAllUsers() {
+        return userRepository.findAll();
+    }
+
+    /**
+     * Get a page of users in id order.
+     */
+    public Mono<Page<User>> getAllUsers(Pageable pageable) {
+        return Mono.zip(userRepository.findPage(pageable.getOffset(), pageable.getPageSize()).collectList(),
+                        userRepository.count())
+                .map(pageAndTotal -> new PageImpl<>(pageAndTotal.getT1(), pageable, pageAndTotal.getT2()));
+    }
+
+    /**
+     * Get a user by ID
+     * @return the user, or empty if there is none
+     */
+    public Mono<User> getUserById(long id) {
+        return userRepository.findById(id);
+    }
+
+    /**
+     * Create a new user
+     * @return the created user, or a {@link DuplicateResourceException} if the username or email is taken
+     */
+    public Mono<User> createUser(User user) {
+        Objects.requireNonNull(user, "User cannot be null");
+
+        Mono<User> insert = userRepository.insert(user)
+                .flatMap(id -> {
+                    user.setId(id);
+                    user.setVersion(0L);
+                    return events.append(UserEvent.Type.CREATED, user).thenReturn(user);
+                })
+                .as(transactions::transactional);
+        return rejectTaken(user)
+                .then(insert)
+                .onErrorMap(DataIntegrityViolationException.class, e -> duplicate(user, e))
+                .doOnNext(uniquenessIndex::record);
+    }
+
+    /**
+     * Update an existing user
+     * @param expectedVersion the version the caller last saw, or null to overwrite any version
+     * @return the updated user, or a {@link ResourceNotFoundException} or {@link PreconditionFailedException}
+     */
+    public Mono<User> updateUser(long id, User userDetails, Long expectedVersion) {
+        Objects.requireNonNull(userDetails, "User details cannot be null");
+        if (userDetails.getUpdatedAt() == null) {
+            userDetails.setUpdatedAt(LocalDateTime.now());
+        }
+
+        return userRepository.update(id, userDetails, expectedVersion)
+                .flatMap(updated -> updated > 0
+                        ? userRepository.findById(id)
+                        : conflictOrNotFound(id, expectedVersion))
+                .flatMap(user -> events.append(UserEvent.Type.UPDATED, user).thenReturn(user))
+                .as(transactions::transactional)
+                .onErrorMap(DataIntegrityViolationException.class, e -> duplicate(userDetails, e))
+                .doOnNext(uniquenessIndex::record);
+    }
+
+    /**
+     * Delete a user.
+     * The user is soft-deleted and hidden from all reads; {@link UserPurgeService} removes the row later.
+     * @param expectedVersion the version the caller last saw, or null to delete any version
+     * @return empty on success, or a {@link ResourceNotFoundException} or {@link PreconditionFailedException}
+     */
+    public Mono<Void> deleteUser(long id, Long expectedVersion) {
+        return userRepository.softDelete(id, expectedVersion, LocalDateTime.now())
+                .flatMap(deleted -> deleted > 0
+                        ? events.appendDeleted(id, expectedVersion != null ? expectedVersion + 1 : null)
+                        : conflictOrNotFound(id, expectedVersion))
+                .as(transactions::transactional);
+    }
+
+    /**
+     * Confirms the uniqueness filter's possible hits with an exists query.
+     */
+    private Mono<Void> rejectTaken(User user) {
+        Mono<Boolean> usernameTaken = uniquenessIndex.usernameMightBeTaken(user.getUsername())
+                ? userRepository.existsByUsername(user.getUsername()) : Mono.just(false);
+        Mono<Boolean> emailTaken = uniquenessIndex.emailMightBeTaken(user.getEmail())
+                ? userRepository.existsByEmail(user.getEmail()) : Mono.just(false);
+        return usernameTaken.flatMap(taken -> taken
+                        ? Mono.<Boolean>error(new DuplicateResourceException("User", "username", user.getUsername()))
+                        : emailTaken)
+                .flatMap(taken -> taken
+                        ? Mono.<Void>error(new DuplicateResourceException("User", "email", user.getEmail()))
+                        : Mono.<Void>empty());
+    }
+
+    /**
+     * A conditional write touched no rows: tell a stale version apart from a missing user.
+     */
+    private <T> Mono<T> conflictOrNotFound(long id, Long expectedVersion) {
+        ResourceNotFoundException notFound = new ResourceNotFoundException("User", "id", id);
+        if (expectedVersion == null) {
+            return Mono.error(notFound);
+        }
+        return userRepository.existsById(id).flatMap(exists -> Mono.error(exists
+                ? new PreconditionFailedException("User", id, expectedVersion)
+                : notFound));
+    }
+
+    /**
+     * A unique key violation that slipped past the pre-check, from a concurrent write.
+     */
+    private static DuplicateResourceException duplicate(User user, DataIntegrityViolationException e) {
+        String message = String.valueOf(e.getMessage()).toUpperCase(Locale.ROOT);
+        return message.contains("UK_USERS_EMAIL")
+                ? new DuplicateResourceException("User", "email", user.getEmail())
+                : new DuplicateResourceException("User", "username", user.getUsername());
+    }
+}
@@ -0,0 +1,174 @@
+package com.cc.data.demo2springboot.service;
+
+import com.cc.data.demo2springboot.config.ReadYourWrites;
+import com.cc.data.demo2springboot.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight execution of read-only queries.
+ * The first caller for a key runs the query in a read-only transaction; callers that arrive
+ * with the same key while it is running wait for it and share its result, or its exception,
+ * instead of each taking a connection and running the same query. The flight ends when the
+ * query does, so nothing is cached: a caller arriving afterwards runs a fresh query.
+ * A caller only joins a flight that started after every user write committed before the
+ * caller arrived (see {@link #writeCommitted()}), so it never receives a result older than
+ * its own write: without that, a client's GET right after its PUT could return the old
+ * version and fail its next If-Match. Reads inside a caller's own transaction, and reads of a request pinned by read-your-writes,
+ * always run their own query. Results are shared between threads and must not be modified.
+ */
+@Component
+public class ReadCoalescer {
+
+    private final TransactionOperations readOnly;
+    private final boolean enabled;
+    private final long timeoutNanos;
+    private final ConcurrentHashMap<Object, Flight> flights = new ConcurrentHashMap<>();
+    // Bumped after every committed user write; a flight remembers the value it started at
+    private final AtomicLong writeEpoch = new AtomicLong();
+
+    private final Counter queries;
+    private final Counter coalesced;
+    private final Counter timeouts;
+
+    @Autowired
+    public ReadCoalescer(PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                         @Value("${app.user.coalescing.enabled:true}") boolean enabled,
+                         @Value("${app.user.coalescing.timeout:PT5S}") Duration timeout) {
+        this(readOnly(transactionManager), meterRegistry, enabled, timeout);
+    }
+
+    ReadCoalescer(TransactionOperations readOnly, MeterRegistry meterRegistry, boolean enabled, Duration timeout) {
+        this.readOnly = readOnly;
+        this.enabled = enabled;
+        this.timeoutNanos = timeout.toNanos();
+
+        this.queries = Counter.builder("users.reads.queries")
+                .description("Coalescable reads that ran their own query")
+                .register(meterRegistry);
+        this.coalesced = Counter.builder("users.reads.coalesced")
+                .description("Reads that shared another caller's in-flight query")
+                .register(meterRegistry);
+        this.timeouts = Counter.builder("users.reads.coalesced.timeouts")
+                .description("Reads that gave up waiting for another caller's query")
+                .register(meterRegistry);
+        Gauge.builder("users.reads.coalescing.ratio", this, ReadCoalescer::coalescingRatio)
+                .description("Share of coalescable reads answered without a query of their own")
+                .register(meterRegistry);
+        Gauge.builder("users.reads.inflight", flights, ConcurrentHashMap::size)
+                .description("Distinct read queries in flight")
+                .register(meterRegistry);
+    }
+
+    private static TransactionOperations readOnly(PlatformTransactionManager transactionManager) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+        return template;
+    }
+
+    /**
+     * Runs query in a read-only transaction, or joins the identical query already in flight.
+     * @param key identifies the query and all of its arguments
+     * @return the query's result, possibly shared with other callers
+     * @throws ServiceUnavailableException if another caller's query did not finish within the timeout
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T read(Object key, Supplier<T> query) {
+        if (!enabled || TransactionSynchronizationManager.isActualTransactionActive() || ReadYourWrites.isPinned()) {
+            return readOnly.execute(status -> query.get());
+        }
+
+        long epoch = writeEpoch.get();
+        Flight flight = new Flight(epoch);
+        Flight existing = flights.putIfAbsent(key, flight);
+        if (existing != null) {
+            if (existing.epoch >= epoch) {
+                coalesced.increment();
+                return (T) await(key, existing);
+            }
+            // Started before a write this caller may have made: run a fresh query, and let later
+            // callers join that one instead. If the stale flight was replaced or ended meanwhile,
+            // the query simply runs on its own.
+            if (!flights.replace(key, existing, flight)) {
+                queries.increment();
+                return readOnly.execute(status -> query.get());
+            }
+        }
+
+        queries.increment();
+        T result;
+        try {
+            result = readOnly.execute(status -> query.get());
+        } catch (RuntimeException | Error e) {
+            flights.remove(key, flight);
+            flight.completeExceptionally(e);
+            throw e;
+        }
+        // Removed before completing, so the flight is only ever joined while its query runs
+        flights.remove(key, flight);
+        flight.complete(result);
+        return result;
+    }
+
+    /**
+     * Records that a user write has committed: reads already in flight may predate it, so
+     * callers arriving from now on run a fresh query rather than joining them.
+     * Call after the commit, before the writer's response is sent.
+     */
+    public void writeCommitted() {
+        writeEpoch.incrementAndGet();
+    }
+
+    private Object await(Object key, Flight flight) {
+        try {
+            return flight.get(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e.getCause() instanceof RuntimeException runtime ? runtime : new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            timeouts.increment();
+            // A hung query must not hold every later caller hostage: the next one starts afresh
+            flights.remove(key, flight);
+            throw new ServiceUnavailableException("Timed out waiting for an identical read in flight", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for an identical read", e);
+        }
+    }
+
+    private double coalescingRatio() {
+        double shared = coalesced.count();
+        double total = shared + queries.count();
+        return total == 0 ? 0 : shared / total;
+    }
+
+    /**
+     * A query in flight, and the write epoch it started at.
+     */
+    private static final class Flight extends CompletableFuture<Object> {
+        private final long epoch;
+
+        Flight(long epoch) {
+            this.epoch = epoch;
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.cc.data.demo2springboot.service;
+
+import com.cc.data.demo2springboot.model.UserEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Streams user changes to Server-Sent Events subscribers.
+ * Subscriptions are async servlet requests, so an idle subscriber holds a connection but no
+ * thread. The last events relayed are kept in a bounded replay buffer, in delivery order, so a
+ * client reconnecting with Last-Event-ID gets what it missed; when that id has left the buffer
+ * the client is sent a {@code reset} event and should reload the users list instead.
+ * Frames are written by a small pool of sender threads, so a slow client never holds up the
+ * relay. A subscriber whose queue of unsent events fills up is disconnected and can resume.
+ */
+@Service
+public class UserChangeFeed implements UserEventListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserChangeFeed.class);
+
+    public static final String RESET_EVENT = "reset";
+
+    /**
+     * An open stream and the frames not yet written to it, drained by one sender at a time.
+     */
+    private static final class Subscriber {
+        final SseEmitter emitter;
+        final BlockingQueue<SseEmitter.SseEventBuilder> pending;
+        final AtomicBoolean scheduled = new AtomicBoolean();
+
+        Subscriber(SseEmitter emitter, int capacity) {
+            this.emitter = emitter;
+            this.pending = new LinkedBlockingQueue<>(capacity);
+        }
+    }
+
+    private final int replayCapacity;
+    private final int subscriberBacklog;
+    private final long timeoutMillis;
+    // Event id to event, oldest first; ids are unique across shards but not ordered across them
+    private final LinkedHashMap<Long, UserEvent> replay = new LinkedHashMap<>();
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ExecutorService senders;
+
+    private final Counter dropped;
+
+    public UserChangeFeed(MeterRegistry meterRegistry,
+                          @Value("${app.users.changes.replayCapacity:1000}") int replayCapacity,
+                          @Value("${app.users.changes.subscriberBacklog:256}") int subscriberBacklog,
+                          @Value("${app.users.changes.timeout:PT30M}") Duration timeout,
+                          @Value("${app.users.changes.senderThreads:2}") int senderThreads) {
+        this.replayCapacity = Math.max(1, replayCapacity);
+        this.subscriberBacklog = Math.max(1, subscriberBacklog);
+        this.timeoutMillis = timeout.toMillis();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.senders = Executors.newFixedThreadPool(Math.max(1, senderThreads), runnable -> {
+            Thread thread = new Thread(runnable, "user-changes-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.dropped = Counter.builder("users.changes.dropped")
+                .description("Change stream subscribers disconnected for falling behind")
+                .register(meterRegistry);
+        Gauge.builder("users.changes.subscribers", subscribers, Set::size)
+                .description("Open user change streams")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Ends every stream as soon as shutdown begins; open streams would otherwise hold up the web
+     * server's graceful shutdown until it times out. Clients reconnect with Last-Event-ID.
+     */
+    @EventListener(ContextClosedEvent.class)
+    public void closeStreams() {
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        subscribers.clear();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        senders.shutdown();
+        senders.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Opens a stream of user changes.
+     * @param lastEventId the id of the last event the client saw, or null for live events only
+     */
+    public SseEmitter subscribe(Long lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter, 1 + replayCapacity + subscriberBacklog);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+
+        // Sent straight away so the client and any proxy see the stream open before the first change
+        subscriber.pending.add(SseEmitter.event().comment("subscribed"));
+        synchronized (replay) {
+            if (lastEventId != null) {
+                if (replay.containsKey(lastEventId)) {
+                    boolean missed = false;
+                    for (UserEvent event : replay.values()) {
+                        if (missed) {
+                            subscriber.pending.add(frame(event));
+                        }
+                        missed = missed || event.id() == lastEventId;
+                    }
+                } else {
+                    subscriber.pending.add(SseEmitter.event().name(RESET_EVENT).data("{}", MediaType.APPLICATION_JSON));
+                }
+            }
+            // Registered under the lock, so no event falls between the replay and the live stream
+            subscribers.add(subscriber);
+        }
+        schedule(subscriber);
+        return emitter;
+    }
+
+    @Override
+    public void onEvents(List<UserEvent> events) {
+        synchronized (replay) {
+            for (UserEvent event : events) {
+                // A redelivered event is already in the buffer and has been sent
+                if (replay.putIfAbsent(event.id(), event) != null) {
+                    continue;
+                }
+                if (replay.size() > replayCapacity) {
+                    replay.remove(replay.keySet().iterator().next());
+                }
+                for (Subscriber subscriber : subscribers) {
+                    enqueue(subscriber, frame(event));
+                }
+            }
+        }
+        subscribers.forEach(this::schedule);
+    }
+
+    /**
+     * Sends a comment to idle subscribers, keeping proxies from closing the connection and
+     * finding clients that have gone away.
+     */
+    @Scheduled(fixedDelayString = "${app.users.changes.heartbeat:PT15S}")
+    public void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.pending.isEmpty()) {
+                enqueue(subscriber, SseEmitter.event().comment("heartbeat"));
+                schedule(subscriber);
+            }
+        }
+    }
+
+    private void enqueue(Subscriber subscriber, SseEmitter.SseEventBuilder frame) {
+        if (!subscriber.pending.offer(frame) && subscribers.remove(subscriber)) {
+            dropped.increment();
+            logger.debug("Disconnecting a user change subscriber {} events behind", subscriber.pending.size());
+            subscriber.emitter.complete();
+        }
+    }
+
+    private void schedule(Subscriber subscriber) {
+        if (!subscriber.pending.isEmpty() && subscriber.scheduled.compareAndSet(false, true)) {
+            senders.execute(() -> drain(subscriber));
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        do {
+            SseEmitter.SseEventBuilder frame;
+            while ((frame = subscriber.pending.poll()) != null) {
+                try {
+                    subscriber.emitter.send(frame);
+                } catch (IOException | IllegalStateException e) {
+                    // The client went away, or the stream was completed
+                    subscribers.remove(subscriber);
+                    subscriber.pending.clear();
+                    return;
+                }
+            }
+            subscriber.scheduled.set(false);
+            // Frames queued after the last poll but before the flag was cleared
+        } while (!subscriber.pending.isEmpty() && subscriber.scheduled.compareAndSet(false, true));
+    }
+
+    private static SseEmitter.SseEventBuilder frame(UserEvent event) {
+        String data = event.payload() != null
+                ? event.payload()
+                : "{\"id\":" + event.userId() + ",\"version\":" + event.version() + "}";
+        return SseEmitter.event()
+                .id(Long.toString(event.id()))
+                .name(event.type().name().toLowerCase(Locale.ROOT))
+                .data(data, MediaType.APPLICATION_JSON);
+    }
+}
@@ -0,0 +1,151 @@
+package com.cc.data.demo2springboot.service;
+
+import com.cc.data.demo2springboot.exception.DuplicateResourceException;
+import com.cc.data.demo2springboot.model.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Usernames and emails held by users on every shard, in the user_claims table of shard 0.
+ * A unique constraint on users only sees its own shard; the claims table's constraints see
+ * every user, so they settle races between shards and let a user keep its shard, the one its
+ * id encodes, through a rename. Claims are written on their own connection right after the
+ * user's row, while its transaction is still open: a taken name fails the claim and so rolls
+ * back the write, and a write that rolls back afterwards puts the claim back as it was.
+ * A process that dies between the two commits can leave a claim behind on a name no user holds.
+ * Only used when sharded.
+ */
+public class UserClaims {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserClaims.class);
+
+    private static final String INSERT_SQL = "INSERT INTO user_claims (user_id, username, email) VALUES (?, ?, ?)";
+    // Returns the claim as it was before the update, in the same statement
+    private static final String UPDATE_SQL = "SELECT username, email FROM OLD TABLE "
+            + "(UPDATE user_claims SET username = ?, email = ? WHERE user_id = ?)";
+    private static final String RESTORE_SQL = "UPDATE user_claims SET username = ?, email = ? WHERE user_id = ?";
+    private static final String DELETE_SQL = "DELETE FROM user_claims WHERE user_id = ?";
+
+    private static final int RELEASE_CHUNK = 500;
+
+    private record Claim(String username, String email) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * @param jdbcTemplate shard 0, on a pool of its own: claims are written while the caller
+     *                     holds a connection of the user's shard, which may be shard 0
+     */
+    public UserClaims(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Claims a new user's username and email, released again if the creating transaction rolls back.
+     * @throws DuplicateResourceException if another user holds either
+     */
+    public void claim(User user) {
+        insert(user.getId(), user.getUsername(), user.getEmail());
+        afterRollback(() -> release(List.of(user.getId())));
+    }
+
+    /**
+     * Moves a user's claim to its new username and email, restored if the updating transaction rolls back.
+     * @throws DuplicateResourceException if another user holds either
+     */
+    public void update(User user) {
+        List<Claim> previous;
+        try {
+            previous = jdbcTemplate.query(UPDATE_SQL, (rs, row) -> new Claim(rs.getString(1), rs.getString(2)),
+                    user.getUsername(), user.getEmail(), user.getId());
+        } catch (DuplicateKeyException e) {
+            throw duplicate(user.getUsername(), user.getEmail(), e);
+        }
+        if (previous.isEmpty()) {
+            // Claimed before the table existed and missed by the backfill
+            claim(user);
+            return;
+        }
+        Claim claim = previous.get(0);
+        afterRollback(() -> jdbcTemplate.update(RESTORE_SQL, claim.username(), claim.email(), user.getId()));
+    }
+
+    /**
+     * Releases the claims of users that have been removed.
+     */
+    public void release(List<Long> ids) {
+        for (int from = 0; from < ids.size(); from += RELEASE_CHUNK) {
+            List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + RELEASE_CHUNK));
+            jdbcTemplate.batchUpdate(DELETE_SQL, chunk.stream().map(id -> new Object[]{id}).toList());
+        }
+    }
+
+    /**
+     * Claims the usernames and emails of one shard's users that hold no claim yet, such as users
+     * created before the claims table existed. A name already claimed by another user is logged
+     * and left unclaimed.
+     * @param shard the shard's users
+     * @return the number of users claimed
+     */
+    public int backfill(JdbcTemplate shard) {
+        Set<Long> claimed = new HashSet<>(jdbcTemplate.queryForList("SELECT user_id FROM user_claims", Long.class));
+        AtomicInteger added = new AtomicInteger();
+        shard.query("SELECT id, username, email FROM users", rs -> {
+            long id = rs.getLong(1);
+            if (claimed.contains(id)) {
+                return;
+            }
+            try {
+                insert(id, rs.getString(2), rs.getString(3));
+                added.incrementAndGet();
+            } catch (DuplicateResourceException e) {
+                logger.warn("User {} left unclaimed: {}", id, e.getMessage());
+            }
+        });
+        return added.get();
+    }
+
+    private void insert(Long id, String username, String email) {
+        try {
+            jdbcTemplate.update(INSERT_SQL, id, username, email);
+        } catch (DuplicateKeyException e) {
+            throw duplicate(username, email, e);
+        }
+    }
+
+    private static RuntimeException duplicate(String username, String email, DuplicateKeyException e) {
+        String message = String.valueOf(e.getMessage()).toUpperCase(Locale.ROOT);
+        if (message.contains("UK_USER_CLAIMS_EMAIL")) {
+            return new DuplicateResourceException("User", "email", email);
+        }
+        if (message.contains("UK_USER_CLAIMS_USERNAME")) {
+            return new DuplicateResourceException("User", "username", username);
+        }
+        return e;
+    }
+
+    private static void afterRollback(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    action.run();
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,21 @@
+package com.cc.data.demo2springboot.service;
+
+import com.cc.data.demo2springboot.model.UserEvent;
+
+import java.util.List;
+
+/**
+ * In-process subscriber to committed user changes, called by {@link UserEventRelay}.
+ * Delivery is at least once: an event may be delivered again after a failure or restart,
+ * so listeners should compare the event's version with what they already hold.
+ */
+public interface UserEventListener {
+
+    /**
+     * Called from the relay's dispatcher thread with the next batch of events.
+     * Events of one user always arrive in the order they were committed.
+     * A slow listener delays every listener, and an exception is logged and does not
+     * stop the batch from reaching the others.
+     */
+    void onEvents(List<UserEvent> events);
+}
@@ -0,0 +1,62 @@
+package com.cc.data.demo2springboot.service;
+
+import com.cc.data.demo2springboot.model.User;
+import com.cc.data.demo2springboot.model.UserEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * Writes user change events to the user_events outbox.
+ * Appends must join the transaction of the change itself, so an event is committed if and
+ * only if its change is; {@link UserEventRelay} publishes committed events afterwards.
+ * Under sharding the caller's shard binding puts the event on the user's shard.
+ */
+@Component
+public class UserEventOutbox {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO user_events (user_id, type, user_version, occurred_at, payload) VALUES (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    public UserEventOutbox(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Records that a user was created or updated, with its state after the change.
+     * @param user the user as written, including its new version
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void append(UserEvent.Type type, User user) {
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(user);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize user " + user.getId(), e);
+        }
+        insert(user.getId(), type, user.getVersion(), payload);
+    }
+
+    /**
+     * Records that a user was deleted.
+     * @param version the user's version after the deletion, or null if unknown
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void appendDeleted(long userId, Long version) {
+        insert(userId, UserEvent.Type.DELETED, version, null);
+    }
+
+    private void insert(long userId, UserEvent.Type type, Long version, String payload) {
+        jdbcTemplate.update(INSERT_SQL, userId, type.name(), version, Timestamp.valueOf(LocalDateTime.now()), payload);
+    }
+}
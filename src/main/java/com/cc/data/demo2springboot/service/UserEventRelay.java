@@ -0,0 +1,221 @@
+package com.cc.data.demo2springboot.service;
+
+import com.cc.data.demo2springboot.model.UserEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes committed events from the user_events outbox to the {@link UserEventListener} beans.
+ * A scheduled poll reads unpublished events, in id order per shard, into a bounded ring buffer;
+ * a dispatcher thread drains the buffer in batches, hands each batch to every listener and
+ * then marks the events published. An event is marked only after delivery, so a crash or a
+ * failed mark redelivers it. A full buffer stops the poll until the dispatcher catches up,
+ * leaving the backlog in the table rather than in memory. Published events are kept for the
+ * retention period and then deleted.
+ * Published marks are shared by every instance on the database, so with several instances
+ * each event reaches the listeners of whichever instance relays it.
+ */
+@Service
+public class UserEventRelay {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserEventRelay.class);
+
+    private static final String SELECT_SQL = "SELECT id, user_id, type, user_version, occurred_at, payload "
+            + "FROM user_events WHERE published_at IS NULL ORDER BY id LIMIT ?";
+
+    /**
+     * An event in the buffer, with the shard whose outbox holds it.
+     */
+    private record Pending(int shard, UserEvent event) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final UserShards shards;
+    private final ObjectProvider<UserEventListener> listeners;
+    private final ArrayBlockingQueue<Pending> buffer;
+    // Ids read from the outbox but not yet marked published, so a poll does not buffer them twice
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+    private final int batchSize;
+    private final Duration retention;
+
+    private final Counter relayed;
+    private final Counter listenerFailures;
+    private final Timer lag;
+
+    private Thread dispatcher;
+    private volatile boolean running;
+
+    public UserEventRelay(JdbcTemplate jdbcTemplate,
+                          UserShards shards,
+                          ObjectProvider<UserEventListener> listeners,
+                          MeterRegistry meterRegistry,
+                          @Value("${app.events.bufferCapacity:4096}") int bufferCapacity,
+                          @Value("${app.events.batchSize:256}") int batchSize,
+                          @Value("${app.events.retention:PT24H}") Duration retention) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shards = shards;
+        this.listeners = listeners;
+        this.buffer = new ArrayBlockingQueue<>(Math.max(1, bufferCapacity));
+        this.batchSize = Math.max(1, batchSize);
+        this.retention = retention;
+
+        this.relayed = Counter.builder("users.events.relayed")
+                .description("User events delivered to the in-process listeners")
+                .register(meterRegistry);
+        this.listenerFailures = Counter.builder("users.events.listener.failures")
+                .description("Event batches a listener failed to handle")
+                .register(meterRegistry);
+        this.lag = Timer.builder("users.events.lag")
+                .description("Time from a user change to the delivery of its event")
+                .register(meterRegistry);
+        Gauge.builder("users.events.buffered", buffer, ArrayBlockingQueue::size)
+                .description("User events read from the outbox and waiting for delivery")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        dispatcher = new Thread(this::dispatchLoop, "user-events");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        dispatcher.interrupt();
+        dispatcher.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    /**
+     * Moves unpublished events from every shard's outbox into the buffer, as far as it has room.
+     * @return the number of events buffered
+     */
+    @Scheduled(fixedDelayString = "${app.events.pollInterval:PT0.1S}")
+    public int poll() {
+        int room = buffer.remainingCapacity();
+        if (room == 0) {
+            return 0;
+        }
+        // Over-read by the in-flight count, which the query cannot exclude
+        int limit = Math.min(room, batchSize) + inFlight.size();
+        List<List<UserEvent>> perShard = shards.scatter(() -> jdbcTemplate.query(SELECT_SQL, this::mapEvent, limit));
+
+        int buffered = 0;
+        for (int shard = 0; shard < perShard.size(); shard++) {
+            for (UserEvent event : perShard.get(shard)) {
+                if (!inFlight.add(event.id())) {
+                    continue;
+                }
+                if (!buffer.offer(new Pending(shard, event))) {
+                    inFlight.remove(event.id());
+                    return buffered;
+                }
+                buffered++;
+            }
+        }
+        return buffered;
+    }
+
+    /**
+     * Deletes published events older than the retention period.
+     * @return the number of events deleted
+     */
+    @Scheduled(fixedDelayString = "${app.events.purgeInterval:PT1M}")
+    public int purgePublished() {
+        Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minus(retention));
+        return shards.scatter(() -> jdbcTemplate.update("DELETE FROM user_events WHERE published_at < ?", cutoff))
+                .stream().mapToInt(Integer::intValue).sum();
+    }
+
+    private void dispatchLoop() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                Pending first = buffer.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                buffer.drainTo(batch, batchSize - 1);
+                deliver(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // Not marked published: release the events so the next poll reads them again
+                logger.warn("Could not mark {} user events published", batch.size(), e);
+                batch.forEach(pending -> inFlight.remove(pending.event().id()));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void deliver(List<Pending> batch) {
+        List<UserEvent> events = batch.stream().map(Pending::event).toList();
+        listeners.orderedStream().forEach(listener -> {
+            try {
+                listener.onEvents(events);
+            } catch (RuntimeException e) {
+                listenerFailures.increment();
+                logger.warn("User event listener {} failed on {} events", listener, events.size(), e);
+            }
+        });
+
+        markPublished(batch);
+        batch.forEach(pending -> inFlight.remove(pending.event().id()));
+        relayed.increment(events.size());
+        LocalDateTime now = LocalDateTime.now();
+        events.forEach(event -> lag.record(Duration.between(event.occurredAt(), now)));
+    }
+
+    private void markPublished(List<Pending> batch) {
+        Map<Integer, List<Object>> idsByShard = new LinkedHashMap<>();
+        for (Pending pending : batch) {
+            idsByShard.computeIfAbsent(pending.shard(), shard -> new ArrayList<>()).add(pending.event().id());
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        idsByShard.forEach((shard, ids) -> {
+            String placeholders = String.join(",", Collections.nCopies(ids.size(), "?"));
+            List<Object> args = new ArrayList<>(ids.size() + 1);
+            args.add(now);
+            args.addAll(ids);
+            shards.on(shard, () -> jdbcTemplate.update(
+                    "UPDATE user_events SET published_at = ? WHERE id IN (" + placeholders + ")", args.toArray()));
+        });
+    }
+
+    private UserEvent mapEvent(ResultSet rs, int row) throws SQLException {
+        return new UserEvent(rs.getLong("id"), rs.getLong("user_id"), UserEvent.Type.valueOf(rs.getString("type")),
+                rs.getObject("user_version", Long.class), rs.getTimestamp("occurred_at").toLocalDateTime(),
+                rs.getString("payload"));
+    }
+}
@@ -0,0 +1,178 @@
+package com.cc.data.demo2springboot.service;
+
+import com.cc.data.demo2springboot.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Background purger for soft-deleted users.
+ * Deleting a user only stamps deleted_at; this service removes those tombstones in
+ * bounded batches on a schedule, and skips or stops a run while the process is busy
+ * so the physical deletes stay off the request path and out of peak load.
+ * Shards are purged one after another, sharing the per-run batch budget. A purged user's
+ * username and email claims are released with it (see {@link UserClaims}).
+ */
+@Service
+@ConditionalOnProperty(prefix = "app.user.purge", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class UserPurgeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserPurgeService.class);
+
+    private final UserRepository userRepository;
+    private final UserShards shards;
+    // Null unless sharded
+    private final UserClaims claims;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final Duration retention;
+    private final double maxCpuLoad;
+
+    private final Counter purgedCounter;
+    private final Counter completedRuns;
+    private final Counter skippedRuns;
+    private final Timer batchTimer;
+    private final AtomicLong backlog = new AtomicLong();
+
+    private DoubleSupplier cpuLoad = UserPurgeService::processCpuLoad;
+
+    @Autowired
+    public UserPurgeService(UserRepository userRepository,
+                            UserShards shards,
+                            ObjectProvider<UserClaims> claims,
+                            MeterRegistry meterRegistry,
+                            @Value("${app.user.purge.batchSize:500}") int batchSize,
+                            @Value("${app.user.purge.maxBatchesPerRun:20}") int maxBatchesPerRun,
+                            @Value("${app.user.purge.retention:PT0S}") Duration retention,
+                            @Value("${app.user.purge.maxCpuLoad:0.5}") double maxCpuLoad) {
+        this(userRepository, shards, claims.getIfAvailable(), meterRegistry, batchSize, maxBatchesPerRun,
+                retention, maxCpuLoad);
+    }
+
+    UserPurgeService(UserRepository userRepository, UserShards shards, UserClaims claims,
+                     MeterRegistry meterRegistry, int batchSize, int maxBatchesPerRun,
+                     Duration retention, double maxCpuLoad) {
+        this.userRepository = userRepository;
+        this.shards = shards;
+        this.claims = claims;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxBatchesPerRun = Math.max(1, maxBatchesPerRun);
+        this.retention = retention;
+        this.maxCpuLoad = maxCpuLoad;
+
+        this.purgedCounter = Counter.builder("users.purge.deleted")
+                .description("Soft-deleted users physically removed")
+                .register(meterRegistry);
+        this.completedRuns = Counter.builder("users.purge.runs")
+                .tag("outcome", "completed")
+                .register(meterRegistry);
+        this.skippedRuns = Counter.builder("users.purge.runs")
+                .tag("outcome", "skipped")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("users.purge.batch")
+                .description("Time to remove one batch of tombstones")
+                .register(meterRegistry);
+        Gauge.builder("users.purge.backlog", backlog, AtomicLong::get)
+                .description("Soft-deleted users waiting to be purged")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Scheduled entry point.
+     */
+    @Scheduled(initialDelayString = "${app.user.purge.initialDelay:PT1M}",
+               fixedDelayString = "${app.user.purge.interval:PT1M}")
+    public void scheduledPurge() {
+        purgeTombstones();
+    }
+
+    /**
+     * Removes up to maxBatchesPerRun batches of tombstones older than the retention period.
+     * @return the number of users removed
+     */
+    public int purgeTombstones() {
+        if (isBusy()) {
+            skippedRuns.increment();
+            backlog.set(countTombstones());
+            logger.debug("Skipping tombstone purge: process CPU load above {}", maxCpuLoad);
+            return 0;
+        }
+
+        LocalDateTime cutoff = LocalDateTime.now().minus(retention);
+        int total = 0;
+        int batches = 0;
+        shardLoop:
+        for (int shard = 0; shard < shards.count(); shard++) {
+            int target = shard;
+            while (batches < maxBatchesPerRun) {
+                List<Long> ids = shards.on(target, () -> userRepository.findTombstoneIds(cutoff, batchSize));
+                if (ids.isEmpty()) {
+                    break;
+                }
+                batches++;
+                int removed = shards.on(target, () -> batchTimer.record(() -> userRepository.purgeTombstones(ids)));
+                if (claims != null) {
+                    claims.release(ids);
+                }
+                purgedCounter.increment(removed);
+                total += removed;
+                if (isBusy()) {
+                    break shardLoop;
+                }
+                if (ids.size() < batchSize) {
+                    break;
+                }
+            }
+        }
+        completedRuns.increment();
+        backlog.set(countTombstones());
+
+        if (total > 0) {
+            logger.info("Purged {} soft-deleted users, {} remaining", total, backlog.get());
+        }
+        return total;
+    }
+
+    /**
+     * @return the number of tombstones seen at the end of the last run
+     */
+    public long getBacklog() {
+        return backlog.get();
+    }
+
+    private long countTombstones() {
+        return shards.scatter(userRepository::countTombstones).stream().mapToLong(Long::longValue).sum();
+    }
+
+    void setCpuLoad(DoubleSupplier cpuLoad) {
+        this.cpuLoad = cpuLoad;
+    }
+
+    private boolean isBusy() {
+        double load = cpuLoad.getAsDouble();
+        return load >= 0 && load > maxCpuLoad;
+    }
+
+    private static double processCpuLoad() {
+        if (ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.OperatingSystemMXBean os) {
+            return os.getProcessCpuLoad();
+        }
+        return -1;
+    }
+}
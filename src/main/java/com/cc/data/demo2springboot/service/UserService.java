@@ -1,35 +1,109 @@
 package com.cc.data.demo2springboot.service;
 
+import com.cc.data.demo2springboot.dto.BatchItemResult;
+import com.cc.data.demo2springboot.exception.DuplicateResourceException;
+import com.cc.data.demo2springboot.exception.PreconditionFailedException;
+import com.cc.data.demo2springboot.exception.ResourceNotFoundException;
 import com.cc.data.demo2springboot.model.User;
+import com.cc.data.demo2springboot.model.UserEvent;
 import com.cc.data.demo2springboot.repository.UserRepository;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
 
 /**
  * Service class for managing User entities.
+ * Single-user operations run on the user's shard; listings scatter to every shard and
+ * merge the results (see {@link UserShards}). When sharded, usernames and emails are also
+ * claimed across shards (see {@link UserClaims}). Every change also appends an event to the
+ * outbox in the same transaction (see {@link UserEventOutbox}). Identical concurrent reads
+ * share one query (see {@link ReadCoalescer}); every write tells it when it has committed.
+ * Each public method is timed into {@code users.service}, tagged with the method and any exception.
  */
 @Service
+@Timed(value = "users.service", description = "Time spent in UserService, by method", histogram = true)
 public class UserService {
 
     private final UserRepository userRepository;
+    private final UserUniquenessIndex uniquenessIndex;
+    private final UserShards shards;
+    private final UserEventOutbox events;
+    private final TransactionOperations transactions;
+    private final ReadCoalescer reads;
+    // Null unless sharded
+    private final UserClaims claims;
+    // Whether full listings are answered from the query cache rather than scanned
+    private final boolean cachedListings;
 
     @Autowired
-    public UserService(UserRepository userRepository) {
+    public UserService(UserRepository userRepository, UserUniquenessIndex uniquenessIndex, UserShards shards,
+                       UserEventOutbox events, TransactionOperations transactions, ReadCoalescer reads,
+                       ObjectProvider<UserClaims> claims, EntityManagerFactory entityManagerFactory) {
+        this(userRepository, uniquenessIndex, shards, events, transactions, reads, claims.getIfAvailable(),
+                entityManagerFactory.unwrap(SessionFactoryImplementor.class).getSessionFactoryOptions()
+                        .isQueryCacheEnabled());
+    }
+
+    UserService(UserRepository userRepository, UserUniquenessIndex uniquenessIndex, UserShards shards,
+                UserEventOutbox events, TransactionOperations transactions, ReadCoalescer reads,
+                UserClaims claims, boolean cachedListings) {
         this.userRepository = userRepository;
+        this.uniquenessIndex = uniquenessIndex;
+        this.shards = shards;
+        this.events = events;
+        this.transactions = transactions;
+        this.reads = reads;
+        this.claims = claims;
+        this.cachedListings = cachedListings;
     }
 
     /**
-     * Get all users
+     * Get all users.
+     * Served from the query cache when it is on; otherwise read through a stateless scan, so the
+     * full table is never held in a persistence context or pushed through the entity cache.
      * @return list of all users
      */
     public List<User> getAllUsers() {
-        return userRepository.findAll();
+        return reads.read("users", this::findAllUsers);
+    }
+
+    private List<User> findAllUsers() {
+        if (cachedListings) {
+            return userRepository.findAll();
+        }
+        if (!shards.isSharded()) {
+            return userRepository.scanAll();
+        }
+        List<User> users = new ArrayList<>();
+        shards.scatter(userRepository::scanAll).forEach(users::addAll);
+        users.sort(Comparator.comparing(User::getId));
+        return users;
     }
 
     /**
@@ -38,7 +112,46 @@ public class UserService {
      * @return page of users
      */
     public Page<User> getAllUsers(Pageable pageable) {
-        return userRepository.findAll(pageable);
+        return reads.read(List.of("users", pageable), () -> findAllUsers(pageable));
+    }
+
+    private Page<User> findAllUsers(Pageable pageable) {
+        if (!shards.isSharded()) {
+            return userRepository.findAll(pageable);
+        }
+
+        // Every shard returns its first (page + 1) * size rows in the requested order; the
+        // merged page is a slice of their merge. Ties, and unsorted requests, fall back to id.
+        Sort sort = pageable.getSort().and(Sort.by("id"));
+        int window = Math.toIntExact((long) (pageable.getPageNumber() + 1) * pageable.getPageSize());
+        PageRequest shardRequest = PageRequest.of(0, window, sort);
+        List<Page<User>> shardPages = shards.scatter(() -> userRepository.findAll(shardRequest));
+
+        Comparator<User> order = comparatorFor(sort);
+        PriorityQueue<PeekingIterator> heads = new PriorityQueue<>((a, b) -> order.compare(a.peek(), b.peek()));
+        long total = 0;
+        for (Page<User> shardPage : shardPages) {
+            total += shardPage.getTotalElements();
+            if (shardPage.hasContent()) {
+                heads.add(new PeekingIterator(shardPage.getContent()));
+            }
+        }
+
+        List<User> content = new ArrayList<>(pageable.getPageSize());
+        long skip = pageable.getOffset();
+        while (!heads.isEmpty() && content.size() < pageable.getPageSize()) {
+            PeekingIterator head = heads.poll();
+            User next = head.next();
+            if (skip > 0) {
+                skip--;
+            } else {
+                content.add(next);
+            }
+            if (head.hasNext()) {
+                heads.add(head);
+            }
+        }
+        return new PageImpl<>(content, pageable, total);
     }
 
     /**
@@ -47,22 +160,82 @@ public class UserService {
      * @return Optional containing the user if found
      */
     public Optional<User> getUserById(Long id) {
-        return userRepository.findById(id);
+        return reads.read(List.of("user", id), () -> shards.on(shards.shardOf(id), () -> userRepository.findById(id)));
     }
 
     /**
      * Create a new user
      * @param user user to create
      * @return the created user
+     * @throws DuplicateResourceException if the username or email is already taken
      * @throws NullPointerException if user is null
      */
+    @Transactional
     public User createUser(User user) {
         // Ensure the user is not null
         Objects.requireNonNull(user, "User cannot be null");
 
+        // Reject duplicates before the insert rather than waiting for the constraint violation
+        if (uniquenessIndex.usernameTaken(user.getUsername())) {
+            throw new DuplicateResourceException("User", "username", user.getUsername());
+        }
+        if (uniquenessIndex.emailTaken(user.getEmail())) {
+            throw new DuplicateResourceException("User", "email", user.getEmail());
+        }
+
         // In a real application, you would validate the user data here
         // and potentially hash passwords if they're included
-        return userRepository.save(user);
+        afterCommit(reads::writeCommitted);
+        User savedUser;
+        try {
+            savedUser = shards.on(shards.shardFor(user.getUsername()), () -> {
+                User created = userRepository.save(user);
+                if (claims != null) {
+                    claims.claim(created);
+                }
+                events.append(UserEvent.Type.CREATED, created);
+                return created;
+            });
+        } catch (DataIntegrityViolationException e) {
+            // A "definitely new" answer from the filter skips the exists query, so a concurrent
+            // create, or one by another instance, surfaces here
+            throw duplicate(user, e);
+        }
+        uniquenessIndex.record(savedUser);
+        return savedUser;
+    }
+
+    /**
+     * Find the rows of a batch that would violate username or email uniqueness,
+     * either against existing users or against an earlier row of the same batch.
+     * Nothing is written, so a batch can be rejected before any insert runs.
+     * @param users users about to be created
+     * @return one 409 result per conflicting row; empty if the batch is clean
+     */
+    public List<BatchItemResult> findDuplicates(List<User> users) {
+        List<BatchItemResult> conflicts = new ArrayList<>();
+        Set<String> batchUsernames = new HashSet<>();
+        Set<String> batchEmails = new HashSet<>();
+        for (int i = 0; i < users.size(); i++) {
+            User user = users.get(i);
+            if (user == null) {
+                continue;
+            }
+            String reason = null;
+            if (user.getUsername() != null && !batchUsernames.add(user.getUsername())) {
+                reason = "Duplicate username '" + user.getUsername() + "' within batch";
+            } else if (user.getEmail() != null && !batchEmails.add(user.getEmail())) {
+                reason = "Duplicate email '" + user.getEmail() + "' within batch";
+            } else if (uniquenessIndex.usernameTaken(user.getUsername())) {
+                reason = new DuplicateResourceException("User", "username", user.getUsername()).getMessage();
+            } else if (uniquenessIndex.emailTaken(user.getEmail())) {
+                reason = new DuplicateResourceException("User", "email", user.getEmail()).getMessage();
+            }
+            if (reason != null) {
+                conflicts.add(new BatchItemResult(i, null, HttpStatus.CONFLICT.value(), null, reason));
+            }
+        }
+        return conflicts;
     }
 
     /**
@@ -70,34 +243,274 @@ public class UserService {
      * @param id user ID
      * @param userDetails updated user details
      * @return the updated user
-     * @throws RuntimeException if the user is not found
+     * @throws ResourceNotFoundException if the user is not found
+     * @throws DuplicateResourceException if the new username or email is already taken
      * @throws NullPointerException if userDetails is null
      */
+    @Transactional
     public User updateUser(Long id, User userDetails) {
         // Ensure userDetails is not null
         Objects.requireNonNull(userDetails, "User details cannot be null");
 
-        return userRepository.findById(id).map(existingUser -> {
+        int shard = shards.shardOf(id);
+        User existingUser = shards.on(shard, () -> userRepository.findById(id))
+                .orElseThrow(() -> new ResourceNotFoundException("User", "id", id));
+        boolean renamed = checkChanges(existingUser, userDetails);
+        afterCommit(reads::writeCommitted);
+        return shards.on(shard, () -> {
             // Update fields from userDetails
             existingUser.setUsername(userDetails.getUsername());
             existingUser.setEmail(userDetails.getEmail());
             existingUser.setFullName(userDetails.getFullName());
             existingUser.setActive(userDetails.isActive());
 
-            // Save and return the updated user
-            return userRepository.save(existingUser);
-        }).orElseThrow(() -> new RuntimeException("User not found with id " + id));
+            // Flush so the event carries the incremented version
+            User savedUser;
+            try {
+                savedUser = userRepository.saveAndFlush(existingUser);
+            } catch (DataIntegrityViolationException e) {
+                throw duplicate(userDetails, e);
+            }
+            if (renamed && claims != null) {
+                claims.update(savedUser);
+            }
+            events.append(UserEvent.Type.UPDATED, savedUser);
+            uniquenessIndex.record(savedUser);
+            return savedUser;
+        });
+    }
+
+    /**
+     * Update an existing user only if it is still at the expected version.
+     * The version comparison is part of the UPDATE statement, so no read or lock
+     * is taken before writing; the user is read back afterwards to return it.
+     * Only this user is evicted from the second-level cache.
+     * @param id user ID
+     * @param userDetails updated user details
+     * @param expectedVersion the version the caller last saw
+     * @return the updated user
+     * @throws PreconditionFailedException if the user has been modified since expectedVersion
+     * @throws ResourceNotFoundException if the user is not found
+     * @throws DuplicateResourceException if the new username or email is already taken
+     * @throws NullPointerException if userDetails is null
+     */
+    @Transactional
+    public User updateUser(Long id, User userDetails, long expectedVersion) {
+        Objects.requireNonNull(userDetails, "User details cannot be null");
+
+        LocalDateTime updatedAt = userDetails.getUpdatedAt() != null
+                ? userDetails.getUpdatedAt() : LocalDateTime.now();
+        afterCommit(reads::writeCommitted);
+        return shards.on(shards.shardOf(id), () -> {
+            int updated;
+            try {
+                updated = userRepository.updateIfVersionMatches(id, expectedVersion,
+                        userDetails.getUsername(), userDetails.getEmail(), userDetails.getFullName(),
+                        userDetails.isActive(), updatedAt);
+            } catch (DataIntegrityViolationException e) {
+                throw duplicate(userDetails, e);
+            }
+            if (updated == 0) {
+                throw conflictOrNotFound(id, expectedVersion);
+            }
+
+            User savedUser = userRepository.findById(id)
+                    .orElseThrow(() -> new ResourceNotFoundException("User", "id", id));
+            if (claims != null) {
+                claims.update(savedUser);
+            }
+            events.append(UserEvent.Type.UPDATED, savedUser);
+            uniquenessIndex.record(savedUser);
+            return savedUser;
+        });
+    }
+
+    /**
+     * Update several users, each guarded by the version it carries.
+     * Rows are applied in separate transactions so one conflict does not roll back the others.
+     * A stale version is reported as 412, a missing user as 404, and a taken username or email
+     * as 409; any other failure aborts the batch, leaving earlier rows applied.
+     * @param users users to update; each must carry its id and version
+     * @return one result per input row, in input order
+     */
+    public List<BatchItemResult> updateUsers(List<User> users) {
+        List<BatchItemResult> results = new ArrayList<>(users.size());
+        for (int i = 0; i < users.size(); i++) {
+            User user = users.get(i);
+            if (user == null || user.getId() == null || user.getVersion() == null) {
+                results.add(new BatchItemResult(i, user != null ? user.getId() : null,
+                        HttpStatus.BAD_REQUEST.value(), null, "id and version are required"));
+                continue;
+            }
+            try {
+                User updated = transactions.execute(status -> updateUser(user.getId(), user, user.getVersion()));
+                results.add(new BatchItemResult(i, updated.getId(), HttpStatus.OK.value(),
+                        updated.getVersion(), null));
+            } catch (PreconditionFailedException e) {
+                results.add(new BatchItemResult(i, user.getId(), HttpStatus.PRECONDITION_FAILED.value(),
+                        null, e.getMessage()));
+            } catch (ResourceNotFoundException e) {
+                results.add(new BatchItemResult(i, user.getId(), HttpStatus.NOT_FOUND.value(),
+                        null, e.getMessage()));
+            } catch (DuplicateResourceException e) {
+                results.add(new BatchItemResult(i, user.getId(), HttpStatus.CONFLICT.value(),
+                        null, e.getMessage()));
+            }
+        }
+        return results;
     }
 
     /**
-     * Delete a user
+     * Delete a user.
+     * The user is soft-deleted with a single-column update and hidden from all reads;
+     * the row is physically removed later by {@link UserPurgeService}.
      * @param id user ID
-     * @throws RuntimeException if the user is not found
+     * @throws ResourceNotFoundException if the user is not found
      */
+    @Transactional
     public void deleteUser(Long id) {
-        if (!userRepository.existsById(id)) {
-            throw new RuntimeException("User not found with id " + id);
+        afterCommit(reads::writeCommitted);
+        int deleted = shards.on(shards.shardOf(id), () -> {
+            int marked = userRepository.softDeleteById(id, LocalDateTime.now());
+            if (marked > 0) {
+                events.appendDeleted(id, null);
+            }
+            return marked;
+        });
+        if (deleted == 0) {
+            throw new ResourceNotFoundException("User", "id", id);
+        }
+    }
+
+    /**
+     * Delete a user only if it is still at the expected version
+     * @param id user ID
+     * @param expectedVersion the version the caller last saw
+     * @throws PreconditionFailedException if the user has been modified since expectedVersion
+     * @throws ResourceNotFoundException if the user is not found
+     */
+    @Transactional
+    public void deleteUser(Long id, long expectedVersion) {
+        afterCommit(reads::writeCommitted);
+        shards.on(shards.shardOf(id), () -> {
+            if (userRepository.softDeleteIfVersionMatches(id, expectedVersion, LocalDateTime.now()) == 0) {
+                throw conflictOrNotFound(id, expectedVersion);
+            }
+            events.appendDeleted(id, expectedVersion + 1);
+            return null;
+        });
+    }
+
+    /**
+     * Rejects a new username or email that another user already holds, before the write.
+     * Runs outside the shard binding so the exists queries reach every shard. Across shards the
+     * claims taken with the write are what settles a race this check misses.
+     * @return whether the username or email changes
+     */
+    private boolean checkChanges(User existingUser, User userDetails) {
+        String username = userDetails.getUsername();
+        boolean usernameChanged = !Objects.equals(username, existingUser.getUsername());
+        if (usernameChanged && uniquenessIndex.usernameTaken(username)) {
+            throw new DuplicateResourceException("User", "username", username);
+        }
+        String email = userDetails.getEmail();
+        boolean emailChanged = !Objects.equals(email, existingUser.getEmail());
+        if (emailChanged && uniquenessIndex.emailTaken(email)) {
+            throw new DuplicateResourceException("User", "email", email);
+        }
+        return usernameChanged || emailChanged;
+    }
+
+    /**
+     * Runs action once the current transaction commits, or straight away outside one.
+     */
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * A conditional write touched no rows: tell a stale version apart from a missing user.
+     * This lookup only runs on the failure path.
+     */
+    private RuntimeException conflictOrNotFound(Long id, long expectedVersion) {
+        if (userRepository.existsById(id)) {
+            return new PreconditionFailedException("User", id, expectedVersion);
+        }
+        return new ResourceNotFoundException("User", "id", id);
+    }
+
+    /**
+     * A unique key violation that slipped past the pre-check, from a concurrent write, as a
+     * duplicate; any other integrity violation is returned unchanged.
+     */
+    private static RuntimeException duplicate(User user, DataIntegrityViolationException e) {
+        String message = String.valueOf(e.getMessage()).toUpperCase(Locale.ROOT);
+        if (message.contains("UK_USERS_EMAIL")) {
+            return new DuplicateResourceException("User", "email", user.getEmail());
+        }
+        if (message.contains("UK_USERS_USERNAME")) {
+            return new DuplicateResourceException("User", "username", user.getUsername());
+        }
+        return e;
+    }
+
+    /**
+     * Orders users the way the database would for the given sort, for merging shard results.
+     */
+    private static Comparator<User> comparatorFor(Sort sort) {
+        Comparator<User> comparator = (a, b) -> 0;
+        for (Sort.Order order : sort) {
+            Comparator<User> byProperty = (a, b) -> compareValues(
+                    new BeanWrapperImpl(a).getPropertyValue(order.getProperty()),
+                    new BeanWrapperImpl(b).getPropertyValue(order.getProperty()),
+                    order.isIgnoreCase());
+            comparator = comparator.thenComparing(order.isAscending() ? byProperty : byProperty.reversed());
+        }
+        return comparator;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int compareValues(Object a, Object b, boolean ignoreCase) {
+        if (a == null || b == null) {
+            // Nulls sort first, as H2 does by default
+            return a == null ? (b == null ? 0 : -1) : 1;
+        }
+        if (ignoreCase && a instanceof String left && b instanceof String right) {
+            return left.compareToIgnoreCase(right);
+        }
+        return ((Comparable) a).compareTo(b);
+    }
+
+    /**
+     * Iterator over one shard's rows that exposes its next row for the merge.
+     */
+    private static final class PeekingIterator {
+        private final List<User> rows;
+        private int position;
+
+        PeekingIterator(List<User> rows) {
+            this.rows = rows;
+        }
+
+        User peek() {
+            return rows.get(position);
+        }
+
+        User next() {
+            return rows.get(position++);
+        }
+
+        boolean hasNext() {
+            return position < rows.size();
         }
-        userRepository.deleteById(id);
     }
 }
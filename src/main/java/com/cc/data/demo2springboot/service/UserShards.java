@@ -0,0 +1,173 @@
+package com.cc.data.demo2springboot.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Placement of users across hash shards, and the thread binding that routes their queries.
+ * Shard i hands out ids i+1, i+1+N, i+1+2N, ... so a user's shard follows from its id alone.
+ * New users are placed by a hash of their username, which spreads them evenly; users never
+ * move, and a renamed user stays where its id says. Usernames and emails are unique across
+ * shards through {@link UserClaims}.
+ * Work passed to {@link #on} runs with its shard bound to the thread; the sharded datasource
+ * routes connections by that binding. {@link #scatter} runs work on every shard in parallel.
+ * With a single shard (the default) work runs inline on the caller's thread and the
+ * binding is never read. In the virtual thread mode each scatter task gets its own virtual
+ * thread, so concurrent scatters no longer queue behind a pool of one thread per shard.
+ */
+@Component
+public class UserShards {
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private final int count;
+    private final ExecutorService executor;
+
+    @Autowired
+    public UserShards(@Value("${app.sharding.urls:}") String[] urls,
+                      @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this((int) Math.max(1, Arrays.stream(urls).filter(url -> !url.isBlank()).count()), virtualThreads);
+    }
+
+    private UserShards(int count, boolean virtualThreads) {
+        this.count = count;
+        if (count > 1 && virtualThreads) {
+            this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("user-shard-", 1).factory());
+        } else if (count > 1) {
+            AtomicInteger threads = new AtomicInteger();
+            this.executor = Executors.newFixedThreadPool(count, runnable -> {
+                Thread thread = new Thread(runnable, "user-shard-" + threads.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            this.executor = null;
+        }
+    }
+
+    /**
+     * @return placement for an unsharded deployment
+     */
+    public static UserShards single() {
+        return new UserShards(1, false);
+    }
+
+    /**
+     * @return the shard bound to the current thread, or null outside shard-routed work
+     */
+    public static Integer current() {
+        return CURRENT.get();
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public boolean isSharded() {
+        return count > 1;
+    }
+
+    /**
+     * @return the shard holding the user with this id
+     */
+    public int shardOf(long id) {
+        return Math.floorMod(id - 1, count);
+    }
+
+    /**
+     * @return the shard a new user with this username is placed on
+     */
+    public int shardFor(String username) {
+        if (username == null) {
+            return 0;
+        }
+        // Spread the low bits: String.hashCode clusters for similar names
+        int hash = username.hashCode() * 0x9E3779B9;
+        return Math.floorMod(hash ^ (hash >>> 16), count);
+    }
+
+    /**
+     * Runs work with the given shard bound to the current thread.
+     */
+    public <T> T on(int shard, Supplier<T> work) {
+        if (!isSharded()) {
+            return work.get();
+        }
+        Integer previous = CURRENT.get();
+        CURRENT.set(shard);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Runs work once per shard, in parallel, and gathers the results.
+     * Each shard's work runs on its own thread and so outside any transaction of the caller.
+     * @return the results in shard order
+     * @throws RuntimeException the first failure, after every shard has finished
+     */
+    public <T> List<T> scatter(Supplier<T> work) {
+        if (!isSharded()) {
+            return Collections.singletonList(work.get());
+        }
+        if (CURRENT.get() != null) {
+            // Already on a shard thread: fan out sequentially rather than wait on our own pool
+            List<T> results = new ArrayList<>(count);
+            for (int shard = 0; shard < count; shard++) {
+                results.add(on(shard, work));
+            }
+            return results;
+        }
+
+        List<Future<T>> futures = new ArrayList<>(count);
+        for (int shard = 0; shard < count; shard++) {
+            int target = shard;
+            futures.add(executor.submit(() -> on(target, work)));
+        }
+        List<T> results = new ArrayList<>(count);
+        RuntimeException failure = null;
+        for (Future<T> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof RuntimeException runtime
+                            ? runtime : new IllegalStateException(e.getCause());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for shards", e);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return results;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.cc.data.demo2springboot.service;
+
+import com.cc.data.demo2springboot.config.UserConfig;
+import com.cc.data.demo2springboot.model.User;
+import com.cc.data.demo2springboot.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * In-memory pre-check for the unique username and email columns.
+ * A Bloom filter answers "definitely new" without touching the database; only a
+ * possible hit is confirmed with an exists query. The filter is seeded from the
+ * table at startup and fed by UserService on every create and update; users written
+ * while a seed is scanning are replayed into the new filters, so none is missed.
+ * A username or email may live on any shard, so both the seed and the exists
+ * queries ask every shard.
+ * Users created by another instance sharing the database never reach this filter;
+ * their duplicates are caught by the unique constraints instead.
+ */
+@Component
+public class UserUniquenessIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserUniquenessIndex.class);
+
+    private final UserRepository userRepository;
+    private final UserConfig userConfig;
+    private final UserShards shards;
+
+    private volatile BloomFilter usernames;
+    private volatile BloomFilter emails;
+    private volatile boolean seeded;
+
+    // Users recorded while a seed is running, replayed into its filters before they are
+    // published; null when no seed is running. The first seed is pending from the start
+    private final Object seedLock = new Object();
+    private List<User> recordedDuringSeed = new ArrayList<>();
+    private volatile boolean seeding = true;
+
+    public UserUniquenessIndex(UserRepository userRepository, UserConfig userConfig, UserShards shards) {
+        this.userRepository = userRepository;
+        this.userConfig = userConfig;
+        this.shards = shards;
+    }
+
+    /**
+     * Loads all existing usernames and emails into fresh filters.
+     * Until this has run every lookup falls through to the database.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        synchronized (seedLock) {
+            if (recordedDuringSeed == null) {
+                recordedDuringSeed = new ArrayList<>();
+                seeding = true;
+            }
+        }
+        List<String> existingUsernames = new ArrayList<>();
+        List<String> existingEmails = new ArrayList<>();
+        shards.scatter(userRepository::findAllUsernames).forEach(existingUsernames::addAll);
+        shards.scatter(userRepository::findAllEmails).forEach(existingEmails::addAll);
+
+        long capacity = Math.max(userConfig.getUniquenessExpectedInsertions(), 2L * existingUsernames.size());
+        BloomFilter newUsernames = new BloomFilter(capacity, userConfig.getUniquenessFalsePositiveRate());
+        BloomFilter newEmails = new BloomFilter(capacity, userConfig.getUniquenessFalsePositiveRate());
+        existingUsernames.forEach(newUsernames::put);
+        existingEmails.forEach(newEmails::put);
+
+        synchronized (seedLock) {
+            recordedDuringSeed.forEach(user -> put(newUsernames, newEmails, user));
+            recordedDuringSeed = null;
+            this.usernames = newUsernames;
+            this.emails = newEmails;
+            this.seeded = true;
+            this.seeding = false;
+        }
+        logger.info("Seeded uniqueness index with {} usernames and {} emails (capacity {})",
+                existingUsernames.size(), existingEmails.size(), capacity);
+    }
+
+    /**
+     * @return true if a user with this username exists
+     */
+    public boolean usernameTaken(String username) {
+        if (!usernameMightBeTaken(username)) {
+            return false;
+        }
+        return shards.scatter(() -> userRepository.existsByUsername(username)).contains(true);
+    }
+
+    /**
+     * @return true if a user with this email exists
+     */
+    public boolean emailTaken(String email) {
+        if (!emailMightBeTaken(email)) {
+            return false;
+        }
+        return shards.scatter(() -> userRepository.existsByEmail(email)).contains(true);
+    }
+
+    /**
+     * The filter's answer alone, for callers that confirm a possible hit with their own query.
+     * @return false if no user with this username exists; true if one may exist
+     */
+    public boolean usernameMightBeTaken(String username) {
+        return username != null && (!seeded || usernames.mightContain(username));
+    }
+
+    /**
+     * The filter's answer alone, for callers that confirm a possible hit with their own query.
+     * @return false if no user with this email exists; true if one may exist
+     */
+    public boolean emailMightBeTaken(String email) {
+        return email != null && (!seeded || emails.mightContain(email));
+    }
+
+    /**
+     * Records the username and email of a user that has just been written.
+     */
+    public void record(User user) {
+        if (user == null) {
+            return;
+        }
+        if (seeding) {
+            synchronized (seedLock) {
+                if (recordedDuringSeed != null) {
+                    recordedDuringSeed.add(user);
+                }
+            }
+        }
+        if (seeded) {
+            put(usernames, emails, user);
+        }
+    }
+
+    private static void put(BloomFilter usernames, BloomFilter emails, User user) {
+        if (user.getUsername() != null) {
+            usernames.put(user.getUsername());
+        }
+        if (user.getEmail() != null) {
+            emails.put(user.getEmail());
+        }
+    }
+}
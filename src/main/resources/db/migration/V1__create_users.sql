@@ -0,0 +1,16 @@
+-- Users table as previously generated by Hibernate from the User entity
+CREATE TABLE users (
+    id           BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    username     VARCHAR(255) NOT NULL,
+    email        VARCHAR(255) NOT NULL,
+    full_name    VARCHAR(255),
+    created_at   TIMESTAMP(6),
+    updated_at   TIMESTAMP(6),
+    active       BOOLEAN      NOT NULL,
+    last_seen_at TIMESTAMP(6),
+    version      BIGINT,
+    deleted_at   TIMESTAMP(6),
+    CONSTRAINT pk_users PRIMARY KEY (id),
+    CONSTRAINT uk_users_username UNIQUE (username),
+    CONSTRAINT uk_users_email UNIQUE (email)
+);
@@ -0,0 +1,7 @@
+-- Username and email are already indexed by their unique constraints (V1)
+-- Sort keys of the user listing
+CREATE INDEX idx_users_active ON users (active);
+CREATE INDEX idx_users_created_at ON users (created_at);
+CREATE INDEX idx_users_updated_at ON users (updated_at);
+-- Tombstone scan of the background purge
+CREATE INDEX idx_users_deleted_at ON users (deleted_at);
@@ -0,0 +1,13 @@
+-- Outbox of user changes, written in the same transaction as the change and relayed in the background
+CREATE TABLE user_events (
+    id           BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    user_id      BIGINT       NOT NULL,
+    type         VARCHAR(16)  NOT NULL,
+    user_version BIGINT,
+    occurred_at  TIMESTAMP(6) NOT NULL,
+    payload      VARCHAR(4096),
+    published_at TIMESTAMP(6),
+    CONSTRAINT pk_user_events PRIMARY KEY (id)
+);
+-- Unpublished events for the relay, old published ones for the retention purge
+CREATE INDEX idx_user_events_published_at ON user_events (published_at, id);
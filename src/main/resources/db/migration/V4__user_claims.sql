@@ -0,0 +1,10 @@
+-- Usernames and emails held by users on any shard. Only shard 0's copy is used, and only when sharded:
+-- a unique constraint on users sees just its own shard
+CREATE TABLE user_claims (
+    user_id  BIGINT       NOT NULL,
+    username VARCHAR(255) NOT NULL,
+    email    VARCHAR(255) NOT NULL,
+    CONSTRAINT pk_user_claims PRIMARY KEY (user_id),
+    CONSTRAINT uk_user_claims_username UNIQUE (username),
+    CONSTRAINT uk_user_claims_email UNIQUE (email)
+);
@@ -0,0 +1,212 @@
+package com.cc.data.demo2springboot.config;
+
+import com.cc.data.demo2springboot.service.JwtService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Read latency while writes overload the server, with and without bulkheads.
+ * 400 clients send writes that each hold one of the 10 pooled connections for 200 ms, far more
+ * than the pool can serve, while 10 clients keep sending reads that need no connection. Without
+ * bulkheads the writes take all 200 request threads and the reads queue behind them; with them
+ * the writes beyond their bulkhead are shed with 503 and the reads keep their threads.
+ * Run with -Dbenchmark=true, one nested class per JVM (e.g. -Dtest='BulkheadBenchmarkTest$On').
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class BulkheadBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkheadBenchmarkTest.class);
+
+    private static final int WRITE_CLIENTS = 400;
+    private static final int READ_CLIENTS = 10;
+    private static final long DURATION_SECONDS = 20;
+
+    @TestConfiguration
+    static class BenchEndpoints {
+
+        @Bean
+        BenchController benchController(JdbcTemplate jdbcTemplate) {
+            return new BenchController(jdbcTemplate);
+        }
+    }
+
+    @RestController
+    static class BenchController {
+
+        private final JdbcTemplate jdbcTemplate;
+
+        BenchController(JdbcTemplate jdbcTemplate) {
+            this.jdbcTemplate = jdbcTemplate;
+        }
+
+        @GetMapping("/api/users/bulkhead-bench")
+        String read() {
+            return "ok";
+        }
+
+        @PostMapping("/api/users/bulkhead-bench")
+        String write() {
+            jdbcTemplate.queryForObject("SELECT BENCH_SLEEP(200)", Integer.class);
+            return "ok";
+        }
+    }
+
+    abstract static class Workload {
+
+        @LocalServerPort
+        private int port;
+
+        @Autowired
+        private JdbcTemplate jdbcTemplate;
+
+        @Autowired
+        private JwtService jwtService;
+
+        // Separate clients, so reads never wait behind the writers' connections on the client side
+        private final HttpClient writers = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        private final HttpClient readers = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        private final ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor();
+
+        @AfterEach
+        void tearDown() {
+            clients.shutdownNow();
+            writers.shutdownNow();
+            readers.shutdownNow();
+        }
+
+        void run(String label) throws Exception {
+            jdbcTemplate.execute("CREATE ALIAS IF NOT EXISTS BENCH_SLEEP AS "
+                    + "'int sleep(int millis) throws Exception { Thread.sleep(millis); return millis; }'");
+            URI uri = URI.create("http://localhost:" + port + "/api/users/bulkhead-bench");
+            HttpRequest read = HttpRequest.newBuilder(uri).build();
+            HttpRequest write = HttpRequest.newBuilder(uri)
+                    .header(HttpHeaders.AUTHORIZATION,
+                            "Bearer " + jwtService.generateToken("admin", List.of("USER", "ADMIN")))
+                    .POST(HttpRequest.BodyPublishers.noBody())
+                    .build();
+
+            long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(DURATION_SECONDS);
+            AtomicInteger written = new AtomicInteger();
+            AtomicInteger shed = new AtomicInteger();
+            AtomicInteger failed = new AtomicInteger();
+            List<CompletableFuture<?>> running = new ArrayList<>();
+            for (int i = 0; i < WRITE_CLIENTS; i++) {
+                running.add(CompletableFuture.runAsync(() -> {
+                    while (System.nanoTime() < end) {
+                        int status = send(writers, write);
+                        if (status == 200) {
+                            written.incrementAndGet();
+                        } else if (status == 503) {
+                            shed.incrementAndGet();
+                            // Back off for Retry-After, as a well-behaved client would
+                            sleep(1_000);
+                        } else {
+                            failed.incrementAndGet();
+                        }
+                    }
+                }, clients));
+            }
+
+            // Let the writes fill the server before measuring the reads
+            Thread.sleep(2_000);
+            List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+            AtomicInteger readFailures = new AtomicInteger();
+            for (int i = 0; i < READ_CLIENTS; i++) {
+                running.add(CompletableFuture.runAsync(() -> {
+                    while (System.nanoTime() < end) {
+                        long sent = System.nanoTime();
+                        if (send(readers, read) != 200) {
+                            readFailures.incrementAndGet();
+                        }
+                        latencies.add(System.nanoTime() - sent);
+                    }
+                }, clients));
+            }
+            CompletableFuture.allOf(running.toArray(CompletableFuture[]::new)).join();
+
+            long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+            assertThat(sorted).isNotEmpty();
+            logger.info("{}: reads {} (failed {}), p50 {} ms, p99 {} ms, max {} ms; writes ok {}, shed {}, failed {}",
+                    label, sorted.length, readFailures.get(), sorted[sorted.length / 2] / 1_000_000,
+                    sorted[(int) (sorted.length * 0.99)] / 1_000_000, sorted[sorted.length - 1] / 1_000_000,
+                    written.get(), shed.get(), failed.get());
+        }
+
+        private static int send(HttpClient client, HttpRequest request) {
+            try {
+                return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+            } catch (Exception e) {
+                return -1;
+            }
+        }
+
+        private static void sleep(long millis) {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Nested
+    @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+            "spring.datasource.url=jdbc:h2:mem:bulkhead-bench-off;DB_CLOSE_DELAY=-1",
+            "app.bulkhead.enabled=false",
+            "server.tomcat.accept-count=1000",
+            "app.sql.trace.sampleRate=0",
+            "app.user.purge.enabled=false"
+    })
+    class Off extends Workload {
+
+        @Test
+        void readsDuringWriteOverload() throws Exception {
+            run("without bulkheads");
+        }
+    }
+
+    @Nested
+    @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+            "spring.datasource.url=jdbc:h2:mem:bulkhead-bench-on;DB_CLOSE_DELAY=-1",
+            "app.bulkhead.enabled=true",
+            "server.tomcat.accept-count=1000",
+            "app.sql.trace.sampleRate=0",
+            "app.user.purge.enabled=false"
+    })
+    class On extends Workload {
+
+        @Test
+        void readsDuringWriteOverload() throws Exception {
+            run("with bulkheads");
+        }
+    }
+}
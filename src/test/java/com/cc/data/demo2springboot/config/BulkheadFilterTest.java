@@ -0,0 +1,121 @@
+package com.cc.data.demo2springboot.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BulkheadFilterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private BulkheadFilter filter;
+    private AtomicInteger executions;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new BulkheadFilter(bulkhead(), bulkhead(), bulkhead(), bulkhead(), Duration.ofSeconds(2),
+                meterRegistry);
+        executions = new AtomicInteger();
+    }
+
+    /**
+     * One request at a time and no queue, so a request sent from inside another's chain
+     * is admitted only if it belongs to a different bulkhead.
+     */
+    private static Bulkhead bulkhead() {
+        return new Bulkhead(1, 0, Duration.ZERO, Duration.ofSeconds(10));
+    }
+
+    private MockHttpServletResponse send(String method, String uri, FilterChain chain)
+            throws ServletException, IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest(method, uri), response, chain);
+        return response;
+    }
+
+    private MockHttpServletResponse send(String method, String uri) throws ServletException, IOException {
+        return send(method, uri, (req, res) -> executions.incrementAndGet());
+    }
+
+    @Test
+    void fullBulkhead_ShouldShedWith503AndRetryAfter() throws Exception {
+        List<MockHttpServletResponse> nested = new ArrayList<>();
+        MockHttpServletResponse outer = send("PUT", "/api/users/1", (req, res) -> {
+            executions.incrementAndGet();
+            nested.add(send("DELETE", "/api/users/2"));
+        });
+
+        assertThat(outer.getStatus()).isEqualTo(200);
+        assertThat(nested.get(0).getStatus()).isEqualTo(503);
+        assertThat(nested.get(0).getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("2");
+        assertThat(nested.get(0).getContentAsString()).contains("overloaded");
+        assertThat(executions).hasValue(1);
+        assertThat(meterRegistry.get("http.bulkhead.rejected").tag("bulkhead", "write").counter().count())
+                .isEqualTo(1.0);
+        assertThat(meterRegistry.get("http.bulkhead.inflight").tag("bulkhead", "write").gauge().value()).isZero();
+    }
+
+    @Test
+    void busyWritesAndLogins_ShouldNotBlockReads() throws Exception {
+        List<Integer> statuses = new ArrayList<>();
+        send("POST", "/api/auth/login", (req, res) ->
+                send("PUT", "/api/users/batch", (req2, res2) ->
+                        send("POST", "/api/users", (req3, res3) -> {
+                            statuses.add(send("GET", "/api/users/1").getStatus());
+                            statuses.add(send("POST", "/api/auth/login").getStatus());
+                            statuses.add(send("POST", "/api/users/batch").getStatus());
+                            statuses.add(send("DELETE", "/api/users/1").getStatus());
+                        })));
+
+        assertThat(statuses).containsExactly(200, 503, 503, 503);
+    }
+
+    @Test
+    void nonApiPaths_ShouldNotBeLimited() throws Exception {
+        List<Integer> statuses = new ArrayList<>();
+        send("GET", "/actuator/health", (req, res) -> statuses.add(send("GET", "/actuator/health").getStatus()));
+
+        assertThat(statuses).containsExactly(200);
+        assertThat(executions).hasValue(1);
+    }
+
+    @Test
+    void bypassedRequests_ShouldNotTakeSlots() throws Exception {
+        filter = new BulkheadFilter(bulkhead(), bulkhead(), bulkhead(), bulkhead(), Duration.ofSeconds(2),
+                new SimpleMeterRegistry(), request -> request.getHeader("X-Warmup") != null);
+        List<Integer> statuses = new ArrayList<>();
+        MockHttpServletRequest warmup = new MockHttpServletRequest("GET", "/api/users/1");
+        warmup.addHeader("X-Warmup", "secret");
+
+        filter.doFilter(warmup, new MockHttpServletResponse(), (req, res) -> {
+            statuses.add(send("GET", "/api/users/2", (req2, res2) ->
+                    statuses.add(send("GET", "/api/users/3").getStatus())).getStatus());
+        });
+
+        // The real read got the only slot, so the one nested in it was shed
+        assertThat(statuses).containsExactly(503, 200);
+    }
+
+    @Test
+    void failingRequest_ShouldStillReleaseItsSlot() throws Exception {
+        assertThatThrownBy(() -> send("POST", "/api/users", (req, res) -> {
+            throw new IllegalStateException("boom");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(send("POST", "/api/users").getStatus()).isEqualTo(200);
+    }
+}
@@ -0,0 +1,140 @@
+package com.cc.data.demo2springboot.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BulkheadTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(500);
+
+    private final AtomicLong clock = new AtomicLong();
+    private final ExecutorService waiters = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void tearDown() {
+        waiters.shutdownNow();
+    }
+
+    private Bulkhead bulkhead(int maxLimit, int queueCapacity, Duration maxWait) {
+        return new Bulkhead(maxLimit, queueCapacity, maxWait, Duration.ofMillis(100), clock::get);
+    }
+
+    private static void awaitQueued(Bulkhead bulkhead, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (bulkhead.getQueued() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertThat(bulkhead.getQueued()).isEqualTo(expected);
+    }
+
+    @Test
+    void fullBulkheadWithoutQueue_ShouldShedAtOnce() throws Exception {
+        Bulkhead bulkhead = bulkhead(2, 0, Duration.ofSeconds(1));
+
+        assertThat(bulkhead.tryAcquire()).isTrue();
+        assertThat(bulkhead.tryAcquire()).isTrue();
+        assertThat(bulkhead.tryAcquire()).isFalse();
+        assertThat(bulkhead.getInFlight()).isEqualTo(2);
+
+        bulkhead.release(FAST);
+        assertThat(bulkhead.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void queuedRequest_ShouldGetTheNextFreeSlot() throws Exception {
+        Bulkhead bulkhead = bulkhead(1, 1, Duration.ofSeconds(5));
+        assertThat(bulkhead.tryAcquire()).isTrue();
+
+        Future<Boolean> queued = waiters.submit(bulkhead::tryAcquire);
+        awaitQueued(bulkhead, 1);
+        // The queue is full, so the next caller is refused without waiting
+        assertThat(bulkhead.tryAcquire()).isFalse();
+
+        bulkhead.release(FAST);
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(bulkhead.getInFlight()).isEqualTo(1);
+        assertThat(bulkhead.getQueued()).isZero();
+    }
+
+    @Test
+    void queuedRequest_ShouldBeShedWhenTheWaitRunsOut() throws Exception {
+        Bulkhead bulkhead = bulkhead(1, 5, Duration.ofMillis(20));
+        assertThat(bulkhead.tryAcquire()).isTrue();
+
+        assertThat(bulkhead.tryAcquire()).isFalse();
+        assertThat(bulkhead.getQueued()).isZero();
+        assertThat(bulkhead.getInFlight()).isEqualTo(1);
+    }
+
+    @Test
+    void slowCompletions_ShouldShrinkTheLimitOncePerTargetLatency() throws Exception {
+        Bulkhead bulkhead = bulkhead(10, 0, Duration.ZERO);
+        for (int i = 0; i < 10; i++) {
+            assertThat(bulkhead.tryAcquire()).isTrue();
+        }
+
+        bulkhead.release(SLOW);
+        bulkhead.release(SLOW);
+        assertThat(bulkhead.getLimit()).isEqualTo(9);
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        bulkhead.release(SLOW);
+        assertThat(bulkhead.getLimit()).isEqualTo(8);
+        for (int i = 0; i < 7; i++) {
+            bulkhead.release(FAST);
+        }
+
+        // Never below one, however slow
+        for (int i = 0; i < 50; i++) {
+            clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+            assertThat(bulkhead.tryAcquire()).isTrue();
+            bulkhead.release(SLOW);
+        }
+        assertThat(bulkhead.getLimit()).isEqualTo(1);
+    }
+
+    @Test
+    void fastCompletionsUnderLoad_ShouldGrowTheLimitBackToItsMaximum() throws Exception {
+        Bulkhead bulkhead = bulkhead(4, 0, Duration.ZERO);
+        assertThat(bulkhead.tryAcquire()).isTrue();
+        bulkhead.release(SLOW);
+        assertThat(bulkhead.getLimit()).isEqualTo(3);
+
+        // Idle: fast completions with one request in flight do not count
+        for (int i = 0; i < 20; i++) {
+            assertThat(bulkhead.tryAcquire()).isTrue();
+            bulkhead.release(FAST);
+        }
+        assertThat(bulkhead.getLimit()).isEqualTo(3);
+
+        for (int round = 0; round < 10; round++) {
+            int admitted = 0;
+            while (bulkhead.tryAcquire()) {
+                admitted++;
+            }
+            for (int i = 0; i < admitted; i++) {
+                bulkhead.release(FAST);
+            }
+        }
+        assertThat(bulkhead.getLimit()).isEqualTo(4);
+    }
+
+    @Test
+    void invalidSettings_ShouldBeRejected() {
+        assertThatThrownBy(() -> bulkhead(0, 0, Duration.ZERO)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> bulkhead(1, -1, Duration.ZERO)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new Bulkhead(1, 0, Duration.ZERO, Duration.ZERO))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,71 @@
+package com.cc.data.demo2springboot.config;
+
+import com.cc.data.demo2springboot.service.UserShards;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.boot.DefaultApplicationArguments;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+/**
+ * Runs the warm-up against the schema of db/migration and checks what it read.
+ */
+@ExtendWith(OutputCaptureExtension.class)
+class DatabaseWarmupTest {
+
+    private final DataSource dataSource = new DriverManagerDataSource(
+            "jdbc:h2:mem:warmup;DB_CLOSE_DELAY=-1", "sa", "");
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    private String plan(String query) {
+        return jdbcTemplate.queryForObject("EXPLAIN " + query.replace("?", "100"), String.class);
+    }
+
+    @Test
+    void run_ShouldWalkBothEndsOfThePrimaryKeyAndTheUniqueIndexes(CapturedOutput output) {
+        Flyway.configure().dataSource(dataSource).load().migrate();
+        jdbcTemplate.update("INSERT INTO users (username, email, full_name, active, version) "
+                + "SELECT 'user' || X, 'user' || X || '@example.com', 'User ' || X, TRUE, 0 FROM SYSTEM_RANGE(1, 1000)");
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        SqlStatementTracer tracer = new SqlStatementTracer(meterRegistry, Duration.ofHours(1), 0, false, 500);
+        DatabaseWarmup warmup = new DatabaseWarmup(new JdbcTemplate(new TracingDataSource(dataSource, tracer)),
+                UserShards.single(), 100);
+
+        warmup.run(new DefaultApplicationArguments());
+
+        Map<String, Long> executed = meterRegistry.find(SqlStatementTracer.METER_NAME).timers().stream()
+                .collect(Collectors.toMap(
+                        timer -> tracer.statement(timer.getId().getTag(SqlStatementTracer.STATEMENT_TAG)),
+                        timer -> timer.count()));
+        assertThat(executed).containsOnly(
+                entry(SqlStatementTracer.normalize(DatabaseWarmup.COUNT_SQL), 1L),
+                entry(SqlStatementTracer.normalize(DatabaseWarmup.OLDEST_SQL), 1L),
+                entry(SqlStatementTracer.normalize(DatabaseWarmup.NEWEST_SQL), 1L),
+                entry(SqlStatementTracer.normalize(DatabaseWarmup.USERNAMES_SQL), 1L),
+                entry(SqlStatementTracer.normalize(DatabaseWarmup.EMAILS_SQL), 1L));
+        assertThat(output).contains("Database warm-up touched 1000 users");
+
+        assertThat(plan(DatabaseWarmup.OLDEST_SQL)).contains("PRIMARY_KEY").contains("index sorted");
+        assertThat(plan(DatabaseWarmup.NEWEST_SQL)).contains("PRIMARY_KEY").contains("index sorted");
+        assertThat(plan(DatabaseWarmup.USERNAMES_SQL)).contains("UK_USERS_USERNAME");
+        assertThat(plan(DatabaseWarmup.EMAILS_SQL)).contains("UK_USERS_EMAIL");
+    }
+}
@@ -0,0 +1,162 @@
+package com.cc.data.demo2springboot.config;
+
+import com.cc.data.demo2springboot.model.User;
+import com.cc.data.demo2springboot.service.UserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Read-heavy mix with both caches, the entity cache alone, and no cache: 90% lookups by id
+ * skewed towards a hot set, 8% page listings and 2% versioned updates.
+ * Run with -Dbenchmark=true, one nested class per JVM (e.g. -Dtest='HibernateCacheBenchmarkTest$CacheOn'): whichever context runs
+ * first in a JVM also pays for JIT compilation of the shared code.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class HibernateCacheBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(HibernateCacheBenchmarkTest.class);
+
+    private static final int USERS = 2_000;
+    private static final int WARMUP_OPS = 20_000;
+    private static final int MEASURED_OPS = 20_000;
+    private static final String[] OPERATIONS = {"get", "list", "update"};
+
+    abstract static class Workload {
+
+        @Autowired
+        private UserService userService;
+
+        @Autowired
+        private JdbcTemplate jdbcTemplate;
+
+        @AfterEach
+        void tearDown() {
+            jdbcTemplate.update("DELETE FROM users WHERE username LIKE 'bench-%'");
+        }
+
+        void run(String label) {
+            Timestamp now = new Timestamp(System.currentTimeMillis());
+            jdbcTemplate.batchUpdate("INSERT INTO users (username, email, full_name, created_at, updated_at, "
+                            + "active, version) VALUES (?, ?, ?, ?, ?, TRUE, 0)",
+                    IntStream.range(0, USERS).mapToObj(i -> new Object[]{
+                            "bench-" + i, "bench-" + i + "@example.com", "Bench " + i, now, now}).toList());
+            List<Long> ids = jdbcTemplate.queryForList(
+                    "SELECT id FROM users WHERE username LIKE 'bench-%' ORDER BY id", Long.class);
+
+            Random random = new Random(42);
+            mix(ids, random, new long[WARMUP_OPS], new long[OPERATIONS.length], new int[OPERATIONS.length]);
+            long[] latencies = new long[MEASURED_OPS];
+            long[] totals = new long[OPERATIONS.length];
+            int[] counts = new int[OPERATIONS.length];
+            long start = System.nanoTime();
+            mix(ids, random, latencies, totals, counts);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            Arrays.sort(latencies);
+            logger.info("{}: {} ops/s, p50 {} us, p99 {} us, max {} us", label,
+                    Math.round(MEASURED_OPS / seconds), latencies[latencies.length / 2] / 1_000,
+                    latencies[(int) (latencies.length * 0.99)] / 1_000, latencies[latencies.length - 1] / 1_000);
+            for (int kind = 0; kind < OPERATIONS.length; kind++) {
+                logger.info("{}: {} x{}, mean {} us", label, OPERATIONS[kind], counts[kind],
+                        totals[kind] / Math.max(1, counts[kind]) / 1_000);
+            }
+            assertThat(counts[0]).isGreaterThan(counts[1]);
+        }
+
+        /**
+         * Runs one operation per latency slot, adding each latency to its operation's total.
+         */
+        private void mix(List<Long> ids, Random random, long[] latencies, long[] totals, int[] counts) {
+            for (int op = 0; op < latencies.length; op++) {
+                // 80% of lookups go to the first 10% of users
+                Long id = random.nextDouble() < 0.8
+                        ? ids.get(random.nextInt(ids.size() / 10))
+                        : ids.get(random.nextInt(ids.size()));
+                int roll = random.nextInt(100);
+                int kind = roll < 90 ? 0 : roll < 98 ? 1 : 2;
+                long start = System.nanoTime();
+                switch (kind) {
+                    case 0 -> userService.getUserById(id);
+                    case 1 -> userService.getAllUsers(PageRequest.of(random.nextInt(5), 20));
+                    default -> update(id);
+                }
+                latencies[op] = System.nanoTime() - start;
+                totals[kind] += latencies[op];
+                counts[kind]++;
+            }
+        }
+
+        private void update(Long id) {
+            User current = userService.getUserById(id).orElseThrow();
+            User details = new User();
+            details.setUsername(current.getUsername());
+            details.setEmail(current.getEmail());
+            details.setFullName("Updated " + System.nanoTime());
+            details.setActive(true);
+            userService.updateUser(id, details, current.getVersion());
+        }
+    }
+
+    @Nested
+    @SpringBootTest(properties = {
+            "spring.datasource.url=jdbc:h2:mem:cache-bench-on;DB_CLOSE_DELAY=-1",
+            "app.cache.enabled=true",
+            "app.cache.queries.enabled=true",
+            "app.sql.trace.sampleRate=0",
+            "app.user.purge.enabled=false"
+    })
+    class CacheOn extends Workload {
+
+        @Test
+        void readHeavyMix() {
+            run("second-level cache on");
+        }
+    }
+
+    @Nested
+    @SpringBootTest(properties = {
+            "spring.datasource.url=jdbc:h2:mem:cache-bench-entities;DB_CLOSE_DELAY=-1",
+            "app.cache.enabled=true",
+            "app.cache.queries.enabled=false",
+            "app.sql.trace.sampleRate=0",
+            "app.user.purge.enabled=false"
+    })
+    class EntityCacheOnly extends Workload {
+
+        @Test
+        void readHeavyMix() {
+            run("entity cache only");
+        }
+    }
+
+    @Nested
+    @SpringBootTest(properties = {
+            "spring.datasource.url=jdbc:h2:mem:cache-bench-off;DB_CLOSE_DELAY=-1",
+            "app.cache.enabled=false",
+            "app.sql.trace.sampleRate=0",
+            "app.user.purge.enabled=false"
+    })
+    class CacheOff extends Workload {
+
+        @Test
+        void readHeavyMix() {
+            run("second-level cache off");
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.cc.data.demo2springboot.config;
+
+import com.cc.data.demo2springboot.model.User;
+import com.cc.data.demo2springboot.service.LastSeenTracker;
+import com.cc.data.demo2springboot.service.UserService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks cache hits and invalidation through Hibernate's statistics.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:cache-test;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "app.cache.queries.enabled=true",
+        "app.user.purge.enabled=false",
+        "app.user.lastSeen.flushInterval=PT1H"
+})
+class HibernateCacheTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private LastSeenTracker lastSeenTracker;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Statistics statistics;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        entityManagerFactory.getCache().evictAll();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        User created = new User();
+        created.setUsername("cached");
+        created.setEmail("cached@example.com");
+        created.setFullName("Cached User");
+        created.setActive(true);
+        user = userService.createUser(created);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM users WHERE username LIKE 'cached%'");
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @Test
+    void getUserById_Repeated_ShouldBeServedFromSecondLevelCache() {
+        userService.getUserById(user.getId());
+        long loadsBefore = statistics.getEntityLoadCount();
+
+        userService.getUserById(user.getId());
+        userService.getUserById(user.getId());
+
+        assertThat(statistics.getDomainDataRegionStatistics(HibernateCacheConfig.USER_REGION).getHitCount())
+                .isGreaterThanOrEqualTo(2);
+        assertThat(statistics.getEntityLoadCount()).isEqualTo(loadsBefore);
+    }
+
+    @Test
+    void bulkUpdate_ShouldEvictCachedUser() {
+        userService.getUserById(user.getId());
+        User details = new User();
+        details.setUsername("cached");
+        details.setEmail("cached@example.com");
+        details.setFullName("Renamed");
+        details.setActive(true);
+
+        userService.updateUser(user.getId(), details, user.getVersion());
+
+        assertThat(userService.getUserById(user.getId())).map(User::getFullName).hasValue("Renamed");
+    }
+
+    @Test
+    void versionedUpdate_ShouldKeepOtherUsersCached() {
+        User other = new User();
+        other.setUsername("cached-bystander");
+        other.setEmail("cached-bystander@example.com");
+        other.setActive(true);
+        other = userService.createUser(other);
+        userService.getUserById(user.getId());
+        userService.getUserById(other.getId());
+        User details = new User();
+        details.setUsername("cached");
+        details.setEmail("cached@example.com");
+        details.setFullName("Renamed");
+        details.setActive(true);
+
+        userService.updateUser(user.getId(), details, user.getVersion());
+        long loadsBefore = statistics.getEntityLoadCount();
+
+        assertThat(userService.getUserById(other.getId())).isPresent();
+        assertThat(statistics.getEntityLoadCount()).isEqualTo(loadsBefore);
+        assertThat(userService.getUserById(user.getId())).map(User::getFullName).hasValue("Renamed");
+    }
+
+    @Test
+    void softDelete_ShouldEvictCachedUser() {
+        userService.getUserById(user.getId());
+
+        userService.deleteUser(user.getId());
+
+        assertThat(userService.getUserById(user.getId())).isEmpty();
+    }
+
+    @Test
+    void lastSeenFlush_ShouldEvictCachedUser() {
+        userService.getUserById(user.getId());
+
+        lastSeenTracker.record("cached");
+        lastSeenTracker.flush();
+
+        assertThat(userService.getUserById(user.getId())).map(User::getLastSeenAt).isPresent();
+    }
+
+    @Test
+    void listing_Repeated_ShouldHitQueryCacheUntilUsersChange() {
+        userService.getAllUsers(PageRequest.of(0, 10));
+        userService.getAllUsers(PageRequest.of(0, 10));
+        assertThat(statistics.getQueryCacheHitCount()).isPositive();
+
+        User other = new User();
+        other.setUsername("cached-other");
+        other.setEmail("cached-other@example.com");
+        other.setActive(true);
+        userService.createUser(other);
+        long hitsBefore = statistics.getQueryCacheHitCount();
+
+        assertThat(userService.getAllUsers(PageRequest.of(0, 10)).getContent())
+                .extracting(User::getUsername).contains("cached-other");
+        assertThat(statistics.getQueryCacheHitCount()).isEqualTo(hitsBefore);
+    }
+}
@@ -0,0 +1,188 @@
+package com.cc.data.demo2springboot.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IdempotencyFilterTest {
+
+    private IdempotencyFilter filter;
+    private AtomicInteger executions;
+
+    @BeforeEach
+    void setUp() {
+        filter = new IdempotencyFilter(100, Duration.ofMinutes(5), Duration.ofSeconds(5));
+        executions = new AtomicInteger();
+    }
+
+    private MockHttpServletRequest createRequest(String key, String body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/users");
+        request.addHeader(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, key);
+        request.setContentType("application/json");
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+
+    private FilterChain creatingChain(int status) {
+        return (req, res) -> {
+            int id = executions.incrementAndGet();
+            // Make sure the controller can still read the body
+            String body = new String(req.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            HttpServletResponse response = (HttpServletResponse) res;
+            response.setStatus(status);
+            response.setHeader("Location", "http://localhost/api/users/" + id);
+            response.setContentType("application/json");
+            response.getWriter().write("{\"id\":" + id + ",\"echo\":" + body + "}");
+        };
+    }
+
+    @Test
+    void retryWithSameKey_ShouldReplayStoredResponseWithoutExecutingAgain() throws Exception {
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        filter.doFilter(createRequest("key-1", "{\"username\":\"a\"}"), first, creatingChain(201));
+
+        MockHttpServletResponse retry = new MockHttpServletResponse();
+        filter.doFilter(createRequest("key-1", "{\"username\":\"a\"}"), retry, creatingChain(201));
+
+        assertThat(executions.get()).isEqualTo(1);
+        assertThat(retry.getStatus()).isEqualTo(201);
+        assertThat(retry.getContentAsString()).isEqualTo(first.getContentAsString());
+        assertThat(retry.getHeader("Location")).isEqualTo("http://localhost/api/users/1");
+        assertThat(retry.getHeader(IdempotencyFilter.REPLAYED_HEADER)).isEqualTo("true");
+    }
+
+    @Test
+    void sameKeyWithDifferentBody_ShouldBeRejected() throws Exception {
+        filter.doFilter(createRequest("key-2", "{\"username\":\"a\"}"), new MockHttpServletResponse(),
+                creatingChain(201));
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(createRequest("key-2", "{\"username\":\"b\"}"), response, creatingChain(201));
+
+        assertThat(response.getStatus()).isEqualTo(422);
+        assertThat(executions.get()).isEqualTo(1);
+    }
+
+    @Test
+    void failedExecution_ShouldNotBeStored() throws Exception {
+        filter.doFilter(createRequest("key-3", "{}"), new MockHttpServletResponse(), creatingChain(409));
+
+        MockHttpServletResponse retry = new MockHttpServletResponse();
+        filter.doFilter(createRequest("key-3", "{}"), retry, creatingChain(201));
+
+        assertThat(executions.get()).isEqualTo(2);
+        assertThat(retry.getStatus()).isEqualTo(201);
+        assertThat(retry.getHeader(IdempotencyFilter.REPLAYED_HEADER)).isNull();
+    }
+
+    @Test
+    void nonBlockingRead_ShouldDeliverTheBufferedBody() throws Exception {
+        ByteArrayOutputStream read = new ByteArrayOutputStream();
+        AtomicBoolean allRead = new AtomicBoolean();
+        FilterChain chain = (req, res) -> {
+            ServletInputStream input = req.getInputStream();
+            input.setReadListener(new ReadListener() {
+                @Override
+                public void onDataAvailable() throws IOException {
+                    while (input.isReady() && !input.isFinished()) {
+                        read.write(input.read());
+                    }
+                }
+
+                @Override
+                public void onAllDataRead() {
+                    allRead.set(true);
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                }
+            });
+            ((HttpServletResponse) res).setStatus(201);
+        };
+
+        filter.doFilter(createRequest("key-async", "{\"username\":\"a\"}"), new MockHttpServletResponse(), chain);
+
+        assertThat(read.toString(StandardCharsets.UTF_8)).isEqualTo("{\"username\":\"a\"}");
+        assertThat(allRead).isTrue();
+    }
+
+    @Test
+    void requestWithoutKey_ShouldAlwaysExecute() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/users");
+        request.setContent("{}".getBytes(StandardCharsets.UTF_8));
+        filter.doFilter(request, new MockHttpServletResponse(), creatingChain(201));
+        filter.doFilter(request, new MockHttpServletResponse(), creatingChain(201));
+
+        assertThat(executions.get()).isEqualTo(2);
+    }
+
+    @Test
+    void concurrentDuplicates_ShouldWaitForInFlightExecution() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        FilterChain slowChain = (req, res) -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            creatingChain(201).doFilter(req, res);
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+        try {
+            MockHttpServletResponse ownerResponse = new MockHttpServletResponse();
+            Future<?> owner = executor.submit(() -> {
+                filter.doFilter(createRequest("key-4", "{}"), ownerResponse, slowChain);
+                return null;
+            });
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+            MockHttpServletResponse[] waiters = new MockHttpServletResponse[4];
+            Future<?>[] futures = new Future<?>[4];
+            for (int i = 0; i < waiters.length; i++) {
+                MockHttpServletResponse response = new MockHttpServletResponse();
+                waiters[i] = response;
+                futures[i] = executor.submit(() -> {
+                    filter.doFilter(createRequest("key-4", "{}"), response, slowChain);
+                    return null;
+                });
+            }
+
+            release.countDown();
+            owner.get(5, TimeUnit.SECONDS);
+            for (Future<?> future : futures) {
+                future.get(5, TimeUnit.SECONDS);
+            }
+
+            assertThat(executions.get()).isEqualTo(1);
+            for (MockHttpServletResponse waiter : waiters) {
+                assertThat(waiter.getStatus()).isEqualTo(201);
+                assertThat(waiter.getContentAsString()).isEqualTo(ownerResponse.getContentAsString());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
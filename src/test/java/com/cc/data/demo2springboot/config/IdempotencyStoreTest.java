@@ -0,0 +1,106 @@
+package com.cc.data.demo2springboot.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IdempotencyStoreTest {
+
+    private static final IdempotencyStore.StoredResponse CREATED =
+            new IdempotencyStore.StoredResponse(201, null, List.of(), new byte[0]);
+
+    /**
+     * Clock whose time can be moved forward by the test
+     */
+    private static final class MutableClock extends Clock {
+        private Instant now = Instant.parse("2025-06-08T10:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(java.time.ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+
+    @Test
+    void claim_ShouldReturnExistingEntryForLiveKey() {
+        IdempotencyStore store = new IdempotencyStore(10, Duration.ofMinutes(1));
+
+        IdempotencyStore.Claim first = store.claim("k", "fp");
+        IdempotencyStore.Claim second = store.claim("k", "fp");
+
+        assertThat(first.owner()).isTrue();
+        assertThat(second.owner()).isFalse();
+        assertThat(second.entry()).isSameAs(first.entry());
+    }
+
+    @Test
+    void claim_ShouldEvictExpiredEntries() {
+        MutableClock clock = new MutableClock();
+        IdempotencyStore store = new IdempotencyStore(10, Duration.ofMinutes(1), clock);
+        IdempotencyStore.Claim first = store.claim("k", "fp");
+        store.complete(first.entry(), new IdempotencyStore.StoredResponse(201, null, List.of(), new byte[0]));
+
+        clock.advance(Duration.ofMinutes(2));
+
+        assertThat(store.claim("k", "fp").owner()).isTrue();
+    }
+
+    @Test
+    void claim_ShouldEvictOldestEntryWhenFull() {
+        IdempotencyStore store = new IdempotencyStore(2, Duration.ofMinutes(1));
+        store.complete(store.claim("a", "fp").entry(), CREATED);
+        store.complete(store.claim("b", "fp").entry(), CREATED);
+        store.claim("c", "fp");
+
+        assertThat(store.size()).isEqualTo(2);
+        assertThat(store.claim("c", "fp").owner()).isFalse();
+        assertThat(store.claim("b", "fp").owner()).isFalse();
+    }
+
+    @Test
+    void claim_WhenFullOfInFlightRequests_ShouldRefuseRatherThanEvictThem() {
+        IdempotencyStore store = new IdempotencyStore(1, Duration.ofMinutes(1));
+        IdempotencyStore.Claim first = store.claim("a", "fp");
+
+        assertThat(store.claim("b", "fp")).isNull();
+        // A retry of the in-flight request still waits on it instead of running again
+        IdempotencyStore.Claim retry = store.claim("a", "fp");
+        assertThat(retry.owner()).isFalse();
+        assertThat(retry.entry()).isSameAs(first.entry());
+
+        store.complete(first.entry(), CREATED);
+        assertThat(store.claim("b", "fp").owner()).isTrue();
+        assertThat(store.size()).isEqualTo(1);
+    }
+
+    @Test
+    void release_ShouldFreeKeyAndWakeWaitersWithNull() {
+        IdempotencyStore store = new IdempotencyStore(10, Duration.ofMinutes(1));
+        IdempotencyStore.Claim claim = store.claim("k", "fp");
+
+        store.release("k", claim.entry());
+
+        assertThat(claim.entry().getResult().join()).isNull();
+        assertThat(store.claim("k", "fp").owner()).isTrue();
+    }
+}
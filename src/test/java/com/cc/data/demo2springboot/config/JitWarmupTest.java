@@ -0,0 +1,67 @@
+package com.cc.data.demo2springboot.config;
+
+import com.cc.data.demo2springboot.service.LastSeenTracker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:jit-warmup;DB_CLOSE_DELAY=-1",
+        "app.user.purge.enabled=false",
+        "app.warmup.enabled=true",
+        "app.warmup.maxDuration=PT5S",
+        "app.warmup.requestsPerRound=20"
+})
+class JitWarmupTest {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ApplicationAvailability availability;
+
+    @MockBean
+    private LastSeenTracker lastSeenTracker;
+
+    @Test
+    void warmup_ShouldRunAuthenticatedReadsOnceBeforeAcceptingTraffic() {
+        Timer warmup = meterRegistry.get("jit.warmup").timer();
+        assertThat(warmup.count()).isEqualTo(1);
+        // One round may start just before the deadline
+        assertThat(warmup.totalTime(TimeUnit.SECONDS)).isLessThan(15);
+        assertThat(availability.getReadinessState()).isEqualTo(ReadinessState.ACCEPTING_TRAFFIC);
+
+        Timer byId = meterRegistry.get("users.service").tag("method", "getUserById").timer();
+        Timer listing = meterRegistry.get("users.service").tag("method", "getAllUsers").timer();
+        assertThat(byId.count()).isGreaterThanOrEqualTo(10);
+        assertThat(listing.count()).isGreaterThanOrEqualTo(10);
+    }
+
+    @Test
+    void warmupRequests_ShouldStayOutOfHttpMetricsAndBulkheads() {
+        assertThat(meterRegistry.find("http.server.requests").tag("uri", "/api/users/{id}").timer()).isNull();
+        assertThat(meterRegistry.find("http.server.requests").tag("uri", "/api/users").timer()).isNull();
+        // The read bulkhead still has the limit it started with, none of the slow interpreted
+        // requests having shrunk it
+        assertThat(meterRegistry.get("http.bulkhead.limit").tag("bulkhead", "read").gauge().value())
+                .isEqualTo(100.0);
+    }
+
+    @Test
+    void warmupRequests_ShouldNotBeRecordedAsUserActivity() {
+        assertThat(meterRegistry.get("jit.warmup").timer().count()).isEqualTo(1);
+        verify(lastSeenTracker, never()).record(anyString());
+    }
+}
@@ -0,0 +1,94 @@
+package com.cc.data.demo2springboot.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:metrics;DB_CLOSE_DELAY=-1",
+        "app.user.purge.enabled=false"
+})
+@AutoConfigureMockMvc
+@AutoConfigureObservability(tracing = false)
+class MetricsTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private String bearer(String username, String password) throws Exception {
+        String body = mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\":\"" + username + "\",\"password\":\"" + password + "\"}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return "Bearer " + objectMapper.readTree(body).get("token").asText();
+    }
+
+    @Test
+    void hotPaths_ShouldBeTimedAndScrapableInPrometheusFormat() throws Exception {
+        String admin = bearer("admin", "admin");
+        String created = mockMvc.perform(post("/api/users")
+                        .header(HttpHeaders.AUTHORIZATION, admin)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\":\"metrics\",\"email\":\"metrics@example.com\",\"fullName\":\"Metrics\"}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        long id = objectMapper.readTree(created).get("id").asLong();
+        // The second read is answered from the second-level cache
+        mockMvc.perform(get("/api/users/" + id).header(HttpHeaders.AUTHORIZATION, admin)).andExpect(status().isOk());
+        mockMvc.perform(get("/api/users/" + id).header(HttpHeaders.AUTHORIZATION, admin)).andExpect(status().isOk());
+        mockMvc.perform(get("/api/users?page=0&size=5")).andExpect(status().isOk());
+        mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\":\"admin\",\"password\":\"wrong\"}"))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/api/users/" + id).header(HttpHeaders.AUTHORIZATION, "Bearer not.a.token"))
+                .andExpect(status().isOk());
+
+        assertThat(meterRegistry.get("auth.failures").tag("reason", "bad_credentials").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("auth.failures").tag("reason", "invalid_token").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("auth.password").tag("operation", "matches").timer().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("jwt.verification").tag("outcome", "valid").timer().count()).isPositive();
+        assertThat(meterRegistry.get("users.service").tag("method", "getUserById").timer().count()).isEqualTo(3);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "users").tag("result", "hit")
+                .functionCounter().count()).isPositive();
+
+        String scrape = mockMvc.perform(get("/actuator/prometheus").header(HttpHeaders.AUTHORIZATION, admin))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        for (String series : List.of(
+                "jwt_verification_seconds_bucket{application=\"demo2-springboot\",outcome=\"valid\"",
+                "auth_password_seconds_bucket{application=\"demo2-springboot\",operation=\"matches\"",
+                "users_service_seconds_bucket{application=\"demo2-springboot\",class=\"com.cc.data.demo2springboot.service.UserService\"",
+                "spring_data_repository_invocations_seconds_bucket{",
+                "http_server_requests_seconds_bucket{",
+                "http_server_serialization_seconds_bucket{application=\"demo2-springboot\",type=\"User\"",
+                "http_server_serialization_seconds_count{application=\"demo2-springboot\",type=\"Page<User>\"",
+                "auth_failures_total{application=\"demo2-springboot\",reason=\"bad_credentials\"} 1.0",
+                "cache_gets_total{application=\"demo2-springboot\",cache=\"users\",result=\"hit\"}")) {
+            assertThat(scrape).contains(series);
+        }
+
+        mockMvc.perform(get("/actuator/prometheus")).andExpect(status().isForbidden());
+    }
+}
@@ -0,0 +1,53 @@
+package com.cc.data.demo2springboot.config;
+
+import com.cc.data.demo2springboot.dto.AuthResponse;
+import com.cc.data.demo2springboot.dto.BatchItemResult;
+import com.cc.data.demo2springboot.model.User;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import io.jsonwebtoken.impl.DefaultJwtBuilder;
+import io.jsonwebtoken.impl.DefaultJwtParserBuilder;
+import io.jsonwebtoken.jackson.io.JacksonDeserializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NativeRuntimeHintsTest {
+
+    private final RuntimeHints hints = new RuntimeHints();
+
+    NativeRuntimeHintsTest() {
+        new NativeRuntimeHints().registerHints(hints, getClass().getClassLoader());
+    }
+
+    @Test
+    void jjwtImplementations_ShouldBeConstructibleByName() {
+        assertThat(RuntimeHintsPredicates.reflection().onType(DefaultJwtBuilder.class)
+                .withMemberCategory(MemberCategory.INVOKE_DECLARED_CONSTRUCTORS)).accepts(hints);
+        assertThat(RuntimeHintsPredicates.reflection().onType(DefaultJwtParserBuilder.class)
+                .withMemberCategory(MemberCategory.INVOKE_DECLARED_CONSTRUCTORS)).accepts(hints);
+        assertThat(RuntimeHintsPredicates.reflection().onType(JacksonDeserializer.class)
+                .withMemberCategory(MemberCategory.INVOKE_DECLARED_CONSTRUCTORS)).accepts(hints);
+        assertThat(RuntimeHintsPredicates.resource().forResource("META-INF/services/io.jsonwebtoken.io.Deserializer"))
+                .accepts(hints);
+    }
+
+    @Test
+    void bodiesBehindWildcardResponses_ShouldHaveJacksonBindings() throws Exception {
+        assertThat(RuntimeHintsPredicates.reflection().onMethod(AuthResponse.class.getMethod("getToken")))
+                .accepts(hints);
+        assertThat(RuntimeHintsPredicates.reflection().onMethod(BatchItemResult.class.getMethod("getStatus")))
+                .accepts(hints);
+        assertThat(RuntimeHintsPredicates.reflection().onMethod(User.class.getMethod("getUsername")))
+                .accepts(hints);
+    }
+
+    @Test
+    void cacheProvider_ShouldBeLoadableByName() {
+        assertThat(RuntimeHintsPredicates.reflection().onType(CaffeineCachingProvider.class)
+                .withMemberCategory(MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS)).accepts(hints);
+        assertThat(RuntimeHintsPredicates.resource().forResource("reference.conf")).accepts(hints);
+    }
+}
@@ -0,0 +1,82 @@
+package com.cc.data.demo2springboot.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+@ExtendWith(OutputCaptureExtension.class)
+class PinnedThreadRecorderTest {
+
+    private final PinnedThreadRecorder recorder = new PinnedThreadRecorder(Duration.ofMillis(10), 2, 16);
+
+    @AfterEach
+    void tearDown() {
+        recorder.close();
+    }
+
+    @Test
+    void record_ShouldGroupByFirstApplicationFrame(CapturedOutput output) {
+        List<String> stack = List.of("java.lang.Object.wait0:-1",
+                "com.cc.data.demo2springboot.service.LastSeenTracker.flush:120",
+                "org.springframework.scheduling.support.ScheduledMethodRunnable.run:85");
+
+        recorder.record(stack, Duration.ofMillis(30));
+        recorder.record(stack, Duration.ofMillis(50));
+
+        assertThat(recorder.sites()).singleElement().satisfies(site -> {
+            assertThat(site.site()).isEqualTo("com.cc.data.demo2springboot.service.LastSeenTracker.flush:120");
+            assertThat(site.count()).isEqualTo(2);
+            assertThat(site.totalMs()).isEqualTo(80.0);
+            assertThat(site.maxMs()).isEqualTo(50.0);
+            assertThat(site.stack()).isEqualTo(stack);
+        });
+        // Only the first pinning at a site is logged
+        assertThat(output.getOut().split("pinned its carrier", -1)).hasSize(2);
+    }
+
+    @Test
+    void record_ShouldStopAddingSitesAtLimit() {
+        recorder.record(List.of("a.A.one:1"), Duration.ofMillis(10));
+        recorder.record(List.of("b.B.two:2"), Duration.ofMillis(30));
+        recorder.record(List.of("c.C.three:3"), Duration.ofMillis(90));
+        recorder.record(List.of("a.A.one:1"), Duration.ofMillis(10));
+
+        assertThat(recorder.sites()).extracting(PinnedThreadRecorder.PinnedSite::site)
+                .containsExactly("b.B.two:2", "a.A.one:1");
+    }
+
+    @Test
+    void start_ShouldRecordVirtualThreadBlockingInsideSynchronized() throws Exception {
+        // From JDK 24 a virtual thread blocking in synchronized code no longer pins its carrier
+        assumeTrue(Runtime.version().feature() < 24);
+        recorder.start();
+        Object monitor = new Object();
+
+        Thread.ofVirtual().start(() -> {
+            synchronized (monitor) {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }).join();
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (recorder.sites().isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+        assertThat(recorder.sites()).singleElement().satisfies(site -> {
+            assertThat(site.site()).startsWith(PinnedThreadRecorderTest.class.getName());
+            assertThat(site.maxMs()).isGreaterThanOrEqualTo(10.0);
+        });
+    }
+}
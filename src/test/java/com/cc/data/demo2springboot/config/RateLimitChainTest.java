@@ -0,0 +1,61 @@
+package com.cc.data.demo2springboot.config;
+
+import com.cc.data.demo2springboot.service.JwtService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The rate limit inside the real security chain: after JWT authentication, before authorization.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:ratelimit;DB_CLOSE_DELAY=-1",
+        "app.ratelimit.enabled=true",
+        "app.ratelimit.login.capacity=1",
+        "app.ratelimit.write.capacity=1",
+        "app.user.purge.enabled=false"
+})
+@AutoConfigureMockMvc
+class RateLimitChainTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Test
+    void login_ShouldBeLimitedPerAddress() throws Exception {
+        String wrongPassword = "{\"username\":\"admin\",\"password\":\"wrong\"}";
+        mockMvc.perform(post("/api/auth/login").contentType(MediaType.APPLICATION_JSON).content(wrongPassword))
+                .andExpect(status().isUnauthorized())
+                .andExpect(header().string(RateLimitFilter.REMAINING_HEADER, "0"));
+        mockMvc.perform(post("/api/auth/login").contentType(MediaType.APPLICATION_JSON).content(wrongPassword))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().exists(HttpHeaders.RETRY_AFTER));
+    }
+
+    @Test
+    void writes_ShouldBeLimitedPerTokenSubject() throws Exception {
+        String alice = "Bearer " + jwtService.generateToken("alice", List.of("USER", "ADMIN"));
+        String bob = "Bearer " + jwtService.generateToken("bob", List.of("USER", "ADMIN"));
+
+        mockMvc.perform(delete("/api/users/999999").header(HttpHeaders.AUTHORIZATION, alice))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(delete("/api/users/999999").header(HttpHeaders.AUTHORIZATION, alice))
+                .andExpect(status().isTooManyRequests());
+        mockMvc.perform(delete("/api/users/999999").header(HttpHeaders.AUTHORIZATION, bob))
+                .andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,121 @@
+package com.cc.data.demo2springboot.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimitFilterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private RateLimitFilter filter;
+    private AtomicInteger executions;
+    private FilterChain chain;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new RateLimitFilter(true, new RateLimiter(2, Duration.ofMinutes(1)),
+                new RateLimiter(3, Duration.ofMinutes(1)), new RateLimiter(1, Duration.ofMinutes(1)), meterRegistry);
+        executions = new AtomicInteger();
+        chain = (req, res) -> executions.incrementAndGet();
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private MockHttpServletResponse send(String method, String uri, String remoteAddr) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        request.setRemoteAddr(remoteAddr);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+
+    private void authenticateAs(String username) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                username, null, List.of(new SimpleGrantedAuthority("ROLE_ADMIN"))));
+    }
+
+    @Test
+    void allowedRequest_ShouldCarryRateLimitHeaders() throws Exception {
+        MockHttpServletResponse response = send("GET", "/api/users/1", "10.0.0.1");
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(executions).hasValue(1);
+        assertThat(response.getHeader(RateLimitFilter.LIMIT_HEADER)).isEqualTo("3");
+        assertThat(response.getHeader(RateLimitFilter.REMAINING_HEADER)).isEqualTo("2");
+        assertThat(response.getHeader(RateLimitFilter.RESET_HEADER)).isEqualTo("20");
+        assertThat(response.getHeader(RateLimitFilter.POLICY_HEADER)).isEqualTo("3;w=60");
+    }
+
+    @Test
+    void exhaustedBucket_ShouldBeRefusedWith429AndRetryAfter() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            send("GET", "/api/users", "10.0.0.1");
+        }
+        MockHttpServletResponse refused = send("GET", "/api/users", "10.0.0.1");
+
+        assertThat(refused.getStatus()).isEqualTo(429);
+        assertThat(executions).hasValue(3);
+        assertThat(refused.getHeader(RateLimitFilter.REMAINING_HEADER)).isEqualTo("0");
+        assertThat(refused.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("20");
+        assertThat(meterRegistry.get("http.ratelimit.rejected").tag("limit", "read").counter().count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    void readsWritesAndLogins_ShouldHaveSeparateBuckets() throws Exception {
+        authenticateAs("admin");
+        assertThat(send("PUT", "/api/users/1", "10.0.0.1").getStatus()).isEqualTo(200);
+        assertThat(send("DELETE", "/api/users/1", "10.0.0.1").getStatus()).isEqualTo(429);
+        assertThat(send("GET", "/api/users/1", "10.0.0.1").getStatus()).isEqualTo(200);
+        assertThat(send("POST", "/api/auth/login", "10.0.0.1").getStatus()).isEqualTo(200);
+        assertThat(send("POST", "/api/auth/login", "10.0.0.1").getStatus()).isEqualTo(200);
+        assertThat(send("POST", "/api/auth/login", "10.0.0.1").getStatus()).isEqualTo(429);
+    }
+
+    @Test
+    void authenticatedClients_ShouldBeLimitedPerSubjectNotPerAddress() throws Exception {
+        authenticateAs("alice");
+        assertThat(send("POST", "/api/users", "10.0.0.1").getStatus()).isEqualTo(200);
+        assertThat(send("POST", "/api/users", "10.0.0.2").getStatus()).isEqualTo(429);
+
+        authenticateAs("bob");
+        assertThat(send("POST", "/api/users", "10.0.0.1").getStatus()).isEqualTo(200);
+
+        SecurityContextHolder.clearContext();
+        assertThat(send("POST", "/api/users", "10.0.0.1").getStatus()).isEqualTo(200);
+        assertThat(send("POST", "/api/users", "10.0.0.1").getStatus()).isEqualTo(429);
+    }
+
+    @Test
+    void nonApiPathsAndDisabledFilter_ShouldNotBeLimited() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            assertThat(send("GET", "/actuator/health", "10.0.0.1").getStatus()).isEqualTo(200);
+        }
+        assertThat(send("GET", "/actuator/health", "10.0.0.1").getHeader(RateLimitFilter.LIMIT_HEADER)).isNull();
+
+        filter = new RateLimitFilter(false, new RateLimiter(1, Duration.ofMinutes(1)),
+                new RateLimiter(1, Duration.ofMinutes(1)), new RateLimiter(1, Duration.ofMinutes(1)),
+                new SimpleMeterRegistry());
+        for (int i = 0; i < 5; i++) {
+            assertThat(send("GET", "/api/users", "10.0.0.1").getStatus()).isEqualTo(200);
+        }
+    }
+}
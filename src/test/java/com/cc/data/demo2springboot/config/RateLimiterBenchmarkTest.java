@@ -0,0 +1,90 @@
+package com.cc.data.demo2springboot.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Cost of the rate limit on the allowed path: a token taken from one of 10,000 known clients'
+ * buckets, and the whole filter around a no-op chain for an authenticated client.
+ * Run with -Dbenchmark=true.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class RateLimiterBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(RateLimiterBenchmarkTest.class);
+
+    private static final int CLIENTS = 10_000;
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int ROUNDS = 10;
+    private static final int OPERATIONS = 2_000_000;
+
+    @Test
+    void allowedPath() throws Exception {
+        // Large enough that no client ever runs out during the benchmark
+        RateLimiter limiter = new RateLimiter(Integer.MAX_VALUE, Duration.ofSeconds(1));
+        String[] clients = new String[CLIENTS];
+        for (int i = 0; i < CLIENTS; i++) {
+            clients[i] = "user" + i;
+            limiter.tryAcquire(clients[i]);
+        }
+
+        long granted = 0;
+        double best = Double.MAX_VALUE;
+        for (int round = 0; round < WARMUP_ROUNDS + ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < OPERATIONS; i++) {
+                granted += limiter.tryAcquire(clients[i % CLIENTS]) >= 0 ? 1 : 0;
+            }
+            if (round >= WARMUP_ROUNDS) {
+                best = Math.min(best, (System.nanoTime() - start) / (double) OPERATIONS);
+            }
+        }
+        assertThat(granted).isEqualTo((long) OPERATIONS * (WARMUP_ROUNDS + ROUNDS));
+        logger.info("tryAcquire: {} ns per token, {} clients", String.format("%.1f", best), CLIENTS);
+
+        RateLimitFilter filter = new RateLimitFilter(true, limiter, limiter, limiter, new SimpleMeterRegistry());
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/users/1");
+        FilterChain chain = (req, res) -> { };
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                "user1", null, List.of(new SimpleGrantedAuthority("ROLE_USER"))));
+        try {
+            double filterBest = Double.MAX_VALUE;
+            double chainBest = Double.MAX_VALUE;
+            for (int round = 0; round < WARMUP_ROUNDS + ROUNDS; round++) {
+                long start = System.nanoTime();
+                for (int i = 0; i < OPERATIONS / 10; i++) {
+                    filter.doFilter(request, new MockHttpServletResponse(), chain);
+                    request.removeAttribute(filter.getClass().getName() + ".FILTERED");
+                }
+                long filtered = System.nanoTime() - start;
+                start = System.nanoTime();
+                for (int i = 0; i < OPERATIONS / 10; i++) {
+                    chain.doFilter(request, new MockHttpServletResponse());
+                }
+                long bare = System.nanoTime() - start;
+                if (round >= WARMUP_ROUNDS) {
+                    filterBest = Math.min(filterBest, filtered / (OPERATIONS / 10.0));
+                    chainBest = Math.min(chainBest, bare / (OPERATIONS / 10.0));
+                }
+            }
+            logger.info("filter: {} ns per request, {} ns of it creating the mock response",
+                    String.format("%.1f", filterBest), String.format("%.1f", chainBest));
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.cc.data.demo2springboot.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RateLimiterTest {
+
+    private final AtomicLong now = new AtomicLong(TimeUnit.HOURS.toNanos(1));
+
+    private RateLimiter limiter(int capacity, Duration period) {
+        return new RateLimiter(capacity, period, now::get);
+    }
+
+    private void advance(Duration duration) {
+        now.addAndGet(duration.toNanos());
+    }
+
+    @Test
+    void tryAcquire_ShouldAllowABurstOfCapacityThenRefuse() {
+        RateLimiter limiter = limiter(5, Duration.ofSeconds(5));
+
+        for (int i = 4; i >= 0; i--) {
+            long result = limiter.tryAcquire("alice");
+            assertThat(result).isNotNegative();
+            assertThat(limiter.remaining(result)).isEqualTo(i);
+        }
+
+        long refused = limiter.tryAcquire("alice");
+        assertThat(refused).isEqualTo(-Duration.ofSeconds(1).toNanos());
+    }
+
+    @Test
+    void tryAcquire_ShouldRefillOneTokenPerInterval() {
+        RateLimiter limiter = limiter(5, Duration.ofSeconds(5));
+        for (int i = 0; i < 5; i++) {
+            limiter.tryAcquire("alice");
+        }
+
+        advance(Duration.ofMillis(999));
+        assertThat(limiter.tryAcquire("alice")).isNegative();
+        advance(Duration.ofMillis(1));
+        long result = limiter.tryAcquire("alice");
+        assertThat(result).isEqualTo(Duration.ofSeconds(5).toNanos());
+        assertThat(limiter.remaining(result)).isZero();
+
+        advance(Duration.ofMinutes(1));
+        assertThat(limiter.remaining(limiter.tryAcquire("alice"))).isEqualTo(4);
+    }
+
+    @Test
+    void tryAcquire_ShouldKeepClientsApart() {
+        RateLimiter limiter = limiter(1, Duration.ofMinutes(1));
+
+        assertThat(limiter.tryAcquire("alice")).isNotNegative();
+        assertThat(limiter.tryAcquire("alice")).isNegative();
+        assertThat(limiter.tryAcquire("bob")).isNotNegative();
+    }
+
+    @Test
+    void tryAcquire_ShouldNeverGrantMoreThanCapacityToConcurrentCallers() throws Exception {
+        RateLimiter limiter = limiter(1_000, Duration.ofHours(1));
+        AtomicLong granted = new AtomicLong();
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 1_000; i++) {
+                        if (limiter.tryAcquire("shared") >= 0) {
+                            granted.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+
+        assertThat(granted).hasValue(1_000);
+    }
+
+    @Test
+    void evictIdle_ShouldDropOnlyRefilledBuckets() {
+        RateLimiter limiter = limiter(2, Duration.ofSeconds(2));
+        limiter.tryAcquire("idle");
+        advance(Duration.ofSeconds(1));
+        limiter.tryAcquire("busy");
+
+        assertThat(limiter.evictIdle()).isEqualTo(1);
+        assertThat(limiter.size()).isEqualTo(1);
+
+        // The busy client keeps its partly used bucket
+        limiter.tryAcquire("busy");
+        assertThat(limiter.tryAcquire("busy")).isNegative();
+    }
+
+    @Test
+    void constructor_ShouldRejectEmptyLimits() {
+        assertThatThrownBy(() -> new RateLimiter(0, Duration.ofSeconds(1)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new RateLimiter(1, Duration.ZERO))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,118 @@
+package com.cc.data.demo2springboot.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Routes against two independent in-memory H2 databases standing in for a primary and
+ * its replica. Nothing replicates between them, so which one served a read is visible
+ * from its result; replication_position plays the role of each side's commit-log position.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:rw-primary;DB_CLOSE_DELAY=-1",
+        "app.datasource.replica.url=jdbc:h2:mem:rw-replica;DB_CLOSE_DELAY=-1",
+        "app.datasource.replica.primaryPositionQuery=SELECT position FROM replication_position",
+        "app.datasource.replica.replicaPositionQuery=SELECT position FROM replication_position",
+        "app.datasource.replica.positionPollInterval=PT1H",
+        "app.user.purge.enabled=false"
+})
+@AutoConfigureMockMvc
+class ReadWriteRoutingTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ReplicaLagMonitor lagMonitor;
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primaryDataSource;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private DataSource replicaDataSource;
+
+    private JdbcTemplate primary;
+    private JdbcTemplate replica;
+
+    @BeforeEach
+    void setUp() {
+        primary = new JdbcTemplate(primaryDataSource);
+        replica = new JdbcTemplate(replicaDataSource);
+        primary.execute("CREATE TABLE replication_position (position BIGINT)");
+        primary.update("INSERT INTO replication_position VALUES (10)");
+        replica.execute("CREATE TABLE replication_position (position BIGINT)");
+        replica.update("INSERT INTO replication_position VALUES (9)");
+        replica.execute("CREATE TABLE users (id BIGINT PRIMARY KEY, username VARCHAR(255) NOT NULL, "
+                + "email VARCHAR(255) NOT NULL, full_name VARCHAR(255), created_at TIMESTAMP, "
+                + "updated_at TIMESTAMP, active BOOLEAN NOT NULL, last_seen_at TIMESTAMP, version BIGINT, "
+                + "deleted_at TIMESTAMP)");
+        lagMonitor.refresh();
+    }
+
+    @AfterEach
+    void tearDown() {
+        primary.execute("DELETE FROM users");
+        primary.execute("DROP TABLE replication_position");
+        replica.execute("DROP TABLE replication_position");
+        replica.execute("DROP TABLE users");
+    }
+
+    @Test
+    void readOnlyRequest_ShouldBeServedByReplica() throws Exception {
+        replica.update("INSERT INTO users (id, username, email, active, version) "
+                + "VALUES (900, 'replica-only', 'replica-only@example.com', TRUE, 0)");
+
+        mockMvc.perform(get("/api/users/900"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.username").value("replica-only"));
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void write_ShouldIssueTokenThatPinsReadsToPrimaryUntilReplicaCatchesUp() throws Exception {
+        MvcResult created = mockMvc.perform(post("/api/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\":\"fresh\",\"email\":\"fresh@example.com\",\"active\":true}"))
+                .andExpect(status().isCreated())
+                .andExpect(header().string(ReadYourWritesFilter.TOKEN_HEADER, "10"))
+                .andReturn();
+        String location = created.getResponse().getHeader("Location");
+        assertThat(location).isNotNull();
+        String path = location.substring(location.indexOf("/api/users/"));
+
+        // Without the token the lagging replica answers and has not seen the user yet
+        mockMvc.perform(get(path)).andExpect(status().isNotFound());
+
+        // With the token the read is pinned to the primary
+        mockMvc.perform(get(path).header(ReadYourWritesFilter.TOKEN_HEADER, "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.username").value("fresh"));
+
+        // Once the replica reports the position, token holders go back to it
+        replica.update("UPDATE replication_position SET position = 10");
+        lagMonitor.refresh();
+        mockMvc.perform(get(path).header(ReadYourWritesFilter.TOKEN_HEADER, "10"))
+                .andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,98 @@
+package com.cc.data.demo2springboot.config;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.output.MigrateResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the migrations in db/migration against embedded H2 databases holding a large users table.
+ */
+class SchemaMigrationTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(SchemaMigrationTest.class);
+
+    private static final int ROWS = 200_000;
+
+    // The schema ddl-auto=update produced before the migrations existed
+    private static final String HIBERNATE_DDL = "CREATE TABLE users (active BOOLEAN NOT NULL, created_at TIMESTAMP(6), "
+            + "deleted_at TIMESTAMP(6), id BIGINT GENERATED BY DEFAULT AS IDENTITY, last_seen_at TIMESTAMP(6), "
+            + "updated_at TIMESTAMP(6), version BIGINT, email VARCHAR(255) NOT NULL UNIQUE, full_name VARCHAR(255), "
+            + "username VARCHAR(255) NOT NULL UNIQUE, PRIMARY KEY (id))";
+
+    private final DataSource dataSource = new DriverManagerDataSource(
+            "jdbc:h2:mem:schema-migration;DB_CLOSE_DELAY=-1", "sa", "password");
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    private Flyway flyway(String target) {
+        return Flyway.configure().dataSource(dataSource).target(target)
+                .baselineOnMigrate(true).baselineVersion("1").load();
+    }
+
+    private void seed() {
+        jdbcTemplate.update("INSERT INTO users (username, email, full_name, created_at, updated_at, active, version) "
+                + "SELECT 'user' || X, 'user' || X || '@example.com', 'User ' || X, "
+                + "DATEADD(SECOND, X, TIMESTAMP '2024-01-01 00:00:00'), DATEADD(SECOND, X, TIMESTAMP '2024-06-01 00:00:00'), "
+                + "MOD(X, 10) <> 0, 0 FROM SYSTEM_RANGE(1, " + ROWS + ")");
+    }
+
+    private String plan(String query) {
+        return jdbcTemplate.queryForObject("EXPLAIN " + query, String.class);
+    }
+
+    @Test
+    void migrate_ShouldIndexLargeExistingTable() {
+        flyway("1").migrate();
+        seed();
+
+        long start = System.nanoTime();
+        MigrateResult result = flyway("2").migrate();
+        logger.info("Indexed {} users in {} ms", ROWS, (System.nanoTime() - start) / 1_000_000);
+
+        assertThat(result.migrationsExecuted).isEqualTo(1);
+        assertThat(result.targetSchemaVersion).isEqualTo("2");
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Long.class)).isEqualTo(ROWS);
+        assertThat(jdbcTemplate.queryForList("SELECT INDEX_NAME FROM INFORMATION_SCHEMA.INDEXES "
+                + "WHERE TABLE_NAME = 'USERS'", String.class))
+                .contains("IDX_USERS_ACTIVE", "IDX_USERS_CREATED_AT", "IDX_USERS_UPDATED_AT", "IDX_USERS_DELETED_AT");
+        assertThat(plan("SELECT id FROM users WHERE email = 'user7@example.com'")).contains("UK_USERS_EMAIL");
+        assertThat(plan("SELECT id FROM users WHERE username = 'user7'")).contains("UK_USERS_USERNAME");
+        assertThat(plan("SELECT id FROM users ORDER BY created_at LIMIT 10")).contains("IDX_USERS_CREATED_AT");
+        assertThat(plan("SELECT id FROM users ORDER BY updated_at DESC LIMIT 10")).contains("IDX_USERS_UPDATED_AT");
+    }
+
+    @Test
+    void migrate_ShouldAdoptSchemaCreatedByHibernate() {
+        jdbcTemplate.execute(HIBERNATE_DDL);
+        seed();
+
+        MigrateResult result = flyway("latest").migrate();
+
+        // Baselined at V1, so only the later migrations run and the rows are kept
+        assertThat(result.migrations).extracting(migration -> migration.version).doesNotContain("1").contains("2");
+        assertThat(flyway("latest").info().pending()).isEmpty();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Long.class)).isEqualTo(ROWS);
+        assertThat(plan("SELECT id FROM users ORDER BY created_at LIMIT 10")).contains("IDX_USERS_CREATED_AT");
+    }
+
+    @Test
+    void migrate_OnEmptyDatabase_ShouldCreateSchemaFromScratch() {
+        MigrateResult result = flyway("latest").migrate();
+
+        assertThat(result.migrationsExecuted).isEqualTo(flyway("latest").info().all().length);
+        assertThat(flyway("latest").migrate().migrationsExecuted).isZero();
+    }
+}
@@ -0,0 +1,112 @@
+package com.cc.data.demo2springboot.config;
+
+import com.cc.data.demo2springboot.model.User;
+import com.cc.data.demo2springboot.service.UserService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:servertiming;DB_CLOSE_DELAY=-1",
+        "app.user.purge.enabled=false",
+        "app.servertiming.enabled=true",
+        "app.servertiming.logThreshold=PT0S"
+})
+@AutoConfigureMockMvc
+@ExtendWith(OutputCaptureExtension.class)
+class ServerTimingTest {
+
+    private static final String DURATION = ";dur=\\d+\\.\\d";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserService userService;
+
+    @Test
+    void apiResponses_ShouldBreakDownTheirLatencyByPhase(CapturedOutput output) throws Exception {
+        MockHttpServletResponse login = mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\":\"admin\",\"password\":\"admin\"}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse();
+        assertThat(login.getHeader(ServerTiming.HEADER))
+                .matches("auth" + DURATION + ";desc=\"1 check\", .*ser" + DURATION + ";desc=\"1 body\", total"
+                        + DURATION);
+        String admin = "Bearer " + objectMapper.readTree(login.getContentAsString()).get("token").asText();
+
+        // Authorized twice, by URL and by @PreAuthorize, and written to the database
+        String created = mockMvc.perform(post("/api/users")
+                        .header(HttpHeaders.AUTHORIZATION, admin)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\":\"timed\",\"email\":\"timed@example.com\",\"fullName\":\"Timed\"}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getHeader(ServerTiming.HEADER);
+        assertThat(created).matches("auth" + DURATION + ";desc=\"1 check\", authz" + DURATION
+                + ";desc=\"2 decisions\", service" + DURATION + ";desc=\"\\d+ calls?\", repo" + DURATION
+                + ";desc=\"\\d+ calls?\", db" + DURATION + ";desc=\"\\d+ statements?\", ser" + DURATION
+                + ";desc=\"1 body\", total" + DURATION);
+
+        String listed = mockMvc.perform(get("/api/users?page=0&size=5"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(ServerTiming.HEADER);
+        assertThat(listed).contains("service;dur=", "repo;dur=", "ser;dur=", "total;dur=").doesNotContain("auth;");
+
+        // A rejected token still costs its verification
+        String rejected = mockMvc.perform(post("/api/users")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer not.a.token")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{}"))
+                .andExpect(status().isForbidden())
+                .andReturn().getResponse().getHeader(ServerTiming.HEADER);
+        assertThat(rejected).startsWith("auth;dur=").doesNotContain("service;");
+
+        assertThat(mockMvc.perform(get("/actuator/health")).andReturn().getResponse().getHeader(ServerTiming.HEADER))
+                .isNull();
+
+        assertThat(output).containsPattern("Slow request POST /api/users 201 \\(\\d+\\.\\d ms\\): auth=[\\d.]+ms/1 "
+                + "authz=[\\d.]+ms/2 service=[\\d.]+ms/\\d+ repo=[\\d.]+ms/\\d+ db=[\\d.]+ms/\\d+ ser=[\\d.]+ms/1");
+    }
+
+    @Test
+    void eventStream_ShouldBeLeftUntimedWhileItKeepsDelivering() throws Exception {
+        MvcResult stream = mockMvc.perform(get("/api/users/changes/stream").accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        User user = new User();
+        user.setUsername("streamtimed");
+        user.setEmail("streamtimed@example.com");
+        user.setActive(true);
+        userService.createUser(user);
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!stream.getResponse().getContentAsString().contains("streamtimed") && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(stream.getResponse().getContentAsString()).contains("event:created", "streamtimed");
+        assertThat(stream.getResponse().getHeader(ServerTiming.HEADER)).isNull();
+    }
+}
@@ -0,0 +1,118 @@
+package com.cc.data.demo2springboot.config;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@ExtendWith(OutputCaptureExtension.class)
+class SqlStatementTracerTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private SqlStatementTracer tracer;
+    private JdbcTemplate jdbcTemplate;
+
+    private JdbcTemplate tracedTemplate(Duration slowThreshold, double sampleRate, int maxStatements) {
+        tracer = new SqlStatementTracer(meterRegistry, slowThreshold, sampleRate, true, maxStatements);
+        return new JdbcTemplate(new TracingDataSource(
+                new DriverManagerDataSource("jdbc:h2:mem:tracing;DB_CLOSE_DELAY=-1", "sa", ""), tracer));
+    }
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        jdbcTemplate = tracedTemplate(Duration.ofHours(1), 0, 500);
+        jdbcTemplate.execute("CREATE TABLE users (id BIGINT PRIMARY KEY, username VARCHAR(255))");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP TABLE users");
+    }
+
+    private Timer timer(String statement) {
+        return meterRegistry.get(SqlStatementTracer.METER_NAME)
+                .tag(SqlStatementTracer.STATEMENT_TAG, SqlStatementTracer.id(statement)).timer();
+    }
+
+    @Test
+    void statements_ShouldBeTimedPerShape(CapturedOutput output) {
+        jdbcTemplate.update("INSERT INTO users VALUES (?, ?)", 1L, "alice");
+        jdbcTemplate.update("INSERT INTO users VALUES (?, ?)", 2L, "bob");
+        jdbcTemplate.queryForList("SELECT username FROM users WHERE id IN (?, ?)", String.class, 1L, 2L);
+        jdbcTemplate.queryForList("SELECT username FROM users WHERE id IN (?, ?, ?)", String.class, 1L, 2L, 3L);
+        jdbcTemplate.queryForList("SELECT username FROM users WHERE id = 42", String.class);
+
+        assertThat(timer("INSERT INTO users VALUES (?, ?)").count()).isEqualTo(2);
+        assertThat(timer("SELECT username FROM users WHERE id IN (?...)").count()).isEqualTo(2);
+        assertThat(timer("SELECT username FROM users WHERE id = ?").count()).isEqualTo(1);
+        // Nothing was slow or sampled
+        assertThat(output).doesNotContain("Slow SQL").doesNotContain("Sampled SQL");
+    }
+
+    @Test
+    void slowStatement_ShouldBeLoggedWithParameters(CapturedOutput output) {
+        JdbcTemplate slowLogging = tracedTemplate(Duration.ZERO, 0, 500);
+
+        slowLogging.update("INSERT INTO users VALUES (?, ?)", 7L, "carol");
+
+        assertThat(output).contains("Slow SQL (").contains("INSERT INTO users VALUES (?, ?) [7, carol]");
+    }
+
+    @Test
+    void sampledStatement_ShouldBeLoggedEvenWhenFast(CapturedOutput output) {
+        JdbcTemplate sampled = tracedTemplate(Duration.ofHours(1), 1.0, 500);
+
+        sampled.queryForList("SELECT username FROM users WHERE id = ?", String.class, 5L);
+
+        assertThat(output).contains("Sampled SQL (").contains("[5]");
+    }
+
+    @Test
+    void failedStatement_ShouldStillBeTimed() {
+        assertThatThrownBy(() -> jdbcTemplate.execute("SELECT missing FROM users")).isInstanceOf(RuntimeException.class);
+
+        assertThat(timer("SELECT missing FROM users").count()).isEqualTo(1);
+    }
+
+    @Test
+    void distinctShapes_ShouldBeCappedIntoOverflowTimer() {
+        JdbcTemplate capped = tracedTemplate(Duration.ofHours(1), 0, 2);
+
+        capped.queryForList("SELECT id FROM users", Long.class);
+        capped.queryForList("SELECT username FROM users", String.class);
+        capped.queryForList("SELECT id, username FROM users");
+
+        List<String> statements = meterRegistry.find(SqlStatementTracer.METER_NAME).timers().stream()
+                .map(timer -> timer.getId().getTag(SqlStatementTracer.STATEMENT_TAG)).toList();
+        assertThat(statements).contains(SqlStatementTracer.OVERFLOW_STATEMENT);
+    }
+
+    @Test
+    void timers_ShouldBeTaggedWithShortIdsAndListedWithTheirSql() {
+        jdbcTemplate.update("INSERT INTO users VALUES (?, ?)", 1L, "alice");
+        jdbcTemplate.queryForList("SELECT username FROM users WHERE id = 1", String.class);
+
+        Timer insert = timer("INSERT INTO users VALUES (?, ?)");
+        assertThat(insert.getId().getTag(SqlStatementTracer.STATEMENT_TAG)).matches("[0-9a-f]{8}");
+        // A handful of buckets per shape, not a full percentile histogram
+        assertThat(insert.takeSnapshot().histogramCounts()).hasSize(8);
+
+        List<SqlStatementsEndpoint.StatementStats> statements =
+                new SqlStatementsEndpoint(meterRegistry, tracer).statements();
+        assertThat(statements).extracting(SqlStatementsEndpoint.StatementStats::statement)
+                .contains("INSERT INTO users VALUES (?, ?)", "SELECT username FROM users WHERE id = ?");
+    }
+}
@@ -1,6 +1,9 @@
 package com.cc.data.demo2springboot.config;
 
 import com.cc.data.demo2springboot.service.JwtService;
+import com.cc.data.demo2springboot.service.LastSeenTracker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Bean;
@@ -26,9 +29,18 @@ public class TestSecurityConfig {
     @MockBean
     private JwtService jwtService;
 
+    @MockBean
+    private LastSeenTracker lastSeenTracker;
+
+    // Web slices have no metrics auto-configuration; the rate limit filter registers its meters here
+    @Bean
+    public MeterRegistry meterRegistry() {
+        return new SimpleMeterRegistry();
+    }
+
     @Bean
     public JwtAuthenticationFilter jwtAuthenticationFilter() {
-        return new JwtAuthenticationFilter(jwtService);
+        return new JwtAuthenticationFilter(jwtService, lastSeenTracker, request -> false);
     }
 
     @Bean
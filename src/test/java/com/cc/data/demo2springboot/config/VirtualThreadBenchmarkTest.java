@@ -0,0 +1,189 @@
+package com.cc.data.demo2springboot.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Blocking request workloads at high concurrency on Tomcat's platform thread pool (200 threads)
+ * and on virtual threads, reporting throughput, p50/p99 latency and peak live threads:
+ * <ul>
+ *   <li>remote: 50 ms blocked on a simulated downstream call, holding no database connection;</li>
+ *   <li>database: a 20 ms query holding one of the 10 pooled connections.</li>
+ * </ul>
+ * Run with -Dbenchmark=true, one nested class per JVM (e.g. -Dtest='VirtualThreadBenchmarkTest$Virtual').
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class VirtualThreadBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadBenchmarkTest.class);
+
+    private static final int CONCURRENCY = 400;
+    private static final int WARMUP_REQUESTS = 1_000;
+    private static final int MEASURED_REQUESTS = 4_000;
+
+    @TestConfiguration
+    static class BlockingEndpoint {
+
+        @Bean
+        BlockingController blockingController(JdbcTemplate jdbcTemplate) {
+            return new BlockingController(jdbcTemplate);
+        }
+    }
+
+    @RestController
+    static class BlockingController {
+
+        private final JdbcTemplate jdbcTemplate;
+
+        BlockingController(JdbcTemplate jdbcTemplate) {
+            this.jdbcTemplate = jdbcTemplate;
+        }
+
+        @GetMapping("/api/users/bench")
+        boolean handle(@RequestParam int dbMillis, @RequestParam int remoteMillis)
+                throws InterruptedException {
+            if (dbMillis > 0) {
+                jdbcTemplate.queryForObject("SELECT BENCH_SLEEP(?)", Integer.class, dbMillis);
+            }
+            if (remoteMillis > 0) {
+                Thread.sleep(remoteMillis);
+            }
+            return Thread.currentThread().isVirtual();
+        }
+    }
+
+    abstract static class Workload {
+
+        @LocalServerPort
+        private int port;
+
+        @Autowired
+        private JdbcTemplate jdbcTemplate;
+
+        @Autowired
+        private ObjectProvider<PinnedThreadRecorder> pinnedThreadRecorder;
+
+        private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+        @AfterEach
+        void tearDown() {
+            client.shutdownNow();
+        }
+
+        void run(String label, boolean virtual) throws Exception {
+            jdbcTemplate.execute("CREATE ALIAS IF NOT EXISTS BENCH_SLEEP AS "
+                    + "'int sleep(int millis) throws Exception { Thread.sleep(millis); return millis; }'");
+            String remote = "http://localhost:" + port + "/api/users/bench?dbMillis=0&remoteMillis=50";
+            String database = "http://localhost:" + port + "/api/users/bench?dbMillis=20&remoteMillis=0";
+            load(remote, WARMUP_REQUESTS, virtual);
+            measure(label + " remote", remote, virtual);
+            measure(label + " database", database, virtual);
+
+            pinnedThreadRecorder.ifAvailable(recorder -> recorder.sites().forEach(site ->
+                    logger.info("{}: pinned {} x{}, total {} ms", label, site.site(), site.count(),
+                            Math.round(site.totalMs()))));
+        }
+
+        private void measure(String label, String uri, boolean virtual) throws Exception {
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            threads.resetPeakThreadCount();
+            long start = System.nanoTime();
+            long[] latencies = load(uri, MEASURED_REQUESTS, virtual);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            Arrays.sort(latencies);
+            logger.info("{}: {} req/s, p50 {} ms, p99 {} ms, max {} ms, peak live threads {}", label,
+                    Math.round(MEASURED_REQUESTS / seconds), latencies[latencies.length / 2] / 1_000_000,
+                    latencies[(int) (latencies.length * 0.99)] / 1_000_000,
+                    latencies[latencies.length - 1] / 1_000_000, threads.getPeakThreadCount());
+        }
+
+        /**
+         * Sends the requests with at most CONCURRENCY in flight.
+         * @return the latency of each request in nanoseconds
+         */
+        private long[] load(String uri, int requests, boolean virtual) throws Exception {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(uri)).build();
+            Semaphore inFlight = new Semaphore(CONCURRENCY);
+            long[] latencies = new long[requests];
+            AtomicInteger failures = new AtomicInteger();
+            CompletableFuture<?>[] futures = new CompletableFuture<?>[requests];
+            for (int i = 0; i < requests; i++) {
+                inFlight.acquire();
+                int slot = i;
+                long sent = System.nanoTime();
+                futures[i] = client.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                        .whenComplete((response, error) -> {
+                            latencies[slot] = System.nanoTime() - sent;
+                            if (error != null || response.statusCode() != 200
+                                    || !response.body().equals(Boolean.toString(virtual))) {
+                                failures.incrementAndGet();
+                            }
+                            inFlight.release();
+                        });
+            }
+            CompletableFuture.allOf(futures).exceptionally(error -> null).join();
+            assertThat(failures).hasValue(0);
+            return latencies;
+        }
+    }
+
+    @Nested
+    @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+            "spring.datasource.url=jdbc:h2:mem:threads-bench-platform;DB_CLOSE_DELAY=-1",
+            "spring.threads.virtual.enabled=false",
+            "server.tomcat.accept-count=1000",
+            "app.sql.trace.sampleRate=0",
+            "app.user.purge.enabled=false"
+    })
+    class Platform extends Workload {
+
+        @Test
+        void blockingRequests() throws Exception {
+            run("platform threads", false);
+        }
+    }
+
+    @Nested
+    @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+            "spring.datasource.url=jdbc:h2:mem:threads-bench-virtual;DB_CLOSE_DELAY=-1",
+            "spring.threads.virtual.enabled=true",
+            "server.tomcat.accept-count=1000",
+            "app.sql.trace.sampleRate=0",
+            "app.user.purge.enabled=false"
+    })
+    class Virtual extends Workload {
+
+        @Test
+        void blockingRequests() throws Exception {
+            run("virtual threads", true);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.cc.data.demo2springboot.controller;
+
+import com.cc.data.demo2springboot.service.JwtService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.Claims;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The {@link AuthControllerTest} scenarios against the real authentication manager and JWT service.
+ * Free of Mockito, so they also run as native tests (mvn -PnativeTest test).
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:auth-it;DB_CLOSE_DELAY=-1",
+        "app.user.purge.enabled=false"
+})
+@AutoConfigureMockMvc
+class AuthControllerIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JwtService jwtService;
+
+    private ResultActions login(String body) throws Exception {
+        return mockMvc.perform(post("/api/auth/login").contentType(MediaType.APPLICATION_JSON).content(body));
+    }
+
+    private Claims loginClaims(String username, String password) throws Exception {
+        String response = login("{\"username\":\"" + username + "\",\"password\":\"" + password + "\"}")
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        String token = objectMapper.readTree(response).get("token").asText();
+        assertThat(jwtService.validateToken(token)).isTrue();
+        return jwtService.extractClaims(token);
+    }
+
+    @Test
+    void login_withAdminCredentials_shouldReturnTokenWithAllRoles() throws Exception {
+        Claims claims = loginClaims("admin", "admin");
+
+        assertThat(claims.getSubject()).isEqualTo("admin");
+        assertThat(claims.get("roles", String.class).split(",")).containsExactlyInAnyOrder("ADMIN", "USER");
+    }
+
+    @Test
+    void login_withUserCredentials_shouldReturnTokenWithUserRole() throws Exception {
+        Claims claims = loginClaims("user", "password");
+
+        assertThat(claims.getSubject()).isEqualTo("user");
+        assertThat(claims.get("roles", String.class)).isEqualTo("USER");
+    }
+
+    @Test
+    void login_withInvalidCredentials_shouldReturn401() throws Exception {
+        login("{\"username\":\"invaliduser\",\"password\":\"wrongpassword\"}")
+                .andExpect(status().isUnauthorized());
+        login("{\"username\":\"admin\",\"password\":\"wrongpassword\"}")
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void login_withMissingUsernameOrPassword_shouldBeBadRequest() throws Exception {
+        login("{\"password\":\"password\"}").andExpect(status().isBadRequest());
+        login("{\"username\":\"user\"}").andExpect(status().isBadRequest());
+    }
+}
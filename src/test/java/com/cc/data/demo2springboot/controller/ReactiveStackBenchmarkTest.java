@@ -0,0 +1,243 @@
+package com.cc.data.demo2springboot.controller;
+
+import com.cc.data.demo2springboot.service.JwtService;
+import com.zaxxer.hikari.HikariDataSource;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.PoolMetrics;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Slow clients against the servlet stack (Tomcat, 200 request threads, JDBC) and the reactive
+ * profile (Netty, R2DBC): clients arrive steadily over twenty seconds, and each updates its own
+ * user while trickling the request body over about eight seconds, as a client on a poor mobile
+ * link would. Reports completed requests, p50/p99 latency, peak live threads, heap held at the
+ * end of the arrivals and peak database connections in use.
+ * The client count defaults to 10,000 and is set with -Dclients; each client costs two file
+ * descriptors in this JVM. Run with -Dbenchmark=true, one nested class per JVM
+ * (e.g. -Dtest='ReactiveStackBenchmarkTest$Reactive').
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ReactiveStackBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveStackBenchmarkTest.class);
+
+    private static final int CLIENTS = Integer.getInteger("clients", 10_000);
+    private static final int BODY_CHUNKS = 4;
+    private static final long CHUNK_PAUSE_MILLIS = 2_000;
+    private static final long RAMP_UP_MILLIS = 20_000;
+    private static final int WARMUP_CLIENTS = 16;
+    private static final int WARMUP_REQUESTS = 5_000;
+
+    abstract static class Workload {
+
+        @LocalServerPort
+        private int port;
+
+        @Autowired
+        private JdbcTemplate jdbcTemplate;
+
+        @Autowired
+        private JwtService jwtService;
+
+        void run(String label, IntSupplier connectionsInUse) throws Exception {
+            List<Long> ids = seedUsers();
+            String token = jwtService.generateToken("admin", List.of("USER", "ADMIN"));
+            warmUp(ids, token);
+
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+            System.gc();
+            long heapBefore = memory.getHeapMemoryUsage().getUsed();
+            threads.resetPeakThreadCount();
+
+            AtomicInteger peakConnections = new AtomicInteger();
+            Thread sampler = Thread.ofPlatform().daemon().start(() -> {
+                while (!Thread.currentThread().isInterrupted()) {
+                    peakConnections.accumulateAndGet(connectionsInUse.getAsInt(), Math::max);
+                    try {
+                        Thread.sleep(10);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            });
+
+            long[] latencies = new long[CLIENTS];
+            AtomicInteger failures = new AtomicInteger();
+            long heapHeld;
+            long start = System.nanoTime();
+            try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+                List<Future<?>> futures = new ArrayList<>(CLIENTS);
+                for (int i = 0; i < CLIENTS; i++) {
+                    int client = i;
+                    futures.add(clients.submit(() -> {
+                        try {
+                            Thread.sleep(RAMP_UP_MILLIS * client / CLIENTS);
+                            long sent = System.nanoTime();
+                            int status = update(ids.get(client), client, token, CHUNK_PAUSE_MILLIS);
+                            latencies[client] = System.nanoTime() - sent;
+                            if (status != 200) {
+                                failures.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            latencies[client] = Long.MAX_VALUE;
+                            failures.incrementAndGet();
+                        }
+                        return null;
+                    }));
+                }
+                // Every client has arrived; the last few seconds of arrivals are still sending
+                TimeUnit.MILLISECONDS.sleep(RAMP_UP_MILLIS);
+                System.gc();
+                heapHeld = memory.getHeapMemoryUsage().getUsed() - heapBefore;
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } finally {
+                sampler.interrupt();
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            Arrays.sort(latencies);
+            logger.info("{}: {} of {} clients completed in {} s, p50 {} ms, p99 {} ms, peak live threads {}, "
+                            + "heap held {} MB, peak database connections {}", label, CLIENTS - failures.get(),
+                    CLIENTS, Math.round(seconds), latencies[latencies.length / 2] / 1_000_000,
+                    latencies[(int) (latencies.length * 0.99)] / 1_000_000, threads.getPeakThreadCount(),
+                    heapHeld / (1024 * 1024), peakConnections.get());
+            assertThat(failures).hasValue(0);
+        }
+
+        /**
+         * Brings both stacks to compiled code first: on a small machine the JIT otherwise dominates.
+         */
+        private void warmUp(List<Long> ids, String token) throws Exception {
+            try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+                List<Future<?>> futures = new ArrayList<>(WARMUP_CLIENTS);
+                for (int i = 0; i < WARMUP_CLIENTS; i++) {
+                    int first = i;
+                    futures.add(clients.submit(() -> {
+                        for (int request = first; request < WARMUP_REQUESTS; request += WARMUP_CLIENTS) {
+                            int client = request % ids.size();
+                            assertThat(update(ids.get(client), client, token, 0)).isEqualTo(200);
+                        }
+                        return null;
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            }
+        }
+
+        private List<Long> seedUsers() {
+            LocalDateTime now = LocalDateTime.now();
+            List<Object[]> rows = new ArrayList<>(CLIENTS);
+            for (int i = 0; i < CLIENTS; i++) {
+                rows.add(new Object[]{"slow" + i, "slow" + i + "@example.com", "Slow " + i, now, now});
+            }
+            jdbcTemplate.batchUpdate("INSERT INTO users (username, email, full_name, created_at, updated_at, "
+                    + "active, version) VALUES (?, ?, ?, ?, ?, TRUE, 0)", rows);
+            return jdbcTemplate.queryForList("SELECT id FROM users WHERE username LIKE 'slow%' ORDER BY id",
+                    Long.class);
+        }
+
+        /**
+         * Sends the headers at once and the body in pauses, then reads the status line.
+         */
+        private int update(long id, int index, String token, long chunkPauseMillis) throws Exception {
+            byte[] body = ("{\"username\":\"slow" + index + "\",\"email\":\"slow" + index + "@example.com\","
+                    + "\"fullName\":\"Renamed " + index + "\",\"active\":true}").getBytes(StandardCharsets.UTF_8);
+            try (Socket socket = new Socket("localhost", port)) {
+                OutputStream out = socket.getOutputStream();
+                out.write(("PUT /api/users/" + id + " HTTP/1.1\r\n"
+                        + "Host: localhost\r\n"
+                        + "Authorization: Bearer " + token + "\r\n"
+                        + "Content-Type: application/json\r\n"
+                        + "Content-Length: " + body.length + "\r\n"
+                        + "Connection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+                out.flush();
+                int chunk = (body.length + BODY_CHUNKS - 1) / BODY_CHUNKS;
+                for (int offset = 0; offset < body.length; offset += chunk) {
+                    Thread.sleep(chunkPauseMillis);
+                    out.write(body, offset, Math.min(chunk, body.length - offset));
+                    out.flush();
+                }
+                String statusLine = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                        StandardCharsets.US_ASCII)).readLine();
+                return Integer.parseInt(statusLine.split(" ")[1]);
+            }
+        }
+    }
+
+    @Nested
+    @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+            "spring.datasource.url=jdbc:h2:mem:stack-bench-servlet;DB_CLOSE_DELAY=-1",
+            "server.tomcat.max-connections=20000",
+            "server.tomcat.accept-count=10000",
+            "app.sql.trace.sampleRate=0",
+            "app.user.purge.enabled=false"
+    })
+    class Servlet extends Workload {
+
+        @Autowired
+        private DataSource dataSource;
+
+        @Test
+        void slowClients() throws Exception {
+            HikariDataSource pool = dataSource.unwrap(HikariDataSource.class);
+            run("servlet", () -> pool.getHikariPoolMXBean().getActiveConnections());
+        }
+    }
+
+    @Nested
+    @ActiveProfiles("reactive")
+    @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+            "spring.datasource.url=jdbc:h2:mem:stack-bench-reactive;DB_CLOSE_DELAY=-1",
+            "app.reactive.r2dbc.url=r2dbc:h2:mem:///stack-bench-reactive?options=DB_CLOSE_DELAY=-1",
+            "app.sql.trace.sampleRate=0",
+            "app.user.purge.enabled=false"
+    })
+    class Reactive extends Workload {
+
+        @Autowired
+        private DatabaseClient databaseClient;
+
+        @Test
+        void slowClients() throws Exception {
+            ConnectionPool pool = (ConnectionPool) databaseClient.getConnectionFactory();
+            run("reactive", () -> pool.getMetrics().map(PoolMetrics::acquiredSize).orElse(-1));
+        }
+    }
+}
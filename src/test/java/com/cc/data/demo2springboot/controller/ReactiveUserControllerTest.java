@@ -0,0 +1,181 @@
+package com.cc.data.demo2springboot.controller;
+
+import com.cc.data.demo2springboot.dto.AuthResponse;
+import com.cc.data.demo2springboot.model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the reactive profile on Netty and R2DBC, end to end from login to the outbox.
+ */
+@ActiveProfiles("reactive")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:reactive-users;DB_CLOSE_DELAY=-1",
+        "app.reactive.r2dbc.url=r2dbc:h2:mem:///reactive-users?options=DB_CLOSE_DELAY=-1",
+        "app.user.purge.enabled=false"
+})
+class ReactiveUserControllerTest {
+
+    @Autowired
+    private WebTestClient client;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private String adminToken;
+
+    @BeforeEach
+    void setUp() {
+        adminToken = login("admin", "admin");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM users");
+        jdbcTemplate.update("DELETE FROM user_events");
+    }
+
+    private String login(String username, String password) {
+        return client.post().uri("/api/auth/login")
+                .bodyValue(Map.of("username", username, "password", password))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(AuthResponse.class)
+                .returnResult().getResponseBody().getToken();
+    }
+
+    private User newUser(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setFullName("User " + username);
+        user.setActive(true);
+        return user;
+    }
+
+    private User create(User user) {
+        return client.post().uri("/api/users")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + adminToken)
+                .bodyValue(user)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"0\"")
+                .expectBody(User.class)
+                .returnResult().getResponseBody();
+    }
+
+    @Test
+    void userLifecycle_ShouldMatchServletSemanticsAndRecordEvents() {
+        User created = create(newUser("reactive"));
+        assertThat(created.getId()).isNotNull();
+
+        client.get().uri("/api/users/{id}", created.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"0\"")
+                .expectBody().jsonPath("$.fullName").isEqualTo("User reactive");
+
+        User details = newUser("reactive");
+        details.setFullName("Renamed");
+        client.put().uri("/api/users/{id}", created.getId())
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + adminToken)
+                .header(HttpHeaders.IF_MATCH, "\"0\"")
+                .bodyValue(details)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"1\"")
+                .expectBody().jsonPath("$.fullName").isEqualTo("Renamed");
+
+        client.put().uri("/api/users/{id}", created.getId())
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + adminToken)
+                .header(HttpHeaders.IF_MATCH, "\"0\"")
+                .bodyValue(details)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.PRECONDITION_FAILED);
+
+        client.delete().uri("/api/users/{id}", created.getId())
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + adminToken)
+                .header(HttpHeaders.IF_MATCH, "\"1\"")
+                .exchange()
+                .expectStatus().isNoContent();
+
+        client.get().uri("/api/users/{id}", created.getId())
+                .exchange()
+                .expectStatus().isNotFound();
+        assertThat(jdbcTemplate.queryForList("SELECT type FROM user_events WHERE user_id = ? ORDER BY id",
+                String.class, created.getId())).containsExactly("CREATED", "UPDATED", "DELETED");
+        assertThat(jdbcTemplate.queryForObject("SELECT user_version FROM user_events WHERE type = 'DELETED' "
+                + "AND user_id = ?", Long.class, created.getId())).isEqualTo(2L);
+    }
+
+    @Test
+    void createUser_WithTakenUsername_ShouldConflict() {
+        create(newUser("taken"));
+
+        User duplicate = newUser("taken");
+        duplicate.setEmail("other@example.com");
+        client.post().uri("/api/users")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + adminToken)
+                .bodyValue(duplicate)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.CONFLICT);
+    }
+
+    @Test
+    void listings_ShouldReturnAllUsersAndPages() {
+        for (int i = 0; i < 5; i++) {
+            create(newUser("listed" + i));
+        }
+
+        List<User> all = client.get().uri("/api/users")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(User.class)
+                .returnResult().getResponseBody();
+        assertThat(all).extracting(User::getUsername)
+                .containsExactly("listed0", "listed1", "listed2", "listed3", "listed4");
+
+        client.get().uri("/api/users?page=1&size=2")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.content[0].username").isEqualTo("listed2")
+                .jsonPath("$.content.length()").isEqualTo(2)
+                .jsonPath("$.totalElements").isEqualTo(5);
+    }
+
+    @Test
+    void writes_WithoutAdminRole_ShouldBeForbidden() {
+        client.post().uri("/api/users")
+                .bodyValue(newUser("anonymous"))
+                .exchange()
+                .expectStatus().isForbidden();
+
+        client.post().uri("/api/users")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + login("user", "password"))
+                .bodyValue(newUser("plain"))
+                .exchange()
+                .expectStatus().isForbidden();
+    }
+
+    @Test
+    void login_WithWrongPassword_ShouldBeUnauthorized() {
+        client.post().uri("/api/auth/login")
+                .bodyValue(Map.of("username", "admin", "password", "wrong"))
+                .exchange()
+                .expectStatus().isUnauthorized();
+    }
+}
@@ -0,0 +1,183 @@
+package com.cc.data.demo2springboot.controller;
+
+import com.cc.data.demo2springboot.model.User;
+import com.cc.data.demo2springboot.service.UserService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Opens many concurrent change streams against a server with far fewer request threads.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:user-changes;DB_CLOSE_DELAY=-1",
+        "server.tomcat.threads.max=20",
+        // All subscribers connect at once
+        "server.tomcat.accept-count=1000",
+        "app.events.pollInterval=PT0.05S",
+        "app.user.purge.enabled=false"
+})
+class UserChangeStreamTest {
+
+    private static final int SUBSCRIBERS = 300;
+
+    /**
+     * Collects the lines of one event stream.
+     */
+    static class Stream implements Flow.Subscriber<String> {
+        final List<String> lines = new CopyOnWriteArrayList<>();
+        volatile Flow.Subscription subscription;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(String line) {
+            lines.add(line);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+        }
+
+        @Override
+        public void onComplete() {
+        }
+
+        List<String> values(String field) {
+            return lines.stream().filter(line -> line.startsWith(field + ":"))
+                    .map(line -> line.substring(field.length() + 1)).toList();
+        }
+
+        void close() {
+            if (subscription != null) {
+                subscription.cancel();
+            }
+        }
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final List<Stream> streams = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        streams.forEach(Stream::close);
+        client.shutdownNow();
+        jdbcTemplate.update("DELETE FROM users");
+    }
+
+    private Stream open(String lastEventId) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/users/changes/stream"))
+                .header("Accept", "text/event-stream");
+        if (lastEventId != null) {
+            request.header("Last-Event-ID", lastEventId);
+        }
+        Stream stream = new Stream();
+        client.sendAsync(request.build(), HttpResponse.BodyHandlers.fromLineSubscriber(stream));
+        streams.add(stream);
+        return stream;
+    }
+
+    private void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(20).toNanos();
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+
+    private double openStreams() {
+        return meterRegistry.get("users.changes.subscribers").gauge().value();
+    }
+
+    private User newUser(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setActive(true);
+        return user;
+    }
+
+    @Test
+    void changes_ShouldReachEveryConcurrentSubscriber() throws Exception {
+        for (int i = 0; i < SUBSCRIBERS; i++) {
+            open(null);
+        }
+        await(() -> streams.stream().noneMatch(stream -> stream.lines.isEmpty()));
+        assertThat(openStreams()).isGreaterThanOrEqualTo(SUBSCRIBERS);
+
+        User created = userService.createUser(newUser("streamed"));
+        User details = newUser("streamed");
+        details.setFullName("Streamed User");
+        userService.updateUser(created.getId(), details, created.getVersion());
+
+        await(() -> streams.stream().allMatch(stream -> stream.values("event").size() >= 2));
+        for (Stream stream : streams) {
+            assertThat(stream.values("event")).containsExactly("created", "updated");
+            assertThat(stream.values("data")).hasSize(2);
+            assertThat(stream.values("data").get(1)).contains("\"fullName\":\"Streamed User\"");
+        }
+        assertThat(streams.stream().map(stream -> stream.values("id")).distinct()).hasSize(1);
+    }
+
+    @Test
+    void reconnect_WithLastEventId_ShouldReplayMissedEvents() throws Exception {
+        Stream first = open(null);
+        await(() -> !first.lines.isEmpty());
+        User created = userService.createUser(newUser("resumed"));
+        await(() -> first.values("id").size() == 1);
+        first.close();
+
+        User details = newUser("resumed");
+        details.setFullName("Changed While Away");
+        userService.updateUser(created.getId(), details, created.getVersion());
+        userService.deleteUser(created.getId(), 1L);
+
+        Stream resumed = open(first.values("id").get(0));
+        await(() -> resumed.values("event").size() >= 2);
+
+        assertThat(resumed.values("event")).containsExactly("updated", "deleted");
+        assertThat(resumed.values("data").get(1)).isEqualTo("{\"id\":" + created.getId() + ",\"version\":2}");
+    }
+
+    @Test
+    void reconnect_WithUnknownLastEventId_ShouldAskClientToReload() throws Exception {
+        Stream stream = open("not-an-event");
+
+        await(() -> !stream.values("event").isEmpty());
+
+        assertThat(stream.values("event")).containsExactly("reset");
+    }
+}
@@ -0,0 +1,219 @@
+package com.cc.data.demo2springboot.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The {@link UserControllerTest} scenarios against the real service, database and security chain,
+ * authenticated with tokens from the login endpoint. Free of Mockito, so they also run as native
+ * tests (mvn -PnativeTest test).
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:users-it;DB_CLOSE_DELAY=-1",
+        "app.user.purge.enabled=false"
+})
+@AutoConfigureMockMvc
+class UserControllerIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private String admin;
+    private String user;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        admin = bearer("admin", "admin");
+        user = bearer("user", "password");
+    }
+
+    private String bearer(String username, String password) throws Exception {
+        MvcResult result = mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\":\"" + username + "\",\"password\":\"" + password + "\"}"))
+                .andExpect(status().isOk())
+                .andReturn();
+        return "Bearer " + objectMapper.readTree(result.getResponse().getContentAsString()).get("token").asText();
+    }
+
+    private static String userJson(String name) {
+        return "{\"username\":\"" + name + "\",\"email\":\"" + name + "@example.com\","
+                + "\"fullName\":\"User " + name + "\",\"active\":true}";
+    }
+
+    private static String uniqueName() {
+        return "it" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    private JsonNode create(String name) throws Exception {
+        MvcResult result = mockMvc.perform(post("/api/users")
+                        .header(HttpHeaders.AUTHORIZATION, admin)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(userJson(name)))
+                .andExpect(status().isCreated())
+                .andReturn();
+        return objectMapper.readTree(result.getResponse().getContentAsString());
+    }
+
+    @Test
+    void createUser_WithAdminRole_ShouldCreateAndReturnUser() throws Exception {
+        String name = uniqueName();
+        mockMvc.perform(post("/api/users")
+                        .header(HttpHeaders.AUTHORIZATION, admin)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(userJson(name)))
+                .andExpect(status().isCreated())
+                .andExpect(header().string("Location", containsString("/api/users/")))
+                .andExpect(header().string("ETag", "\"0\""))
+                .andExpect(jsonPath("$.username", is(name)))
+                .andExpect(jsonPath("$.email", is(name + "@example.com")))
+                .andExpect(jsonPath("$.active", is(true)));
+    }
+
+    @Test
+    void writes_WithUserRole_ShouldReturnForbidden() throws Exception {
+        long id = create(uniqueName()).get("id").asLong();
+
+        mockMvc.perform(post("/api/users")
+                        .header(HttpHeaders.AUTHORIZATION, user)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(userJson(uniqueName())))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(put("/api/users/" + id)
+                        .header(HttpHeaders.AUTHORIZATION, user)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(userJson(uniqueName())))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(delete("/api/users/" + id).header(HttpHeaders.AUTHORIZATION, user))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void getUserById_ShouldReturnUserWithVersionAsETag() throws Exception {
+        String name = uniqueName();
+        long id = create(name).get("id").asLong();
+
+        mockMvc.perform(get("/api/users/" + id))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"0\""))
+                .andExpect(jsonPath("$.username", is(name)))
+                .andExpect(jsonPath("$.fullName", is("User " + name)));
+        mockMvc.perform(get("/api/users/99999999"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void updateUser_WithIfMatch_ShouldUpdateOnceAndRejectTheStaleVersion() throws Exception {
+        long id = create(uniqueName()).get("id").asLong();
+        String renamed = uniqueName();
+
+        mockMvc.perform(put("/api/users/" + id)
+                        .header(HttpHeaders.AUTHORIZATION, admin)
+                        .header(HttpHeaders.IF_MATCH, "\"0\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(userJson(renamed)))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1\""))
+                .andExpect(jsonPath("$.username", is(renamed)));
+        mockMvc.perform(put("/api/users/" + id)
+                        .header(HttpHeaders.AUTHORIZATION, admin)
+                        .header(HttpHeaders.IF_MATCH, "W/\"0\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(userJson(uniqueName())))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    void updateUser_ToATakenUsername_ShouldConflictAndMissingUserShouldNotBeFound() throws Exception {
+        String taken = uniqueName();
+        create(taken);
+        long id = create(uniqueName()).get("id").asLong();
+
+        mockMvc.perform(put("/api/users/" + id)
+                        .header(HttpHeaders.AUTHORIZATION, admin)
+                        .header(HttpHeaders.IF_MATCH, "\"0\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(userJson(taken)))
+                .andExpect(status().isConflict());
+        mockMvc.perform(put("/api/users/99999999")
+                        .header(HttpHeaders.AUTHORIZATION, admin)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(userJson(uniqueName())))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void deleteUser_WithAdminRole_ShouldRemoveTheUser() throws Exception {
+        long id = create(uniqueName()).get("id").asLong();
+
+        mockMvc.perform(delete("/api/users/" + id).header(HttpHeaders.AUTHORIZATION, admin))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(get("/api/users/" + id))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void getAllUsers_ShouldListAndPage() throws Exception {
+        create(uniqueName());
+        create(uniqueName());
+        create(uniqueName());
+
+        mockMvc.perform(get("/api/users"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()", greaterThanOrEqualTo(3)));
+        mockMvc.perform(get("/api/users?page=0&size=2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(2)))
+                .andExpect(jsonPath("$.size", is(2)))
+                .andExpect(jsonPath("$.number", is(0)));
+    }
+
+    @Test
+    void createUsers_ShouldCreateTheBatchOrReportEachDuplicate() throws Exception {
+        String first = uniqueName();
+        String second = uniqueName();
+        String batch = "[" + userJson(first) + "," + userJson(second) + "]";
+
+        mockMvc.perform(post("/api/users/batch")
+                        .header(HttpHeaders.AUTHORIZATION, admin)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(batch))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].username", is(first)))
+                .andExpect(jsonPath("$[1].username", is(second)));
+        mockMvc.perform(post("/api/users/batch")
+                        .header(HttpHeaders.AUTHORIZATION, admin)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(batch))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].status", is(409)));
+    }
+}
@@ -3,6 +3,7 @@ package com.cc.data.demo2springboot.controller;
 import com.cc.data.demo2springboot.config.TestSecurityConfig;
 import com.cc.data.demo2springboot.config.UserConfig;
 import com.cc.data.demo2springboot.model.User;
+import com.cc.data.demo2springboot.service.UserChangeFeed;
 import com.cc.data.demo2springboot.service.UserService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
@@ -18,6 +19,7 @@ import org.springframework.security.test.context.support.WithAnonymousUser;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors;
 import org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers;
+import org.springframework.test.context.aot.DisabledInAotMode;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
@@ -39,6 +41,8 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
  * Security-focused tests for the UserController
  * Following industry best practices for Spring Boot 3.5 and Java 24
  */
+// Mocks cannot be AOT-processed; UserControllerIntegrationTest runs these scenarios natively
+@DisabledInAotMode
 @WebMvcTest(UserController.class)
 @Import(TestSecurityConfig.class)
 public class UserControllerSecurityTest {
@@ -55,6 +59,9 @@ public class UserControllerSecurityTest {
     @MockBean
     private UserConfig userConfig;
 
+    @MockBean
+    private UserChangeFeed changeFeed;
+
     private MockMvc mockMvc;
 
     @BeforeEach
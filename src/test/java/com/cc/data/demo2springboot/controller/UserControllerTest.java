@@ -2,9 +2,12 @@ package com.cc.data.demo2springboot.controller;
 
 import com.cc.data.demo2springboot.config.TestSecurityConfig;
 import com.cc.data.demo2springboot.config.UserConfig;
+import com.cc.data.demo2springboot.dto.BatchItemResult;
+import com.cc.data.demo2springboot.exception.PreconditionFailedException;
 import com.cc.data.demo2springboot.exception.ResourceNotFoundException;
 import com.cc.data.demo2springboot.model.User;
 import com.cc.data.demo2springboot.service.JwtService;
+import com.cc.data.demo2springboot.service.UserChangeFeed;
 import com.cc.data.demo2springboot.service.UserService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
@@ -19,6 +22,7 @@ import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.aot.DisabledInAotMode;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
@@ -32,6 +36,8 @@ import java.util.Optional;
 import static org.hamcrest.Matchers.*;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
@@ -40,6 +46,8 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
+// Mocks cannot be AOT-processed; UserControllerIntegrationTest runs these scenarios natively
+@DisabledInAotMode
 @WebMvcTest(UserController.class)
 @Import({TestSecurityConfig.class, UserControllerTest.MockConfig.class})
 public class UserControllerTest {
@@ -77,6 +85,10 @@ public class UserControllerTest {
         public UserConfig userConfig() {
             return mock(UserConfig.class);
         }
+        @Bean
+        public UserChangeFeed userChangeFeed() {
+            return mock(UserChangeFeed.class);
+        }
     }
 
     @BeforeEach
@@ -483,4 +495,132 @@ public class UserControllerTest {
                 .content(objectMapper.writeValueAsString(usersToCreate)))
                 .andExpect(status().isForbidden());
     }
+
+    @Test
+    void getUserById_ShouldExposeVersionAsETag() throws Exception {
+        User versionedUser = new User(1L, "testuser", "test@example.com", "Test User",
+                LocalDateTime.now(), LocalDateTime.now(), true);
+        versionedUser.setVersion(3L);
+        when(userService.getUserById(1L)).thenReturn(Optional.of(versionedUser));
+
+        mockMvc.perform(get("/api/users/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"3\""))
+                .andExpect(jsonPath("$.version", is(3)));
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void updateUser_WithIfMatch_ShouldUseConditionalUpdateWithoutPreRead() throws Exception {
+        clearInvocations(userService);
+        User updatedUser = new User(1L, "updated", "updated@example.com", "Updated User",
+                LocalDateTime.now(), LocalDateTime.now(), false);
+        updatedUser.setVersion(4L);
+        when(userService.updateUser(eq(1L), any(User.class), eq(3L))).thenReturn(updatedUser);
+
+        mockMvc.perform(put("/api/users/1")
+                .with(csrf())
+                .header("If-Match", "\"3\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(updatedUser)))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"4\""));
+
+        verify(userService, times(1)).updateUser(eq(1L), any(User.class), eq(3L));
+        verify(userService, never()).getUserById(anyLong());
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void updateUser_WithStaleIfMatch_ShouldReturnPreconditionFailed() throws Exception {
+        User updatedUser = new User(1L, "updated", "updated@example.com", "Updated User",
+                LocalDateTime.now(), LocalDateTime.now(), false);
+        when(userService.updateUser(eq(1L), any(User.class), eq(2L)))
+                .thenThrow(new PreconditionFailedException("User", 1L, 2L));
+
+        mockMvc.perform(put("/api/users/1")
+                .with(csrf())
+                .header("If-Match", "\"2\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(updatedUser)))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void updateUser_WithWeakIfMatch_ShouldReturnPreconditionFailed() throws Exception {
+        clearInvocations(userService);
+        User updatedUser = new User(1L, "updated", "updated@example.com", "Updated User",
+                LocalDateTime.now(), LocalDateTime.now(), false);
+
+        mockMvc.perform(put("/api/users/1")
+                .with(csrf())
+                .header("If-Match", "W/\"3\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(updatedUser)))
+                .andExpect(status().isPreconditionFailed());
+
+        verify(userService, never()).updateUser(anyLong(), any(User.class), anyLong());
+        verify(userService, never()).updateUser(anyLong(), any(User.class));
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void deleteUser_WithStaleIfMatch_ShouldReturnPreconditionFailed() throws Exception {
+        clearInvocations(userService);
+        doThrow(new PreconditionFailedException("User", 1L, 2L)).when(userService).deleteUser(1L, 2L);
+
+        mockMvc.perform(delete("/api/users/1")
+                .with(csrf())
+                .header("If-Match", "\"2\""))
+                .andExpect(status().isPreconditionFailed());
+
+        verify(userService, never()).deleteUser(1L);
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void updateUsers_WithAdminRole_ShouldReturnPerRowResults() throws Exception {
+        User first = new User(1L, "first", "first@example.com", "First", null, null, true);
+        first.setVersion(0L);
+        User second = new User(2L, "second", "second@example.com", "Second", null, null, true);
+        second.setVersion(0L);
+        when(userService.updateUsers(anyList())).thenReturn(Arrays.asList(
+                new BatchItemResult(0, 1L, 200, 1L, null),
+                new BatchItemResult(1, 2L, 412, null, "User with id '2' is no longer at version 0")));
+
+        mockMvc.perform(put("/api/users/batch")
+                .with(csrf())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(Arrays.asList(first, second))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].status", is(200)))
+                .andExpect(jsonPath("$[0].version", is(1)))
+                .andExpect(jsonPath("$[1].status", is(412)));
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void createUsers_WithDuplicates_ShouldReturnConflictWithoutCreatingAny() throws Exception {
+        clearInvocations(userService);
+        List<User> usersToCreate = Arrays.asList(
+            new User(null, "batch1", "batch1@example.com", "Batch User 1", null, null, true),
+            new User(null, "batch1", "batch1b@example.com", "Batch User 1 Again", null, null, true)
+        );
+        when(userService.findDuplicates(anyList())).thenReturn(List.of(
+                new BatchItemResult(1, null, 409, null, "Duplicate username 'batch1' within batch")));
+
+        mockMvc.perform(post("/api/users/batch")
+                .with(csrf())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(usersToCreate)))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].index", is(1)))
+                .andExpect(jsonPath("$[0].status", is(409)));
+
+        verify(userService, never()).createUser(any(User.class));
+        when(userService.findDuplicates(anyList())).thenReturn(List.of());
+    }
 }
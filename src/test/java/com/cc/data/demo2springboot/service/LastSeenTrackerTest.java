@@ -0,0 +1,207 @@
+package com.cc.data.demo2springboot.service;
+
+import com.cc.data.demo2springboot.model.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.Cache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LastSeenTrackerTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private Cache userCache;
+
+    private SimpleMeterRegistry meterRegistry;
+    private MutableClock clock;
+    private LastSeenTracker tracker;
+
+    /**
+     * Clock whose time can be set by the test
+     */
+    private static final class MutableClock extends Clock {
+        private long millis = 1_000_000L;
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        clock = new MutableClock();
+        tracker = new LastSeenTracker(jdbcTemplate, UserShards.single(), meterRegistry, clock, userCache);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object[]> captureBatch() {
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), rows.capture());
+        return rows.getValue();
+    }
+
+    @Test
+    void flush_ShouldWriteLatestTimestampPerSubjectInOneBatch() {
+        tracker.record("admin");
+        clock.millis += 500;
+        tracker.record("admin");
+        tracker.record("user");
+        clock.millis += 2_000;
+
+        int written = tracker.flush();
+
+        assertThat(written).isEqualTo(2);
+        List<Object[]> rows = captureBatch();
+        assertThat(rows).hasSize(2);
+        Object[] adminRow = rows.stream().filter(row -> "admin".equals(row[1])).findFirst().orElseThrow();
+        assertThat(adminRow[0]).isEqualTo(new Timestamp(1_000_500L));
+        assertThat(meterRegistry.get("users.lastseen.flush.batch.size").summary().totalAmount()).isEqualTo(2.0);
+        assertThat(meterRegistry.get("users.lastseen.flush.lag").timer().max(TimeUnit.MILLISECONDS))
+                .isEqualTo(2_000.0);
+    }
+
+    @Test
+    void flush_WithNothingNew_ShouldNotTouchDatabase() {
+        tracker.record("admin");
+        tracker.flush();
+        reset(jdbcTemplate);
+
+        int written = tracker.flush();
+
+        assertThat(written).isZero();
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+        assertThat(tracker.getTrackedCount()).isZero();
+    }
+
+    @Test
+    void flush_WhenBatchFails_ShouldRetryOnNextFlush() {
+        tracker.record("admin");
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenThrow(new RuntimeException("db down"));
+
+        try {
+            tracker.flush();
+        } catch (RuntimeException expected) {
+            // the scheduler logs and retries on the next tick
+        }
+        reset(jdbcTemplate);
+
+        assertThat(tracker.flush()).isEqualTo(1);
+    }
+
+    @Test
+    void record_FromManyThreads_ShouldKeepOneEntryPerSubject() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for (int i = 0; i < 10_000; i++) {
+                String subject = "user" + (i % 10);
+                executor.submit(() -> tracker.record(subject));
+            }
+        } finally {
+            executor.shutdown();
+            assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        }
+
+        assertThat(tracker.getTrackedCount()).isEqualTo(10);
+        assertThat(tracker.flush()).isEqualTo(10);
+    }
+
+    @Test
+    void record_WhileFlushDropsTheIdleSubject_ShouldNotBeLost() throws Exception {
+        // Pause the next record between its lookup of the idle entry and its update
+        CountDownLatch lookedUp = new CountDownLatch(1);
+        CountDownLatch resume = new CountDownLatch(1);
+        Thread testThread = Thread.currentThread();
+        LastSeenTracker paused = new LastSeenTracker(jdbcTemplate, UserShards.single(), meterRegistry, new Clock() {
+            @Override
+            public ZoneId getZone() {
+                return ZoneOffset.UTC;
+            }
+
+            @Override
+            public Clock withZone(ZoneId zone) {
+                return this;
+            }
+
+            @Override
+            public Instant instant() {
+                if (Thread.currentThread() != testThread) {
+                    lookedUp.countDown();
+                    try {
+                        resume.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return clock.instant();
+            }
+        }, userCache);
+        paused.record("admin");
+        paused.flush();
+        reset(jdbcTemplate);
+        clock.millis += 1_000;
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> recording = executor.submit(() -> paused.record("admin"));
+            assertThat(lookedUp.await(10, TimeUnit.SECONDS)).isTrue();
+            assertThat(paused.flush()).isZero();
+            assertThat(paused.getTrackedCount()).isZero();
+            resume.countDown();
+            recording.get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(paused.flush()).isEqualTo(1);
+        assertThat(captureBatch().get(0)[0]).isEqualTo(new Timestamp(clock.millis));
+    }
+
+    @Test
+    void flush_ShouldEvictWrittenUsersFromSecondLevelCache() {
+        when(jdbcTemplate.queryForList(startsWith("SELECT id FROM users"), eq(Long.class), any(Object[].class)))
+                .thenReturn(List.of(7L));
+        tracker.record("admin");
+
+        tracker.flush();
+
+        verify(userCache).evict(User.class, 7L);
+    }
+}
@@ -0,0 +1,197 @@
+package com.cc.data.demo2springboot.service;
+
+import com.cc.data.demo2springboot.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReadCoalescerTest {
+
+    private static final int CALLERS = 10;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ReadCoalescer coalescer;
+    private ExecutorService callers;
+    private CountDownLatch release;
+    private AtomicInteger executions;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        coalescer = new ReadCoalescer(TransactionOperations.withoutTransaction(), meterRegistry, true,
+                Duration.ofSeconds(5));
+        callers = Executors.newFixedThreadPool(CALLERS);
+        release = new CountDownLatch(1);
+        executions = new AtomicInteger();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        callers.shutdownNow();
+    }
+
+    /**
+     * A query that counts its executions and blocks until released.
+     */
+    private <T> Supplier<T> blockingQuery(Supplier<T> result) {
+        return () -> {
+            executions.incrementAndGet();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return result.get();
+        };
+    }
+
+    private <T> List<Future<T>> readConcurrently(Object key, Supplier<T> query) throws InterruptedException {
+        List<Future<T>> results = new ArrayList<>();
+        results.add(callers.submit(() -> coalescer.read(key, query)));
+        awaitExecutions(1);
+        for (int i = 1; i < CALLERS; i++) {
+            results.add(callers.submit(() -> coalescer.read(key, query)));
+        }
+        // Followers are counted as they join, before they wait
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get("users.reads.coalesced").counter().count() < CALLERS - 1
+                && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        return results;
+    }
+
+    private void awaitExecutions(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (executions.get() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    void concurrentIdenticalReads_ShouldShareOneQuery() throws Exception {
+        Object shared = new Object();
+        List<Future<Object>> results = readConcurrently("user:1", blockingQuery(() -> shared));
+        release.countDown();
+
+        for (Future<Object> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS)).isSameAs(shared);
+        }
+        assertThat(executions).hasValue(1);
+        assertThat(meterRegistry.get("users.reads.queries").counter().count()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("users.reads.coalescing.ratio").gauge().value()).isEqualTo(0.9);
+        assertThat(meterRegistry.get("users.reads.inflight").gauge().value()).isZero();
+
+        // The flight ended with the query, so the next read runs again
+        coalescer.read("user:1", () -> executions.incrementAndGet());
+        assertThat(executions).hasValue(2);
+    }
+
+    @Test
+    void readAfterAWriteCommits_ShouldNotJoinAFlightThatStartedBeforeIt() throws Exception {
+        Future<String> stale = callers.submit(() -> coalescer.read("user:1", blockingQuery(() -> "before")));
+        awaitExecutions(1);
+
+        coalescer.writeCommitted();
+        Future<String> fresh = callers.submit(() -> coalescer.read("user:1", blockingQuery(() -> "after")));
+        awaitExecutions(2);
+        // Arrives after the write too, and shares the flight that started after it
+        Future<String> joined = callers.submit(() -> coalescer.read("user:1", () -> "unused"));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get("users.reads.coalesced").counter().count() < 1 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+
+        assertThat(stale.get(5, TimeUnit.SECONDS)).isEqualTo("before");
+        assertThat(fresh.get(5, TimeUnit.SECONDS)).isEqualTo("after");
+        assertThat(joined.get(5, TimeUnit.SECONDS)).isEqualTo("after");
+        assertThat(executions).hasValue(2);
+        assertThat(meterRegistry.get("users.reads.inflight").gauge().value()).isZero();
+    }
+
+    @Test
+    void differentKeys_ShouldNotShareAQuery() throws Exception {
+        Future<Integer> first = callers.submit(() -> coalescer.read("user:1", blockingQuery(() -> 1)));
+        awaitExecutions(1);
+        Future<Integer> second = callers.submit(() -> coalescer.read("user:2", blockingQuery(() -> 2)));
+        awaitExecutions(2);
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo(2);
+        assertThat(meterRegistry.get("users.reads.coalesced").counter().count()).isZero();
+    }
+
+    @Test
+    void failedQuery_ShouldFailEveryWaiterAndNotBeRemembered() throws Exception {
+        IllegalStateException failure = new IllegalStateException("database down");
+        List<Future<Object>> results = readConcurrently("users", blockingQuery(() -> {
+            throw failure;
+        }));
+        release.countDown();
+
+        for (Future<Object> result : results) {
+            assertThatThrownBy(() -> result.get(5, TimeUnit.SECONDS))
+                    .isInstanceOf(ExecutionException.class)
+                    .cause().isSameAs(failure);
+        }
+        assertThat(coalescer.read("users", () -> "recovered")).isEqualTo("recovered");
+    }
+
+    @Test
+    void waiterTimeout_ShouldGiveUpWith503AndLetTheNextCallerStartAfresh() throws Exception {
+        meterRegistry = new SimpleMeterRegistry();
+        coalescer = new ReadCoalescer(TransactionOperations.withoutTransaction(), meterRegistry, true,
+                Duration.ofMillis(50));
+        Future<String> stuck = callers.submit(() -> coalescer.read("users", blockingQuery(() -> "late")));
+        awaitExecutions(1);
+
+        assertThatThrownBy(() -> coalescer.read("users", () -> "joined"))
+                .isInstanceOf(ServiceUnavailableException.class);
+        assertThat(meterRegistry.get("users.reads.coalesced.timeouts").counter().count()).isEqualTo(1.0);
+        assertThat(coalescer.read("users", () -> "fresh")).isEqualTo("fresh");
+
+        release.countDown();
+        assertThat(stuck.get(5, TimeUnit.SECONDS)).isEqualTo("late");
+    }
+
+    @Test
+    void readsInsideATransactionOrWhenDisabled_ShouldRunTheirOwnQuery() throws Exception {
+        Future<String> inFlight = callers.submit(() -> coalescer.read("users", blockingQuery(() -> "shared")));
+        awaitExecutions(1);
+
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            assertThat(coalescer.read("users", () -> "own")).isEqualTo("own");
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+        }
+        ReadCoalescer disabled = new ReadCoalescer(TransactionOperations.withoutTransaction(),
+                new SimpleMeterRegistry(), false, Duration.ofSeconds(5));
+        assertThat(disabled.read("users", () -> "own")).isEqualTo("own");
+
+        release.countDown();
+        assertThat(inFlight.get(5, TimeUnit.SECONDS)).isEqualTo("shared");
+        assertThat(meterRegistry.get("users.reads.coalesced").counter().count()).isZero();
+    }
+}
@@ -0,0 +1,138 @@
+package com.cc.data.demo2springboot.service;
+
+import com.cc.data.demo2springboot.exception.PreconditionFailedException;
+import com.cc.data.demo2springboot.model.User;
+import com.cc.data.demo2springboot.model.UserEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Runs user changes through the outbox and the relay to in-process listeners.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:user-events;DB_CLOSE_DELAY=-1",
+        "app.events.pollInterval=PT0.05S",
+        "app.user.purge.enabled=false"
+})
+class UserEventOutboxTest {
+
+    @TestConfiguration
+    static class Listeners {
+
+        @Bean
+        RecordingListener recordingListener() {
+            return new RecordingListener();
+        }
+
+        @Bean
+        UserEventListener failingListener() {
+            return events -> {
+                throw new IllegalStateException("listener down");
+            };
+        }
+    }
+
+    static class RecordingListener implements UserEventListener {
+        final List<UserEvent> received = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void onEvents(List<UserEvent> events) {
+            received.addAll(events);
+        }
+    }
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private RecordingListener listener;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM users");
+        jdbcTemplate.update("DELETE FROM user_events");
+        listener.received.clear();
+    }
+
+    private User newUser(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setActive(true);
+        return user;
+    }
+
+    private List<UserEvent> awaitEvents(long userId, int count) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        List<UserEvent> events;
+        do {
+            events = listener.received.stream().filter(event -> event.userId() == userId).toList();
+            if (events.size() >= count) {
+                return events;
+            }
+            Thread.sleep(20);
+        } while (System.nanoTime() < deadline);
+        return events;
+    }
+
+    @Test
+    void changes_ShouldBeDeliveredInOrderAndMarkedPublished() throws Exception {
+        User created = userService.createUser(newUser("evented"));
+        User details = newUser("evented");
+        details.setFullName("Renamed");
+        User updated = userService.updateUser(created.getId(), details, created.getVersion());
+        details.setFullName("Renamed again");
+        userService.updateUser(created.getId(), details);
+        userService.deleteUser(created.getId());
+
+        List<UserEvent> events = awaitEvents(created.getId(), 4);
+
+        assertThat(events).extracting(UserEvent::type).containsExactly(
+                UserEvent.Type.CREATED, UserEvent.Type.UPDATED, UserEvent.Type.UPDATED, UserEvent.Type.DELETED);
+        assertThat(events).extracting(UserEvent::version).containsExactly(0L, 1L, 2L, null);
+        assertThat(events.get(1).payload()).contains("\"fullName\":\"Renamed\"");
+        assertThat(updated.getVersion()).isEqualTo(1L);
+        assertThat(events).extracting(UserEvent::id).isSorted();
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM user_events WHERE published_at IS NULL", Long.class)).isZero();
+    }
+
+    @Test
+    void rejectedChange_ShouldNotRecordEvent() throws Exception {
+        User created = userService.createUser(newUser("stale"));
+
+        assertThrows(PreconditionFailedException.class,
+                () -> userService.updateUser(created.getId(), newUser("stale"), created.getVersion() + 1));
+        awaitEvents(created.getId(), 1);
+
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM user_events WHERE user_id = ?", Long.class, created.getId())).isEqualTo(1);
+    }
+
+    @Test
+    void failingListener_ShouldNotStopDeliveryToOthers() throws Exception {
+        User created = userService.createUser(newUser("resilient"));
+
+        assertThat(awaitEvents(created.getId(), 1)).hasSize(1);
+        assertThat(meterRegistry.get("users.events.listener.failures").counter().count()).isPositive();
+    }
+}
@@ -0,0 +1,105 @@
+package com.cc.data.demo2springboot.service;
+
+import com.cc.data.demo2springboot.model.User;
+import com.cc.data.demo2springboot.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Lists 10k users through a read-write transaction, a read-only transaction and the stateless
+ * scan, reporting throughput and heap allocated per listing. The variants take turns in each
+ * round so JIT compilation and heap state favour none of them.
+ * Run with -Dbenchmark=true.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:listing-bench;DB_CLOSE_DELAY=-1",
+        // Measure the database paths, not the query cache
+        "app.cache.enabled=false",
+        "app.sql.trace.sampleRate=0",
+        "app.user.purge.enabled=false"
+})
+class UserListingBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserListingBenchmarkTest.class);
+
+    private static final int USERS = 10_000;
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 10;
+    private static final int LISTINGS_PER_ROUND = 5;
+
+    private static final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM users");
+    }
+
+    @Test
+    void listTenThousandUsers() {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        jdbcTemplate.batchUpdate("INSERT INTO users (username, email, full_name, created_at, updated_at, "
+                        + "active, version) VALUES (?, ?, ?, ?, ?, TRUE, 0)",
+                IntStream.range(0, USERS).mapToObj(i -> new Object[]{
+                        "bench-" + i, "bench-" + i + "@example.com", "Bench " + i, now, now}).toList());
+
+        TransactionTemplate readWrite = new TransactionTemplate(transactionManager);
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        String[] labels = {"managed, read-write", "managed, read-only", "stateless scan"};
+        List<Supplier<List<User>>> variants = List.of(
+                () -> readWrite.execute(status -> userRepository.findAll()),
+                () -> readOnly.execute(status -> userRepository.findAll()),
+                () -> readOnly.execute(status -> userRepository.scanAll()));
+
+        long[] nanos = new long[variants.size()];
+        long[] bytes = new long[variants.size()];
+        for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+            for (int variant = 0; variant < variants.size(); variant++) {
+                long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+                long start = System.nanoTime();
+                for (int i = 0; i < LISTINGS_PER_ROUND; i++) {
+                    assertThat(variants.get(variant).get()).hasSize(USERS);
+                }
+                if (round >= WARMUP_ROUNDS) {
+                    nanos[variant] += System.nanoTime() - start;
+                    bytes[variant] += threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+                }
+            }
+        }
+
+        int listings = MEASURED_ROUNDS * LISTINGS_PER_ROUND;
+        for (int variant = 0; variant < variants.size(); variant++) {
+            logger.info("{}: {} listings/s, {} ms/listing, {} MB allocated/listing", labels[variant],
+                    String.format("%.1f", listings / (nanos[variant] / 1e9)),
+                    String.format("%.1f", nanos[variant] / 1e6 / listings),
+                    String.format("%.2f", bytes[variant] / 1e6 / listings));
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.cc.data.demo2springboot.service;
+
+import com.cc.data.demo2springboot.model.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that read paths leave no persistence-context state behind.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:user-listing;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        // Full listings are scanned whenever the query cache is not answering them
+        "app.cache.queries.enabled=false",
+        "app.user.purge.enabled=false"
+})
+class UserListingTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM users");
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    private List<User> createUsers(int count) {
+        return IntStream.range(0, count).mapToObj(i -> {
+            User user = new User();
+            user.setUsername("listed" + i);
+            user.setEmail("listed" + i + "@example.com");
+            user.setActive(true);
+            return userService.createUser(user);
+        }).toList();
+    }
+
+    @Test
+    void getAllUsers_ShouldScanWithoutCachingOrManagingUsers() {
+        List<User> created = createUsers(5);
+        userService.deleteUser(created.get(2).getId());
+        entityManagerFactory.getCache().evictAll();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<User> users = userService.getAllUsers();
+
+        assertThat(users).extracting(User::getUsername).containsExactly("listed0", "listed1", "listed3", "listed4");
+        assertThat(users).extracting(User::getId).isSorted();
+        assertThat(statistics.getSecondLevelCachePutCount()).isZero();
+        assertThat(statistics.getFlushCount()).isZero();
+    }
+
+    @Test
+    void readOnlyTransaction_ShouldUseReadOnlyConnectionAndSkipDirtyChecking() {
+        User created = createUsers(1).get(0);
+
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        readOnly.executeWithoutResult(status -> {
+            User user = userService.getUserById(created.getId()).orElseThrow();
+            Session session = entityManager.unwrap(Session.class);
+            assertThat(session.getHibernateFlushMode()).isEqualTo(FlushMode.MANUAL);
+            assertThat(session.isReadOnly(user)).isTrue();
+            assertThat(session.doReturningWork(Connection::isReadOnly)).isTrue();
+            user.setFullName("Changed in a read-only transaction");
+        });
+
+        assertThat(jdbcTemplate.queryForObject("SELECT full_name FROM users WHERE id = ?", String.class,
+                created.getId())).isNull();
+    }
+}
@@ -0,0 +1,89 @@
+package com.cc.data.demo2springboot.service;
+
+import com.cc.data.demo2springboot.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserPurgeServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private UserPurgeService purgeService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        purgeService = new UserPurgeService(userRepository, UserShards.single(), (UserClaims) null, meterRegistry,
+                2, 3, Duration.ZERO, 0.5);
+        purgeService.setCpuLoad(() -> 0.1);
+    }
+
+    @Test
+    void purgeTombstones_ShouldRemoveInBoundedBatchesAndRecordMetrics() {
+        // Arrange
+        when(userRepository.findTombstoneIds(any(LocalDateTime.class), eq(2)))
+                .thenReturn(List.of(1L, 2L), List.of(3L, 4L), List.of(5L, 6L));
+        when(userRepository.purgeTombstones(anyList())).thenReturn(2);
+        when(userRepository.countTombstones()).thenReturn(7L);
+
+        // Act
+        int removed = purgeService.purgeTombstones();
+
+        // Assert: capped at maxBatchesPerRun even though more tombstones remain
+        assertThat(removed).isEqualTo(6);
+        verify(userRepository, times(3)).purgeTombstones(anyList());
+        assertThat(meterRegistry.get("users.purge.deleted").counter().count()).isEqualTo(6.0);
+        assertThat(meterRegistry.get("users.purge.batch").timer().count()).isEqualTo(3);
+        assertThat(meterRegistry.get("users.purge.backlog").gauge().value()).isEqualTo(7.0);
+    }
+
+    @Test
+    void purgeTombstones_ShouldStopWhenBacklogIsDrained() {
+        // Arrange
+        when(userRepository.findTombstoneIds(any(LocalDateTime.class), eq(2))).thenReturn(List.of(1L));
+        when(userRepository.purgeTombstones(List.of(1L))).thenReturn(1);
+
+        // Act
+        int removed = purgeService.purgeTombstones();
+
+        // Assert
+        assertThat(removed).isEqualTo(1);
+        verify(userRepository, times(1)).findTombstoneIds(any(LocalDateTime.class), anyInt());
+        assertThat(meterRegistry.get("users.purge.runs").tag("outcome", "completed").counter().count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    void purgeTombstones_WhenBusy_ShouldSkipRun() {
+        // Arrange
+        purgeService.setCpuLoad(() -> 0.9);
+        when(userRepository.countTombstones()).thenReturn(42L);
+
+        // Act
+        int removed = purgeService.purgeTombstones();
+
+        // Assert
+        assertThat(removed).isZero();
+        verify(userRepository, never()).purgeTombstones(anyList());
+        assertThat(purgeService.getBacklog()).isEqualTo(42L);
+        assertThat(meterRegistry.get("users.purge.runs").tag("outcome", "skipped").counter().count())
+                .isEqualTo(1.0);
+    }
+}
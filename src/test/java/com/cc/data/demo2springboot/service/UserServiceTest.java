@@ -1,19 +1,29 @@
 package com.cc.data.demo2springboot.service;
 
+import com.cc.data.demo2springboot.dto.BatchItemResult;
+import com.cc.data.demo2springboot.exception.DuplicateResourceException;
+import com.cc.data.demo2springboot.exception.PreconditionFailedException;
 import com.cc.data.demo2springboot.model.User;
+import com.cc.data.demo2springboot.model.UserEvent;
 import com.cc.data.demo2springboot.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
-import org.mockito.InjectMocks;
+import org.mockito.InOrder;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.support.TransactionOperations;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.Collections;
@@ -23,6 +33,9 @@ import java.util.Optional;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -31,7 +44,18 @@ class UserServiceTest {
     @Mock
     private UserRepository userRepository;
 
-    @InjectMocks
+    @Mock
+    private UserUniquenessIndex uniquenessIndex;
+
+    @Spy
+    private UserShards shards = UserShards.single();
+
+    @Mock
+    private UserEventOutbox events;
+
+    @Spy
+    private TransactionOperations transactions = TransactionOperations.withoutTransaction();
+
     private UserService userService;
 
     private User testUser;
@@ -39,6 +63,9 @@ class UserServiceTest {
 
     @BeforeEach
     void setUp() {
+        ReadCoalescer reads = new ReadCoalescer(TransactionOperations.withoutTransaction(), new SimpleMeterRegistry(),
+                true, Duration.ofSeconds(5));
+        userService = new UserService(userRepository, uniquenessIndex, shards, events, transactions, reads, null, false);
         now = LocalDateTime.now();
         testUser = new User(1L, "testuser", "test@example.com", "Test User",
                 now, now, true);
@@ -51,27 +78,27 @@ class UserServiceTest {
                 now, now, true);
         List<User> expectedUsers = Arrays.asList(testUser, user2);
 
-        when(userRepository.findAll()).thenReturn(expectedUsers);
+        when(userRepository.scanAll()).thenReturn(expectedUsers);
 
         // Act
         List<User> actualUsers = userService.getAllUsers();
 
         // Assert
         assertThat(actualUsers).isEqualTo(expectedUsers);
-        verify(userRepository, times(1)).findAll();
+        verify(userRepository, times(1)).scanAll();
     }
 
     @Test
     void getAllUsers_WhenNoUsers_ShouldReturnEmptyList() {
         // Arrange
-        when(userRepository.findAll()).thenReturn(Collections.emptyList());
+        when(userRepository.scanAll()).thenReturn(Collections.emptyList());
 
         // Act
         List<User> actualUsers = userService.getAllUsers();
 
         // Assert
         assertThat(actualUsers).isEmpty();
-        verify(userRepository, times(1)).findAll();
+        verify(userRepository, times(1)).scanAll();
     }
 
     @Test
@@ -117,6 +144,7 @@ class UserServiceTest {
         // Assert
         assertThat(result).isEqualTo(savedUser);
         verify(userRepository, times(1)).save(newUser);
+        verify(events).append(UserEvent.Type.CREATED, savedUser);
     }
 
     @Test
@@ -137,13 +165,13 @@ class UserServiceTest {
         ArgumentCaptor<User> userCaptor = ArgumentCaptor.forClass(User.class);
 
         when(userRepository.findById(1L)).thenReturn(Optional.of(existingUser));
-        when(userRepository.save(any(User.class))).thenAnswer(i -> i.getArgument(0));
+        when(userRepository.saveAndFlush(any(User.class))).thenAnswer(i -> i.getArgument(0));
 
         // Act
         User result = userService.updateUser(1L, updatedDetails);
 
         // Assert
-        verify(userRepository).save(userCaptor.capture());
+        verify(userRepository).saveAndFlush(userCaptor.capture());
         User savedUser = userCaptor.getValue();
 
         assertThat(savedUser.getId()).isEqualTo(1L);
@@ -159,7 +187,8 @@ class UserServiceTest {
         assertThat(result.isActive()).isEqualTo(updatedDetails.isActive());
 
         verify(userRepository, times(1)).findById(1L);
-        verify(userRepository, times(1)).save(any(User.class));
+        verify(userRepository, times(1)).saveAndFlush(any(User.class));
+        verify(events).append(UserEvent.Type.UPDATED, savedUser);
     }
 
     @Test
@@ -189,23 +218,24 @@ class UserServiceTest {
     }
 
     @Test
-    void deleteUser_WhenUserExists_ShouldDeleteUser() {
+    void deleteUser_WhenUserExists_ShouldSoftDeleteUser() {
         // Arrange
-        when(userRepository.existsById(1L)).thenReturn(true);
-        doNothing().when(userRepository).deleteById(1L);
+        when(userRepository.softDeleteById(eq(1L), any(LocalDateTime.class))).thenReturn(1);
 
         // Act
         userService.deleteUser(1L);
 
         // Assert
-        verify(userRepository, times(1)).existsById(1L);
-        verify(userRepository, times(1)).deleteById(1L);
+        verify(userRepository, times(1)).softDeleteById(eq(1L), any(LocalDateTime.class));
+        verify(userRepository, never()).deleteById(anyLong());
+        verify(userRepository, never()).existsById(any());
+        verify(events).appendDeleted(1L, null);
     }
 
     @Test
     void deleteUser_WhenUserDoesNotExist_ShouldThrowException() {
         // Arrange
-        when(userRepository.existsById(99L)).thenReturn(false);
+        when(userRepository.softDeleteById(eq(99L), any(LocalDateTime.class))).thenReturn(0);
 
         // Act & Assert
         Exception exception = assertThrows(RuntimeException.class, () -> {
@@ -213,8 +243,8 @@ class UserServiceTest {
         });
 
         assertThat(exception.getMessage()).contains("User not found");
-        verify(userRepository, times(1)).existsById(99L);
         verify(userRepository, never()).deleteById(anyLong());
+        verifyNoInteractions(events);
     }
 
     @Test
@@ -257,4 +287,246 @@ class UserServiceTest {
         assertThat(actualPage.getTotalPages()).isEqualTo(1);
         verify(userRepository, times(1)).findAll(pageable);
     }
+
+    @Test
+    void updateUser_WithMatchingVersion_ShouldUpdateConditionallyAndReturnUser() {
+        // Arrange
+        User updatedDetails = new User(1L, "updated", "updated@example.com", "Updated User",
+                null, now, false);
+        User storedUser = new User(1L, "updated", "updated@example.com", "Updated User",
+                now, now, false);
+        storedUser.setVersion(4L);
+
+        when(userRepository.updateIfVersionMatches(1L, 3L, "updated", "updated@example.com",
+                "Updated User", false, now)).thenReturn(1);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(storedUser));
+
+        // Act
+        User result = userService.updateUser(1L, updatedDetails, 3L);
+
+        // Assert
+        assertThat(result.getVersion()).isEqualTo(4L);
+        verify(userRepository, never()).saveAndFlush(any(User.class));
+        verify(userRepository, never()).existsById(any());
+        verify(events).append(UserEvent.Type.UPDATED, storedUser);
+        verify(uniquenessIndex).record(storedUser);
+    }
+
+    @Test
+    void updateUser_WithVersion_ShouldNotReadBeforeUpdating() {
+        // Arrange
+        User updatedDetails = new User(1L, "updated", "updated@example.com", "Updated User",
+                null, now, false);
+        User storedUser = new User(1L, "updated", "updated@example.com", "Updated User",
+                now, now, false);
+        storedUser.setVersion(4L);
+        when(userRepository.updateIfVersionMatches(eq(1L), eq(3L), anyString(), anyString(), anyString(),
+                anyBoolean(), any())).thenReturn(1);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(storedUser));
+
+        // Act
+        userService.updateUser(1L, updatedDetails, 3L);
+
+        // Assert
+        InOrder order = inOrder(userRepository);
+        order.verify(userRepository).updateIfVersionMatches(eq(1L), eq(3L), anyString(), anyString(), anyString(),
+                anyBoolean(), any());
+        order.verify(userRepository).findById(1L);
+        verify(uniquenessIndex, never()).usernameTaken(anyString());
+        verify(uniquenessIndex, never()).emailTaken(anyString());
+    }
+
+    @Test
+    void updateUser_WithStaleVersion_ShouldThrowPreconditionFailed() {
+        // Arrange
+        User updatedDetails = new User(1L, "updated", "updated@example.com", "Updated User",
+                null, now, false);
+
+        when(userRepository.updateIfVersionMatches(eq(1L), eq(2L), anyString(), anyString(), anyString(),
+                anyBoolean(), any())).thenReturn(0);
+        when(userRepository.existsById(1L)).thenReturn(true);
+
+        // Act & Assert
+        assertThrows(PreconditionFailedException.class, () -> userService.updateUser(1L, updatedDetails, 2L));
+        verify(userRepository, never()).findById(any());
+        verify(uniquenessIndex, never()).record(any());
+    }
+
+    @Test
+    void updateUser_WithVersion_WhenUserDoesNotExist_ShouldThrowException() {
+        // Arrange
+        User updatedDetails = new User(99L, "updated", "updated@example.com", "Updated User",
+                null, now, false);
+
+        when(userRepository.updateIfVersionMatches(eq(99L), eq(0L), anyString(), anyString(), anyString(),
+                anyBoolean(), any())).thenReturn(0);
+        when(userRepository.existsById(99L)).thenReturn(false);
+
+        // Act & Assert
+        Exception exception = assertThrows(RuntimeException.class,
+                () -> userService.updateUser(99L, updatedDetails, 0L));
+
+        assertThat(exception).isNotInstanceOf(PreconditionFailedException.class);
+        assertThat(exception.getMessage()).contains("User not found");
+    }
+
+    @Test
+    void deleteUser_WithStaleVersion_ShouldThrowPreconditionFailed() {
+        // Arrange
+        when(userRepository.softDeleteIfVersionMatches(eq(1L), eq(5L), any(LocalDateTime.class))).thenReturn(0);
+        when(userRepository.existsById(1L)).thenReturn(true);
+
+        // Act & Assert
+        assertThrows(PreconditionFailedException.class, () -> userService.deleteUser(1L, 5L));
+        verify(userRepository, never()).deleteById(anyLong());
+    }
+
+    @Test
+    void deleteUser_WithMatchingVersion_ShouldNotReadBeforeDeleting() {
+        // Arrange
+        when(userRepository.softDeleteIfVersionMatches(eq(1L), eq(5L), any(LocalDateTime.class))).thenReturn(1);
+
+        // Act
+        userService.deleteUser(1L, 5L);
+
+        // Assert
+        verify(userRepository, never()).existsById(any());
+        verify(userRepository, never()).findById(any());
+        verify(events).appendDeleted(1L, 6L);
+    }
+
+    @Test
+    void updateUsers_ShouldReportPerRowConflicts() {
+        // Arrange
+        User fresh = new User(1L, "fresh", "fresh@example.com", "Fresh", null, now, true);
+        fresh.setVersion(0L);
+        User stale = new User(2L, "stale", "stale@example.com", "Stale", null, now, true);
+        stale.setVersion(0L);
+        User missingVersion = new User(3L, "nover", "nover@example.com", "No Version", null, now, true);
+
+        User stored = new User(1L, "fresh", "fresh@example.com", "Fresh", now, now, true);
+        stored.setVersion(1L);
+
+        when(userRepository.updateIfVersionMatches(eq(1L), eq(0L), anyString(), anyString(), anyString(),
+                anyBoolean(), any())).thenReturn(1);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(stored));
+        when(userRepository.updateIfVersionMatches(eq(2L), eq(0L), anyString(), anyString(), anyString(),
+                anyBoolean(), any())).thenReturn(0);
+        when(userRepository.existsById(2L)).thenReturn(true);
+
+        // Act
+        List<BatchItemResult> results = userService.updateUsers(Arrays.asList(fresh, stale, missingVersion));
+
+        // Assert
+        assertThat(results).extracting(BatchItemResult::getStatus).containsExactly(200, 412, 400);
+        assertThat(results.get(0).getVersion()).isEqualTo(1L);
+        assertThat(results).extracting(BatchItemResult::getIndex).containsExactly(0, 1, 2);
+    }
+
+    @Test
+    void updateUsers_ShouldReportMissingAndTakenRowsAndStopOnOtherFailures() {
+        // Arrange
+        User missing = new User(1L, "missing", "missing@example.com", "Missing", null, now, true);
+        missing.setVersion(0L);
+        User taken = new User(2L, "taken", "taken@example.com", "Taken", null, now, true);
+        taken.setVersion(0L);
+        User broken = new User(3L, "broken", "broken@example.com", "Broken", null, now, true);
+        broken.setVersion(0L);
+
+        when(userRepository.updateIfVersionMatches(eq(1L), eq(0L), anyString(), anyString(), anyString(),
+                anyBoolean(), any())).thenReturn(0);
+        when(userRepository.existsById(1L)).thenReturn(false);
+        when(userRepository.updateIfVersionMatches(eq(2L), eq(0L), anyString(), anyString(), anyString(),
+                anyBoolean(), any())).thenThrow(new DataIntegrityViolationException(
+                "could not execute statement [Unique index or primary key violation: \"PUBLIC.UK_USERS_EMAIL_INDEX_4\"]"));
+        when(userRepository.updateIfVersionMatches(eq(3L), eq(0L), anyString(), anyString(), anyString(),
+                anyBoolean(), any())).thenThrow(new QueryTimeoutException("timed out"));
+
+        // Act
+        List<BatchItemResult> results = userService.updateUsers(Arrays.asList(missing, taken));
+
+        // Assert
+        assertThat(results).extracting(BatchItemResult::getStatus).containsExactly(404, 409);
+        assertThat(results.get(1).getMessage()).contains("email", "taken@example.com");
+        assertThrows(QueryTimeoutException.class, () -> userService.updateUsers(List.of(broken)));
+    }
+
+    @Test
+    void updateUser_WhenAnotherConstraintFails_ShouldNotReportDuplicate() {
+        // Arrange
+        User stored = new User(1L, "old", "old@example.com", "Old", now, now, true);
+        stored.setVersion(0L);
+        User details = new User(1L, null, "old@example.com", "Old", null, now, true);
+        DataIntegrityViolationException notNull = new DataIntegrityViolationException(
+                "NULL not allowed for column \"USERNAME\"");
+        when(userRepository.findById(1L)).thenReturn(Optional.of(stored));
+        when(userRepository.saveAndFlush(stored)).thenThrow(notNull);
+
+        // Act & Assert
+        assertThat(assertThrows(DataIntegrityViolationException.class, () -> userService.updateUser(1L, details)))
+                .isSameAs(notNull);
+    }
+
+    @Test
+    void createUser_WithTakenUsername_ShouldThrowDuplicateWithoutSaving() {
+        // Arrange
+        User newUser = new User(null, "testuser", "other@example.com", "New User",
+                null, null, true);
+        when(uniquenessIndex.usernameTaken("testuser")).thenReturn(true);
+
+        // Act & Assert
+        Exception exception = assertThrows(DuplicateResourceException.class, () -> userService.createUser(newUser));
+        assertThat(exception.getMessage()).contains("username").contains("testuser");
+        verify(userRepository, never()).save(any());
+    }
+
+    @Test
+    void createUser_WhenTheConstraintCatchesADuplicate_ShouldThrowDuplicate() {
+        // Arrange: the filter said "definitely new", but another instance took the email
+        User newUser = new User(null, "newuser", "new@example.com", "New User",
+                null, null, true);
+        when(userRepository.save(newUser)).thenThrow(new DataIntegrityViolationException(
+                "could not execute statement [Unique index or primary key violation: \"PUBLIC.UK_USERS_EMAIL_INDEX_4\"]"));
+
+        // Act & Assert
+        Exception exception = assertThrows(DuplicateResourceException.class, () -> userService.createUser(newUser));
+        assertThat(exception.getMessage()).contains("email").contains("new@example.com");
+        verify(uniquenessIndex, never()).record(any());
+    }
+
+    @Test
+    void createUser_ShouldRecordSavedUserInUniquenessIndex() {
+        // Arrange
+        User newUser = new User(null, "newuser", "new@example.com", "New User",
+                null, null, true);
+        User savedUser = new User(1L, "newuser", "new@example.com", "New User",
+                now, now, true);
+        when(userRepository.save(newUser)).thenReturn(savedUser);
+
+        // Act
+        userService.createUser(newUser);
+
+        // Assert
+        verify(uniquenessIndex).record(savedUser);
+    }
+
+    @Test
+    void findDuplicates_ShouldReportExistingAndInBatchConflictsPerRow() {
+        // Arrange
+        List<User> batch = Arrays.asList(
+                new User(null, "fresh", "fresh@example.com", "Fresh", null, null, true),
+                new User(null, "testuser", "taken@example.com", "Taken", null, null, true),
+                new User(null, "fresh", "fresh2@example.com", "Fresh Again", null, null, true),
+                new User(null, "other", "fresh@example.com", "Same Email", null, null, true));
+        when(uniquenessIndex.usernameTaken(anyString())).thenAnswer(i -> "testuser".equals(i.getArgument(0)));
+
+        // Act
+        List<BatchItemResult> conflicts = userService.findDuplicates(batch);
+
+        // Assert
+        assertThat(conflicts).extracting(BatchItemResult::getIndex).containsExactly(1, 2, 3);
+        assertThat(conflicts).extracting(BatchItemResult::getStatus).containsOnly(409);
+        assertThat(conflicts.get(1).getMessage()).contains("within batch");
+        verify(userRepository, never()).save(any());
+    }
 }
@@ -0,0 +1,251 @@
+package com.cc.data.demo2springboot.service;
+
+import com.cc.data.demo2springboot.exception.DuplicateResourceException;
+import com.cc.data.demo2springboot.model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Runs the user service against four embedded H2 databases as shards.
+ */
+@SpringBootTest(properties = {
+        "app.sharding.urls=" + UserShardingTest.SHARD_URL + "0," + UserShardingTest.SHARD_URL + "1,"
+                + UserShardingTest.SHARD_URL + "2," + UserShardingTest.SHARD_URL + "3",
+        "app.user.purge.enabled=false",
+        "spring.jpa.show-sql=false"
+})
+class UserShardingTest {
+
+    static final String SHARD_URL = "jdbc:h2:mem:user-shard-";
+    private static final int SHARDS = 4;
+
+    private static final Logger logger = LoggerFactory.getLogger(UserShardingTest.class);
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserShards shards;
+
+    private final List<JdbcTemplate> shardJdbc = IntStream.range(0, SHARDS)
+            .mapToObj(shard -> new JdbcTemplate(new DriverManagerDataSource(SHARD_URL + shard, "sa", "password")))
+            .toList();
+
+    @AfterEach
+    void tearDown() {
+        shardJdbc.forEach(jdbc -> jdbc.update("DELETE FROM users"));
+        shardJdbc.get(0).update("DELETE FROM user_claims");
+    }
+
+    private List<User> createUsers(int count, String prefix) {
+        List<User> created = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            User user = new User();
+            user.setUsername(prefix + i);
+            user.setEmail(prefix + i + "@example.com");
+            user.setActive(true);
+            created.add(userService.createUser(user));
+        }
+        return created;
+    }
+
+    @Test
+    void createUser_ShouldPlaceByUsernameHashAndRouteById() {
+        List<User> created = createUsers(40, "spread");
+
+        for (User user : created) {
+            int shard = shards.shardOf(user.getId());
+            assertThat(shard).isEqualTo(shards.shardFor(user.getUsername()));
+            assertThat(shardJdbc.get(shard).queryForObject(
+                    "SELECT username FROM users WHERE id = ?", String.class, user.getId()))
+                    .isEqualTo(user.getUsername());
+            assertThat(userService.getUserById(user.getId())).map(User::getUsername).hasValue(user.getUsername());
+        }
+        for (JdbcTemplate jdbc : shardJdbc) {
+            assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM users", Long.class)).isPositive();
+        }
+    }
+
+    @Test
+    void getAllUsers_ShouldScatterAndMergeSortedPages() {
+        List<User> created = createUsers(40, "page");
+        List<String> expected = created.stream().map(User::getUsername).sorted(Comparator.reverseOrder()).toList();
+
+        Page<User> page = userService.getAllUsers(PageRequest.of(2, 7, Sort.by(Sort.Direction.DESC, "username")));
+
+        assertThat(page.getTotalElements()).isEqualTo(40);
+        assertThat(page.getContent()).extracting(User::getUsername).containsExactlyElementsOf(expected.subList(14, 21));
+
+        Page<User> unsorted = userService.getAllUsers(PageRequest.of(0, 5));
+        List<Long> lowestIds = created.stream().map(User::getId).sorted().limit(5).toList();
+        assertThat(unsorted.getContent()).extracting(User::getId).containsExactlyElementsOf(lowestIds);
+        assertThat(userService.getAllUsers()).hasSize(40);
+    }
+
+    @Test
+    void updateAndDelete_ShouldRunOnTheUsersShard() {
+        User user = createUsers(1, "single").get(0);
+        user.setFullName("Renamed");
+
+        User updated = userService.updateUser(user.getId(), user, user.getVersion());
+        userService.deleteUser(updated.getId(), updated.getVersion());
+
+        assertThat(updated.getFullName()).isEqualTo("Renamed");
+        assertThat(userService.getUserById(user.getId())).isEmpty();
+        assertThat(shardJdbc.get(shards.shardOf(user.getId())).queryForObject(
+                "SELECT COUNT(*) FROM users WHERE id = ? AND deleted_at IS NOT NULL", Long.class, user.getId()))
+                .isEqualTo(1);
+    }
+
+    /**
+     * The first of name-0, name-1, ... that the username hash places on (or off) the given shard.
+     */
+    private String nameFor(String prefix, int shard, boolean onShard) {
+        for (int i = 0; ; i++) {
+            String name = prefix + "-" + i;
+            if ((shards.shardFor(name) == shard) == onShard) {
+                return name;
+            }
+        }
+    }
+
+    @Test
+    void updateUser_ShouldRenameInPlaceAndKeepNamesUniqueAcrossShards() {
+        User user = createUsers(1, "renamed").get(0);
+        int shard = shards.shardOf(user.getId());
+        User other = new User();
+        other.setUsername(nameFor("elsewhere", shard, false));
+        other.setEmail("elsewhere@example.com");
+        other.setActive(true);
+        userService.createUser(other);
+
+        // The new username hashes to another shard, but the user stays where its id says
+        User moved = new User();
+        moved.setUsername(nameFor("moved", shard, false));
+        moved.setEmail(user.getEmail());
+        moved.setActive(true);
+        User renamed = userService.updateUser(user.getId(), moved, user.getVersion());
+
+        assertThat(renamed.getUsername()).isEqualTo(moved.getUsername());
+        assertThat(shardJdbc.get(shard).queryForObject(
+                "SELECT username FROM users WHERE id = ?", String.class, user.getId()))
+                .isEqualTo(moved.getUsername());
+        assertThat(userService.getUserById(user.getId())).map(User::getUsername).hasValue(moved.getUsername());
+        assertThat(shardJdbc.get(0).queryForObject(
+                "SELECT username FROM user_claims WHERE user_id = ?", String.class, user.getId()))
+                .isEqualTo(moved.getUsername());
+
+        User takenEmail = new User();
+        takenEmail.setUsername(renamed.getUsername());
+        takenEmail.setEmail(other.getEmail());
+        takenEmail.setActive(true);
+        assertThatThrownBy(() -> userService.updateUser(user.getId(), takenEmail, renamed.getVersion()))
+                .isInstanceOf(DuplicateResourceException.class);
+        User takenUsername = new User();
+        takenUsername.setUsername(other.getUsername());
+        takenUsername.setEmail(renamed.getEmail());
+        takenUsername.setActive(true);
+        assertThatThrownBy(() -> userService.updateUser(user.getId(), takenUsername, renamed.getVersion()))
+                .isInstanceOf(DuplicateResourceException.class);
+    }
+
+    @Test
+    void createUser_ShouldBeRefusedByAClaimThePreCheckCannotSee() {
+        // As if another instance had just claimed the email for a user on another shard
+        shardJdbc.get(0).update("INSERT INTO user_claims (user_id, username, email) VALUES (?, ?, ?)",
+                -1L, "remote", "remote@example.com");
+        User user = new User();
+        user.setUsername("local");
+        user.setEmail("remote@example.com");
+        user.setActive(true);
+
+        assertThatThrownBy(() -> userService.createUser(user))
+                .isInstanceOf(DuplicateResourceException.class)
+                .hasMessageContaining("email");
+        for (JdbcTemplate jdbc : shardJdbc) {
+            assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM users WHERE username = 'local'", Long.class))
+                    .isZero();
+        }
+        assertThat(shardJdbc.get(0).queryForObject("SELECT COUNT(*) FROM user_claims", Long.class)).isEqualTo(1);
+    }
+
+    @Test
+    void concurrentInserts_ShouldScaleWithShardCount() throws Exception {
+        int threads = SHARDS;
+        int perThread = 300;
+
+        double oneShard = insertsPerSecond("hot", threads, perThread, shard -> shard == 0);
+        double allShards = insertsPerSecond("spread", threads, perThread, shard -> true);
+        double speedup = allShards / oneShard;
+        logger.info("Inserts/s with {} threads: one shard {}, {} shards {} (x{})", threads,
+                Math.round(oneShard), SHARDS, Math.round(allShards), String.format("%.2f", speedup));
+
+        // Embedded H2 inserts are CPU-bound, so the shards can only run side by side on enough cores
+        assumeTrue(Runtime.getRuntime().availableProcessors() >= SHARDS,
+                "needs at least " + SHARDS + " cores to show scaling");
+        assertThat(speedup).isGreaterThan(0.6 * SHARDS);
+    }
+
+    /**
+     * Inserts from several threads, using only usernames that land on the accepted shards.
+     */
+    private double insertsPerSecond(String prefix, int threads, int perThread, IntPredicate acceptShard)
+            throws Exception {
+        List<List<String>> names = new ArrayList<>();
+        int candidate = 0;
+        for (int t = 0; t < threads; t++) {
+            List<String> batch = new ArrayList<>();
+            while (batch.size() < perThread) {
+                String name = prefix + "-" + candidate++;
+                if (acceptShard.test(shards.shardFor(name))) {
+                    batch.add(name);
+                }
+            }
+            names.add(batch);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            long start = System.nanoTime();
+            List<Future<?>> futures = new ArrayList<>();
+            for (List<String> batch : names) {
+                futures.add(executor.submit(() -> batch.forEach(name -> {
+                    User user = new User();
+                    user.setUsername(name);
+                    user.setEmail(name + "@example.com");
+                    user.setActive(true);
+                    userService.createUser(user);
+                })));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            return threads * perThread / seconds;
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.cc.data.demo2springboot.service;
+
+import com.cc.data.demo2springboot.config.UserConfig;
+import com.cc.data.demo2springboot.model.User;
+import com.cc.data.demo2springboot.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UserUniquenessIndexTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private UserUniquenessIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new UserUniquenessIndex(userRepository, new UserConfig(), UserShards.single());
+    }
+
+    private static User user(String name) {
+        return new User(null, name, name + "@example.com", name, null, null, true);
+    }
+
+    @Test
+    void seed_ShouldAnswerDefinitelyNewOnlyForUnknownNames() {
+        when(userRepository.findAllUsernames()).thenReturn(List.of("alice"));
+        when(userRepository.findAllEmails()).thenReturn(List.of("alice@example.com"));
+
+        index.seed();
+        index.record(user("bob"));
+
+        assertThat(index.usernameMightBeTaken("alice")).isTrue();
+        assertThat(index.emailMightBeTaken("bob@example.com")).isTrue();
+        assertThat(index.usernameMightBeTaken("carol")).isFalse();
+    }
+
+    @Test
+    void usersWrittenBeforeOrDuringTheSeed_ShouldNotBeMissed() {
+        // Recorded before the seed started, and during its scan, but not yet visible to it
+        index.record(user("early"));
+        when(userRepository.findAllUsernames()).thenAnswer(invocation -> {
+            index.record(user("during"));
+            return List.of();
+        });
+        when(userRepository.findAllEmails()).thenReturn(List.of());
+
+        index.seed();
+
+        assertThat(index.usernameMightBeTaken("early")).isTrue();
+        assertThat(index.usernameMightBeTaken("during")).isTrue();
+        assertThat(index.emailMightBeTaken("during@example.com")).isTrue();
+        assertThat(index.usernameMightBeTaken("later")).isFalse();
+    }
+
+    @Test
+    void usersWrittenDuringAReseed_ShouldNotBeMissed() {
+        when(userRepository.findAllUsernames()).thenReturn(List.of());
+        when(userRepository.findAllEmails()).thenReturn(List.of());
+        index.seed();
+
+        when(userRepository.findAllUsernames()).thenAnswer(invocation -> {
+            index.record(user("during"));
+            return List.of();
+        });
+        index.seed();
+
+        assertThat(index.usernameMightBeTaken("during")).isTrue();
+    }
+}